@@ -26,14 +26,15 @@ import org.greenrobot.eventbus.ThreadMode;
 // TODO: setupCallbacks also onResume?
 public class ActivateAccountActivity extends Activity {
 
-    private final EventBus bus = EventBus.getDefault();
+    private final EventBus bus = MyApplication.getEventBus();
 
     private CommunicationManager communicationManager;
-    private ResponseAnalyzer responseAnalyzer;
+    // The response analyzer of the last finished request, whose errors and warnings are shown.
+    private ResponseAnalyzer shownResponseAnalyzer = new ResponseAnalyzer();
 
 
     /**
-     * Gets the communication manager and response analyzer.
+     * Gets the communication manager.
      *
      * @param savedInstanceState savedInstanceState
      */
@@ -43,7 +44,6 @@ public class ActivateAccountActivity extends Activity {
         setContentView(R.layout.activity_activate_account);
 
         communicationManager = MyApplication.getCommunicationManagerActivateAccountNotNull();
-        responseAnalyzer = communicationManager.getResponseAnalyzer();
     }
 
     /**
@@ -64,7 +64,7 @@ public class ActivateAccountActivity extends Activity {
         super.onResume();
 
         bus.register(this);
-        updateUI();
+        updateUI(shownResponseAnalyzer);
     }
 
     /**
@@ -93,9 +93,14 @@ public class ActivateAccountActivity extends Activity {
 
     /**
      * Updates the UI elements (with the new information).
+     *
+     * @param responseAnalyzer The response analyzer of the request whose errors and warnings are
+     *                         shown.
      */
-    public void updateUI() {
+    public void updateUI(ResponseAnalyzer responseAnalyzer) {
         runOnUiThread(() -> {
+            shownResponseAnalyzer = responseAnalyzer;
+
             TextView txtView_activateAccountErrors = findViewById(R.id.txtView_activateAccountErrors);
             TextView txtView_activateAccountWarnings = findViewById(R.id.txtView_activateAccountWarnings);
 
@@ -132,14 +137,17 @@ public class ActivateAccountActivity extends Activity {
 
     /**
      * Updates the UI and notifies the user. This function is executed when the account activation
-     * succeeded partially.
+     * succeeded partially or was queued in the outbox because the server could not be reached.
      *
      * @param event The AccountActivationSucceededPartially event.
      */
     @Subscribe
     public void accountActivationSucceededPartially(AccountActivationSucceededPartially event) {
-        bus.post(new ToastMessage("Account activated!"));
-        updateUI();
+        // A queued request only shows its warning, it was not handled by the server yet.
+        if(!event.getResponseAnalyzer().hasWarning(CommunicationManager.WARNING_QUEUED)) {
+            bus.post(new ToastMessage("Account activated!"));
+        }
+        updateUI(event.getResponseAnalyzer());
     }
 
     /**
@@ -149,7 +157,7 @@ public class ActivateAccountActivity extends Activity {
      */
     @Subscribe
     public void accountActivationFailed(AccountActivationFailed event) {
-        updateUI();
+        updateUI(event.getResponseAnalyzer());
     }
 
 
@@ -157,7 +165,7 @@ public class ActivateAccountActivity extends Activity {
      * Starts the account activation process with the in the text fields provided information.
      */
     public void activateAccount() {
-        if(!communicationManager.inProgress().get()) {
+        if(!communicationManager.inProgress()) {
             EditText editText_accountActivationCode = findViewById(R.id.editText_accountActivationCode);
 
             String accountActivationCode = editText_accountActivationCode.getText().toString();
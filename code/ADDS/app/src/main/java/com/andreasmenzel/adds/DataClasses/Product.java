@@ -1,14 +1,9 @@
 package com.andreasmenzel.adds.DataClasses;
 
-import com.andreasmenzel.adds.Manager.CommunicationManager;
 import com.andreasmenzel.adds.MyApplication;
-import com.andreasmenzel.adds.ResponseAnalyzer;
 
 public class Product {
 
-    CommunicationManager communicationManager;
-    ResponseAnalyzer responseAnalyzer;
-
     private String id;
     private String name;
     private String description;
@@ -18,25 +13,30 @@ public class Product {
 
 
     public Product(String id, String warehouseID) {
-        communicationManager = MyApplication.getCommunicationManagerProductNotNull(this);
-        responseAnalyzer = communicationManager.getResponseAnalyzer();
-
         this.id = id;
         this.warehouseID = warehouseID;
     }
 
     public Product(String id, String name, String description) {
-        communicationManager = MyApplication.getCommunicationManagerProductNotNull(this);
-        responseAnalyzer = communicationManager.getResponseAnalyzer();
-
         this.id = id;
         this.name = name;
         this.description = description;
     }
 
 
+    /**
+     * Updates the information of the product. Uses the cached information if it is still fresh and
+     * fetches it from the Booking System otherwise (with the manager shared by all products).
+     */
     public void updateProductInfo() {
-        communicationManager.updateProductInfo(id);
+        ProductInfoCache.Entry cachedInfo = MyApplication.getProductInfoCache().get(id);
+        if(cachedInfo != null) {
+            name = cachedInfo.getName();
+            description = cachedInfo.getDescription();
+            return;
+        }
+
+        MyApplication.getCommunicationManagerProductNotNull().updateProductInfo(this);
     }
 
 
@@ -98,4 +98,40 @@ public class Product {
         this.description = description;
     }
 
+    /**
+     * Returns the id of the warehouse the product is stored in.
+     *
+     * @return warehouseID.
+     */
+    public String getWarehouseID() {
+        return warehouseID;
+    }
+
+    /**
+     * Sets the id of the warehouse the product is stored in.
+     *
+     * @param warehouseID warehouseID.
+     */
+    public void setWarehouseID(String warehouseID) {
+        this.warehouseID = warehouseID;
+    }
+
+    /**
+     * Returns the quantity of the product in the warehouse (-1 if unknown).
+     *
+     * @return quantity.
+     */
+    public int getQuantity() {
+        return quantity;
+    }
+
+    /**
+     * Sets the quantity of the product in the warehouse.
+     *
+     * @param quantity quantity.
+     */
+    public void setQuantity(int quantity) {
+        this.quantity = quantity;
+    }
+
 }
@@ -0,0 +1,176 @@
+package com.andreasmenzel.adds.DataClasses;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded, thread-safe LRU cache for product information (name, description), keyed by product
+ * id. Entries expire after a fixed time to live. Counts hits, misses and evictions so the cache
+ * can be sized.
+ */
+public class ProductInfoCache {
+
+    public static final int DEFAULT_MAX_ENTRIES = 1000;
+    public static final long DEFAULT_TIME_TO_LIVE_MILLIS = 5 * 60 * 1000;
+
+    /**
+     * The cached information of one product.
+     */
+    public static class Entry {
+        private final String name;
+        private final String description;
+        private final long fetchTime;
+
+        Entry(String name, String description, long fetchTime) {
+            this.name = name;
+            this.description = description;
+            this.fetchTime = fetchTime;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        /**
+         * Returns when the information was fetched (System.currentTimeMillis()).
+         *
+         * @return fetchTime.
+         */
+        public long getFetchTime() {
+            return fetchTime;
+        }
+    }
+
+
+    private final int maxEntries;
+    private final long timeToLiveMillis;
+
+    private final LinkedHashMap<String, Entry> entries;
+
+    private long hitCount = 0;
+    private long missCount = 0;
+    private long evictionCount = 0;
+
+
+    public ProductInfoCache() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_TIME_TO_LIVE_MILLIS);
+    }
+
+    /**
+     * Sets up an empty cache.
+     *
+     * @param maxEntries The maximum number of products in the cache. When full, the least recently
+     *                   used product is evicted.
+     * @param timeToLiveMillis How long an entry is served after it was fetched.
+     */
+    public ProductInfoCache(int maxEntries, long timeToLiveMillis) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.timeToLiveMillis = timeToLiveMillis;
+
+        entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if(size() > ProductInfoCache.this.maxEntries) {
+                    ++evictionCount;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+
+    /**
+     * Returns the cached information of a product if it is still fresh. Expired entries are
+     * removed.
+     *
+     * @param productId The id of the product.
+     * @return The entry or null on a miss or if the entry expired.
+     */
+    public synchronized Entry get(String productId) {
+        Entry entry = entries.get(productId);
+
+        if(entry != null && System.currentTimeMillis() - entry.fetchTime > timeToLiveMillis) {
+            entries.remove(productId);
+            entry = null;
+        }
+
+        if(entry != null) {
+            ++hitCount;
+        } else {
+            ++missCount;
+        }
+
+        return entry;
+    }
+
+    /**
+     * Stores freshly fetched information of a product.
+     *
+     * @param productId The id of the product.
+     * @param name The name of the product.
+     * @param description The description of the product.
+     */
+    public synchronized void put(String productId, String name, String description) {
+        entries.put(productId, new Entry(name, description, System.currentTimeMillis()));
+    }
+
+    /**
+     * Removes the information of a product, so the next request goes to the network.
+     *
+     * @param productId The id of the product.
+     */
+    public synchronized void invalidate(String productId) {
+        entries.remove(productId);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+    //                                    GETTERS AND SETTERS                                     //
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Returns the number of products in the cache.
+     *
+     * @return size.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns how often a fresh entry was found.
+     *
+     * @return hitCount.
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Returns how often no entry or only an expired entry was found.
+     *
+     * @return missCount.
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Returns how many entries were evicted because the cache was full.
+     *
+     * @return evictionCount.
+     */
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+}
@@ -1,41 +1,398 @@
 package com.andreasmenzel.adds.DataClasses;
 
-import com.andreasmenzel.adds.Manager.CommunicationManager;
+import com.andreasmenzel.adds.Events.ProductListChanged;
+import com.andreasmenzel.adds.Manager.CatalogManager;
+import com.andreasmenzel.adds.Manager.StockSyncManager;
 import com.andreasmenzel.adds.MyApplication;
-import com.andreasmenzel.adds.ResponseAnalyzer;
 
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
+/**
+ * The products (stocks) of a warehouse.
+ *
+ * A paged list (pageSize > 0) requests the stocks page by page: the list holds a window of at most
+ * maxLoadedPages consecutive pages. Once the user scrolls within prefetchDistance products of the
+ * end of the window, the next page is requested (see onScrolled()). If the window grows too large,
+ * the page at the other end is dropped and requested again when the user scrolls back.
+ */
 public class ProductList {
 
-    private final CommunicationManager communicationManager;
-    private final ResponseAnalyzer responseAnalyzer;
+    public static final int DEFAULT_PREFETCH_DISTANCE = 20;
+    public static final int DEFAULT_MAX_LOADED_PAGES = 5;
+
+    /**
+     * A loaded page: the cursor it was requested with (null for the first page), its products and
+     * the cursor of the following page (null for the last page).
+     */
+    private static class Page {
+        private final String cursor;
+        private final List<Product> products;
+        private final String nextCursor;
+
+        private Page(String cursor, List<Product> products, String nextCursor) {
+            this.cursor = cursor;
+            this.products = products;
+            this.nextCursor = nextCursor;
+        }
+    }
+
+    private enum PageRequest {
+        none, first, next, previous
+    }
 
     private String warehouseID = null;
     private LinkedList<Product> products = new LinkedList<Product>();
+    // The products by warehouse id and product id (see key()).
+    private final Map<String, Product> productsByKey = new HashMap<>();
+
+    // Whether the product information is fetched only for the shown rows (see
+    // ProductInfoHydrator) instead of for all products when the stocks arrive.
+    private boolean productInfoOnDemand = false;
+
+    private final int pageSize;
+    private int prefetchDistance = DEFAULT_PREFETCH_DISTANCE;
+    private int maxLoadedPages = DEFAULT_MAX_LOADED_PAGES;
+    private final LinkedList<Page> loadedPages = new LinkedList<>();
+    // The cursors of the dropped pages before and after the loaded pages (nearest page first, null
+    // is the cursor of the first page).
+    private final Deque<String> droppedPreviousCursors = new LinkedList<>();
+    private final Deque<String> droppedNextCursors = new LinkedList<>();
+    // The page request in progress (only one at a time) and its cursor.
+    private PageRequest pageRequest = PageRequest.none;
+    private String pageRequestCursor = null;
 
 
     public ProductList(String warehouseID) {
-        communicationManager = MyApplication.getCommunicationManagerProductListNotNull(this);
-        responseAnalyzer = communicationManager.getResponseAnalyzer();
+        this(warehouseID, 0);
+    }
 
+    /**
+     * Creates a product list.
+     *
+     * @param warehouseID The id of the warehouse.
+     * @param pageSize The number of products per page or 0 to request all stocks at once.
+     */
+    public ProductList(String warehouseID, int pageSize) {
         this.warehouseID = warehouseID;
+        this.pageSize = Math.max(0, pageSize);
     }
 
 
+    /**
+     * Updates the list of products. If the list is empty, the products stored in the catalog are
+     * loaded first (synchronously), so they can be shown while the Booking System is asked for the
+     * current stocks in the background. A paged list starts over with the first page.
+     * If the catalog of the warehouse was synced recently (see StockSyncManager), the products are
+     * taken from the catalog and no request is sent. A paged list only takes its loaded window
+     * from the catalog (and requests the first page if it has none yet).
+     */
     public void updateProductList() {
-        communicationManager.updateProductList(warehouseID);
+        if(products.isEmpty()) {
+            loadFromCatalog();
+        }
+
+        StockSyncManager stockSyncManager = MyApplication.getStockSyncManager();
+        CatalogManager catalogManager = MyApplication.getCatalogManager();
+        if(stockSyncManager != null && catalogManager != null && stockSyncManager.isFresh(warehouseID)) {
+            if(!isPaged()) {
+                reconcile(catalogManager.loadWarehouse(warehouseID));
+                return;
+            }
+            if(getLoadedPages() > 0) {
+                refreshWindow(catalogManager.loadQuantities(warehouseID, getProductIds()));
+                return;
+            }
+        }
+
+        if(isPaged()) {
+            requestPage(PageRequest.first, null);
+        } else {
+            MyApplication.getCommunicationManagerProductListNotNull().updateProductList(this);
+        }
+    }
+
+
+    /**
+     * Requests the page after the loaded pages if there is one and no page request is in
+     * progress.
+     *
+     * @return Whether the page was requested.
+     */
+    public boolean loadNextPage() {
+        String cursor;
+        synchronized(this) {
+            if(!isPaged() || loadedPages.isEmpty() || !hasNextPage()) return false;
+            cursor = !droppedNextCursors.isEmpty() ? droppedNextCursors.peekFirst() : loadedPages.getLast().nextCursor;
+        }
+
+        return requestPage(PageRequest.next, cursor);
+    }
+
+    /**
+     * Requests the (dropped) page before the loaded pages if there is one and no page request is
+     * in progress.
+     *
+     * @return Whether the page was requested.
+     */
+    public boolean loadPreviousPage() {
+        String cursor;
+        synchronized(this) {
+            if(!isPaged() || droppedPreviousCursors.isEmpty()) return false;
+            cursor = droppedPreviousCursors.peekFirst();
+        }
+
+        return requestPage(PageRequest.previous, cursor);
+    }
+
+    /**
+     * Prefetches the next (or previous) page if the visible products are within prefetchDistance
+     * products of the end (or start) of the list. Call it whenever the visible products change.
+     *
+     * @param firstVisiblePosition The position of the first visible product.
+     * @param lastVisiblePosition The position of the last visible product.
+     */
+    public void onScrolled(int firstVisiblePosition, int lastVisiblePosition) {
+        if(!isPaged() || lastVisiblePosition < 0) return;
+
+        int size;
+        synchronized(this) {
+            size = products.size();
+        }
+
+        if(lastVisiblePosition >= size - 1 - prefetchDistance) {
+            loadNextPage();
+        } else if(firstVisiblePosition <= prefetchDistance) {
+            loadPreviousPage();
+        }
+    }
+
+    private boolean requestPage(PageRequest request, String cursor) {
+        synchronized(this) {
+            // A request for the first page replaces any other page request in progress.
+            if(pageRequest != PageRequest.none && request != PageRequest.first) return false;
+            pageRequest = request;
+            pageRequestCursor = cursor;
+        }
+
+        MyApplication.getCommunicationManagerProductListNotNull().updateProductListPage(this, cursor);
+        return true;
     }
 
 
-    public void clearProducts() {
+    /**
+     * Stores a received page. The first page replaces the list (reconciled like the whole list,
+     * see reconcile()), other pages are added to the end or start of the list. Then the pages at
+     * the other end are dropped until at most maxLoadedPages pages are loaded. A page that does
+     * not answer the page request in progress is ignored.
+     *
+     * @param cursor The cursor the page was requested with (null for the first page).
+     * @param receivedProducts The products of the page.
+     * @param nextCursor The cursor of the following page (null if it is the last page).
+     * @return The ids of the added, removed and changed products.
+     */
+    public synchronized ProductListChanged storePage(String cursor, List<Product> receivedProducts, String nextCursor) {
+        List<String> addedIds = new ArrayList<>();
+        List<String> removedIds = new ArrayList<>();
+        List<String> changedIds = new ArrayList<>();
+
+        if(pageRequest == PageRequest.none || !Objects.equals(cursor, pageRequestCursor)) {
+            return new ProductListChanged(addedIds, removedIds, changedIds);
+        }
+
+        // End the page request here already, so the update of the UI can prefetch the next page.
+        PageRequest request = pageRequest;
+        pageRequest = PageRequest.none;
+        pageRequestCursor = null;
+
+        if(request == PageRequest.first) {
+            ProductListChanged productListChanged = reconcile(receivedProducts);
+            loadedPages.clear();
+            droppedPreviousCursors.clear();
+            droppedNextCursors.clear();
+            loadedPages.add(new Page(cursor, new ArrayList<>(products), nextCursor));
+            return productListChanged;
+        }
+
+        List<Product> pageProducts = new ArrayList<>(receivedProducts.size());
+        for(Product product : receivedProducts) {
+            String key = key(product);
+            if(productsByKey.containsKey(key)) continue;
+
+            productsByKey.put(key, product);
+            pageProducts.add(product);
+            addedIds.add(product.getId());
+        }
+        Page page = new Page(cursor, pageProducts, nextCursor);
+
+        if(request == PageRequest.next) {
+            droppedNextCursors.pollFirst();
+            loadedPages.addLast(page);
+            products.addAll(pageProducts);
+
+            while(loadedPages.size() > maxLoadedPages) {
+                Page droppedPage = loadedPages.removeFirst();
+                droppedPreviousCursors.addFirst(droppedPage.cursor);
+                for(int i = 0; i < droppedPage.products.size(); ++i) {
+                    removeProduct(products.removeFirst(), removedIds);
+                }
+            }
+        } else {
+            droppedPreviousCursors.pollFirst();
+            loadedPages.addFirst(page);
+            products.addAll(0, pageProducts);
+
+            while(loadedPages.size() > maxLoadedPages) {
+                Page droppedPage = loadedPages.removeLast();
+                droppedNextCursors.addFirst(droppedPage.cursor);
+                for(int i = 0; i < droppedPage.products.size(); ++i) {
+                    removeProduct(products.removeLast(), removedIds);
+                }
+            }
+        }
+
+        return new ProductListChanged(addedIds, removedIds, changedIds);
+    }
+
+    /**
+     * Ends the page request in progress if it was requested with the given cursor and failed
+     * (storePage() ends successful ones), so the page can be requested again.
+     *
+     * @param cursor The cursor of the finished page request.
+     */
+    public synchronized void onPageRequestFinished(String cursor) {
+        if(pageRequest != PageRequest.none && Objects.equals(cursor, pageRequestCursor)) {
+            pageRequest = PageRequest.none;
+            pageRequestCursor = null;
+        }
+    }
+
+    private void removeProduct(Product product, List<String> removedIds) {
+        productsByKey.remove(key(product));
+        removedIds.add(product.getId());
+    }
+
+
+    /**
+     * Refreshes the loaded products from the given quantities (e.g. of the catalog). Products
+     * without a quantity are removed from the list and from their page; the pages stay loaded.
+     *
+     * @param quantities The quantities by product id.
+     * @return The ids of the removed and changed products.
+     */
+    public synchronized ProductListChanged refreshWindow(Map<String, Integer> quantities) {
+        List<String> removedIds = new ArrayList<>();
+        List<String> changedIds = new ArrayList<>();
+
+        for(Iterator<Product> iterator = products.iterator(); iterator.hasNext(); ) {
+            Product product = iterator.next();
+            Integer quantity = quantities.get(product.getId());
+
+            if(quantity == null) {
+                iterator.remove();
+                removeProduct(product, removedIds);
+                for(Page page : loadedPages) {
+                    if(page.products.remove(product)) break;
+                }
+            } else if(product.getQuantity() != quantity) {
+                product.setQuantity(quantity);
+                changedIds.add(product.getId());
+            }
+        }
+
+        return new ProductListChanged(new ArrayList<>(), removedIds, changedIds);
+    }
+
+
+    /**
+     * Replaces the products with the products stored in the catalog for this warehouse. A paged
+     * list only takes as many products as a page holds (the first page replaces them when it
+     * arrives).
+     */
+    public void loadFromCatalog() {
+        CatalogManager catalogManager = MyApplication.getCatalogManager();
+        if(catalogManager == null) return;
+
+        clearProducts();
+        for(Product product : catalogManager.loadWarehouse(warehouseID, isPaged() ? pageSize : -1)) {
+            addProduct(product);
+        }
+    }
+
+
+    /**
+     * Reconciles the list with newly received stocks by product id and warehouse id. Products
+     * that are already in the list are kept (with their information) and only their quantity is
+     * updated, new products are added and products that are no longer in the stocks are removed.
+     * The order of the list follows the received stocks.
+     *
+     * @param receivedProducts The products of the received stocks.
+     * @return The ids of the added, removed and changed products.
+     */
+    public synchronized ProductListChanged reconcile(List<Product> receivedProducts) {
+        List<String> addedIds = new ArrayList<>();
+        List<String> removedIds = new ArrayList<>();
+        List<String> changedIds = new ArrayList<>();
+
+        Map<String, Product> previousProductsByKey = new HashMap<>(productsByKey);
+
+        LinkedList<Product> reconciledProducts = new LinkedList<>();
+        productsByKey.clear();
+        for(Product receivedProduct : receivedProducts) {
+            String key = key(receivedProduct);
+            if(productsByKey.containsKey(key)) continue;
+
+            Product product = previousProductsByKey.remove(key);
+            if(product == null) {
+                product = receivedProduct;
+                addedIds.add(product.getId());
+            } else if(product.getQuantity() != receivedProduct.getQuantity()) {
+                product.setQuantity(receivedProduct.getQuantity());
+                changedIds.add(product.getId());
+            }
+
+            reconciledProducts.add(product);
+            productsByKey.put(key, product);
+        }
+
+        for(Product removedProduct : previousProductsByKey.values()) {
+            removedIds.add(removedProduct.getId());
+        }
+
+        products = reconciledProducts;
+
+        return new ProductListChanged(addedIds, removedIds, changedIds);
+    }
+
+
+    public synchronized void clearProducts() {
         products.clear();
+        productsByKey.clear();
+        clearPages();
     }
 
 
-    public void addProduct(Product product) {
+    private synchronized void clearPages() {
+        loadedPages.clear();
+        droppedPreviousCursors.clear();
+        droppedNextCursors.clear();
+    }
+
+
+    public synchronized void addProduct(Product product) {
         products.add(product);
+        productsByKey.put(key(product), product);
+    }
+
+
+    private static String key(Product product) {
+        return product.getWarehouseID() + "/" + product.getId();
     }
 
 
@@ -43,4 +400,116 @@ public class ProductList {
         return products;
     }
 
+
+    /**
+     * Returns the ids of the products.
+     *
+     * @return The ids of the products.
+     */
+    public synchronized List<String> getProductIds() {
+        List<String> productIds = new ArrayList<>(products.size());
+        for(Product product : products) {
+            productIds.add(product.getId());
+        }
+
+        return productIds;
+    }
+
+    /**
+     * Returns a copy of the products that can be iterated while the list is updated.
+     *
+     * @return A copy of products.
+     */
+    public synchronized List<Product> getProductsCopy() {
+        return new ArrayList<>(products);
+    }
+
+
+    public String getWarehouseID() {
+        return warehouseID;
+    }
+
+    /**
+     * Returns whether the product information is fetched only for the shown rows.
+     *
+     * @return productInfoOnDemand.
+     */
+    public boolean isProductInfoOnDemand() {
+        return productInfoOnDemand;
+    }
+
+    /**
+     * Sets whether the product information is fetched only for the shown rows (see
+     * ProductInfoHydrator) instead of for all products when the stocks arrive.
+     *
+     * @param productInfoOnDemand productInfoOnDemand.
+     */
+    public void setProductInfoOnDemand(boolean productInfoOnDemand) {
+        this.productInfoOnDemand = productInfoOnDemand;
+    }
+
+    /**
+     * Returns whether the stocks are requested page by page.
+     *
+     * @return Whether pageSize > 0.
+     */
+    public boolean isPaged() {
+        return pageSize > 0;
+    }
+
+    /**
+     * Returns the number of products per page (0 = not paged).
+     *
+     * @return pageSize.
+     */
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * Returns whether there is a page after the loaded pages.
+     *
+     * @return Whether there is a next page.
+     */
+    public synchronized boolean hasNextPage() {
+        return !droppedNextCursors.isEmpty() || (!loadedPages.isEmpty() && loadedPages.getLast().nextCursor != null);
+    }
+
+    /**
+     * Returns the number of loaded pages.
+     *
+     * @return The number of loaded pages.
+     */
+    public synchronized int getLoadedPages() {
+        return loadedPages.size();
+    }
+
+    public int getPrefetchDistance() {
+        return prefetchDistance;
+    }
+
+    /**
+     * Sets how close (in products) the visible products must get to the end of the list before
+     * the next page is requested.
+     *
+     * @param prefetchDistance prefetchDistance.
+     */
+    public void setPrefetchDistance(int prefetchDistance) {
+        this.prefetchDistance = Math.max(0, prefetchDistance);
+    }
+
+    public int getMaxLoadedPages() {
+        return maxLoadedPages;
+    }
+
+    /**
+     * Sets the maximum number of loaded pages; pages far away from the visible products are
+     * dropped beyond it.
+     *
+     * @param maxLoadedPages maxLoadedPages.
+     */
+    public synchronized void setMaxLoadedPages(int maxLoadedPages) {
+        this.maxLoadedPages = Math.max(2, maxLoadedPages);
+    }
+
 }
@@ -1,7 +1,14 @@
 package com.andreasmenzel.adds.Events;
 
+import com.andreasmenzel.adds.ResponseAnalyzer;
+
 /**
  * Event for when the account activation failed.
  */
 public class AccountActivationFailed extends UpdateAccountActivationUI {
+
+    public AccountActivationFailed(ResponseAnalyzer responseAnalyzer) {
+        super(responseAnalyzer);
+    }
+
 }
@@ -1,7 +1,14 @@
 package com.andreasmenzel.adds.Events;
 
+import com.andreasmenzel.adds.ResponseAnalyzer;
+
 /**
  * Event for when the account activation succeeded.
  */
 public class AccountActivationSucceeded extends UpdateAccountActivationUI {
+
+    public AccountActivationSucceeded(ResponseAnalyzer responseAnalyzer) {
+        super(responseAnalyzer);
+    }
+
 }
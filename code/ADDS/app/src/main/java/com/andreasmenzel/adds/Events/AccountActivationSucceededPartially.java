@@ -1,7 +1,14 @@
 package com.andreasmenzel.adds.Events;
 
+import com.andreasmenzel.adds.ResponseAnalyzer;
+
 /**
  * Event for when the account activation succeeded with errors and / or warnings.
  */
 public class AccountActivationSucceededPartially extends UpdateAccountActivationUI {
+
+    public AccountActivationSucceededPartially(ResponseAnalyzer responseAnalyzer) {
+        super(responseAnalyzer);
+    }
+
 }
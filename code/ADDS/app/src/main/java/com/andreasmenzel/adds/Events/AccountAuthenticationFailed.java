@@ -1,7 +1,14 @@
 package com.andreasmenzel.adds.Events;
 
+import com.andreasmenzel.adds.ResponseAnalyzer;
+
 /**
  * Event for when the account authentication failed.
  */
 public class AccountAuthenticationFailed extends UpdateAccountAuthenticationUI {
+
+    public AccountAuthenticationFailed(ResponseAnalyzer responseAnalyzer) {
+        super(responseAnalyzer);
+    }
+
 }
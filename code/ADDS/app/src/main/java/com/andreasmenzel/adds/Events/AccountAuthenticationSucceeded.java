@@ -1,7 +1,14 @@
 package com.andreasmenzel.adds.Events;
 
+import com.andreasmenzel.adds.ResponseAnalyzer;
+
 /**
  * Event for when the account authentication succeeded.
  */
 public class AccountAuthenticationSucceeded extends UpdateAccountAuthenticationUI {
+
+    public AccountAuthenticationSucceeded(ResponseAnalyzer responseAnalyzer) {
+        super(responseAnalyzer);
+    }
+
 }
@@ -1,7 +1,14 @@
 package com.andreasmenzel.adds.Events;
 
+import com.andreasmenzel.adds.ResponseAnalyzer;
+
 /**
  * Event for when the account authentication succeeded with errors and / or warnings.
  */
 public class AccountAuthenticationSucceededPartially extends UpdateAccountAuthenticationUI {
+
+    public AccountAuthenticationSucceededPartially(ResponseAnalyzer responseAnalyzer) {
+        super(responseAnalyzer);
+    }
+
 }
@@ -1,7 +1,14 @@
 package com.andreasmenzel.adds.Events;
 
+import com.andreasmenzel.adds.ResponseAnalyzer;
+
 /**
  * Event for when the account registration failed.
  */
 public class AccountRegistrationFailed extends UpdateAccountRegistrationUI {
+
+    public AccountRegistrationFailed(ResponseAnalyzer responseAnalyzer) {
+        super(responseAnalyzer);
+    }
+
 }
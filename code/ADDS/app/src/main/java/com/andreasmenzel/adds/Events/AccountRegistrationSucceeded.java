@@ -1,7 +1,14 @@
 package com.andreasmenzel.adds.Events;
 
+import com.andreasmenzel.adds.ResponseAnalyzer;
+
 /**
  * Event for when the account registration succeeded.
  */
 public class AccountRegistrationSucceeded extends UpdateAccountRegistrationUI {
+
+    public AccountRegistrationSucceeded(ResponseAnalyzer responseAnalyzer) {
+        super(responseAnalyzer);
+    }
+
 }
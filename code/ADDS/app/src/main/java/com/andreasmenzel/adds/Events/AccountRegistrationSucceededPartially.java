@@ -1,7 +1,14 @@
 package com.andreasmenzel.adds.Events;
 
+import com.andreasmenzel.adds.ResponseAnalyzer;
+
 /**
  * Event for when the account registration succeeded with errors and / or warnings.
  */
 public class AccountRegistrationSucceededPartially extends UpdateAccountRegistrationUI {
+
+    public AccountRegistrationSucceededPartially(ResponseAnalyzer responseAnalyzer) {
+        super(responseAnalyzer);
+    }
+
 }
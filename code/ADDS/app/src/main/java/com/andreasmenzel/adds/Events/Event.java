@@ -1,4 +1,36 @@
 package com.andreasmenzel.adds.Events;
 
+import com.andreasmenzel.adds.ResponseAnalyzer;
+
+/**
+ * Base class of the events of the CommunicationManagers. The events that are posted when a request
+ * finished carry the response analyzer of that request (with its errors and warnings), so a
+ * subscriber shows the result of the request the event belongs to.
+ */
 public class Event {
+
+    private final ResponseAnalyzer responseAnalyzer;
+
+    public Event() {
+        this(null);
+    }
+
+    public Event(ResponseAnalyzer responseAnalyzer) {
+        this.responseAnalyzer = responseAnalyzer;
+    }
+
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+    //                                    GETTERS AND SETTERS                                     //
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Returns the response analyzer of the request this event belongs to.
+     *
+     * @return responseAnalyzer, null if the event does not belong to a finished request.
+     */
+    public ResponseAnalyzer getResponseAnalyzer() {
+        return responseAnalyzer;
+    }
+
 }
@@ -1,7 +1,14 @@
 package com.andreasmenzel.adds.Events;
 
+import com.andreasmenzel.adds.ResponseAnalyzer;
+
 /**
  * Event for when the fetching of product information failed.
  */
 public class FetchProductInfoFailed extends UpdateProductInfoUI {
+
+    public FetchProductInfoFailed(ResponseAnalyzer responseAnalyzer) {
+        super(responseAnalyzer);
+    }
+
 }
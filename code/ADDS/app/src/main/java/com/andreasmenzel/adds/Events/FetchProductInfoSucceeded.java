@@ -1,7 +1,14 @@
 package com.andreasmenzel.adds.Events;
 
+import com.andreasmenzel.adds.ResponseAnalyzer;
+
 /**
  * Event for when the fetching of product information succeeded.
  */
 public class FetchProductInfoSucceeded extends UpdateProductInfoUI {
+
+    public FetchProductInfoSucceeded(ResponseAnalyzer responseAnalyzer) {
+        super(responseAnalyzer);
+    }
+
 }
@@ -1,7 +1,14 @@
 package com.andreasmenzel.adds.Events;
 
+import com.andreasmenzel.adds.ResponseAnalyzer;
+
 /**
  * Event for when the fetching of product information succeeded partially.
  */
 public class FetchProductInfoSucceededPartially extends UpdateProductInfoUI {
+
+    public FetchProductInfoSucceededPartially(ResponseAnalyzer responseAnalyzer) {
+        super(responseAnalyzer);
+    }
+
 }
@@ -1,7 +1,14 @@
 package com.andreasmenzel.adds.Events;
 
+import com.andreasmenzel.adds.ResponseAnalyzer;
+
 /**
  * Event for when the fetching the product list failed.
  */
 public class FetchProductListFailed extends UpdateProductListUI {
+
+    public FetchProductListFailed(ResponseAnalyzer responseAnalyzer) {
+        super(responseAnalyzer);
+    }
+
 }
@@ -1,7 +1,14 @@
 package com.andreasmenzel.adds.Events;
 
+import com.andreasmenzel.adds.ResponseAnalyzer;
+
 /**
  * Event for when the fetching the product list succeeded.
  */
 public class FetchProductListSucceeded extends UpdateProductListUI {
+
+    public FetchProductListSucceeded(ResponseAnalyzer responseAnalyzer) {
+        super(responseAnalyzer);
+    }
+
 }
@@ -1,7 +1,14 @@
 package com.andreasmenzel.adds.Events;
 
+import com.andreasmenzel.adds.ResponseAnalyzer;
+
 /**
  * Event for when the fetching the product list succeeded partially.
  */
 public class FetchProductListSucceededPartially extends UpdateProductListUI {
+
+    public FetchProductListSucceededPartially(ResponseAnalyzer responseAnalyzer) {
+        super(responseAnalyzer);
+    }
+
 }
@@ -0,0 +1,59 @@
+package com.andreasmenzel.adds.Events;
+
+import java.util.List;
+
+/**
+ * Event for when the products of a product list changed. Holds the ids of the products that were
+ * added, removed or changed (e.g. a different quantity), so the UI only has to update these.
+ * It is not an UpdateProductListUI, so the subscribers of the product list UI events are not
+ * called for every change.
+ */
+public class ProductListChanged extends Event {
+
+    private final List<String> addedIds;
+    private final List<String> removedIds;
+    private final List<String> changedIds;
+
+    public ProductListChanged(List<String> addedIds, List<String> removedIds, List<String> changedIds) {
+        this.addedIds = addedIds;
+        this.removedIds = removedIds;
+        this.changedIds = changedIds;
+    }
+
+    /**
+     * Returns the ids of the products that were added to the list.
+     *
+     * @return addedIds.
+     */
+    public List<String> getAddedIds() {
+        return addedIds;
+    }
+
+    /**
+     * Returns the ids of the products that were removed from the list.
+     *
+     * @return removedIds.
+     */
+    public List<String> getRemovedIds() {
+        return removedIds;
+    }
+
+    /**
+     * Returns the ids of the products that are still in the list but changed.
+     *
+     * @return changedIds.
+     */
+    public List<String> getChangedIds() {
+        return changedIds;
+    }
+
+    /**
+     * Returns whether anything changed.
+     *
+     * @return Whether the list changed.
+     */
+    public boolean isEmpty() {
+        return addedIds.isEmpty() && removedIds.isEmpty() && changedIds.isEmpty();
+    }
+
+}
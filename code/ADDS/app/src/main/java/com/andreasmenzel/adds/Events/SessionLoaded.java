@@ -0,0 +1,12 @@
+package com.andreasmenzel.adds.Events;
+
+/**
+ * Event for when the stored authentication session was loaded (see SessionManager). Until then,
+ * whether the user is logged in is unknown.
+ */
+public class SessionLoaded {
+
+    public SessionLoaded() {
+    }
+
+}
@@ -1,7 +1,17 @@
 package com.andreasmenzel.adds.Events;
 
+import com.andreasmenzel.adds.ResponseAnalyzer;
+
 /**
  * Event for when the account activation UI should be updated.
  */
 public class UpdateAccountActivationUI extends Event {
+
+    public UpdateAccountActivationUI() {
+    }
+
+    public UpdateAccountActivationUI(ResponseAnalyzer responseAnalyzer) {
+        super(responseAnalyzer);
+    }
+
 }
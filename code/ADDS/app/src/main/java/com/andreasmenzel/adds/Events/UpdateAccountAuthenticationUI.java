@@ -1,7 +1,17 @@
 package com.andreasmenzel.adds.Events;
 
+import com.andreasmenzel.adds.ResponseAnalyzer;
+
 /**
  * Event for when the account authentication UI should be updated.
  */
 public class UpdateAccountAuthenticationUI extends Event {
+
+    public UpdateAccountAuthenticationUI() {
+    }
+
+    public UpdateAccountAuthenticationUI(ResponseAnalyzer responseAnalyzer) {
+        super(responseAnalyzer);
+    }
+
 }
@@ -1,7 +1,17 @@
 package com.andreasmenzel.adds.Events;
 
+import com.andreasmenzel.adds.ResponseAnalyzer;
+
 /**
  * Event for when the account registration UI should be updated.
  */
 public class UpdateAccountRegistrationUI extends Event {
+
+    public UpdateAccountRegistrationUI() {
+    }
+
+    public UpdateAccountRegistrationUI(ResponseAnalyzer responseAnalyzer) {
+        super(responseAnalyzer);
+    }
+
 }
@@ -1,7 +1,17 @@
 package com.andreasmenzel.adds.Events;
 
+import com.andreasmenzel.adds.ResponseAnalyzer;
+
 /**
  * Event for when the product info UI should be updated.
  */
 public class UpdateProductInfoUI extends Event {
+
+    public UpdateProductInfoUI() {
+    }
+
+    public UpdateProductInfoUI(ResponseAnalyzer responseAnalyzer) {
+        super(responseAnalyzer);
+    }
+
 }
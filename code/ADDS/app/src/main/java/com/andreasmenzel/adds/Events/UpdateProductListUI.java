@@ -1,7 +1,17 @@
 package com.andreasmenzel.adds.Events;
 
+import com.andreasmenzel.adds.ResponseAnalyzer;
+
 /**
  * Event for when the product list UI should be updated.
  */
 public class UpdateProductListUI extends Event {
+
+    public UpdateProductListUI() {
+    }
+
+    public UpdateProductListUI(ResponseAnalyzer responseAnalyzer) {
+        super(responseAnalyzer);
+    }
+
 }
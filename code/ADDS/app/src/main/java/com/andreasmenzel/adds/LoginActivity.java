@@ -17,8 +17,10 @@ import androidx.annotation.Nullable;
 import com.andreasmenzel.adds.Events.AccountAuthenticationFailed;
 import com.andreasmenzel.adds.Events.AccountAuthenticationSucceeded;
 import com.andreasmenzel.adds.Events.AccountAuthenticationSucceededPartially;
+import com.andreasmenzel.adds.Events.SessionLoaded;
 import com.andreasmenzel.adds.Events.ToastMessage;
 import com.andreasmenzel.adds.Manager.CommunicationManager;
+import com.andreasmenzel.adds.Manager.SessionManager;
 
 import org.greenrobot.eventbus.EventBus;
 import org.greenrobot.eventbus.Subscribe;
@@ -27,14 +29,15 @@ import org.greenrobot.eventbus.ThreadMode;
 // TODO: setupCallbacks also onResume?
 public class LoginActivity extends Activity {
 
-    private final EventBus bus = EventBus.getDefault();
+    private final EventBus bus = MyApplication.getEventBus();
 
     private CommunicationManager communicationManager;
-    private ResponseAnalyzer responseAnalyzer;
+    // The response analyzer of the last finished request, whose errors and warnings are shown.
+    private ResponseAnalyzer shownResponseAnalyzer = new ResponseAnalyzer();
 
 
     /**
-     * Gets the communication manager and response analyzer.
+     * Gets the communication manager.
      *
      * @param savedInstanceState savedInstanceState
      */
@@ -44,7 +47,6 @@ public class LoginActivity extends Activity {
         setContentView(R.layout.activity_login);
 
         communicationManager = MyApplication.getCommunicationManagerAuthenticateAccountNotNull();
-        responseAnalyzer = communicationManager.getResponseAnalyzer();
     }
 
     /**
@@ -65,14 +67,11 @@ public class LoginActivity extends Activity {
     protected void onResume() {
         super.onResume();
 
-        // TODO
-        // Close this activity if the user is already logged in.
-        /*if(communicationManager.getAccountAuthenticationTokenExpire() > (System.currentTimeMillis() / 1000)) {
-            finish();
-        }*/
-
+        // Registered first, so a session that is loaded in the meantime is not missed.
         bus.register(this);
-        updateUI();
+        finishIfLoggedIn();
+
+        updateUI(shownResponseAnalyzer);
     }
 
     /**
@@ -109,9 +108,14 @@ public class LoginActivity extends Activity {
 
     /**
      * Updates the UI elements (with the new information).
+     *
+     * @param responseAnalyzer The response analyzer of the request whose errors and warnings are
+     *                         shown.
      */
-    public void updateUI() {
+    public void updateUI(ResponseAnalyzer responseAnalyzer) {
         runOnUiThread(() -> {
+            shownResponseAnalyzer = responseAnalyzer;
+
             TextView txtView_LoginErrors = findViewById(R.id.txtView_LoginErrors);
             TextView txtView_LoginWarnings = findViewById(R.id.txtView_LoginWarnings);
 
@@ -155,7 +159,18 @@ public class LoginActivity extends Activity {
     @Subscribe
     public void AccountAuthenticationSucceededPartially(AccountAuthenticationSucceededPartially event) {
         bus.post(new ToastMessage("Authenticated, thank you!"));
-        updateUI();
+        updateUI(event.getResponseAnalyzer());
+    }
+
+    /**
+     * Closes this activity if the stored session turned out to be valid. This function is executed
+     * when the stored session was loaded.
+     *
+     * @param event The SessionLoaded event.
+     */
+    @Subscribe(threadMode = ThreadMode.MAIN)
+    public void sessionLoaded(SessionLoaded event) {
+        finishIfLoggedIn();
     }
 
     /**
@@ -165,7 +180,7 @@ public class LoginActivity extends Activity {
      */
     @Subscribe
     public void AccountAuthenticationFailed(AccountAuthenticationFailed event) {
-        updateUI();
+        updateUI(event.getResponseAnalyzer());
     }
 
 
@@ -173,7 +188,7 @@ public class LoginActivity extends Activity {
      * Starts the account authentication process with the in the text fields provided information.
      */
     public void authenticateAccount() {
-        if(!communicationManager.inProgress().get()) {
+        if(!communicationManager.inProgress()) {
             EditText editText_accountEmailLogin = findViewById(R.id.editText_accountEmailLogin);
             EditText editText_accountPasswordLogin = findViewById(R.id.editText_accountPasswordLogin);
 
@@ -194,13 +209,24 @@ public class LoginActivity extends Activity {
                 return;
             }
 
-            communicationManager.authenticateAccount(accountEmail, accountPassword);
+            communicationManager.authenticateAccountWithPassword(accountEmail, accountPassword);
         } else {
             bus.post(new ToastMessage("Registration already in progress."));
         }
     }
 
 
+    /**
+     * Closes this activity if the user is already logged in. While the stored session is not
+     * loaded yet, this is unknown and the activity stays open (sessionLoaded() checks again).
+     */
+    private void finishIfLoggedIn() {
+        SessionManager sessionManager = MyApplication.getSessionManager();
+        if(sessionManager != null && sessionManager.hasValidSession()) {
+            finish();
+        }
+    }
+
     /**
      * Closes the keyboard.
      */
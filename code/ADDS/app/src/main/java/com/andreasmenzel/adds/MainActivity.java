@@ -15,7 +15,7 @@ import org.greenrobot.eventbus.ThreadMode;
 
 public class MainActivity extends AppCompatActivity {
 
-    private static final EventBus bus = EventBus.getDefault();
+    private static final EventBus bus = MyApplication.getEventBus();
 
 
     @Override
@@ -0,0 +1,253 @@
+package com.andreasmenzel.adds.Manager;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+
+import com.andreasmenzel.adds.DataClasses.Product;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Manages the on-device product catalog. The catalog is an SQLite database that holds the products
+ * (name, description) and the stocks (warehouse, product, quantity) of the last successful
+ * responses, so product lists can be shown instantly and without connectivity.
+ */
+public class CatalogManager extends SQLiteOpenHelper {
+
+    private static final String DATABASE_NAME = "catalog.db";
+    private static final int DATABASE_VERSION = 1;
+
+    private static final String TABLE_PRODUCTS = "products";
+    private static final String TABLE_STOCKS = "stocks";
+
+    // The schema and the query of loadWarehouse() are package-private for the benchmark of the
+    // catalog, which runs them off the device.
+    static final String[] CREATE_SCHEMA = {
+            "CREATE TABLE " + TABLE_PRODUCTS + " ("
+                    + "product_id TEXT PRIMARY KEY NOT NULL, "
+                    + "name TEXT, "
+                    + "description TEXT)",
+            "CREATE TABLE " + TABLE_STOCKS + " ("
+                    + "warehouse_id TEXT NOT NULL, "
+                    + "product_id TEXT NOT NULL, "
+                    + "quantity INTEGER NOT NULL DEFAULT -1, "
+                    + "position INTEGER NOT NULL, "
+                    + "PRIMARY KEY (warehouse_id, product_id))",
+            "CREATE INDEX idx_stocks_product_id ON " + TABLE_STOCKS + " (product_id)"
+    };
+
+    static final String QUERY_WAREHOUSE_PRODUCTS =
+            "SELECT s.product_id, s.quantity, p.name, p.description"
+            + " FROM " + TABLE_STOCKS + " s LEFT JOIN " + TABLE_PRODUCTS + " p ON p.product_id = s.product_id"
+            + " WHERE s.warehouse_id = ?"
+            + " ORDER BY s.position";
+
+    // The maximum number of product ids in one query (SQLite allows 999 parameters).
+    private static final int MAX_IDS_PER_QUERY = 500;
+
+
+    public CatalogManager(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+    }
+
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        for(String statement : CREATE_SCHEMA) {
+            db.execSQL(statement);
+        }
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // The catalog only caches server data, so it can be rebuilt from scratch.
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_STOCKS);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_PRODUCTS);
+        onCreate(db);
+    }
+
+
+    /**
+     * Loads all stored products of a warehouse, in the order of the last stocks response.
+     *
+     * @param warehouseID The id of the warehouse.
+     * @return The products (possibly empty).
+     */
+    public List<Product> loadWarehouse(String warehouseID) {
+        return loadWarehouse(warehouseID, -1);
+    }
+
+    /**
+     * Loads the first stored products of a warehouse, in the order of the last stocks response.
+     *
+     * @param warehouseID The id of the warehouse.
+     * @param limit The maximum number of products (negative = all).
+     * @return The products (possibly empty).
+     */
+    public List<Product> loadWarehouse(String warehouseID, int limit) {
+        Cursor cursor = getReadableDatabase().rawQuery(QUERY_WAREHOUSE_PRODUCTS + " LIMIT " + limit, new String[]{warehouseID});
+        try {
+            List<Product> products = new ArrayList<>(cursor.getCount());
+            while(cursor.moveToNext()) {
+                Product product = new Product(cursor.getString(0), warehouseID);
+                product.setQuantity(cursor.getInt(1));
+                product.setName(cursor.getString(2));
+                product.setDescription(cursor.getString(3));
+                products.add(product);
+            }
+
+            return products;
+        } finally {
+            cursor.close();
+        }
+    }
+
+
+    /**
+     * Replaces the stored stocks of a warehouse with the given products. Product information that
+     * is already stored is kept.
+     *
+     * @param warehouseID The id of the warehouse.
+     * @param products The products of the warehouse.
+     */
+    public void storeWarehouse(String warehouseID, List<Product> products) {
+        SQLiteDatabase db = getWritableDatabase();
+
+        db.beginTransaction();
+        try {
+            db.delete(TABLE_STOCKS, "warehouse_id = ?", new String[]{warehouseID});
+
+            SQLiteStatement insertStock = db.compileStatement("INSERT OR REPLACE INTO " + TABLE_STOCKS
+                    + " (warehouse_id, product_id, quantity, position) VALUES (?, ?, ?, ?)");
+            SQLiteStatement insertProduct = db.compileStatement("INSERT OR IGNORE INTO " + TABLE_PRODUCTS
+                    + " (product_id) VALUES (?)");
+
+            int position = 0;
+            for(Product product : products) {
+                insertStock.bindString(1, warehouseID);
+                insertStock.bindString(2, product.getId());
+                insertStock.bindLong(3, product.getQuantity());
+                insertStock.bindLong(4, position++);
+                insertStock.executeInsert();
+
+                insertProduct.bindString(1, product.getId());
+                insertProduct.executeInsert();
+            }
+
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+
+    /**
+     * Loads the stored quantities of some products of a warehouse.
+     *
+     * @param warehouseID The id of the warehouse.
+     * @param productIDs The ids of the products.
+     * @return The quantities by product id. Products that are not stored are missing.
+     */
+    public Map<String, Integer> loadQuantities(String warehouseID, Collection<String> productIDs) {
+        Map<String, Integer> quantities = new HashMap<>();
+        List<String> ids = new ArrayList<>(productIDs);
+
+        for(int start = 0; start < ids.size(); start += MAX_IDS_PER_QUERY) {
+            List<String> chunk = ids.subList(start, Math.min(ids.size(), start + MAX_IDS_PER_QUERY));
+
+            StringBuilder query = new StringBuilder("SELECT product_id, quantity FROM " + TABLE_STOCKS
+                    + " WHERE warehouse_id = ? AND product_id IN (");
+            String[] args = new String[chunk.size() + 1];
+            args[0] = warehouseID;
+            for(int i = 0; i < chunk.size(); ++i) {
+                query.append(i == 0 ? "?" : ", ?");
+                args[i + 1] = chunk.get(i);
+            }
+            query.append(")");
+
+            Cursor cursor = getReadableDatabase().rawQuery(query.toString(), args);
+            try {
+                while(cursor.moveToNext()) {
+                    quantities.put(cursor.getString(0), cursor.getInt(1));
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+
+        return quantities;
+    }
+
+
+    /**
+     * Merges some products (e.g. a page of the stocks) into the stored stocks of a warehouse: the
+     * quantities of stored products are updated, new products are added after the stored ones.
+     * The other stored products of the warehouse are kept.
+     *
+     * @param warehouseID The id of the warehouse.
+     * @param products The products.
+     */
+    public void mergeWarehouse(String warehouseID, List<Product> products) {
+        SQLiteDatabase db = getWritableDatabase();
+
+        db.beginTransaction();
+        try {
+            long position = DatabaseUtils.longForQuery(db, "SELECT COALESCE(MAX(position) + 1, 0) FROM " + TABLE_STOCKS
+                    + " WHERE warehouse_id = ?", new String[]{warehouseID});
+
+            SQLiteStatement updateStock = db.compileStatement("UPDATE " + TABLE_STOCKS
+                    + " SET quantity = ? WHERE warehouse_id = ? AND product_id = ?");
+            SQLiteStatement insertStock = db.compileStatement("INSERT INTO " + TABLE_STOCKS
+                    + " (warehouse_id, product_id, quantity, position) VALUES (?, ?, ?, ?)");
+            SQLiteStatement insertProduct = db.compileStatement("INSERT OR IGNORE INTO " + TABLE_PRODUCTS
+                    + " (product_id) VALUES (?)");
+
+            for(Product product : products) {
+                updateStock.bindLong(1, product.getQuantity());
+                updateStock.bindString(2, warehouseID);
+                updateStock.bindString(3, product.getId());
+                if(updateStock.executeUpdateDelete() > 0) continue;
+
+                insertStock.bindString(1, warehouseID);
+                insertStock.bindString(2, product.getId());
+                insertStock.bindLong(3, product.getQuantity());
+                insertStock.bindLong(4, position++);
+                insertStock.executeInsert();
+
+                insertProduct.bindString(1, product.getId());
+                insertProduct.executeInsert();
+            }
+
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+
+    /**
+     * Stores the information of a product.
+     *
+     * @param productID The id of the product.
+     * @param name The name of the product.
+     * @param description The description of the product.
+     */
+    public void storeProductInfo(String productID, String name, String description) {
+        ContentValues values = new ContentValues();
+        values.put("product_id", productID);
+        values.put("name", name);
+        values.put("description", description);
+
+        getWritableDatabase().insertWithOnConflict(TABLE_PRODUCTS, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+}
@@ -0,0 +1,168 @@
+package com.andreasmenzel.adds.Manager;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Stops sending requests to a backend that is down. After failureThreshold failures in a row the
+ * circuit opens and requests fail immediately. After openMillis one request is let through as a
+ * probe (half-open): if it succeeds, the circuit closes again, otherwise it stays open for another
+ * openMillis.
+ */
+public class CircuitBreaker {
+
+    public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+    public static final long DEFAULT_OPEN_MILLIS = 30000;
+
+    public enum State {
+        closed,
+        open,
+        halfOpen
+    }
+
+    /**
+     * Tells the current time in milliseconds (System.currentTimeMillis() outside of tests).
+     */
+    interface Clock {
+        long currentTimeMillis();
+    }
+
+    // The circuit breakers by system. Keyed by system and not by URL, because both systems may be
+    // served by the same URL but fail independently.
+    private static final Map<CommunicationManager.Systems, CircuitBreaker> circuitBreakers = new EnumMap<>(CommunicationManager.Systems.class);
+
+    private final int failureThreshold;
+    private final long openMillis;
+    private final Clock clock;
+
+    private State state = State.closed;
+    private int consecutiveFailures = 0;
+    private long openedAt = 0;
+    private boolean probeInProgress = false;
+
+
+    /**
+     * @param failureThreshold The number of failures in a row that open the circuit.
+     * @param openMillis How long the circuit stays open before a probe is sent.
+     */
+    public CircuitBreaker(int failureThreshold, long openMillis) {
+        this(failureThreshold, openMillis, System::currentTimeMillis);
+    }
+
+    /**
+     * @param failureThreshold The number of failures in a row that open the circuit.
+     * @param openMillis How long the circuit stays open before a probe is sent.
+     * @param clock Tells the current time.
+     */
+    CircuitBreaker(int failureThreshold, long openMillis, Clock clock) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openMillis = openMillis;
+        this.clock = clock;
+    }
+
+
+    /**
+     * Returns the circuit breaker of a system. Creates it with the default settings if it does
+     * not exist yet.
+     *
+     * @param system The system.
+     * @return The circuit breaker.
+     */
+    public static CircuitBreaker forSystem(CommunicationManager.Systems system) {
+        synchronized(circuitBreakers) {
+            CircuitBreaker circuitBreaker = circuitBreakers.get(system);
+            if(circuitBreaker == null) {
+                circuitBreaker = new CircuitBreaker(DEFAULT_FAILURE_THRESHOLD, DEFAULT_OPEN_MILLIS);
+                circuitBreakers.put(system, circuitBreaker);
+            }
+
+            return circuitBreaker;
+        }
+    }
+
+
+    /**
+     * Returns whether a request may be sent. While the circuit is open, no request may be sent
+     * until openMillis passed; then exactly one request is let through as a probe.
+     *
+     * @return Whether the request may be sent.
+     */
+    public synchronized boolean allowRequest() {
+        switch(state) {
+            case closed:
+                return true;
+            case open:
+                if(clock.currentTimeMillis() - openedAt < openMillis) return false;
+                state = State.halfOpen;
+                probeInProgress = true;
+                return true;
+            case halfOpen:
+            default:
+                if(probeInProgress) return false;
+                probeInProgress = true;
+                return true;
+        }
+    }
+
+    /**
+     * Records that the backend answered. Closes the circuit.
+     */
+    public synchronized void onSuccess() {
+        state = State.closed;
+        consecutiveFailures = 0;
+        probeInProgress = false;
+    }
+
+    /**
+     * Records that the backend could not be reached or answered with a server error. Opens the
+     * circuit after failureThreshold failures in a row or if the probe failed.
+     */
+    public synchronized void onFailure() {
+        ++consecutiveFailures;
+
+        if(state == State.halfOpen || consecutiveFailures >= failureThreshold) {
+            state = State.open;
+            openedAt = clock.currentTimeMillis();
+        }
+        probeInProgress = false;
+    }
+
+    /**
+     * Records that a request that was let through got no answer because it was cancelled. If it
+     * was the probe, the next request is let through as the probe.
+     */
+    public synchronized void onCancelled() {
+        probeInProgress = false;
+    }
+
+    /**
+     * Closes the circuit and forgets the failures.
+     */
+    public synchronized void reset() {
+        onSuccess();
+    }
+
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+    //                                    GETTERS AND SETTERS                                     //
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Returns the state of the circuit.
+     *
+     * @return state.
+     */
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Returns the number of failures in a row since the last success.
+     *
+     * @return consecutiveFailures.
+     */
+    public synchronized int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+}
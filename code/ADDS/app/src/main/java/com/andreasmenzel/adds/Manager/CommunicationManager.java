@@ -20,28 +20,40 @@ import com.andreasmenzel.adds.Events.FetchProductInfoSucceededPartially;
 import com.andreasmenzel.adds.Events.FetchProductListFailed;
 import com.andreasmenzel.adds.Events.FetchProductListSucceeded;
 import com.andreasmenzel.adds.Events.FetchProductListSucceededPartially;
+import com.andreasmenzel.adds.Events.ProductListChanged;
 import com.andreasmenzel.adds.Events.ToastMessage;
 import com.andreasmenzel.adds.Events.UpdateAccountActivationUI;
 import com.andreasmenzel.adds.Events.UpdateAccountAuthenticationUI;
 import com.andreasmenzel.adds.Events.UpdateAccountRegistrationUI;
 import com.andreasmenzel.adds.Events.UpdateProductInfoUI;
 import com.andreasmenzel.adds.Events.UpdateProductListUI;
+import com.andreasmenzel.adds.MyApplication;
 import com.andreasmenzel.adds.ResponseAnalyzer;
+import com.andreasmenzel.adds.StocksResponseDecoder;
 
 import org.greenrobot.eventbus.EventBus;
-import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.io.IOException;
-import java.util.concurrent.Callable;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import okhttp3.Call;
 import okhttp3.Callback;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
+import okhttp3.ResponseBody;
 
 /**
  * Manages the communication to the User Management System and Booking System.
@@ -50,15 +62,142 @@ public class CommunicationManager {
 
     private final EventBus bus;
 
-    private String UserManagementSystemUrl = "http://adds-demo.an-men.de/";
-    private String BookingSystemUrl = "http://adds-demo.an-men.de/";
+    public static final String DEFAULT_USER_MANAGEMENT_SYSTEM_URL = "http://adds-demo.an-men.de/";
+    public static final String DEFAULT_BOOKING_SYSTEM_URL = "http://adds-demo.an-men.de/";
 
-    private final AtomicBoolean inProgress;
-    private final ResponseAnalyzer responseAnalyzer;
+    // The base URLs new managers use by default (see setBackendUrls()).
+    private static volatile String userManagementSystemUrl = DEFAULT_USER_MANAGEMENT_SYSTEM_URL;
+    private static volatile String bookingSystemUrl = DEFAULT_BOOKING_SYSTEM_URL;
 
-    private final Callable<Boolean> accountAuthenticationProcessPayload = new Callable() {
+    // The base URL of the system (User Management System or Booking System) the requests of this
+    // manager are sent to.
+    private final String backendUrl;
+
+    public static final int DEFAULT_MAX_REQUESTS_IN_PROGRESS = 8;
+
+    // The id of the warning of an account request that is queued in the outbox.
+    public static final int WARNING_QUEUED = -2;
+
+    // Sends the retries after their delay.
+    private static final ScheduledExecutorService retryScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "CommunicationManager retries");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Shared by all managers, so identical requests of different managers are coalesced as well.
+    private static final RequestCoalescer requestCoalescer = new RequestCoalescer(retryScheduler);
+
+    private volatile RetryPolicy retryPolicy;
+    private volatile CircuitBreaker circuitBreaker;
+
+    // Number of requests that are sent but not yet answered and requests that wait for a free
+    // slot. Guarded by waitingRequests.
+    private final int maxRequestsInProgress;
+    private int requestsInProgress;
+    // Number of requests whose password hash is being derived (not yet sent).
+    private int requestsBeingPrepared;
+    private final Queue<PendingRequest> waitingRequests;
+
+
+    /**
+     * Holds the state of a single request: its URL, its own response analyzer, the product or
+     * product list the payload is stored in (managers are shared, so the target belongs to the
+     * request), the decoded stocks (only for product list requests) and the event that was posted
+     * when it finished.
+     * The request is also the callback of its call, so no callback object is created per request.
+     */
+    private class PendingRequest implements Callback, RequestCoalescer.Waiter {
+        final String requestUrl;
+        final ResponseAnalyzer responseAnalyzer;
+        Product product = null;
+        ProductList productList = null;
+        String accountEmail = null;
+        String accountPwdSalt = null;
+        String accountPwdHash = null;
+        List<Product> stocks = null;
+        Event resultEvent = null;
+        int attempt = 1;
+        // Only for account requests, which are queued in the outbox if they cannot be sent.
+        String dedupKey = null;
+        String idempotencyKey = null;
+        long outboxId = -1;
+        // Only for pages of a paged product list (see ProductList).
+        boolean paged = false;
+        String pageCursor = null;
+        String nextPageCursor = null;
+
+        PendingRequest(String requestUrl) {
+            this(requestUrl, new ResponseAnalyzer());
+        }
+
+        PendingRequest(String requestUrl, ResponseAnalyzer responseAnalyzer) {
+            this.requestUrl = requestUrl;
+            this.responseAnalyzer = responseAnalyzer;
+        }
+
+        @Override
+        public void onFailure(@NonNull Call call, @NonNull IOException e) {
+            handleNetworkFailure(this);
+        }
+
+        @Override
+        public void onResponse(@NonNull Call call, @NonNull Response response) {
+            try {
+                if(retryServerError(this, response.code())) return;
+
+                handleResponse(this, response.code(), HttpCacheStatistics.isFromCache(response), response.body());
+            } catch (IOException e) {
+                handleFailure(this);
+            } finally {
+                // Close the body so the connection goes back to the pool.
+                response.close();
+            }
+        }
+
+        // The coalescer already retried the shared call and recorded it in the circuit breaker,
+        // so only the final outcome is handled.
         @Override
-        public Boolean call() throws Exception {
+        public void onFailure(@NonNull IOException e) {
+            handleFailure(this);
+        }
+
+        @Override
+        public void onResponse(int code, boolean fromCache, @NonNull ResponseBody body) {
+            try {
+                handleResponse(this, code, fromCache, body);
+            } catch (IOException e) {
+                handleFailure(this);
+            } finally {
+                body.close();
+            }
+        }
+    }
+
+    /**
+     * Creates the event that is posted when a request finished, with the response analyzer of the
+     * request.
+     */
+    private interface ResultEventFactory {
+        Event create(ResponseAnalyzer responseAnalyzer);
+    }
+
+    /**
+     * Processes the payload of a response.
+     */
+    private interface PayloadProcessor {
+        /**
+         * @param pendingRequest The request with its response analyzer.
+         * @return Whether the payload was valid.
+         */
+        boolean process(PendingRequest pendingRequest) throws Exception;
+    }
+
+
+    private final PayloadProcessor accountAuthenticationProcessPayload = new PayloadProcessor() {
+        @Override
+        public boolean process(PendingRequest pendingRequest) throws Exception {
+            ResponseAnalyzer responseAnalyzer = pendingRequest.responseAnalyzer;
             JSONObject responsePayload = responseAnalyzer.getPayload();
             String authenticationToken = null;
             long authenticationTokenExpire = 0;
@@ -73,11 +212,13 @@ public class CommunicationManager {
             }
 
             if(authenticationToken != null && authenticationTokenExpire > 0) {
-                // TODO: save data
-                /*accountEmail = email;
-                accountPwdHash = pwd_hash;
-                accountAuthenticationToken = authenticationToken;
-                accountAuthenticationTokenExpire = authenticationTokenExpire;*/
+                SessionManager sessionManager = MyApplication.getSessionManager();
+                if(sessionManager != null) {
+                    sessionManager.store(pendingRequest.accountEmail, pendingRequest.accountPwdHash, authenticationToken, authenticationTokenExpire);
+                }
+                if(pendingRequest.accountPwdSalt != null) {
+                    MyApplication.getPasswordHasher().remember(pendingRequest.accountEmail, pendingRequest.accountPwdSalt);
+                }
 
                 return true;
             }
@@ -87,9 +228,10 @@ public class CommunicationManager {
         }
     };
 
-    private final Callable<Boolean> fetchProductProcessPayload = new Callable() {
+    private final PayloadProcessor fetchProductProcessPayload = new PayloadProcessor() {
         @Override
-        public Boolean call() throws Exception {
+        public boolean process(PendingRequest pendingRequest) throws Exception {
+            ResponseAnalyzer responseAnalyzer = pendingRequest.responseAnalyzer;
             JSONObject responsePayload = responseAnalyzer.getPayload();
 
             String productName = null;
@@ -105,11 +247,18 @@ public class CommunicationManager {
             }
 
             if(productName != null && productDescription != null) {
+                Product product = pendingRequest.product;
                 if(product != null) {
                     product.setName(productName);
                     product.setDescription(productDescription);
+                    MyApplication.getProductInfoCache().put(product.getId(), productName, productDescription);
 
-                    bus.post(new UpdateProductInfoUI());
+                    CatalogManager catalogManager = MyApplication.getCatalogManager();
+                    if(catalogManager != null) {
+                        catalogManager.storeProductInfo(product.getId(), productName, productDescription);
+                    }
+
+                    bus.post(eventUpdateUI);
                 }
 
                 return true;
@@ -119,49 +268,59 @@ public class CommunicationManager {
             return false;
         }
     };
-    // TODO: quantity
-    private final Callable<Boolean> fetchProductListProcessPayload = new Callable() {
+    private final PayloadProcessor fetchProductListProcessPayload = new PayloadProcessor() {
         @Override
-        public Boolean call() throws Exception {
-            JSONObject responsePayload = responseAnalyzer.getPayload();
-
-            JSONArray stocks = null;
-            if(responsePayload != null && responsePayload.has("stocks")) {
-                try {
-                    stocks = responsePayload.getJSONArray("stocks");
-                } catch (JSONException e) {
-                    // TODO: Error / Log?
-                    bus.post(new ToastMessage(e.getMessage()));
-                }
-            }
+        public boolean process(PendingRequest pendingRequest) throws Exception {
+            List<Product> stocks = pendingRequest.stocks;
 
             if(stocks != null) {
+                ProductList productList = pendingRequest.productList;
                 if(productList != null) {
-                    productList.clearProducts();
-                    for(int i = 0; i < stocks.length(); ++i) {
-                        String productID = null;
-                        String warehouseID = null;
-
-                        try {
-                            productID = stocks.getJSONObject(i).getString("product_id");
-                            warehouseID = stocks.getJSONObject(i).getString("warehouse_id");
-
-                            Product product = new Product(productID, warehouseID);
-                            product.updateProductInfo();
-                            productList.addProduct(product);
-                        } catch (JSONException e) {
-                            // TODO: Error / Log?
-                            bus.post(new ToastMessage(e.getMessage()));
+                    // Keep the unchanged products (with their information), only add and remove
+                    // what changed.
+                    ProductListChanged productListChanged = pendingRequest.paged
+                            ? productList.storePage(pendingRequest.pageCursor, stocks, pendingRequest.nextPageCursor)
+                            : productList.reconcile(stocks);
+                    List<Product> products = productList.getProductsCopy();
+
+                    CatalogManager catalogManager = MyApplication.getCatalogManager();
+                    if(!productListChanged.isEmpty() && catalogManager != null) {
+                        if(pendingRequest.paged) {
+                            // A page only holds a part of the stocks, so it is merged into the
+                            // stored stocks instead of replacing them.
+                            catalogManager.mergeWarehouse(productList.getWarehouseID(), stocks);
+                        } else {
+                            catalogManager.storeWarehouse(productList.getWarehouseID(), products);
                         }
                     }
+                    if(!pendingRequest.paged) {
+                        // The complete stocks are in the catalog now, so the background sync can
+                        // skip this warehouse for a while.
+                        StockSyncManager stockSyncManager = MyApplication.getStockSyncManager();
+                        if(stockSyncManager != null) {
+                            stockSyncManager.onWarehouseSynced(productList.getWarehouseID());
+                        }
+                    }
+
+                    // Fetch the missing product information in chunks instead of one request per
+                    // product (unless the list only fetches it for the shown rows).
+                    if(!productList.isProductInfoOnDemand()) {
+                        List<Product> productsWithoutInfo = new ArrayList<>();
+                        for(Product product : products) {
+                            if(product.getName() == null) {
+                                productsWithoutInfo.add(product);
+                            }
+                        }
+                        productInfoBatchFetcher.fetch(productsWithoutInfo);
+                    }
 
-                    bus.post(new UpdateProductListUI());
+                    bus.post(productListChanged);
                 }
 
                 return true;
             }
 
-            responseAnalyzer.addError(-1, "Fetching product list failed: response incomplete or invalid");
+            pendingRequest.responseAnalyzer.addError(-1, "Fetching product list failed: response incomplete or invalid");
             return false;
         }
     };
@@ -205,167 +364,469 @@ public class CommunicationManager {
         }
     }
 
-    private RequestTypes requestType;
-
-
-    Product product = null;
-    ProductList productList = null;
-
+    /**
+     * The systems the requests are sent to. Every system has its own circuit breaker, even if
+     * both are served by the same URL.
+     */
+    public enum Systems {
+        userManagementSystem,
+        bookingSystem
+    }
 
-    public CommunicationManager(Product product) {
-        this.product = product;
-        requestType = RequestTypes.fetchProduct;
+    private final RequestTypes requestType;
 
-        bus = EventBus.getDefault();
+    // The outcomes of the requests, resolved once per manager. The result events carry the
+    // response analyzer of their request, so one is created per finished request. The UI update
+    // event carries no data, so the same instance is posted every time.
+    private final ResultEventFactory eventSucceeded;
+    private final ResultEventFactory eventSucceededPartially;
+    private final ResultEventFactory eventFailed;
+    private final Event eventUpdateUI;
+    private final PayloadProcessor payloadProcessor;
+    private final String errorCannotReachServer;
+    private final String errorNotSuccessful;
+    private final String errorServerUnavailable;
+    private final String warningQueued;
 
-        inProgress = new AtomicBoolean(false);
-        responseAnalyzer = new ResponseAnalyzer();
-    }
 
-    public CommunicationManager(ProductList productList) {
-        this.productList = productList;
-        requestType = RequestTypes.fetchProductList;
+    // Only used by product list managers.
+    private final ProductInfoBatchFetcher productInfoBatchFetcher;
 
-        bus = EventBus.getDefault();
 
-        inProgress = new AtomicBoolean(false);
-        responseAnalyzer = new ResponseAnalyzer();
+    /**
+     * Sets up the event bus and all variables. The requests are sent to the default system of the
+     * request type, with its default number of requests in progress.
+     *
+     * @param requestType The type of the requests this manager sends.
+     */
+    public CommunicationManager(RequestTypes requestType) {
+        this(requestType, getDefaultBackendUrl(requestType), getDefaultMaxRequestsInProgress(requestType));
     }
 
-
     /**
      * Sets up the event bus and all variables.
+     *
+     * @param requestType The type of the requests this manager sends.
+     * @param backendUrl The base URL of the system the requests are sent to.
+     * @param maxRequestsInProgress The maximum number of requests in progress at the same time.
+     *                              Further requests wait until a request finished.
      */
-    public CommunicationManager(RequestTypes requestType) {
+    public CommunicationManager(RequestTypes requestType, String backendUrl, int maxRequestsInProgress) {
         this.requestType = requestType;
+        this.backendUrl = backendUrl;
+
+        switch(requestType) {
+            case registerAccount:
+                eventSucceeded = AccountRegistrationSucceeded::new;
+                eventSucceededPartially = AccountRegistrationSucceededPartially::new;
+                eventFailed = AccountRegistrationFailed::new;
+                eventUpdateUI = new UpdateAccountRegistrationUI();
+                payloadProcessor = null;
+                break;
+            case authenticateAccount:
+                eventSucceeded = AccountAuthenticationSucceeded::new;
+                eventSucceededPartially = AccountAuthenticationSucceededPartially::new;
+                eventFailed = AccountAuthenticationFailed::new;
+                eventUpdateUI = new UpdateAccountAuthenticationUI();
+                payloadProcessor = accountAuthenticationProcessPayload;
+                break;
+            case activateAccount:
+                eventSucceeded = AccountActivationSucceeded::new;
+                eventSucceededPartially = AccountActivationSucceededPartially::new;
+                eventFailed = AccountActivationFailed::new;
+                eventUpdateUI = new UpdateAccountActivationUI();
+                payloadProcessor = null;
+                break;
+            case fetchProduct:
+                eventSucceeded = FetchProductInfoSucceeded::new;
+                eventSucceededPartially = FetchProductInfoSucceededPartially::new;
+                eventFailed = FetchProductInfoFailed::new;
+                eventUpdateUI = new UpdateProductInfoUI();
+                payloadProcessor = fetchProductProcessPayload;
+                break;
+            case fetchProductList:
+            default:
+                eventSucceeded = FetchProductListSucceeded::new;
+                eventSucceededPartially = FetchProductListSucceededPartially::new;
+                eventFailed = FetchProductListFailed::new;
+                eventUpdateUI = new UpdateProductListUI();
+                payloadProcessor = fetchProductListProcessPayload;
+                break;
+        }
+        errorCannotReachServer = requestType.toString() + " failed: Cannot reach server.";
+        errorNotSuccessful = requestType.toString() + " failed: unknown cause (notSuccessful)";
+        errorServerUnavailable = requestType.toString() + " failed: Server temporarily unavailable.";
+        warningQueued = requestType.toString() + " queued: Cannot reach server. It is sent as soon as the device is online.";
+
+        retryPolicy = RetryPolicy.forRequestType(requestType);
+        circuitBreaker = CircuitBreaker.forSystem(getSystem(requestType));
+
+        if(requestType == RequestTypes.fetchProductList) {
+            productInfoBatchFetcher = new ProductInfoBatchFetcher(backendUrl);
+        } else {
+            productInfoBatchFetcher = null;
+        }
 
-        bus = EventBus.getDefault();
+        bus = MyApplication.getEventBus();
 
-        inProgress = new AtomicBoolean(false);
-        responseAnalyzer = new ResponseAnalyzer();
+        this.maxRequestsInProgress = Math.max(1, maxRequestsInProgress);
+        requestsInProgress = 0;
+        requestsBeingPrepared = 0;
+        waitingRequests = new LinkedList<>();
     }
 
 
     /**
-     * Sends a request.
+     * Sends a request. If the maximum number of requests is already in progress, the request waits
+     * until one of them finished.
      *
      * @param requestUrl The URL with parameters.
      */
     public void sendRequest(String requestUrl) {
-        Request request = new Request.Builder()
-                .url(requestUrl)
-                .build();
+        sendRequest(new PendingRequest(requestUrl));
+    }
+
+    /**
+     * Sends a request. If the maximum number of requests is already in progress, the request waits
+     * until one of them finished.
+     *
+     * @param pendingRequest The request.
+     */
+    private void sendRequest(PendingRequest pendingRequest) {
+        synchronized(waitingRequests) {
+            if(requestsInProgress >= maxRequestsInProgress) {
+                waitingRequests.add(pendingRequest);
+                return;
+            }
+            ++requestsInProgress;
+        }
 
-        OkHttpClient client = new OkHttpClient();
+        send(pendingRequest);
+    }
 
-        client.newCall(request).enqueue(new Callback() {
-            @Override
-            public void onFailure(@NonNull Call call, @NonNull IOException e) {
-                Event eventFailed = null;
-
-                switch(requestType) {
-                    case registerAccount:
-                        eventFailed = new AccountRegistrationFailed();
-                        break;
-                    case authenticateAccount:
-                        eventFailed = new AccountAuthenticationFailed();
-                        break;
-                    case activateAccount:
-                        eventFailed = new AccountActivationFailed();
-                        break;
-                    case fetchProduct:
-                        eventFailed = new FetchProductInfoFailed();
-                        break;
-                    case fetchProductList:
-                        eventFailed = new FetchProductListFailed();
-                        break;
-                }
 
-                responseAnalyzer.addError(-1, requestType.toString() + " failed: Cannot reach server.");
-                inProgress.set(false);
-                bus.post(eventFailed);
+    /**
+     * Finishes a request: stores and posts its result event and sends the next waiting request.
+     *
+     * @param pendingRequest The finished request.
+     * @param resultEventFactory Creates the event to post.
+     */
+    private void finishRequest(PendingRequest pendingRequest, ResultEventFactory resultEventFactory) {
+        Event resultEvent = resultEventFactory.create(pendingRequest.responseAnalyzer);
+        pendingRequest.resultEvent = resultEvent;
+
+        PendingRequest nextRequest;
+        synchronized(waitingRequests) {
+            nextRequest = waitingRequests.poll();
+            if(nextRequest == null) {
+                --requestsInProgress;
             }
+        }
 
-            @Override
-            public void onResponse(@NonNull Call call, @NonNull Response response) throws IOException {
-                Event eventSucceeded = null;
-                Event eventSucceededPartially = null;
-                Event eventFailed = null;
-                Callable<Boolean> checkPayloadCallable = null;
-
-                switch(requestType) {
-                    case registerAccount:
-                        eventSucceeded = new AccountRegistrationSucceeded();
-                        eventSucceededPartially = new AccountRegistrationSucceededPartially();
-                        eventFailed = new AccountRegistrationFailed();
-                        break;
-                    case authenticateAccount:
-                        eventSucceeded = new AccountAuthenticationSucceeded();
-                        eventSucceededPartially = new AccountAuthenticationSucceededPartially();
-                        eventFailed = new AccountAuthenticationFailed();
-                        checkPayloadCallable = accountAuthenticationProcessPayload;
-                        break;
-                    case activateAccount:
-                        eventSucceeded = new AccountActivationSucceeded();
-                        eventSucceededPartially = new AccountActivationSucceededPartially();
-                        eventFailed = new AccountActivationFailed();
-                        break;
-                    case fetchProduct:
-                        eventSucceeded = new FetchProductInfoSucceeded();
-                        eventSucceededPartially = new FetchProductInfoSucceededPartially();
-                        eventFailed = new FetchProductInfoFailed();
-                        checkPayloadCallable = fetchProductProcessPayload;
-                        break;
-                    case fetchProductList:
-                        eventSucceeded = new FetchProductListSucceeded();
-                        eventSucceededPartially = new FetchProductListSucceededPartially();
-                        eventFailed = new FetchProductListFailed();
-                        checkPayloadCallable = fetchProductListProcessPayload;
-                        break;
-                }
+        if(pendingRequest.paged && pendingRequest.productList != null) {
+            pendingRequest.productList.onPageRequestFinished(pendingRequest.pageCursor);
+        }
 
-                if(response.isSuccessful()) {
-                    String myResponse = response.body().string();
+        long postStart = System.nanoTime();
+        bus.post(resultEvent);
+        MyApplication.getRequestMetrics().recordSince(requestType, RequestMetrics.Phase.post, postStart);
 
-                    responseAnalyzer.analyze(myResponse);
+        if(nextRequest != null) {
+            send(nextRequest);
+        }
+    }
 
-                    if(responseAnalyzer.wasExecuted()) {
-                        boolean payloadOk = true;
-                        if(checkPayloadCallable != null) {
-                            try {
-                                payloadOk = (boolean)checkPayloadCallable.call();
-                            } catch (Exception e) {
-                                payloadOk = false;
-                            }
-                        }
 
-                        if(payloadOk) {
-                            if(responseAnalyzer.hasErrors() || responseAnalyzer.hasWarnings()) {
-                                inProgress.set(false);
-                                bus.post(eventSucceededPartially);
-                            } else {
-                                inProgress.set(false);
-                                bus.post(eventSucceeded);
-                            }
-                        } else {
-                            inProgress.set(false);
-                            bus.post(eventFailed);
-                        }
+    /**
+     * Sends a request that got a free slot.
+     *
+     * @param pendingRequest The request.
+     */
+    private void send(PendingRequest pendingRequest) {
+        SessionManager sessionManager = MyApplication.getSessionManager();
+        if(sessionManager != null && isBookingSystemRequest() && !sessionManager.isLoaded()) {
+            // The request needs the token of the stored session, which is still being loaded.
+            sessionManager.whenLoaded(() -> send(pendingRequest));
+            return;
+        }
+
+        if(!circuitBreaker.allowRequest()) {
+            // The backend is down: fail fast (asynchronously, so waiting requests that fail as
+            // well do not pile up on the stack).
+            retryScheduler.execute(() -> {
+                if(queueInOutbox(pendingRequest)) return;
+
+                pendingRequest.responseAnalyzer.addError(-1, errorServerUnavailable);
+                finishRequest(pendingRequest, eventFailed);
+            });
+            return;
+        }
+
+        Request.Builder requestBuilder = new Request.Builder()
+                .url(pendingRequest.requestUrl)
+                .tag(RequestTypes.class, requestType);
+
+        if(sessionManager != null && isBookingSystemRequest()) {
+            sessionManager.authorize(requestBuilder);
+        }
+        if(pendingRequest.idempotencyKey != null) {
+            // Lets the server recognize a replay of a request that already reached it.
+            requestBuilder.header("Idempotency-Key", pendingRequest.idempotencyKey);
+        }
+
+        Request request = requestBuilder.build();
+
+        OkHttpClient client = MyApplication.getHttpClient();
+
+        if(isCoalescable()) {
+            // Identical requests that are already in flight (e.g. by another product with the
+            // same id) share one network call.
+            requestCoalescer.execute(client, request, retryPolicy, circuitBreaker, pendingRequest);
+            return;
+        }
+
+        client.newCall(request).enqueue(pendingRequest);
+    }
+
+
+    /**
+     * Handles a request that could not reach the server: retries it or finishes it.
+     *
+     * @param pendingRequest The request.
+     */
+    private void handleNetworkFailure(PendingRequest pendingRequest) {
+        circuitBreaker.onFailure();
+
+        if(!scheduleRetry(pendingRequest)) {
+            handleFailure(pendingRequest);
+        }
+    }
+
+    /**
+     * Records the http status of a response in the circuit breaker and retries the request if the
+     * status is a retryable server error.
+     *
+     * @param pendingRequest The request.
+     * @param code The http status.
+     * @return Whether the request is retried (and the response must not be handled).
+     */
+    private boolean retryServerError(PendingRequest pendingRequest, int code) {
+        if(!RetryPolicy.isRetryableStatus(code)) {
+            circuitBreaker.onSuccess();
+            return false;
+        }
+
+        circuitBreaker.onFailure();
+        return scheduleRetry(pendingRequest);
+    }
+
+    /**
+     * Sends the request again after the backoff delay of the retry policy, if it allows another
+     * attempt. The request keeps its slot while it waits.
+     *
+     * @param pendingRequest The request.
+     * @return Whether the request is retried.
+     */
+    private boolean scheduleRetry(PendingRequest pendingRequest) {
+        if(!retryPolicy.shouldRetry(pendingRequest.attempt)) return false;
+
+        long delayMillis = retryPolicy.getDelayMillis(pendingRequest.attempt);
+        ++pendingRequest.attempt;
+        retryScheduler.schedule(() -> send(pendingRequest), delayMillis, TimeUnit.MILLISECONDS);
+        return true;
+    }
+
+
+    /**
+     * Finishes a request that could not reach the server.
+     *
+     * @param pendingRequest The request.
+     */
+    private void handleFailure(PendingRequest pendingRequest) {
+        if(queueInOutbox(pendingRequest)) return;
+
+        pendingRequest.responseAnalyzer.addError(-1, errorCannotReachServer);
+        finishRequest(pendingRequest, eventFailed);
+    }
+
+    /**
+     * Queues an account request that cannot reach the server in the outbox (or keeps it there if
+     * it was a replay) and finishes it as partially succeeded with the warning WARNING_QUEUED.
+     *
+     * @param pendingRequest The request.
+     * @return Whether the request is queued (and finished).
+     */
+    private boolean queueInOutbox(PendingRequest pendingRequest) {
+        OutboxManager outboxManager = MyApplication.getOutboxManager();
+        if(outboxManager == null) return false;
+
+        if(pendingRequest.outboxId >= 0) {
+            outboxManager.onReplayFinished(pendingRequest.outboxId, false);
+        } else if(pendingRequest.dedupKey != null) {
+            outboxManager.add(requestType, pendingRequest.requestUrl, pendingRequest.dedupKey, pendingRequest.idempotencyKey);
+        } else {
+            return false;
+        }
+
+        pendingRequest.responseAnalyzer.addWarning(WARNING_QUEUED, warningQueued);
+        finishRequest(pendingRequest, eventSucceededPartially);
+        return true;
+    }
+
+
+    /**
+     * Analyzes a response, processes its payload and finishes the request.
+     *
+     * @param pendingRequest The request.
+     * @param code The http status.
+     * @param fromCache Whether the body is unchanged since it was cached.
+     * @param body The body of the response. Closed by the caller.
+     * @throws IOException If the body cannot be read.
+     */
+    private void handleResponse(PendingRequest pendingRequest, int code, boolean fromCache, ResponseBody body) throws IOException {
+        ResponseAnalyzer responseAnalyzer = pendingRequest.responseAnalyzer;
+        boolean successful = code >= 200 && code < 300;
+
+        // The server could not handle an account request right now (and the retries are used up):
+        // it stays in the outbox (or is queued there) and is sent again later.
+        if(RetryPolicy.isRetryableStatus(code) && queueInOutbox(pendingRequest)) return;
+
+        if(pendingRequest.outboxId >= 0) {
+            // The server accepted or definitively rejected the replay, so it is not sent again.
+            MyApplication.getOutboxManager().onReplayFinished(pendingRequest.outboxId, true);
+        }
+
+        if(successful && fromCache && isPayloadUpToDate(pendingRequest)) {
+            // Nothing changed since the cached response was processed.
+            finishRequest(pendingRequest, eventSucceeded);
+        } else if(successful) {
+            RequestMetrics requestMetrics = MyApplication.getRequestMetrics();
+
+            long analyzeStart = System.nanoTime();
+            if(requestType == RequestTypes.fetchProductList) {
+                // Stream the stocks instead of building a string and a JSON tree of the whole
+                // response.
+                pendingRequest.stocks = decodeStocks(body, pendingRequest);
+            } else {
+                String myResponse = body.string();
+
+                responseAnalyzer.analyze(myResponse);
+            }
+            // Includes reading the body, so the download phase overlaps with this one.
+            requestMetrics.recordSince(requestType, RequestMetrics.Phase.analyze, analyzeStart);
+
+            if(responseAnalyzer.wasExecuted()) {
+                long processStart = System.nanoTime();
+                boolean payloadOk = processPayload(pendingRequest);
+                requestMetrics.recordSince(requestType, RequestMetrics.Phase.processPayload, processStart);
+
+                if(payloadOk) {
+                    if(responseAnalyzer.hasErrors() || responseAnalyzer.hasWarnings()) {
+                        finishRequest(pendingRequest, eventSucceededPartially);
                     } else {
-                        inProgress.set(false);
-                        bus.post(eventFailed);
+                        finishRequest(pendingRequest, eventSucceeded);
                     }
                 } else {
-                    inProgress.set(false);
-                    responseAnalyzer.addError(-1, requestType.toString() + " failed: unknown cause (notSuccessful)");
-                    bus.post(eventFailed);
+                    finishRequest(pendingRequest, eventFailed);
                 }
+            } else {
+                finishRequest(pendingRequest, eventFailed);
             }
-        });
+        } else {
+            responseAnalyzer.addError(-1, errorNotSuccessful);
+            finishRequest(pendingRequest, eventFailed);
+        }
     }
 
+
     /**
-     * Creates an account by sending a request to the User Management System.
+     * Processes the payload of an analyzed response with the payload processor of this manager.
+     *
+     * @param pendingRequest The request with its response analyzer.
+     * @return Whether the payload was valid.
+     */
+    private boolean processPayload(PendingRequest pendingRequest) {
+        if(payloadProcessor == null) return true;
+
+        try {
+            return payloadProcessor.process(pendingRequest);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * Processes the payload of an analyzed response as if it was the response to a request of
+     * this manager, without sending anything. Used by the benchmarks, which run off the device.
+     *
+     * @param responseAnalyzer The response analyzer that analyzed the response.
+     * @param product The product the payload is stored in (only for product requests).
+     * @param productList The product list the stocks are stored in (only for product list
+     *                    requests).
+     * @param stocks The decoded stocks (only for product list requests).
+     * @return Whether the payload was valid.
+     */
+    boolean processPayload(ResponseAnalyzer responseAnalyzer, Product product, ProductList productList, List<Product> stocks) {
+        PendingRequest pendingRequest = new PendingRequest(backendUrl, responseAnalyzer);
+        pendingRequest.product = product;
+        pendingRequest.productList = productList;
+        pendingRequest.stocks = stocks;
+
+        return processPayload(pendingRequest);
+    }
+
+    /**
+     * Handles a response to a product info request as if it arrived from the network for the
+     * given product: analyzes it, processes the payload and posts the result event. Nothing is
+     * sent. Used by the benchmarks and tests, which measure the dispatch of responses off the
+     * device.
+     *
+     * @param product The product the request was sent for.
+     * @param code The http status.
+     * @param body The body of the response.
+     * @return The posted result event.
+     * @throws IOException If the body cannot be read.
+     */
+    Event dispatchResponse(Product product, int code, byte[] body) throws IOException {
+        PendingRequest pendingRequest = new PendingRequest(backendUrl);
+        pendingRequest.product = product;
+        synchronized(waitingRequests) {
+            ++requestsInProgress;
+        }
+
+        try(ResponseBody responseBody = ResponseBody.create(body, null)) {
+            handleResponse(pendingRequest, code, false, responseBody);
+        }
+
+        return pendingRequest.resultEvent;
+    }
+
+
+    /**
+     * Returns whether identical requests of this manager may share one network call. Only product
+     * info requests are coalesced: they have no side effects and their small body can be
+     * buffered for all waiters. Product list responses are streamed and account requests must
+     * reach the server every time.
+     *
+     * @return Whether requests are coalesced.
+     */
+    private boolean isCoalescable() {
+        return requestType == RequestTypes.fetchProduct;
+    }
+
+    /**
+     * Returns whether the requests of this manager go to the Booking System and therefore carry
+     * the authentication token of the session.
+     *
+     * @return Whether requests are sent to the Booking System.
+     */
+    private boolean isBookingSystemRequest() {
+        return getSystem(requestType) == Systems.bookingSystem;
+    }
+
+    /**
+     * Creates an account by sending a request to the User Management System. The password hash
+     * (and salt) is derived in the background first.
      * Posts one of three events on the bus, depending on the success of the request:
      * AccountRegistrationSucceeded, AccountRegistrationSucceededPartially or
      * AccountRegistrationFailed.
@@ -376,42 +837,81 @@ public class CommunicationManager {
      * @param password The password of the user.
      */
     public void registerAccount(String email, String firstname, String lastname, String password) {
-        if(inProgress.compareAndSet(false, true)) {
-            responseAnalyzer.reset();
-            bus.post(new UpdateAccountRegistrationUI());
-
-            // TODO
-            // Generate password salt and hash
-            String pwd_salt = "my_pwd_salt";
-            String pwd_hash = "my_pws_hash";
-
-            String requestUrl = UserManagementSystemUrl + "account/create?email=" + email + "&firstname=" + firstname + "&lastname=" + lastname + "&pwd_salt=" + pwd_salt + "&pwd_hash=" + pwd_hash;
-            sendRequest(requestUrl);
-        } else {
-            // TODO: Log?
-        }
+        startPreparing();
+
+        // Derive the password hash in the background, it takes a noticeable time on purpose.
+        MyApplication.getPasswordHasher().hashForRegistration(email, password, (pwd_salt, pwd_hash) -> {
+            if(pwd_hash != null) {
+                String requestUrl = backendUrl + "account/create?email=" + email + "&firstname=" + firstname + "&lastname=" + lastname + "&pwd_salt=" + pwd_salt + "&pwd_hash=" + pwd_hash;
+                PendingRequest pendingRequest = new PendingRequest(requestUrl);
+                pendingRequest.dedupKey = requestType.name() + ":" + email.trim().toLowerCase(Locale.ROOT);
+                pendingRequest.idempotencyKey = UUID.randomUUID().toString();
+                sendRequest(pendingRequest);
+            }
+            finishPreparing(pwd_hash != null);
+        });
+        bus.post(eventUpdateUI);
     }
 
 
     /**
-     * Authenticates the account (email + hashed password) by requesting an authentication token
-     * from the User Management System.
+     * Authenticates the account (email + password) by requesting an authentication token from the
+     * User Management System. The password hash is derived in the background first.
      * Posts one of three events on the bus, depending on the success of the request:
      * AccountAuthenticationSucceeded, AccountAuthenticationSucceededPartially or
      * AccountAuthenticationFailed.
      *
      * @param email The email of the user.
-     * @param pwd_hash hash(password+salt).
+     * @param password The password of the user.
      */
-    public void authenticateAccount(String email, String pwd_hash) {
-        if(inProgress.compareAndSet(false, true)) {
-            responseAnalyzer.reset();
-            bus.post(new UpdateAccountAuthenticationUI());
+    public void authenticateAccountWithPassword(String email, String password) {
+        startPreparing();
 
-            String responseUrl = UserManagementSystemUrl + "authentication/authenticate?email=" + email + "&pwd_hash=" + pwd_hash;
-            sendRequest(responseUrl);
-        } else {
-            // TODO: Log?
+        // Derive the password hash in the background (or take it from the cache of the hasher).
+        MyApplication.getPasswordHasher().hashForAuthentication(email, password, (pwd_salt, pwd_hash) -> {
+            if(pwd_hash != null) {
+                sendAuthenticationRequest(email, pwd_salt, pwd_hash);
+            }
+            finishPreparing(pwd_hash != null);
+        });
+        bus.post(eventUpdateUI);
+    }
+
+
+    private void sendAuthenticationRequest(String email, String pwd_salt, String pwd_hash) {
+        PendingRequest pendingRequest = new PendingRequest(backendUrl + "authentication/authenticate?email=" + email + "&pwd_hash=" + pwd_hash);
+        // Stored with the token, so the session can be refreshed in the background.
+        pendingRequest.accountEmail = email;
+        pendingRequest.accountPwdSalt = pwd_salt;
+        pendingRequest.accountPwdHash = pwd_hash;
+        sendRequest(pendingRequest);
+    }
+
+
+    /**
+     * Counts a request whose password hash is being derived as in progress.
+     */
+    private void startPreparing() {
+        synchronized(waitingRequests) {
+            ++requestsBeingPrepared;
+        }
+    }
+
+    /**
+     * Finishes the preparation of a request (after it was sent). If the password hash could not
+     * be derived, the request fails without being sent.
+     *
+     * @param prepared Whether the request was sent.
+     */
+    private void finishPreparing(boolean prepared) {
+        synchronized(waitingRequests) {
+            --requestsBeingPrepared;
+        }
+
+        if(!prepared) {
+            ResponseAnalyzer responseAnalyzer = new ResponseAnalyzer();
+            responseAnalyzer.addError(-1, requestType.toString() + " failed: password hash could not be derived.");
+            bus.post(eventFailed.create(responseAnalyzer));
         }
     }
 
@@ -424,50 +924,198 @@ public class CommunicationManager {
      * @param accountActivationCode The account activation code.
      */
     public void activateAccount(String accountActivationCode) {
-        if(inProgress.compareAndSet(false, true)) {
-            responseAnalyzer.reset();
-            bus.post(new UpdateAccountActivationUI());
+        PendingRequest pendingRequest = new PendingRequest(backendUrl + "account/activate?activation_code=" + accountActivationCode);
+        pendingRequest.dedupKey = requestType.name() + ":" + accountActivationCode.trim();
+        pendingRequest.idempotencyKey = UUID.randomUUID().toString();
+        sendRequest(pendingRequest);
+        bus.post(eventUpdateUI);
+    }
 
-            String requestUrl = UserManagementSystemUrl + "account/activate?activation_code=" + accountActivationCode;
-            sendRequest(requestUrl);
-        } else {
-            // TODO: Log?
+
+    /**
+     * Sends a request from the outbox again. The outbox is told whether the server handled it
+     * (answered with 2xx or a client error other than a timeout or rate limiting).
+     *
+     * @param outboxId The id of the outbox entry.
+     * @param requestUrl The URL with parameters.
+     * @param idempotencyKey The key that was sent with the first attempt.
+     */
+    void replay(long outboxId, String requestUrl, String idempotencyKey) {
+        PendingRequest pendingRequest = new PendingRequest(requestUrl);
+        pendingRequest.outboxId = outboxId;
+        pendingRequest.idempotencyKey = idempotencyKey;
+        sendRequest(pendingRequest);
+    }
+
+
+    /**
+     * Updates the information of a product. The information is stored in the product when the
+     * response arrives.
+     *
+     * @param product The product.
+     */
+    public void updateProductInfo(Product product) {
+        PendingRequest pendingRequest = new PendingRequest(backendUrl + "api/product_info?id=" + product.getId());
+        pendingRequest.product = product;
+        sendRequest(pendingRequest);
+        bus.post(eventUpdateUI);
+    }
+
+
+    /**
+     * Updates the list of products of a warehouse. The received stocks are reconciled with the
+     * product list when the response arrives.
+     *
+     * @param productList The product list of the warehouse.
+     */
+    public void updateProductList(ProductList productList) {
+        PendingRequest pendingRequest = new PendingRequest(backendUrl + "api/stocks?warehouse_id=" + productList.getWarehouseID());
+        pendingRequest.productList = productList;
+        sendRequest(pendingRequest);
+        bus.post(eventUpdateUI);
+    }
+
+
+    /**
+     * Updates one page of the list of products of a warehouse (see ProductList). The received
+     * page is stored in the product list when the response arrives.
+     *
+     * @param productList The paged product list of the warehouse.
+     * @param cursor The cursor of the page or null for the first page.
+     */
+    public void updateProductListPage(ProductList productList, String cursor) {
+        String requestUrl = backendUrl + "api/stocks?warehouse_id=" + productList.getWarehouseID() + "&page_size=" + productList.getPageSize();
+        if(cursor != null) {
+            try {
+                requestUrl += "&cursor=" + URLEncoder.encode(cursor, "UTF-8");
+            } catch (UnsupportedEncodingException e) {
+                throw new IllegalStateException(e);
+            }
         }
+
+        PendingRequest pendingRequest = new PendingRequest(requestUrl);
+        pendingRequest.productList = productList;
+        pendingRequest.paged = true;
+        pendingRequest.pageCursor = cursor;
+        sendRequest(pendingRequest);
+        bus.post(eventUpdateUI);
     }
 
 
     /**
-     * Updates the information of a product.
+     * Decodes a response to api/stocks while it is read.
      *
-     * @param productId The id of the product.
+     * @param body The body of the response.
+     * @param pendingRequest The request; gets the cursor of the next page if the response is a
+     *                       page.
+     * @return The products of the stocks or null if the payload contained no stocks.
      */
-    public void updateProductInfo(String productId) {
-        if(inProgress.compareAndSet(false, true)) {
-            responseAnalyzer.reset();
-            bus.post(new UpdateProductInfoUI());
+    private List<Product> decodeStocks(ResponseBody body, PendingRequest pendingRequest) {
+        List<Product> stocks = new ArrayList<>();
+        boolean hasStocks = StocksResponseDecoder.decode(body.charStream(), pendingRequest.responseAnalyzer, new StocksResponseDecoder.StockListener() {
+            @Override
+            public void onStock(String productId, String warehouseId, int quantity) {
+                Product product = new Product(productId, warehouseId);
+                product.setQuantity(quantity);
+                stocks.add(product);
+            }
 
-            String requestUrl = BookingSystemUrl + "api/product_info?id=" + productId;
-            sendRequest(requestUrl);
-        } else {
-            // TODO: Log?
+            @Override
+            public void onNextCursor(String nextCursor) {
+                pendingRequest.nextPageCursor = nextCursor;
+            }
+        });
+
+        return hasStocks ? stocks : null;
+    }
+
+
+    /**
+     * Returns whether the data the payload of a response would be stored in is already filled, so
+     * an unchanged (cached or revalidated) response does not have to be processed again.
+     *
+     * @param pendingRequest The request.
+     * @return Whether processing an unchanged payload can be skipped.
+     */
+    private boolean isPayloadUpToDate(PendingRequest pendingRequest) {
+        Product product = pendingRequest.product;
+        ProductList productList = pendingRequest.productList;
+
+        switch(requestType) {
+            case fetchProduct:
+                if(product != null && product.getName() != null) {
+                    // Keep the cached product info fresh.
+                    MyApplication.getProductInfoCache().put(product.getId(), product.getName(), product.getDescription());
+                    return true;
+                }
+                return false;
+            case fetchProductList:
+                // A page has to be stored even if it did not change (it may have been dropped).
+                return !pendingRequest.paged && productList != null && !productList.getProducts().isEmpty();
+            default:
+                return false;
         }
     }
 
 
     /**
-     * Updates the list of products of a warehouse.
+     * Returns the base URL of the system requests of the given type are sent to by default: the
+     * User Management System for account requests and the Booking System for product requests.
      *
-     * @param warehouseId The id of the warehouse.
+     * @param requestType The type of the requests.
+     * @return The default base URL.
      */
-    public void updateProductList(String warehouseId) {
-        if(inProgress.compareAndSet(false, true)) {
-            responseAnalyzer.reset();
-            bus.post(new UpdateProductListUI());
+    public static String getDefaultBackendUrl(RequestTypes requestType) {
+        return getSystem(requestType) == Systems.bookingSystem ? bookingSystemUrl : userManagementSystemUrl;
+    }
 
-            String requestUrl = BookingSystemUrl + "api/stocks?warehouse_id=" + warehouseId;
-            sendRequest(requestUrl);
-        } else {
-            // TODO: Log?
+    /**
+     * Returns the system requests of the given type are sent to: the User Management System for
+     * account requests and the Booking System for product requests.
+     *
+     * @param requestType The type of the requests.
+     * @return The system.
+     */
+    public static Systems getSystem(RequestTypes requestType) {
+        switch(requestType) {
+            case fetchProduct:
+            case fetchProductList:
+                return Systems.bookingSystem;
+            default:
+                return Systems.userManagementSystem;
+        }
+    }
+
+    /**
+     * Sets the base URLs the requests are sent to by default, e.g. to use a local stub backend.
+     * Managers that already exist keep their URL, but MyApplication only hands out managers of
+     * the current URLs (see CommunicationManagerRegistry).
+     *
+     * @param userManagementSystemUrl The base URL of the User Management System (ending with
+     *                                "/"), or null for the default.
+     * @param bookingSystemUrl The base URL of the Booking System (ending with "/"), or null for
+     *                         the default.
+     */
+    public static void setBackendUrls(String userManagementSystemUrl, String bookingSystemUrl) {
+        CommunicationManager.userManagementSystemUrl = userManagementSystemUrl != null ? userManagementSystemUrl : DEFAULT_USER_MANAGEMENT_SYSTEM_URL;
+        CommunicationManager.bookingSystemUrl = bookingSystemUrl != null ? bookingSystemUrl : DEFAULT_BOOKING_SYSTEM_URL;
+    }
+
+    /**
+     * Returns how many requests of the given type may be in progress at the same time by default.
+     * Account requests are sent one at a time, product requests are shared by all products and
+     * product lists, so several of them may be in progress.
+     *
+     * @param requestType The type of the requests.
+     * @return The default maximum number of requests in progress.
+     */
+    public static int getDefaultMaxRequestsInProgress(RequestTypes requestType) {
+        switch(requestType) {
+            case fetchProduct:
+            case fetchProductList:
+                return DEFAULT_MAX_REQUESTS_IN_PROGRESS;
+            default:
+                return 1;
         }
     }
 
@@ -477,22 +1125,90 @@ public class CommunicationManager {
     ////////////////////////////////////////////////////////////////////////////////////////////////
 
     /**
-     * Returns whether the communication is currently in progress.
+     * Returns the type of the requests this manager sends.
+     *
+     * @return requestType.
+     */
+    public RequestTypes getRequestType() {
+        return requestType;
+    }
+
+    /**
+     * Returns the base URL of the system the requests of this manager are sent to.
+     *
+     * @return backendUrl.
+     */
+    public String getBackendUrl() {
+        return backendUrl;
+    }
+
+    /**
+     * Returns the fetcher of the product information of product lists (null for managers of other
+     * request types).
+     *
+     * @return productInfoBatchFetcher.
+     */
+    public ProductInfoBatchFetcher getProductInfoBatchFetcher() {
+        return productInfoBatchFetcher;
+    }
+
+    /**
+     * Returns whether at least one request is currently in progress (being prepared, sent or
+     * waiting).
      *
      * @return inProgress.
      */
-    public AtomicBoolean inProgress() {
-        return inProgress;
+    public boolean inProgress() {
+        synchronized(waitingRequests) {
+            return requestsInProgress > 0 || requestsBeingPrepared > 0;
+        }
+    }
+
+    /**
+     * Returns the policy failed requests of this manager are retried with.
+     *
+     * @return retryPolicy.
+     */
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * Sets the policy failed requests of this manager are retried with.
+     *
+     * @param retryPolicy retryPolicy.
+     */
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    /**
+     * Returns the circuit breaker of the backend of this manager (shared with all managers of the
+     * same backend by default).
+     *
+     * @return circuitBreaker.
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * Sets the circuit breaker of this manager.
+     *
+     * @param circuitBreaker circuitBreaker.
+     */
+    public void setCircuitBreaker(CircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
     }
 
     /**
-     * Returns the responseAnalyzer. In this object the errors, warnings, payload, ... from the last
-     * response for the account registration request are stored.
+     * Returns the coalescer that lets identical product info requests share one network call. Its
+     * coalesced count shows how many requests did not need their own call.
      *
-     * @return accountActivationResponseAnalyzer.
+     * @return requestCoalescer.
      */
-    public ResponseAnalyzer getResponseAnalyzer() {
-        return responseAnalyzer;
+    public static RequestCoalescer getRequestCoalescer() {
+        return requestCoalescer;
     }
 
 }
@@ -0,0 +1,77 @@
+package com.andreasmenzel.adds.Manager;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Holds one CommunicationManager per request type and backend (base URL). The managers are created
+ * lazily when they are requested for the first time and are shared afterwards, so e.g. all products
+ * use the same manager instead of one manager (with its own response analyzer and queue) each.
+ */
+public class CommunicationManagerRegistry {
+
+    // The managers by key (see key()).
+    private final Map<String, CommunicationManager> managers = new HashMap<>();
+
+
+    /**
+     * Returns the manager for requests of the given type to their default backend. Creates it if
+     * it does not exist yet.
+     *
+     * @param requestType The type of the requests.
+     * @return The manager.
+     */
+    public CommunicationManager get(CommunicationManager.RequestTypes requestType) {
+        return get(requestType, CommunicationManager.getDefaultBackendUrl(requestType));
+    }
+
+    /**
+     * Returns the manager for requests of the given type to the given backend. Creates it if it
+     * does not exist yet.
+     *
+     * @param requestType The type of the requests.
+     * @param backendUrl The base URL of the system the requests are sent to.
+     * @return The manager.
+     */
+    public synchronized CommunicationManager get(CommunicationManager.RequestTypes requestType, String backendUrl) {
+        String key = key(requestType, backendUrl);
+
+        CommunicationManager communicationManager = managers.get(key);
+        if(communicationManager == null) {
+            communicationManager = new CommunicationManager(requestType, backendUrl,
+                    CommunicationManager.getDefaultMaxRequestsInProgress(requestType));
+            managers.put(key, communicationManager);
+        }
+
+        return communicationManager;
+    }
+
+
+    /**
+     * Removes all managers. Requests in progress are still finished by their manager, but the
+     * next call of get() creates a new one.
+     */
+    public synchronized void clear() {
+        managers.clear();
+    }
+
+
+    private static String key(CommunicationManager.RequestTypes requestType, String backendUrl) {
+        return requestType.name() + "@" + backendUrl;
+    }
+
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+    //                                    GETTERS AND SETTERS                                     //
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Returns the number of managers that were created.
+     *
+     * @return The number of managers.
+     */
+    public synchronized int size() {
+        return managers.size();
+    }
+
+}
@@ -0,0 +1,121 @@
+package com.andreasmenzel.adds.Manager;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+/**
+ * Counts how many responses of the shared http client were served from the http cache (without a
+ * request or after a 304 revalidation) and how many bytes did not have to be downloaded because of
+ * that.
+ */
+public class HttpCacheStatistics implements Interceptor {
+
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong cacheHitCount = new AtomicLong();
+    private final AtomicLong revalidatedCount = new AtomicLong();
+    private final AtomicLong bytesSaved = new AtomicLong();
+
+
+    @NonNull
+    @Override
+    public Response intercept(@NonNull Chain chain) throws IOException {
+        Response response = chain.proceed(chain.request());
+        requestCount.incrementAndGet();
+
+        if(isFromCache(response)) {
+            if(response.networkResponse() == null) {
+                cacheHitCount.incrementAndGet();
+            } else {
+                revalidatedCount.incrementAndGet();
+            }
+
+            long contentLength = response.body() != null ? response.body().contentLength() : -1;
+            if(contentLength > 0) {
+                bytesSaved.addAndGet(contentLength);
+            }
+        }
+
+        return response;
+    }
+
+
+    /**
+     * Returns whether the body of the response comes from the http cache, either without a request
+     * or because the server answered a conditional request with 304 Not Modified. A conditional
+     * request that got a new body (200) has a cache response as well, but its body changed.
+     *
+     * @param response The response.
+     * @return Whether the response is unchanged since it was cached.
+     */
+    public static boolean isFromCache(Response response) {
+        if(response.cacheResponse() == null) return false;
+
+        Response networkResponse = response.networkResponse();
+        return networkResponse == null || networkResponse.code() == 304;
+    }
+
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+    //                                    GETTERS AND SETTERS                                     //
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * Returns the number of responses that were served from the cache without a request.
+     *
+     * @return cacheHitCount.
+     */
+    public long getCacheHitCount() {
+        return cacheHitCount.get();
+    }
+
+    /**
+     * Returns the number of responses that were served from the cache after a 304 revalidation.
+     *
+     * @return revalidatedCount.
+     */
+    public long getRevalidatedCount() {
+        return revalidatedCount.get();
+    }
+
+    /**
+     * Returns the number of body bytes that were served from the cache instead of the network.
+     *
+     * @return bytesSaved.
+     */
+    public long getBytesSaved() {
+        return bytesSaved.get();
+    }
+
+    /**
+     * Returns the share of responses whose body was served from the cache (0 to 1).
+     *
+     * @return The cache hit ratio.
+     */
+    public double getHitRatio() {
+        long requests = requestCount.get();
+        if(requests == 0) return 0;
+
+        return (double)(cacheHitCount.get() + revalidatedCount.get()) / requests;
+    }
+
+    /**
+     * Returns a human readable summary of the statistics.
+     *
+     * @return The summary.
+     */
+    public String getSummary() {
+        return String.format(Locale.US, "requests: %d, cache hits: %d, revalidated: %d, hit ratio: %.1f%%, bytes saved: %d",
+                getRequestCount(), getCacheHitCount(), getRevalidatedCount(), getHitRatio() * 100, getBytesSaved());
+    }
+
+}
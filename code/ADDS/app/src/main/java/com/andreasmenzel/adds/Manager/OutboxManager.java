@@ -0,0 +1,239 @@
+package com.andreasmenzel.adds.Manager;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.net.NetworkRequest;
+
+import com.andreasmenzel.adds.MyApplication;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Manages the outbox: account requests (registration, activation) that could not reach the User
+ * Management System are stored in an SQLite database and sent again, in the order they were
+ * queued, as soon as the device is online. The outbox survives the end of the process.
+ * Every entry has a deduplication key (e.g. the email of a registration): queuing a request with
+ * the key of a queued request updates that entry in place (it keeps its id and its position in
+ * the order), so a replay never sends the same registration twice. An entry whose replay is in
+ * flight is not updated. An entry is removed as soon as the server handled its request (2xx or a
+ * definitive rejection); after a server error or rate limiting it stays queued. The answer is
+ * posted with the usual events (e.g. AccountRegistrationSucceeded); a request that is queued is
+ * posted as partially succeeded with the warning CommunicationManager.WARNING_QUEUED.
+ */
+public class OutboxManager extends SQLiteOpenHelper {
+
+    public static final int DEFAULT_MAX_REPLAYS_IN_PROGRESS = 2;
+
+    private static final String DATABASE_NAME = "outbox.db";
+    private static final int DATABASE_VERSION = 1;
+
+    private static final String TABLE_OUTBOX = "outbox";
+
+    /**
+     * A queued request.
+     */
+    public static class Entry {
+        final long id;
+        final CommunicationManager.RequestTypes requestType;
+        final String requestUrl;
+        final String idempotencyKey;
+
+        Entry(long id, CommunicationManager.RequestTypes requestType, String requestUrl, String idempotencyKey) {
+            this.id = id;
+            this.requestType = requestType;
+            this.requestUrl = requestUrl;
+            this.idempotencyKey = idempotencyKey;
+        }
+    }
+
+
+    // All database work and the bookkeeping of the replays run on this thread.
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    private final int maxReplaysInProgress;
+    // The ids of the entries whose replay is in progress. Only used by the executor.
+    private final Set<Long> replaysInProgress = new HashSet<>();
+
+
+    /**
+     * Opens the outbox and starts to send the queued requests whenever the device gets online.
+     *
+     * @param context The context of the application.
+     */
+    public OutboxManager(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        maxReplaysInProgress = DEFAULT_MAX_REPLAYS_IN_PROGRESS;
+
+        ConnectivityManager connectivityManager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        if(connectivityManager != null) {
+            NetworkRequest networkRequest = new NetworkRequest.Builder()
+                    .addCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)
+                    .build();
+            connectivityManager.registerNetworkCallback(networkRequest, new ConnectivityManager.NetworkCallback() {
+                @Override
+                public void onAvailable(Network network) {
+                    drain();
+                }
+            });
+        }
+    }
+
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_OUTBOX + " ("
+                + "id INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + "request_type TEXT NOT NULL, "
+                + "request_url TEXT NOT NULL, "
+                + "dedup_key TEXT NOT NULL UNIQUE, "
+                + "idempotency_key TEXT NOT NULL, "
+                + "created_at INTEGER NOT NULL)");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_OUTBOX);
+        onCreate(db);
+    }
+
+
+    /**
+     * Queues a request. A queued request with the same deduplication key is updated in place,
+     * unless its replay is in flight (then the request in flight decides and this one is dropped).
+     *
+     * @param requestType The type of the request.
+     * @param requestUrl The URL with parameters.
+     * @param dedupKey The deduplication key.
+     * @param idempotencyKey The key that is sent with every attempt of the request.
+     */
+    public void add(CommunicationManager.RequestTypes requestType, String requestUrl, String dedupKey, String idempotencyKey) {
+        executor.execute(() -> {
+            ContentValues values = new ContentValues();
+            values.put("request_type", requestType.name());
+            values.put("request_url", requestUrl);
+            values.put("idempotency_key", idempotencyKey);
+
+            SQLiteDatabase db = getWritableDatabase();
+            long id = findEntry(db, dedupKey);
+            if(id >= 0) {
+                if(replaysInProgress.contains(id)) return;
+
+                db.update(TABLE_OUTBOX, values, "id = ?", new String[]{String.valueOf(id)});
+            } else {
+                values.put("dedup_key", dedupKey);
+                values.put("created_at", System.currentTimeMillis());
+                db.insert(TABLE_OUTBOX, null, values);
+            }
+        });
+    }
+
+
+    /**
+     * Waits until the work that was handed to the outbox so far (e.g. adding an entry) is done.
+     * Used by the tests.
+     *
+     * @throws Exception If waiting was interrupted.
+     */
+    void awaitIdle() throws Exception {
+        executor.submit(() -> {}).get();
+    }
+
+
+    /**
+     * Sends the queued requests in the order they were queued, at most maxReplaysInProgress at a
+     * time. Stops when a request cannot reach the server (until drain() is called again, e.g.
+     * when the device gets online).
+     */
+    public void drain() {
+        executor.execute(this::sendNextEntries);
+    }
+
+    /**
+     * Called by the CommunicationManager when a replayed request finished.
+     *
+     * @param id The id of the entry.
+     * @param delivered Whether the server handled the request (the entry is removed) or could
+     *                  not be reached or answered with a retryable error (the entry stays queued).
+     */
+    void onReplayFinished(long id, boolean delivered) {
+        executor.execute(() -> {
+            replaysInProgress.remove(id);
+
+            if(delivered) {
+                getWritableDatabase().delete(TABLE_OUTBOX, "id = ?", new String[]{String.valueOf(id)});
+                sendNextEntries();
+            }
+        });
+    }
+
+
+    /**
+     * Sends the next queued entries that are not in progress yet. Runs on the executor.
+     */
+    private void sendNextEntries() {
+        int freeSlots = maxReplaysInProgress - replaysInProgress.size();
+        if(freeSlots <= 0) return;
+
+        for(Entry entry : loadEntries(freeSlots)) {
+            replaysInProgress.add(entry.id);
+            MyApplication.getCommunicationManagerRegistry().get(entry.requestType)
+                    .replay(entry.id, entry.requestUrl, entry.idempotencyKey);
+        }
+    }
+
+    /**
+     * Returns the id of the entry with a deduplication key. Runs on the executor.
+     *
+     * @param db The database.
+     * @param dedupKey The deduplication key.
+     * @return The id, or -1 if there is no such entry.
+     */
+    private long findEntry(SQLiteDatabase db, String dedupKey) {
+        Cursor cursor = db.query(TABLE_OUTBOX, new String[]{"id"}, "dedup_key = ?", new String[]{dedupKey}, null, null, null);
+        try {
+            return cursor.moveToFirst() ? cursor.getLong(0) : -1;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private List<Entry> loadEntries(int limit) {
+        List<Entry> entries = new ArrayList<>();
+
+        Cursor cursor = getReadableDatabase().query(TABLE_OUTBOX,
+                new String[]{"id", "request_type", "request_url", "idempotency_key"},
+                null, null, null, null, "id", null);
+        try {
+            while(entries.size() < limit && cursor.moveToNext()) {
+                long id = cursor.getLong(0);
+                if(replaysInProgress.contains(id)) continue;
+
+                CommunicationManager.RequestTypes requestType;
+                try {
+                    requestType = CommunicationManager.RequestTypes.valueOf(cursor.getString(1));
+                } catch (IllegalArgumentException e) {
+                    getWritableDatabase().delete(TABLE_OUTBOX, "id = ?", new String[]{String.valueOf(id)});
+                    continue;
+                }
+
+                entries.add(new Entry(id, requestType, cursor.getString(2), cursor.getString(3)));
+            }
+        } finally {
+            cursor.close();
+        }
+
+        return entries;
+    }
+
+}
@@ -0,0 +1,274 @@
+package com.andreasmenzel.adds.Manager;
+
+import android.content.SharedPreferences;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Derives the password hash (pwd_hash) that is sent to the User Management System from the
+ * password with PBKDF2-HMAC-SHA256. The derivation is CPU-heavy on purpose, so it runs on a
+ * background thread and never on the main thread.
+ * The cost parameters (the number of iterations) are fixed per version, so the same password gives
+ * the same hash on every device and after the data of the app was cleared. The version is sent
+ * with the salt (pwd_salt = "v<version>:salt") when an account is registered, so a later version
+ * can raise the cost for new accounts while the hashes of existing accounts stay valid. Derived
+ * hashes are cached for the lifetime of the process, so logging in again does not derive the hash
+ * again.
+ */
+public class PasswordHasher {
+
+    public static final int CURRENT_COST_VERSION = 1;
+    public static final int KEY_LENGTH_BYTES = 32;
+
+    // The number of iterations by cost version. Never change a version, add a new one instead.
+    private static final int[] ITERATIONS_BY_COST_VERSION = {0, 100000};
+
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+
+    private static final String PREFERENCE_COST_PREFIX = "cost_";
+
+    /**
+     * Receives the result of a derivation. Called on the background thread.
+     */
+    public interface Callback {
+        /**
+         * @param pwd_salt The cost version and the salt ("v<version>:salt").
+         * @param pwd_hash The derived hash (hex) or null if it could not be derived.
+         */
+        void onHashed(String pwd_salt, String pwd_hash);
+    }
+
+
+    // Only one derivation at a time: they are CPU bound and the results are cached.
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    // Stores the cost parameters of the accounts that authenticated on this device (by normalized
+    // email). Null if they are only kept in memory.
+    private final SharedPreferences preferences;
+    private final Map<String, String> costByEmail = new HashMap<>();
+
+    // The derived hashes by email, salt and a digest of the password. Only used by the executor.
+    private final Map<String, String> derivedHashes = new HashMap<>();
+
+
+    /**
+     * Sets up the hasher.
+     *
+     * @param preferences The preferences the cost parameters of the accounts are stored in (or
+     *                    null).
+     */
+    public PasswordHasher(SharedPreferences preferences) {
+        this.preferences = preferences;
+    }
+
+
+    /**
+     * Derives the hash of the password for a new account in the background. Uses the cost
+     * parameters of CURRENT_COST_VERSION.
+     *
+     * @param email The email of the account.
+     * @param password The password.
+     * @param callback Receives pwd_salt and pwd_hash.
+     */
+    public void hashForRegistration(String email, String password, Callback callback) {
+        executor.execute(() -> {
+            String cost = "v" + CURRENT_COST_VERSION;
+            String pwd_salt = cost + ":" + toHex(salt(email));
+            String pwd_hash = derive(email, pwd_salt, password);
+
+            if(pwd_hash != null) {
+                rememberCost(email, cost);
+            }
+            callback.onHashed(pwd_salt, pwd_hash);
+        });
+    }
+
+    /**
+     * Derives the hash of the password for the authentication in the background. Uses the cost
+     * parameters the account was registered (or last authenticated) with on this device and the
+     * ones of CURRENT_COST_VERSION otherwise.
+     *
+     * @param email The email of the account.
+     * @param password The password.
+     * @param callback Receives pwd_salt and pwd_hash.
+     */
+    public void hashForAuthentication(String email, String password, Callback callback) {
+        executor.execute(() -> {
+            String pwd_salt = getRememberedCost(email) + ":" + toHex(salt(email));
+            callback.onHashed(pwd_salt, derive(email, pwd_salt, password));
+        });
+    }
+
+    /**
+     * Remembers the cost parameters that worked for an account, e.g. after a successful
+     * authentication.
+     *
+     * @param email The email of the account.
+     * @param pwd_salt The cost parameters and the salt ("v<version>:salt").
+     */
+    public void remember(String email, String pwd_salt) {
+        int separator = pwd_salt.indexOf(':');
+        if(separator < 0 || getIterations(pwd_salt) <= 0) return; // Not created by this hasher.
+
+        rememberCost(email, pwd_salt.substring(0, separator));
+    }
+
+    /**
+     * Removes the cached hashes (e.g. on logout).
+     */
+    public void clearCache() {
+        executor.execute(derivedHashes::clear);
+    }
+
+
+    /**
+     * Derives the hash or returns the cached one. Runs on the executor.
+     *
+     * @return The hash or null if the cost parameters are unknown.
+     */
+    private String derive(String email, String pwd_salt, String password) {
+        int iterations = getIterations(pwd_salt);
+        if(iterations <= 0) return null;
+
+        try {
+            String key = normalize(email) + "\n" + pwd_salt + "\n" + toHex(sha256(password.getBytes(StandardCharsets.UTF_8)));
+            String pwd_hash = derivedHashes.get(key);
+            if(pwd_hash == null) {
+                pwd_hash = toHex(pbkdf2(password, pwd_salt.getBytes(StandardCharsets.UTF_8), iterations, KEY_LENGTH_BYTES));
+                derivedHashes.put(key, pwd_hash);
+            }
+
+            return pwd_hash;
+        } catch (GeneralSecurityException e) {
+            return null;
+        }
+    }
+
+
+    /**
+     * Returns the number of iterations of the cost version of a salt ("v<version>:salt").
+     *
+     * @param pwd_salt The cost version and the salt.
+     * @return The number of iterations or 0 if the cost version is unknown.
+     */
+    public static int getIterations(String pwd_salt) {
+        int separator = pwd_salt.indexOf(':');
+        if(separator <= 1 || pwd_salt.charAt(0) != 'v') return 0;
+
+        try {
+            int version = Integer.parseInt(pwd_salt.substring(1, separator));
+            return version > 0 && version < ITERATIONS_BY_COST_VERSION.length ? ITERATIONS_BY_COST_VERSION[version] : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+
+    /**
+     * PBKDF2-HMAC-SHA256 (RFC 8018). Implemented with Mac, because the
+     * PBKDF2WithHmacSHA256 SecretKeyFactory is only available from API level 26.
+     *
+     * @param password The password.
+     * @param salt The salt.
+     * @param iterations The number of iterations.
+     * @param keyLength The length of the derived key in bytes.
+     * @return The derived key.
+     * @throws GeneralSecurityException If HmacSHA256 is not available.
+     */
+    public static byte[] pbkdf2(String password, byte[] salt, int iterations, int keyLength) throws GeneralSecurityException {
+        Mac mac = Mac.getInstance(MAC_ALGORITHM);
+        mac.init(new SecretKeySpec(password.isEmpty() ? new byte[1] : password.getBytes(StandardCharsets.UTF_8), MAC_ALGORITHM));
+        int macLength = mac.getMacLength();
+
+        byte[] key = new byte[keyLength];
+        byte[] u = new byte[macLength];
+        byte[] t = new byte[macLength];
+
+        for(int block = 1, offset = 0; offset < keyLength; ++block, offset += macLength) {
+            mac.update(salt);
+            mac.update((byte) (block >>> 24));
+            mac.update((byte) (block >>> 16));
+            mac.update((byte) (block >>> 8));
+            mac.update((byte) block);
+            mac.doFinal(u, 0);
+            System.arraycopy(u, 0, t, 0, macLength);
+
+            for(int i = 1; i < iterations; ++i) {
+                mac.update(u);
+                mac.doFinal(u, 0);
+                for(int j = 0; j < macLength; ++j) {
+                    t[j] ^= u[j];
+                }
+            }
+
+            System.arraycopy(t, 0, key, offset, Math.min(macLength, keyLength - offset));
+        }
+
+        return key;
+    }
+
+
+    private synchronized String getRememberedCost(String email) {
+        String normalizedEmail = normalize(email);
+        String cost = costByEmail.get(normalizedEmail);
+        if(cost == null && preferences != null) {
+            cost = preferences.getString(PREFERENCE_COST_PREFIX + normalizedEmail, null);
+        }
+
+        return cost != null ? cost : "v" + CURRENT_COST_VERSION;
+    }
+
+    private synchronized void rememberCost(String email, String cost) {
+        String normalizedEmail = normalize(email);
+        costByEmail.put(normalizedEmail, cost);
+        if(preferences != null) {
+            preferences.edit().putString(PREFERENCE_COST_PREFIX + normalizedEmail, cost).apply();
+        }
+    }
+
+
+    /**
+     * Returns the email as it identifies an account: without surrounding white space and in lower
+     * case.
+     */
+    private static String normalize(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * The salt of an account. Derived from the (normalized) email, so it does not have to be
+     * requested from the server before authenticating.
+     */
+    private static byte[] salt(String email) {
+        try {
+            return sha256(("adds:" + normalize(email)).getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            return email.getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    private static byte[] sha256(byte[] data) throws GeneralSecurityException {
+        return MessageDigest.getInstance("SHA-256").digest(data);
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for(byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16));
+            hex.append(Character.forDigit(b & 0xF, 16));
+        }
+
+        return hex.toString();
+    }
+
+}
@@ -0,0 +1,706 @@
+package com.andreasmenzel.adds.Manager;
+
+import androidx.annotation.NonNull;
+
+import com.andreasmenzel.adds.DataClasses.Product;
+import com.andreasmenzel.adds.DataClasses.ProductInfoCache;
+import com.andreasmenzel.adds.Events.UpdateProductInfoUI;
+import com.andreasmenzel.adds.MyApplication;
+import com.andreasmenzel.adds.ResponseAnalyzer;
+
+import org.greenrobot.eventbus.EventBus;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Fetches the information (name, description) of many products at once from the Booking System.
+ * The product ids are sent in chunks (api/product_info?ids=a,b,c) instead of one request per
+ * product. If the Booking System does not support the batch endpoint (404, 405 or 501), the products
+ * are fetched one by one (api/product_info?id=a) with a bounded number of parallel requests. Chunks
+ * and single fetches that fail transiently (server errors, rate limiting, no connection) are sent
+ * again with the retry policy of product fetches. The requests go through the circuit breaker of
+ * the Booking System, so they are not sent while it is down.
+ */
+public class ProductInfoBatchFetcher {
+
+    public static final int DEFAULT_CHUNK_SIZE = 50;
+    public static final int DEFAULT_MAX_PARALLEL_SINGLE_FETCHES = 4;
+
+    /**
+     * The requests of one call of fetch(). Cancelling it cancels its requests in flight and drops
+     * its queued single fetches; the products keep the information that already arrived.
+     */
+    public static class Fetch {
+        private final List<Call> calls = new ArrayList<>();
+        private final Listener listener;
+        private int requestsInProgress = 0;
+        private boolean started = false;
+        private boolean cancelled = false;
+        private boolean finished = false;
+
+        private Fetch(Listener listener) {
+            this.listener = listener;
+        }
+
+        /**
+         * Cancels the requests of this fetch.
+         */
+        public void cancel() {
+            List<Call> callsToCancel;
+            synchronized(this) {
+                if(cancelled || finished) return;
+                cancelled = true;
+                callsToCancel = new ArrayList<>(calls);
+            }
+
+            for(Call call : callsToCancel) {
+                call.cancel();
+            }
+        }
+
+        /**
+         * Returns whether all requests of this fetch finished (or were cancelled).
+         *
+         * @return finished.
+         */
+        public synchronized boolean isFinished() {
+            return finished;
+        }
+
+        public synchronized boolean isCancelled() {
+            return cancelled;
+        }
+
+        private synchronized boolean requestStarted(Call call) {
+            ++requestsInProgress;
+            if(call != null) {
+                calls.add(call);
+                if(cancelled) call.cancel();
+            }
+            return !cancelled;
+        }
+
+        private void requestFinished(Call call) {
+            synchronized(this) {
+                --requestsInProgress;
+                calls.remove(call);
+                if(!started || requestsInProgress > 0 || finished) return;
+                finished = true;
+            }
+
+            if(listener != null) listener.onFetchFinished(this);
+        }
+
+        private void allRequestsStarted() {
+            synchronized(this) {
+                started = true;
+                if(requestsInProgress > 0) return;
+                finished = true;
+            }
+
+            if(listener != null) listener.onFetchFinished(this);
+        }
+    }
+
+    /**
+     * Is told when all requests of a fetch finished.
+     */
+    public interface Listener {
+        void onFetchFinished(Fetch fetch);
+    }
+
+    /**
+     * Products waiting for a single fetch (the products with one id) and the fetch they belong to.
+     */
+    private static class SingleFetch {
+        private final List<Product> products;
+        private final Fetch fetch;
+        private int attempt = 1;
+
+        private SingleFetch(List<Product> products, Fetch fetch) {
+            this.products = products;
+            this.fetch = fetch;
+        }
+    }
+
+    // Sends the retries of the chunks after their delay.
+    private static final ScheduledExecutorService retryScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ProductInfoBatchFetcher retries");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final EventBus bus;
+
+    // The event carries no data, so the same instance is posted for every update.
+    private final UpdateProductInfoUI eventUpdateUI = new UpdateProductInfoUI();
+
+    private final String BookingSystemUrl;
+    private final int chunkSize;
+    private final int maxParallelSingleFetches;
+    private final RetryPolicy retryPolicy;
+    private final CircuitBreaker circuitBreaker;
+
+    // Set to false as soon as the Booking System rejects a batch request. All following fetches
+    // then use the single fetches directly.
+    private final AtomicBoolean batchEndpointAvailable;
+
+    // Products waiting for a single fetch (grouped by id) and the number of single fetches in
+    // flight.
+    private final Queue<SingleFetch> singleFetchQueue;
+    private int singleFetchesInProgress;
+
+
+    /**
+     * Sets up the fetcher with the default chunk size and parallelism.
+     *
+     * @param BookingSystemUrl The base URL of the Booking System.
+     */
+    public ProductInfoBatchFetcher(String BookingSystemUrl) {
+        this(BookingSystemUrl, DEFAULT_CHUNK_SIZE, DEFAULT_MAX_PARALLEL_SINGLE_FETCHES);
+    }
+
+    /**
+     * Sets up the fetcher.
+     *
+     * @param BookingSystemUrl The base URL of the Booking System.
+     * @param chunkSize The maximum number of product ids per batch request.
+     * @param maxParallelSingleFetches The maximum number of parallel single fetches (fallback).
+     */
+    public ProductInfoBatchFetcher(String BookingSystemUrl, int chunkSize, int maxParallelSingleFetches) {
+        this.BookingSystemUrl = BookingSystemUrl;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.maxParallelSingleFetches = Math.max(1, maxParallelSingleFetches);
+        retryPolicy = RetryPolicy.forRequestType(CommunicationManager.RequestTypes.fetchProduct);
+        circuitBreaker = CircuitBreaker.forSystem(CommunicationManager.Systems.bookingSystem);
+
+        bus = MyApplication.getEventBus();
+
+        batchEndpointAvailable = new AtomicBoolean(true);
+        singleFetchQueue = new LinkedList<>();
+        singleFetchesInProgress = 0;
+    }
+
+
+    /**
+     * Fetches the information of all given products. Products with the same id (e.g. the same
+     * product in different warehouses) are only requested once and products with fresh cached
+     * information are not requested at all. Posts UpdateProductInfoUI on the bus whenever new
+     * information was stored in the products.
+     *
+     * @param products The products to update.
+     * @return The fetch, which can be cancelled.
+     */
+    public Fetch fetch(List<Product> products) {
+        return fetch(products, null);
+    }
+
+    /**
+     * Fetches the information of all given products (see fetch(List)) and tells the listener when
+     * all requests finished. If nothing had to be requested, the listener is told before this
+     * method returns.
+     *
+     * @param products The products to update.
+     * @param listener Is told when the fetch finished (may be null).
+     * @return The fetch, which can be cancelled.
+     */
+    public Fetch fetch(List<Product> products, Listener listener) {
+        Fetch fetch = new Fetch(listener);
+
+        Map<String, List<Product>> productsById = groupById(products);
+        List<String> ids = new ArrayList<>(productsById.size());
+
+        ProductInfoCache productInfoCache = MyApplication.getProductInfoCache();
+        boolean servedFromCache = false;
+        for(Map.Entry<String, List<Product>> sameId : productsById.entrySet()) {
+            ProductInfoCache.Entry cachedInfo = productInfoCache.get(sameId.getKey());
+            if(cachedInfo == null) {
+                ids.add(sameId.getKey());
+                continue;
+            }
+
+            for(Product product : sameId.getValue()) {
+                product.setName(cachedInfo.getName());
+                product.setDescription(cachedInfo.getDescription());
+            }
+            servedFromCache = true;
+        }
+        if(servedFromCache) {
+            bus.post(eventUpdateUI);
+        }
+
+        SessionManager sessionManager = MyApplication.getSessionManager();
+        if(!ids.isEmpty() && sessionManager != null && !sessionManager.isLoaded()) {
+            // The requests need the token of the stored session, which is still being loaded.
+            sessionManager.whenLoaded(() -> sendChunks(ids, productsById, fetch));
+        } else {
+            sendChunks(ids, productsById, fetch);
+        }
+
+        return fetch;
+    }
+
+    /**
+     * Sends the requests of a fetch in chunks of at most chunkSize ids.
+     *
+     * @param ids The ids to request.
+     * @param productsById The products of the fetch, grouped by id.
+     * @param fetch The fetch.
+     */
+    private void sendChunks(List<String> ids, Map<String, List<Product>> productsById, Fetch fetch) {
+        for(int start = 0; start < ids.size(); start += chunkSize) {
+            List<String> chunkIds = ids.subList(start, Math.min(start + chunkSize, ids.size()));
+
+            Map<String, List<Product>> chunk = new HashMap<>();
+            for(String id : chunkIds) {
+                chunk.put(id, productsById.get(id));
+            }
+
+            if(batchEndpointAvailable.get()) {
+                sendBatchRequest(chunk, fetch, 1);
+            } else {
+                enqueueSingleFetches(chunk, fetch);
+            }
+        }
+
+        fetch.allRequestsStarted();
+    }
+
+
+    /**
+     * Requests the information of all products of one chunk with a single request. Falls back to
+     * single fetches if the batch endpoint is not available.
+     *
+     * @param chunk The products of this chunk, grouped by id.
+     * @param fetch The fetch the chunk belongs to.
+     * @param attempt The attempt (starting with 1).
+     */
+    private void sendBatchRequest(Map<String, List<Product>> chunk, Fetch fetch, int attempt) {
+        if(!batchEndpointAvailable.get()) {
+            // Another chunk found out in the meantime.
+            enqueueSingleFetches(chunk, fetch);
+            return;
+        }
+
+        String requestUrl = BookingSystemUrl + "api/product_info?ids=" + joinIds(chunk.keySet());
+        Request request = authorize(new Request.Builder()
+                .url(requestUrl)
+                .tag(CommunicationManager.RequestTypes.class, CommunicationManager.RequestTypes.fetchProduct))
+                .build();
+
+        Call batchCall = MyApplication.getHttpClient().newCall(request);
+        if(!fetch.requestStarted(batchCall)) {
+            fetch.requestFinished(batchCall);
+            return;
+        }
+        if(!circuitBreaker.allowRequest()) {
+            // The Booking System is down: the chunk is sent again later.
+            retryBatchRequest(chunk, fetch, attempt);
+            fetch.requestFinished(batchCall);
+            return;
+        }
+
+        batchCall.enqueue(new Callback() {
+            @Override
+            public void onFailure(@NonNull Call call, @NonNull IOException e) {
+                // The server is not reachable (or the fetch was cancelled); single fetches would
+                // fail as well, so the chunk is sent again later.
+                try {
+                    if(call.isCanceled()) {
+                        circuitBreaker.onCancelled();
+                    } else {
+                        circuitBreaker.onFailure();
+                        retryBatchRequest(chunk, fetch, attempt);
+                    }
+                } finally {
+                    fetch.requestFinished(call);
+                }
+            }
+
+            @Override
+            public void onResponse(@NonNull Call call, @NonNull Response response) throws IOException {
+                try {
+                    handleBatchResponse(response, chunk, fetch, attempt);
+                } finally {
+                    fetch.requestFinished(call);
+                }
+            }
+        });
+    }
+
+
+    /**
+     * Sends a chunk again after the delay of the retry policy, unless it failed too often.
+     *
+     * @param chunk The products of the chunk, grouped by id.
+     * @param fetch The fetch the chunk belongs to.
+     * @param attempt The attempt that failed.
+     */
+    private void retryBatchRequest(Map<String, List<Product>> chunk, Fetch fetch, int attempt) {
+        if(!retryPolicy.shouldRetry(attempt) || fetch.isCancelled()) return;
+
+        // The fetch must not finish while the retry waits.
+        fetch.requestStarted(null);
+        retryScheduler.schedule(() -> {
+            try {
+                sendBatchRequest(chunk, fetch, attempt + 1);
+            } finally {
+                fetch.requestFinished(null);
+            }
+        }, retryPolicy.getDelayMillis(attempt), TimeUnit.MILLISECONDS);
+    }
+
+
+    /**
+     * Returns whether a response status says that the Booking System does not have the batch
+     * endpoint (as opposed to a transient error).
+     *
+     * @param code The http status.
+     * @return Whether the batch endpoint is not supported.
+     */
+    static boolean isBatchUnsupportedStatus(int code) {
+        return code == 404 || code == 405 || code == 501;
+    }
+
+
+    /**
+     * Stores the product information of a batch response. Falls back to single fetches for good if
+     * the batch endpoint is not available, retries the chunk on transient errors and fetches only
+     * this chunk one by one on other errors. The products that the response left out or sent
+     * malformed are fetched one by one as well.
+     *
+     * @param response The response.
+     * @param chunk The products of the chunk, grouped by id.
+     * @param fetch The fetch the chunk belongs to.
+     * @param attempt The attempt of the chunk (starting with 1).
+     * @throws IOException If the body could not be read.
+     */
+    private void handleBatchResponse(Response response, Map<String, List<Product>> chunk, Fetch fetch, int attempt) throws IOException {
+        recordInCircuitBreaker(response.code());
+
+        if(!response.isSuccessful()) {
+            int code = response.code();
+            response.close();
+
+            if(isBatchUnsupportedStatus(code)) {
+                batchEndpointAvailable.set(false);
+                enqueueSingleFetches(chunk, fetch);
+            } else if(RetryPolicy.isRetryableStatus(code)) {
+                retryBatchRequest(chunk, fetch, attempt);
+            } else {
+                // E.g. too many ids for this server: only this chunk is fetched one by one.
+                enqueueSingleFetches(chunk, fetch);
+            }
+            return;
+        }
+
+        ResponseAnalyzer responseAnalyzer = new ResponseAnalyzer();
+        responseAnalyzer.analyze(response.body().string());
+
+        JSONObject responsePayload = responseAnalyzer.getPayload();
+        if(!responseAnalyzer.wasExecuted()) {
+            // The request was rejected (e.g. because of one of the ids): fetch this chunk one by one.
+            enqueueSingleFetches(chunk, fetch);
+            return;
+        }
+        if(responsePayload == null || !responsePayload.has("products")) {
+            // The ids parameter was ignored: the server does not have the batch endpoint.
+            batchEndpointAvailable.set(false);
+            enqueueSingleFetches(chunk, fetch);
+            return;
+        }
+
+        // Every entry is parsed on its own, so a malformed entry only affects its own product.
+        Map<String, List<Product>> missing = new HashMap<>(chunk);
+        JSONArray productInfos = responsePayload.optJSONArray("products");
+        for(int i = 0; productInfos != null && i < productInfos.length(); ++i) {
+            JSONObject productInfo = productInfos.optJSONObject(i);
+            if(productInfo == null) continue;
+
+            String id = productInfo.optString("id", null);
+            List<Product> products = missing.get(id);
+            if(products == null) continue;
+
+            try {
+                storeProductInfo(products, productInfo);
+                missing.remove(id);
+            } catch (JSONException e) {
+                // Stays missing and is fetched on its own.
+            }
+        }
+
+        if(missing.size() < chunk.size()) {
+            bus.post(eventUpdateUI);
+        }
+        if(!missing.isEmpty()) {
+            enqueueSingleFetches(missing, fetch);
+        }
+    }
+
+
+    /**
+     * Queues the products of a chunk for single fetches and starts as many as allowed.
+     *
+     * @param chunk The products of this chunk, grouped by id.
+     * @param fetch The fetch the chunk belongs to.
+     */
+    private void enqueueSingleFetches(Map<String, List<Product>> chunk, Fetch fetch) {
+        synchronized(singleFetchQueue) {
+            for(List<Product> products : chunk.values()) {
+                // Counts as a request of the fetch from now on, so the fetch does not finish while
+                // its single fetches are queued.
+                fetch.requestStarted(null);
+                singleFetchQueue.add(new SingleFetch(products, fetch));
+            }
+        }
+
+        startSingleFetches();
+    }
+
+
+    /**
+     * Starts single fetches until the queue is empty or the maximum number of parallel single
+     * fetches is reached.
+     */
+    private void startSingleFetches() {
+        while(true) {
+            SingleFetch singleFetch;
+            boolean cancelled;
+            synchronized(singleFetchQueue) {
+                if(singleFetchesInProgress >= maxParallelSingleFetches || singleFetchQueue.isEmpty()) {
+                    return;
+                }
+                singleFetch = singleFetchQueue.poll();
+                cancelled = singleFetch.fetch.isCancelled();
+                if(!cancelled) {
+                    ++singleFetchesInProgress;
+                }
+            }
+
+            if(cancelled) {
+                // Dropped without a request.
+                singleFetch.fetch.requestFinished(null);
+            } else if(!circuitBreaker.allowRequest()) {
+                // The Booking System is down: the product is fetched again later.
+                synchronized(singleFetchQueue) {
+                    --singleFetchesInProgress;
+                }
+                retrySingleFetch(singleFetch);
+            } else {
+                sendSingleRequest(singleFetch);
+            }
+        }
+    }
+
+
+    /**
+     * Requests the information of one product id.
+     *
+     * @param singleFetch The products with this id and their fetch.
+     */
+    private void sendSingleRequest(SingleFetch singleFetch) {
+        List<Product> products = singleFetch.products;
+        Fetch fetch = singleFetch.fetch;
+
+        String requestUrl = BookingSystemUrl + "api/product_info?id=" + products.get(0).getId();
+        Request request = authorize(new Request.Builder()
+                .url(requestUrl)
+                .tag(CommunicationManager.RequestTypes.class, CommunicationManager.RequestTypes.fetchProduct))
+                .build();
+
+        Call singleCall = MyApplication.getHttpClient().newCall(request);
+        // The request was already counted when it was queued.
+        fetch.requestStarted(singleCall);
+        fetch.requestFinished(null);
+
+        singleCall.enqueue(new Callback() {
+            @Override
+            public void onFailure(@NonNull Call call, @NonNull IOException e) {
+                if(call.isCanceled()) {
+                    circuitBreaker.onCancelled();
+                } else {
+                    circuitBreaker.onFailure();
+                    // Waits for the retry as a request of the fetch.
+                    fetch.requestStarted(null);
+                    retrySingleFetch(singleFetch);
+                }
+
+                singleFetchFinished(call, fetch);
+            }
+
+            @Override
+            public void onResponse(@NonNull Call call, @NonNull Response response) throws IOException {
+                recordInCircuitBreaker(response.code());
+
+                if(RetryPolicy.isRetryableStatus(response.code())) {
+                    response.close();
+                    fetch.requestStarted(null);
+                    retrySingleFetch(singleFetch);
+                } else if(response.isSuccessful()) {
+                    ResponseAnalyzer responseAnalyzer = new ResponseAnalyzer();
+                    responseAnalyzer.analyze(response.body().string());
+
+                    JSONObject responsePayload = responseAnalyzer.getPayload();
+                    if(responseAnalyzer.wasExecuted() && responsePayload != null) {
+                        try {
+                            storeProductInfo(products, responsePayload);
+                            bus.post(eventUpdateUI);
+                        } catch (JSONException e) {
+                            // Malformed: the products keep their information, like for a rejected
+                            // request.
+                        }
+                    }
+                } else {
+                    response.close();
+                }
+
+                singleFetchFinished(call, fetch);
+            }
+        });
+    }
+
+
+    /**
+     * Queues a single fetch again after the delay of the retry policy, unless it failed too often
+     * or its fetch was cancelled. The single fetch holds one request of its fetch, which is kept
+     * while it waits and finished if it is not retried.
+     *
+     * @param singleFetch The single fetch that failed.
+     */
+    private void retrySingleFetch(SingleFetch singleFetch) {
+        if(!retryPolicy.shouldRetry(singleFetch.attempt) || singleFetch.fetch.isCancelled()) {
+            singleFetch.fetch.requestFinished(null);
+            return;
+        }
+
+        long delayMillis = retryPolicy.getDelayMillis(singleFetch.attempt);
+        ++singleFetch.attempt;
+        retryScheduler.schedule(() -> {
+            synchronized(singleFetchQueue) {
+                singleFetchQueue.add(singleFetch);
+            }
+            startSingleFetches();
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+
+    /**
+     * Records the http status of a response in the circuit breaker: retryable server errors count
+     * as failures, every other answer shows that the Booking System is up.
+     *
+     * @param code The http status.
+     */
+    private void recordInCircuitBreaker(int code) {
+        if(RetryPolicy.isRetryableStatus(code)) {
+            circuitBreaker.onFailure();
+        } else {
+            circuitBreaker.onSuccess();
+        }
+    }
+
+
+    /**
+     * Frees the slot of a finished single fetch and starts the next one.
+     *
+     * @param call The call of the single fetch.
+     * @param fetch The fetch the single fetch belongs to.
+     */
+    private void singleFetchFinished(Call call, Fetch fetch) {
+        synchronized(singleFetchQueue) {
+            --singleFetchesInProgress;
+        }
+
+        fetch.requestFinished(call);
+        startSingleFetches();
+    }
+
+
+    /**
+     * Stores name and description of a product info in all given products, in the cache and in the
+     * catalog.
+     *
+     * @param products The products with the id of the product info.
+     * @param productInfo The product info with name and description.
+     * @throws JSONException If name or description are missing.
+     */
+    private static void storeProductInfo(List<Product> products, JSONObject productInfo) throws JSONException {
+        if(products == null || products.isEmpty()) return;
+
+        String productName = productInfo.getString("name");
+        String productDescription = productInfo.getString("description");
+        MyApplication.getProductInfoCache().put(products.get(0).getId(), productName, productDescription);
+
+        CatalogManager catalogManager = MyApplication.getCatalogManager();
+        if(catalogManager != null) {
+            catalogManager.storeProductInfo(products.get(0).getId(), productName, productDescription);
+        }
+
+        for(Product product : products) {
+            product.setName(productName);
+            product.setDescription(productDescription);
+        }
+    }
+
+
+    private static Map<String, List<Product>> groupById(List<Product> products) {
+        Map<String, List<Product>> productsById = new HashMap<>();
+
+        for(Product product : products) {
+            List<Product> sameId = productsById.get(product.getId());
+            if(sameId == null) {
+                sameId = new ArrayList<>();
+                productsById.put(product.getId(), sameId);
+            }
+            sameId.add(product);
+        }
+
+        return productsById;
+    }
+
+
+    private static String joinIds(Iterable<String> ids) {
+        StringBuilder joined = new StringBuilder();
+
+        for(String id : ids) {
+            if(joined.length() > 0) joined.append(",");
+            joined.append(id);
+        }
+
+        return joined.toString();
+    }
+
+
+    /**
+     * Adds the authentication token of the session to a request, if there is a valid session.
+     *
+     * @param builder The builder of the request.
+     * @return The builder.
+     */
+    private static Request.Builder authorize(Request.Builder builder) {
+        SessionManager sessionManager = MyApplication.getSessionManager();
+        if(sessionManager != null) {
+            sessionManager.authorize(builder);
+        }
+
+        return builder;
+    }
+
+}
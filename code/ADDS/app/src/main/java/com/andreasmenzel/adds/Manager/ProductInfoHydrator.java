@@ -0,0 +1,337 @@
+package com.andreasmenzel.adds.Manager;
+
+import com.andreasmenzel.adds.DataClasses.Product;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fetches the information of the products of a list only for the rows that are visible or near the
+ * visible rows, instead of for the whole list up front. The products nearest to the visible rows
+ * are fetched first, in small chunks with a bounded number of fetches in progress, and fetches
+ * whose products all scrolled far away are cancelled. Products whose information could not be
+ * fetched are fetched again when their backoff delay passed (also if the list did not move in the
+ * meantime), and given up after the maximum number of attempts of the retry policy.
+ *
+ * Call onViewportChanged() whenever the visible rows or the list change.
+ */
+public class ProductInfoHydrator implements ProductInfoBatchFetcher.Listener {
+
+    public static final int DEFAULT_PREFETCH_ROWS = 10;
+    public static final int DEFAULT_CANCEL_DISTANCE = 50;
+    public static final int DEFAULT_CHUNK_SIZE = 10;
+    public static final int DEFAULT_MAX_FETCHES_IN_PROGRESS = 2;
+
+    // Starts the fetches of the products whose backoff delay passed.
+    private static final ScheduledExecutorService retryScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ProductInfoHydrator retries");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final ProductInfoBatchFetcher productInfoBatchFetcher;
+    private final int prefetchRows;
+    private final int cancelDistance;
+    private final int chunkSize;
+    private final int maxFetchesInProgress;
+    private final RetryPolicy retryPolicy = RetryPolicy.forRequestType(CommunicationManager.RequestTypes.fetchProduct);
+
+    // The shown products and the visible rows of the last call of onViewportChanged().
+    private List<Product> products = Collections.emptyList();
+    private int firstVisiblePosition = -1;
+    private int lastVisiblePosition = -1;
+
+    // The fetches in progress with their products.
+    private final Map<ProductInfoBatchFetcher.Fetch, List<Product>> fetchesInProgress = new HashMap<>();
+    private final Set<String> idsInProgress = new HashSet<>();
+    // The products whose information could not be fetched by id: the number of failed fetches and
+    // the time (System.currentTimeMillis()) before which they are not fetched again.
+    private final Map<String, Integer> failedFetches = new HashMap<>();
+    private final Map<String, Long> retryNotBefore = new HashMap<>();
+    // The retry that is scheduled for the earliest backoff delay to pass and its time.
+    private ScheduledFuture<?> scheduledRetry = null;
+    private long scheduledRetryAt = Long.MAX_VALUE;
+
+
+    /**
+     * Sets up the hydrator with the default distances, chunk size and parallelism.
+     *
+     * @param productInfoBatchFetcher The fetcher that requests the product information.
+     */
+    public ProductInfoHydrator(ProductInfoBatchFetcher productInfoBatchFetcher) {
+        this(productInfoBatchFetcher, DEFAULT_PREFETCH_ROWS, DEFAULT_CANCEL_DISTANCE, DEFAULT_CHUNK_SIZE, DEFAULT_MAX_FETCHES_IN_PROGRESS);
+    }
+
+    /**
+     * Sets up the hydrator.
+     *
+     * @param productInfoBatchFetcher The fetcher that requests the product information.
+     * @param prefetchRows The number of rows above and below the visible rows that are fetched as
+     *                     well.
+     * @param cancelDistance The distance (in rows) from the visible rows beyond which fetches are
+     *                       cancelled.
+     * @param chunkSize The number of products per fetch.
+     * @param maxFetchesInProgress The maximum number of fetches in progress.
+     */
+    public ProductInfoHydrator(ProductInfoBatchFetcher productInfoBatchFetcher, int prefetchRows, int cancelDistance, int chunkSize, int maxFetchesInProgress) {
+        this.productInfoBatchFetcher = productInfoBatchFetcher;
+        this.prefetchRows = Math.max(0, prefetchRows);
+        this.cancelDistance = Math.max(this.prefetchRows, cancelDistance);
+        this.chunkSize = Math.max(1, chunkSize);
+        this.maxFetchesInProgress = Math.max(1, maxFetchesInProgress);
+    }
+
+
+    /**
+     * Cancels the fetches of products that are now far away from the visible rows and fetches the
+     * information of the visible and nearby products that have none yet.
+     *
+     * @param products The shown products (in the order of the rows).
+     * @param firstVisiblePosition The position of the first visible row.
+     * @param lastVisiblePosition The position of the last visible row.
+     */
+    public synchronized void onViewportChanged(List<Product> products, int firstVisiblePosition, int lastVisiblePosition) {
+        this.products = products;
+        this.firstVisiblePosition = firstVisiblePosition;
+        this.lastVisiblePosition = lastVisiblePosition;
+
+        cancelFarFetches();
+        startFetches();
+    }
+
+
+    /**
+     * Cancels all fetches, e.g. when the list is no longer shown.
+     */
+    public synchronized void cancelAll() {
+        products = Collections.emptyList();
+        firstVisiblePosition = -1;
+        lastVisiblePosition = -1;
+
+        for(ProductInfoBatchFetcher.Fetch fetch : fetchesInProgress.keySet()) {
+            fetch.cancel();
+        }
+        if(scheduledRetry != null) {
+            scheduledRetry.cancel(false);
+            scheduledRetry = null;
+            scheduledRetryAt = Long.MAX_VALUE;
+        }
+    }
+
+
+    @Override
+    public synchronized void onFetchFinished(ProductInfoBatchFetcher.Fetch fetch) {
+        List<Product> chunk = fetchesInProgress.remove(fetch);
+        if(chunk != null) {
+            for(Product product : chunk) {
+                idsInProgress.remove(product.getId());
+            }
+            if(!fetch.isCancelled()) {
+                recordFailures(chunk);
+            }
+        }
+
+        startFetches();
+    }
+
+
+    /**
+     * Records the products of a finished fetch that still have no information, so they are not
+     * fetched again right away.
+     *
+     * @param chunk The products of the fetch.
+     */
+    private void recordFailures(List<Product> chunk) {
+        long now = System.currentTimeMillis();
+
+        for(Product product : chunk) {
+            String id = product.getId();
+            if(product.getName() != null) {
+                failedFetches.remove(id);
+                retryNotBefore.remove(id);
+                continue;
+            }
+
+            Integer failures = failedFetches.get(id);
+            int attempt = failures == null ? 1 : failures + 1;
+            failedFetches.put(id, attempt);
+            retryNotBefore.put(id, now + retryPolicy.getDelayMillis(attempt));
+        }
+
+        scheduleRetry(now);
+    }
+
+
+    /**
+     * Schedules the fetches of the failed products for the time the earliest backoff delay that
+     * has not passed yet passes, unless a retry is scheduled for that time already.
+     *
+     * @param now The current time (System.currentTimeMillis()).
+     */
+    private void scheduleRetry(long now) {
+        long retryAt = Long.MAX_VALUE;
+        for(Map.Entry<String, Long> notBefore : retryNotBefore.entrySet()) {
+            if(notBefore.getValue() > now && retryPolicy.shouldRetry(failedFetches.get(notBefore.getKey()))) {
+                retryAt = Math.min(retryAt, notBefore.getValue());
+            }
+        }
+        if(retryAt == Long.MAX_VALUE || retryAt >= scheduledRetryAt) return;
+
+        if(scheduledRetry != null) {
+            scheduledRetry.cancel(false);
+        }
+        scheduledRetryAt = retryAt;
+        scheduledRetry = retryScheduler.schedule(this::retry, retryAt - now, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Starts the fetches of the products whose backoff delay passed and schedules the next retry.
+     */
+    private synchronized void retry() {
+        scheduledRetry = null;
+        scheduledRetryAt = Long.MAX_VALUE;
+
+        startFetches();
+        scheduleRetry(System.currentTimeMillis());
+    }
+
+
+    /**
+     * Cancels the fetches none of whose products is within cancelDistance rows of the visible
+     * rows.
+     */
+    private void cancelFarFetches() {
+        if(fetchesInProgress.isEmpty()) return;
+
+        Set<String> nearIds = new HashSet<>();
+        if(lastVisiblePosition >= 0) {
+            int from = Math.max(0, firstVisiblePosition - cancelDistance);
+            int to = Math.min(products.size() - 1, lastVisiblePosition + cancelDistance);
+            for(int position = from; position <= to; ++position) {
+                nearIds.add(products.get(position).getId());
+            }
+        }
+
+        for(Map.Entry<ProductInfoBatchFetcher.Fetch, List<Product>> fetchInProgress : fetchesInProgress.entrySet()) {
+            boolean near = false;
+            for(Product product : fetchInProgress.getValue()) {
+                if(nearIds.contains(product.getId())) {
+                    near = true;
+                    break;
+                }
+            }
+
+            if(!near) {
+                fetchInProgress.getKey().cancel();
+            }
+        }
+    }
+
+
+    /**
+     * Starts fetches of the products without information, nearest to the visible rows first, until
+     * maxFetchesInProgress fetches are in progress.
+     */
+    private void startFetches() {
+        while(fetchesInProgress.size() < maxFetchesInProgress) {
+            List<Product> chunk = nextChunk();
+            if(chunk.isEmpty()) return;
+
+            for(Product product : chunk) {
+                idsInProgress.add(product.getId());
+            }
+
+            // Tells this hydrator right away if everything was cached.
+            ProductInfoBatchFetcher.Fetch fetch = productInfoBatchFetcher.fetch(chunk, this);
+            if(fetch.isFinished()) {
+                for(Product product : chunk) {
+                    idsInProgress.remove(product.getId());
+                }
+            } else {
+                fetchesInProgress.put(fetch, chunk);
+            }
+        }
+    }
+
+
+    /**
+     * Returns the next products to fetch: the products without information that are not being
+     * fetched and not waiting for a retry, in the order of their distance from the visible rows
+     * (the visible rows first, then alternately the rows below and above).
+     *
+     * @return At most chunkSize products.
+     */
+    private List<Product> nextChunk() {
+        List<Product> chunk = new ArrayList<>(chunkSize);
+        if(lastVisiblePosition < 0 || products.isEmpty()) return chunk;
+
+        long now = System.currentTimeMillis();
+        int first = Math.max(0, firstVisiblePosition);
+        int last = Math.min(products.size() - 1, lastVisiblePosition);
+        Set<String> chunkIds = new HashSet<>();
+
+        for(int position = first; position <= last && chunk.size() < chunkSize; ++position) {
+            addIfMissingInfo(products.get(position), chunk, chunkIds, now);
+        }
+        for(int distance = 1; distance <= prefetchRows && chunk.size() < chunkSize; ++distance) {
+            if(last + distance < products.size()) {
+                addIfMissingInfo(products.get(last + distance), chunk, chunkIds, now);
+            }
+            if(first - distance >= 0 && chunk.size() < chunkSize) {
+                addIfMissingInfo(products.get(first - distance), chunk, chunkIds, now);
+            }
+        }
+
+        return chunk;
+    }
+
+    private void addIfMissingInfo(Product product, List<Product> chunk, Set<String> chunkIds, long now) {
+        if(product.getName() != null || idsInProgress.contains(product.getId())) return;
+        if(!mayFetch(product.getId(), now)) return;
+
+        // The same product may be shown more than once (e.g. in different warehouses).
+        if(chunkIds.add(product.getId())) {
+            chunk.add(product);
+        }
+    }
+
+
+    /**
+     * Returns whether the information of a product may be fetched: it did not fail yet, or its
+     * backoff delay passed and the retry policy allows another attempt.
+     *
+     * @param id The id of the product.
+     * @param now The current time (System.currentTimeMillis()).
+     * @return Whether the product may be fetched.
+     */
+    private boolean mayFetch(String id, long now) {
+        Integer failures = failedFetches.get(id);
+        if(failures == null) return true;
+
+        return retryPolicy.shouldRetry(failures) && now >= retryNotBefore.get(id);
+    }
+
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+    //                                    GETTERS AND SETTERS                                     //
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Returns the number of fetches in progress.
+     *
+     * @return The number of fetches in progress.
+     */
+    public synchronized int getFetchesInProgress() {
+        return fetchesInProgress.size();
+    }
+
+}
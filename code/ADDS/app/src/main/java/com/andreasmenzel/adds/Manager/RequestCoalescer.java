@@ -0,0 +1,205 @@
+package com.andreasmenzel.adds.Manager;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Lets identical requests (same URL) that are in flight at the same time share one network call
+ * (single flight). The first caller sends the request, later callers are attached to it. The body
+ * of the response is buffered and handed to every waiter.
+ * The shared call is retried and recorded in the circuit breaker once, not once per waiter: a
+ * failed call or server error is sent again while the retry policy allows it (the waiters stay
+ * attached and new identical requests attach to the retry), and only the final outcome is handed
+ * to the waiters.
+ */
+public class RequestCoalescer {
+
+    /**
+     * Receives the result of a (possibly shared) request.
+     */
+    public interface Waiter {
+        void onFailure(@NonNull IOException e);
+
+        /**
+         * @param code The http status.
+         * @param fromCache Whether the body is unchanged since it was cached.
+         * @param body A copy of the body for this waiter. Has to be closed by the waiter.
+         */
+        void onResponse(int code, boolean fromCache, @NonNull ResponseBody body);
+    }
+
+
+    // Sends the retries of the shared calls after their delay.
+    private final ScheduledExecutorService retryScheduler;
+
+    // The requests in flight by URL.
+    private final Map<String, Flight> flightsByUrl = new HashMap<>();
+
+    private final AtomicLong coalescedCount = new AtomicLong();
+
+
+    /**
+     * A request in flight with its waiters. It is the callback of its calls.
+     */
+    private class Flight implements Callback {
+        final OkHttpClient client;
+        final Request request;
+        final String url;
+        final RetryPolicy retryPolicy;
+        final CircuitBreaker circuitBreaker;
+        final List<Waiter> waiters = new ArrayList<>();
+        // Only changed by the callback of the current call.
+        int attempt = 1;
+
+        Flight(OkHttpClient client, Request request, String url, RetryPolicy retryPolicy, CircuitBreaker circuitBreaker) {
+            this.client = client;
+            this.request = request;
+            this.url = url;
+            this.retryPolicy = retryPolicy;
+            this.circuitBreaker = circuitBreaker;
+        }
+
+        void send() {
+            client.newCall(request).enqueue(this);
+        }
+
+        @Override
+        public void onFailure(@NonNull Call call, @NonNull IOException e) {
+            circuitBreaker.onFailure();
+            if(scheduleRetry()) return;
+
+            for(Waiter waiter : complete(this)) {
+                waiter.onFailure(e);
+            }
+        }
+
+        @Override
+        public void onResponse(@NonNull Call call, @NonNull Response response) {
+            int code = response.code();
+            boolean fromCache = HttpCacheStatistics.isFromCache(response);
+            MediaType contentType = null;
+            byte[] body = new byte[0];
+
+            try {
+                ResponseBody responseBody = response.body();
+                if(responseBody != null) {
+                    contentType = responseBody.contentType();
+                    body = responseBody.bytes();
+                }
+            } catch (IOException e) {
+                onFailure(call, e);
+                return;
+            } finally {
+                response.close();
+            }
+
+            if(RetryPolicy.isRetryableStatus(code)) {
+                circuitBreaker.onFailure();
+                if(scheduleRetry()) return;
+            } else {
+                circuitBreaker.onSuccess();
+            }
+
+            for(Waiter waiter : complete(this)) {
+                waiter.onResponse(code, fromCache, ResponseBody.create(body, contentType));
+            }
+        }
+
+        /**
+         * Sends the request again after the backoff delay of the retry policy, if it allows
+         * another attempt and the circuit breaker lets the request through.
+         *
+         * @return Whether the request is retried.
+         */
+        private boolean scheduleRetry() {
+            if(!retryPolicy.shouldRetry(attempt) || !circuitBreaker.allowRequest()) return false;
+
+            long delayMillis = retryPolicy.getDelayMillis(attempt);
+            ++attempt;
+            retryScheduler.schedule(this::send, delayMillis, TimeUnit.MILLISECONDS);
+            return true;
+        }
+    }
+
+
+    /**
+     * @param retryScheduler Sends the retries after their delay.
+     */
+    public RequestCoalescer(ScheduledExecutorService retryScheduler) {
+        this.retryScheduler = retryScheduler;
+    }
+
+
+    /**
+     * Sends the request or, if an identical request is already in flight, attaches the waiter to
+     * it. The retry policy and the circuit breaker of the caller that sends the request are used
+     * for the shared call.
+     *
+     * @param client The http client to send the request with.
+     * @param request The request.
+     * @param retryPolicy Decides whether a failed call or server error is sent again.
+     * @param circuitBreaker Records the result of every call.
+     * @param waiter Receives the result.
+     */
+    public void execute(OkHttpClient client, Request request, RetryPolicy retryPolicy, CircuitBreaker circuitBreaker, Waiter waiter) {
+        String url = request.url().toString();
+        Flight flight;
+
+        synchronized(flightsByUrl) {
+            flight = flightsByUrl.get(url);
+            if(flight != null) {
+                flight.waiters.add(waiter);
+                coalescedCount.incrementAndGet();
+                return;
+            }
+
+            flight = new Flight(client, request, url, retryPolicy, circuitBreaker);
+            flight.waiters.add(waiter);
+            flightsByUrl.put(url, flight);
+        }
+
+        flight.send();
+    }
+
+
+    /**
+     * Removes the request from the requests in flight. Waiters that come later send a new
+     * request.
+     *
+     * @param flight The request.
+     * @return The waiters of the request.
+     */
+    private List<Waiter> complete(Flight flight) {
+        synchronized(flightsByUrl) {
+            flightsByUrl.remove(flight.url);
+            return flight.waiters;
+        }
+    }
+
+
+    /**
+     * Returns how many requests were attached to an identical request instead of being sent.
+     *
+     * @return coalescedCount.
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+}
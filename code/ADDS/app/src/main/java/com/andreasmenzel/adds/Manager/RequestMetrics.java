@@ -0,0 +1,255 @@
+package com.andreasmenzel.adds.Manager;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Collects the durations of the phases of the requests (DNS, connect, time to first byte, body
+ * download, analyzing, payload processing, posting the result) per request type in latency
+ * histograms. Recording is lock-free and does not allocate, so the metrics can stay enabled in
+ * release builds.
+ */
+public class RequestMetrics {
+
+    private static final String LOG_TAG = "RequestMetrics";
+
+    public enum Phase {
+        dns,
+        connect,
+        timeToFirstByte,
+        download,
+        call,
+        analyze,
+        processPayload,
+        post
+    }
+
+    /**
+     * The percentiles of a histogram at the time it was taken.
+     */
+    public static class Snapshot {
+        private final long count;
+        private final long p50Micros;
+        private final long p95Micros;
+        private final long p99Micros;
+        private final long maxMicros;
+
+        Snapshot(long count, long p50Micros, long p95Micros, long p99Micros, long maxMicros) {
+            this.count = count;
+            this.p50Micros = p50Micros;
+            this.p95Micros = p95Micros;
+            this.p99Micros = p99Micros;
+            this.maxMicros = maxMicros;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getP50Micros() {
+            return p50Micros;
+        }
+
+        public long getP95Micros() {
+            return p95Micros;
+        }
+
+        public long getP99Micros() {
+            return p99Micros;
+        }
+
+        public long getMaxMicros() {
+            return maxMicros;
+        }
+    }
+
+    /**
+     * Counts durations in exponential buckets (4 per power of two, from 1 us to about 70 min).
+     * The percentiles are the upper bounds of their buckets (at most the maximum), so they are at
+     * most 25% too high.
+     */
+    static class LatencyHistogram {
+        private static final int SUB_BUCKETS = 4;
+        private static final int BUCKETS = 32 * SUB_BUCKETS;
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final AtomicLong maxMicros = new AtomicLong();
+
+        void record(long micros) {
+            micros = Math.max(1, micros);
+            counts.incrementAndGet(bucket(micros));
+
+            long max;
+            while(micros > (max = maxMicros.get()) && !maxMicros.compareAndSet(max, micros)) {
+                // Try again.
+            }
+        }
+
+        Snapshot snapshot() {
+            long[] snapshotCounts = new long[BUCKETS];
+            long total = 0;
+            for(int i = 0; i < BUCKETS; ++i) {
+                snapshotCounts[i] = counts.get(i);
+                total += snapshotCounts[i];
+            }
+
+            long max = maxMicros.get();
+            return new Snapshot(total, Math.min(max, percentile(snapshotCounts, total, 0.50)),
+                    Math.min(max, percentile(snapshotCounts, total, 0.95)), Math.min(max, percentile(snapshotCounts, total, 0.99)), max);
+        }
+
+        void reset() {
+            for(int i = 0; i < BUCKETS; ++i) {
+                counts.set(i, 0);
+            }
+            maxMicros.set(0);
+        }
+
+        private static long percentile(long[] snapshotCounts, long total, double percentile) {
+            if(total == 0) return 0;
+
+            long rank = (long) Math.ceil(total * percentile);
+            long seen = 0;
+            for(int i = 0; i < BUCKETS; ++i) {
+                seen += snapshotCounts[i];
+                if(seen >= rank) return upperBound(i);
+            }
+            return upperBound(BUCKETS - 1);
+        }
+
+        private static int bucket(long micros) {
+            int power = 63 - Long.numberOfLeadingZeros(micros);
+            // The two bits after the highest bit select the sub bucket.
+            int subBucket = power >= 2 ? (int) ((micros >>> (power - 2)) & 3) : (int) ((micros << (2 - power)) & 3);
+            return Math.min(BUCKETS - 1, power * SUB_BUCKETS + subBucket);
+        }
+
+        private static long upperBound(int bucket) {
+            int power = bucket / SUB_BUCKETS;
+            int subBucket = bucket % SUB_BUCKETS;
+            return ((1L << power) * (SUB_BUCKETS + subBucket + 1)) / SUB_BUCKETS;
+        }
+    }
+
+
+    // The histograms by request type and phase.
+    private final LatencyHistogram[][] histograms;
+
+
+    public RequestMetrics() {
+        CommunicationManager.RequestTypes[] requestTypes = CommunicationManager.RequestTypes.values();
+        Phase[] phases = Phase.values();
+
+        histograms = new LatencyHistogram[requestTypes.length][phases.length];
+        for(int i = 0; i < requestTypes.length; ++i) {
+            for(int j = 0; j < phases.length; ++j) {
+                histograms[i][j] = new LatencyHistogram();
+            }
+        }
+    }
+
+
+    /**
+     * Records the duration of a phase of a request.
+     *
+     * @param requestType The type of the request.
+     * @param phase The phase.
+     * @param nanos The duration in nanoseconds.
+     */
+    public void record(CommunicationManager.RequestTypes requestType, Phase phase, long nanos) {
+        histograms[requestType.ordinal()][phase.ordinal()].record(nanos / 1000);
+    }
+
+    /**
+     * Records the duration of a phase that started at startNanos (System.nanoTime()) and ends now.
+     *
+     * @param requestType The type of the request.
+     * @param phase The phase.
+     * @param startNanos The start of the phase.
+     */
+    public void recordSince(CommunicationManager.RequestTypes requestType, Phase phase, long startNanos) {
+        record(requestType, phase, System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Removes all recorded durations.
+     */
+    public void reset() {
+        for(LatencyHistogram[] histogramsOfType : histograms) {
+            for(LatencyHistogram histogram : histogramsOfType) {
+                histogram.reset();
+            }
+        }
+    }
+
+
+    /**
+     * Writes the summary to logcat.
+     */
+    public void dumpToLog() {
+        for(String line : getSummary().split("\n")) {
+            if(!line.isEmpty()) {
+                Log.i(LOG_TAG, line);
+            }
+        }
+    }
+
+    /**
+     * Writes the summary to a file.
+     *
+     * @param file The file.
+     * @throws IOException If the file cannot be written.
+     */
+    public void dumpToFile(File file) throws IOException {
+        try(Writer writer = new FileWriter(file)) {
+            writer.write(getSummary());
+        }
+    }
+
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+    //                                    GETTERS AND SETTERS                                     //
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Returns the percentiles of a phase of a request type.
+     *
+     * @param requestType The type of the requests.
+     * @param phase The phase.
+     * @return The snapshot.
+     */
+    public Snapshot getSnapshot(CommunicationManager.RequestTypes requestType, Phase phase) {
+        return histograms[requestType.ordinal()][phase.ordinal()].snapshot();
+    }
+
+    /**
+     * Returns a human readable summary of all phases that were recorded, one line per request type
+     * and phase.
+     *
+     * @return The summary.
+     */
+    public String getSummary() {
+        StringBuilder summary = new StringBuilder();
+
+        for(CommunicationManager.RequestTypes requestType : CommunicationManager.RequestTypes.values()) {
+            for(Phase phase : Phase.values()) {
+                Snapshot snapshot = getSnapshot(requestType, phase);
+                if(snapshot.getCount() == 0) continue;
+
+                summary.append(String.format(Locale.US, "%s / %s: n=%d, p50=%.1f ms, p95=%.1f ms, p99=%.1f ms, max=%.1f ms%n",
+                        requestType, phase, snapshot.getCount(), snapshot.getP50Micros() / 1000.0,
+                        snapshot.getP95Micros() / 1000.0, snapshot.getP99Micros() / 1000.0, snapshot.getMaxMicros() / 1000.0));
+            }
+        }
+
+        return summary.toString();
+    }
+
+}
@@ -0,0 +1,140 @@
+package com.andreasmenzel.adds.Manager;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.Protocol;
+import okhttp3.Response;
+
+/**
+ * Measures the network phases of one call (DNS, connect, time to first byte, body download and
+ * the whole call) and records them in the request metrics. Only calls whose request is tagged
+ * with its RequestTypes are measured.
+ */
+public class RequestTimingListener extends EventListener {
+
+    /**
+     * Tells the current time in nanoseconds (System.nanoTime() outside of tests).
+     */
+    interface Clock {
+        long nanoTime();
+    }
+
+    /**
+     * Creates a listener for every call that is tagged with its RequestTypes.
+     */
+    public static class Factory implements EventListener.Factory {
+        private final RequestMetrics requestMetrics;
+
+        public Factory(RequestMetrics requestMetrics) {
+            this.requestMetrics = requestMetrics;
+        }
+
+        @NonNull
+        @Override
+        public EventListener create(@NonNull Call call) {
+            CommunicationManager.RequestTypes requestType = call.request().tag(CommunicationManager.RequestTypes.class);
+            if(requestType == null) return EventListener.NONE;
+
+            return new RequestTimingListener(requestMetrics, requestType);
+        }
+    }
+
+
+    private final RequestMetrics requestMetrics;
+    private final CommunicationManager.RequestTypes requestType;
+    private final Clock clock;
+
+    private long callStart;
+    private long dnsStart;
+    private long connectStart;
+    private long requestStart;
+    private long responseHeadersEnd;
+
+
+    RequestTimingListener(RequestMetrics requestMetrics, CommunicationManager.RequestTypes requestType) {
+        this(requestMetrics, requestType, System::nanoTime);
+    }
+
+    RequestTimingListener(RequestMetrics requestMetrics, CommunicationManager.RequestTypes requestType, Clock clock) {
+        this.requestMetrics = requestMetrics;
+        this.requestType = requestType;
+        this.clock = clock;
+    }
+
+
+    @Override
+    public void callStart(@NonNull Call call) {
+        callStart = clock.nanoTime();
+    }
+
+    @Override
+    public void dnsStart(@NonNull Call call, @NonNull String domainName) {
+        dnsStart = clock.nanoTime();
+    }
+
+    @Override
+    public void dnsEnd(@NonNull Call call, @NonNull String domainName, @NonNull List<InetAddress> inetAddressList) {
+        recordSince(RequestMetrics.Phase.dns, dnsStart);
+    }
+
+    @Override
+    public void connectStart(@NonNull Call call, @NonNull InetSocketAddress inetSocketAddress, @NonNull Proxy proxy) {
+        connectStart = clock.nanoTime();
+    }
+
+    @Override
+    public void connectEnd(@NonNull Call call, @NonNull InetSocketAddress inetSocketAddress, @NonNull Proxy proxy, @Nullable Protocol protocol) {
+        recordSince(RequestMetrics.Phase.connect, connectStart);
+    }
+
+    @Override
+    public void requestHeadersStart(@NonNull Call call) {
+        requestStart = clock.nanoTime();
+    }
+
+    @Override
+    public void responseHeadersStart(@NonNull Call call) {
+        recordSince(RequestMetrics.Phase.timeToFirstByte, requestStart);
+    }
+
+    @Override
+    public void responseHeadersEnd(@NonNull Call call, @NonNull Response response) {
+        responseHeadersEnd = clock.nanoTime();
+    }
+
+    @Override
+    public void responseBodyEnd(@NonNull Call call, long byteCount) {
+        recordSince(RequestMetrics.Phase.download, responseHeadersEnd);
+    }
+
+    @Override
+    public void callEnd(@NonNull Call call) {
+        recordSince(RequestMetrics.Phase.call, callStart);
+    }
+
+    @Override
+    public void callFailed(@NonNull Call call, @NonNull IOException ioe) {
+        recordSince(RequestMetrics.Phase.call, callStart);
+    }
+
+
+    /**
+     * Records the duration of a phase that started at startNanos and ends now.
+     *
+     * @param phase The phase.
+     * @param startNanos The start of the phase (clock.nanoTime()).
+     */
+    private void recordSince(RequestMetrics.Phase phase, long startNanos) {
+        requestMetrics.record(requestType, phase, clock.nanoTime() - startNanos);
+    }
+
+}
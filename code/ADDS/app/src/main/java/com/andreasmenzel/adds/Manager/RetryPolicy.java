@@ -0,0 +1,110 @@
+package com.andreasmenzel.adds.Manager;
+
+import java.util.Random;
+
+/**
+ * Decides whether and when a failed request is sent again. The delay grows exponentially with
+ * every attempt up to a maximum and is randomized ("full jitter"), so clients that failed at the
+ * same time do not retry at the same time.
+ */
+public class RetryPolicy {
+
+    public static final RetryPolicy NO_RETRY = new RetryPolicy(1, 0, 0);
+
+    public static final int DEFAULT_FETCH_MAX_ATTEMPTS = 4;
+    public static final int DEFAULT_AUTHENTICATION_MAX_ATTEMPTS = 2;
+    public static final long DEFAULT_BASE_DELAY_MILLIS = 500;
+    public static final long DEFAULT_MAX_DELAY_MILLIS = 8000;
+
+    private final int maxAttempts;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+    private final Random random = new Random();
+
+
+    /**
+     * @param maxAttempts The maximum number of attempts (1 = no retry).
+     * @param baseDelayMillis The maximum delay before the first retry.
+     * @param maxDelayMillis The cap of the maximum delay.
+     */
+    public RetryPolicy(int maxAttempts, long baseDelayMillis, long maxDelayMillis) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.baseDelayMillis = Math.max(0, baseDelayMillis);
+        this.maxDelayMillis = Math.max(this.baseDelayMillis, maxDelayMillis);
+    }
+
+
+    /**
+     * Returns the default policy of a request type. Fetches have no side effects and are retried,
+     * an authentication is retried once. Account registration and activation are not retried,
+     * because a request that reached the server but whose response was lost must not be repeated.
+     *
+     * @param requestType The type of the requests.
+     * @return The policy.
+     */
+    public static RetryPolicy forRequestType(CommunicationManager.RequestTypes requestType) {
+        switch(requestType) {
+            case fetchProduct:
+            case fetchProductList:
+                return new RetryPolicy(DEFAULT_FETCH_MAX_ATTEMPTS, DEFAULT_BASE_DELAY_MILLIS, DEFAULT_MAX_DELAY_MILLIS);
+            case authenticateAccount:
+                return new RetryPolicy(DEFAULT_AUTHENTICATION_MAX_ATTEMPTS, DEFAULT_BASE_DELAY_MILLIS, DEFAULT_MAX_DELAY_MILLIS);
+            default:
+                return NO_RETRY;
+        }
+    }
+
+
+    /**
+     * Returns whether a request that failed in the given attempt is sent again.
+     *
+     * @param attempt The attempt that failed (starting with 1).
+     * @return Whether to retry.
+     */
+    public boolean shouldRetry(int attempt) {
+        return attempt < maxAttempts;
+    }
+
+    /**
+     * Returns whether a response with the given http status is worth a retry: server errors,
+     * request timeouts and rate limiting. Other client errors will not change by retrying.
+     *
+     * @param code The http status.
+     * @return Whether the status is retryable.
+     */
+    public static boolean isRetryableStatus(int code) {
+        return code >= 500 || code == 408 || code == 429;
+    }
+
+    /**
+     * Returns the delay before the retry after the given attempt: a random value between 0 and
+     * min(maxDelayMillis, baseDelayMillis * 2^(attempt - 1)).
+     *
+     * @param attempt The attempt that failed (starting with 1).
+     * @return The delay in milliseconds.
+     */
+    public long getDelayMillis(int attempt) {
+        int exponent = Math.min(Math.max(0, attempt - 1), 30);
+        long delayCap = Math.min(maxDelayMillis, baseDelayMillis << exponent);
+        if(delayCap <= 0) return 0;
+
+        synchronized(random) {
+            return (long) (random.nextDouble() * delayCap);
+        }
+    }
+
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+    //                                    GETTERS AND SETTERS                                     //
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Returns the maximum number of attempts (1 = no retry).
+     *
+     * @return maxAttempts.
+     */
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+}
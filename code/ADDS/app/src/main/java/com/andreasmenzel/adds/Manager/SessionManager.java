@@ -0,0 +1,429 @@
+package com.andreasmenzel.adds.Manager;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.security.keystore.KeyGenParameterSpec;
+import android.security.keystore.KeyProperties;
+import android.util.Base64;
+
+import com.andreasmenzel.adds.Events.SessionLoaded;
+import com.andreasmenzel.adds.MyApplication;
+import com.andreasmenzel.adds.ResponseAnalyzer;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Manages the authentication session of the user: the authentication token and its expire time
+ * together with the credentials it was requested with. The session is stored encrypted (with a key
+ * in the Android Keystore) in the shared preferences, so it survives restarts of the app, and the
+ * token is refreshed in the background shortly before it expires.
+ * The stored session is decrypted on the background thread of the manager, so creating the manager
+ * (in Application.onCreate()) does not wait for the Keystore. The methods that read the session
+ * never wait for it: until it was loaded, the user counts as not logged in and requests carry no
+ * token. Requests that need the token are deferred with whenLoaded(), and SessionLoaded is posted
+ * on the bus when the session was loaded, so the UI can check it again.
+ */
+public class SessionManager {
+
+    // Refresh the token this many seconds before it expires.
+    public static final long REFRESH_MARGIN_SECONDS = 5 * 60;
+    // Try again after this many seconds if a refresh did not store a new token.
+    public static final long REFRESH_RETRY_SECONDS = 60;
+
+    private static final String PREFERENCES_NAME = "session";
+    private static final String PREFERENCE_SESSION = "session";
+
+    private static final String KEYSTORE_PROVIDER = "AndroidKeyStore";
+    private static final String KEY_ALIAS = "adds_session";
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int GCM_IV_LENGTH = 12;
+    private static final int GCM_TAG_LENGTH_BITS = 128;
+
+    private final SharedPreferences preferences;
+    private final ScheduledExecutorService scheduler;
+    private ScheduledFuture<?> scheduledRefresh = null;
+    private final CountDownLatch loaded = new CountDownLatch(1);
+    // The event carries no data, so the same instance is posted every time.
+    private final SessionLoaded eventSessionLoaded = new SessionLoaded();
+
+    private String accountEmail = null;
+    private String accountPwdHash = null;
+    private String authenticationToken = null;
+    private long authenticationTokenExpire = 0;
+
+
+    /**
+     * Starts loading the stored session (if there is one) in the background and schedules its
+     * refresh.
+     *
+     * @param context The context of the application.
+     */
+    public SessionManager(Context context) {
+        this(context, Executors.newSingleThreadScheduledExecutor());
+    }
+
+    /**
+     * Starts loading the stored session (if there is one) on the given thread and schedules its
+     * refresh. Used by the tests, which control when the session is loaded.
+     *
+     * @param context The context of the application.
+     * @param scheduler The single thread that loads the session and refreshes the token.
+     */
+    SessionManager(Context context, ScheduledExecutorService scheduler) {
+        preferences = context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+        this.scheduler = scheduler;
+
+        scheduler.execute(() -> {
+            load();
+            loaded.countDown();
+            scheduleRefresh();
+            MyApplication.getEventBus().post(eventSessionLoaded);
+        });
+    }
+
+
+    /**
+     * Stores a new session (after a successful authentication) and schedules its refresh. Waits
+     * until the stored session was loaded, so it must not be called on the main thread (it is
+     * called with the response of the authentication).
+     *
+     * @param email The email of the user.
+     * @param pwd_hash The password hash the token was requested with.
+     * @param authenticationToken The authentication token.
+     * @param authenticationTokenExpire The expire time of the token (unix time in seconds).
+     */
+    public void store(String email, String pwd_hash, String authenticationToken, long authenticationTokenExpire) {
+        // The stored session must not replace the new one.
+        awaitLoaded();
+
+        synchronized(this) {
+            this.accountEmail = email;
+            this.accountPwdHash = pwd_hash;
+            this.authenticationToken = authenticationToken;
+            this.authenticationTokenExpire = authenticationTokenExpire;
+
+            scheduleRefresh();
+        }
+        save();
+    }
+
+    /**
+     * Removes the session (logout). If the stored session is not loaded yet, it is removed as soon
+     * as it was loaded, so the caller does not wait for the Keystore.
+     */
+    public void clear() {
+        whenLoaded(() -> {
+            synchronized(this) {
+                accountEmail = null;
+                accountPwdHash = null;
+                authenticationToken = null;
+                authenticationTokenExpire = 0;
+
+                scheduleRefresh();
+            }
+            // After a save in progress, so it cannot store the old session again.
+            synchronized(preferences) {
+                preferences.edit().remove(PREFERENCE_SESSION).apply();
+            }
+            MyApplication.getPasswordHasher().clearCache();
+        });
+    }
+
+
+    /**
+     * Adds the authentication token to a request to the Booking System, if the session is valid.
+     * Does not wait for the stored session: send the request with whenLoaded() if it needs the
+     * token.
+     *
+     * @param builder The builder of the request.
+     * @return The builder.
+     */
+    public Request.Builder authorize(Request.Builder builder) {
+        String token = getValidAuthenticationToken();
+        if(token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+
+        return builder;
+    }
+
+
+    /**
+     * Schedules the refresh of the token REFRESH_MARGIN_SECONDS before it expires. Cancels the
+     * previously scheduled refresh.
+     */
+    private synchronized void scheduleRefresh() {
+        if(scheduledRefresh != null) {
+            scheduledRefresh.cancel(false);
+            scheduledRefresh = null;
+        }
+
+        if(!isValid() || accountEmail == null || accountPwdHash == null) return;
+
+        long delay = Math.max(0, authenticationTokenExpire - REFRESH_MARGIN_SECONDS - now());
+        scheduledRefresh = scheduler.schedule(this::refresh, delay, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Requests a new token with the stored credentials and stores the new session (which schedules
+     * the next refresh). If no new token was stored, the refresh is tried again after
+     * REFRESH_RETRY_SECONDS as long as the session is valid.
+     * The request is sent on the thread of the manager, not through the authentication
+     * CommunicationManager, so it posts no events: the login screen only reacts to logins of the
+     * user.
+     */
+    private void refresh() {
+        String email;
+        String pwd_hash;
+        synchronized(this) {
+            if(!isValid()) return;
+
+            email = accountEmail;
+            pwd_hash = accountPwdHash;
+            scheduledRefresh = scheduler.schedule(this::refresh, REFRESH_RETRY_SECONDS, TimeUnit.SECONDS);
+        }
+
+        String userManagementSystemUrl = CommunicationManager.getDefaultBackendUrl(CommunicationManager.RequestTypes.authenticateAccount);
+        Request request = new Request.Builder()
+                .url(userManagementSystemUrl + "authentication/authenticate?email=" + email + "&pwd_hash=" + pwd_hash)
+                .tag(CommunicationManager.RequestTypes.class, CommunicationManager.RequestTypes.authenticateAccount)
+                .build();
+
+        ResponseAnalyzer responseAnalyzer = new ResponseAnalyzer();
+        try(Response response = MyApplication.getHttpClient().newCall(request).execute()) {
+            if(!response.isSuccessful()) return;
+
+            responseAnalyzer.analyze(response.body().string());
+        } catch (IOException e) {
+            return;
+        }
+
+        JSONObject responsePayload = responseAnalyzer.getPayload();
+        if(!responseAnalyzer.wasExecuted() || responsePayload == null) return;
+
+        String newAuthenticationToken = responsePayload.optString("auth_token", null);
+        long newAuthenticationTokenExpire = responsePayload.optLong("exp", 0);
+        if(newAuthenticationToken == null || newAuthenticationTokenExpire <= 0) return;
+
+        synchronized(this) {
+            // The user logged out or in with another account in the meantime.
+            if(!email.equals(accountEmail) || !pwd_hash.equals(accountPwdHash)) return;
+
+            authenticationToken = newAuthenticationToken;
+            authenticationTokenExpire = newAuthenticationTokenExpire;
+            scheduleRefresh();
+        }
+        save();
+    }
+
+
+    /**
+     * Runs an action once the stored session was loaded: right away if it is loaded already,
+     * otherwise on the thread of the manager right after loading. Lets requests that need the
+     * token wait for it without blocking the calling (e.g. main) thread.
+     *
+     * @param action The action.
+     */
+    public void whenLoaded(Runnable action) {
+        if(isLoaded()) {
+            action.run();
+            return;
+        }
+
+        // The thread runs its tasks in order, so the action runs after the session was loaded.
+        scheduler.execute(action);
+    }
+
+    /**
+     * Waits until the stored session was loaded. Blocks the calling thread while the session is
+     * decrypted, so it must only be called on background threads (e.g. by the StockSyncWorker).
+     */
+    public void awaitLoaded() {
+        try {
+            loaded.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+    /**
+     * Loads and decrypts the stored session. An unreadable session is removed. The session is
+     * decrypted without holding the lock, so the getters do not wait for the Keystore.
+     */
+    private void load() {
+        String stored = preferences.getString(PREFERENCE_SESSION, null);
+        if(stored == null) return;
+
+        try {
+            byte[] data = Base64.decode(stored, Base64.NO_WRAP);
+
+            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+            cipher.init(Cipher.DECRYPT_MODE, getKey(), new GCMParameterSpec(GCM_TAG_LENGTH_BITS, data, 0, GCM_IV_LENGTH));
+            String json = new String(cipher.doFinal(data, GCM_IV_LENGTH, data.length - GCM_IV_LENGTH), StandardCharsets.UTF_8);
+
+            JSONObject session = new JSONObject(json);
+            String email = session.getString("email");
+            String pwd_hash = session.getString("pwd_hash");
+            String token = session.getString("auth_token");
+            long tokenExpire = session.getLong("exp");
+
+            synchronized(this) {
+                accountEmail = email;
+                accountPwdHash = pwd_hash;
+                authenticationToken = token;
+                authenticationTokenExpire = tokenExpire;
+            }
+        } catch (GeneralSecurityException | IOException | JSONException | IllegalArgumentException e) {
+            preferences.edit().remove(PREFERENCE_SESSION).apply();
+        }
+    }
+
+    /**
+     * Encrypts and stores the current session. If it cannot be encrypted, it is only kept in
+     * memory. The session is encrypted without holding the lock of the manager, so the getters do
+     * not wait for the Keystore; concurrent saves are serialized, so the last one stores the
+     * newest session.
+     */
+    private void save() {
+        synchronized(preferences) {
+            saveLocked();
+        }
+    }
+
+    private void saveLocked() {
+        try {
+            JSONObject session = new JSONObject();
+            synchronized(this) {
+                // Logged out in the meantime.
+                if(authenticationToken == null) {
+                    preferences.edit().remove(PREFERENCE_SESSION).apply();
+                    return;
+                }
+
+                session.put("email", accountEmail);
+                session.put("pwd_hash", accountPwdHash);
+                session.put("auth_token", authenticationToken);
+                session.put("exp", authenticationTokenExpire);
+            }
+
+            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+            cipher.init(Cipher.ENCRYPT_MODE, getKey());
+            byte[] iv = cipher.getIV();
+            byte[] encrypted = cipher.doFinal(session.toString().getBytes(StandardCharsets.UTF_8));
+
+            byte[] data = new byte[iv.length + encrypted.length];
+            System.arraycopy(iv, 0, data, 0, iv.length);
+            System.arraycopy(encrypted, 0, data, iv.length, encrypted.length);
+
+            preferences.edit().putString(PREFERENCE_SESSION, Base64.encodeToString(data, Base64.NO_WRAP)).apply();
+        } catch (GeneralSecurityException | IOException | JSONException e) {
+            preferences.edit().remove(PREFERENCE_SESSION).apply();
+        }
+    }
+
+    /**
+     * Returns the key the session is encrypted with. Creates it in the Android Keystore if it does
+     * not exist yet.
+     */
+    private static SecretKey getKey() throws GeneralSecurityException, IOException {
+        KeyStore keyStore = KeyStore.getInstance(KEYSTORE_PROVIDER);
+        keyStore.load(null);
+
+        if(keyStore.containsAlias(KEY_ALIAS)) {
+            return ((KeyStore.SecretKeyEntry) keyStore.getEntry(KEY_ALIAS, null)).getSecretKey();
+        }
+
+        KeyGenerator keyGenerator = KeyGenerator.getInstance(KeyProperties.KEY_ALGORITHM_AES, KEYSTORE_PROVIDER);
+        keyGenerator.init(new KeyGenParameterSpec.Builder(KEY_ALIAS, KeyProperties.PURPOSE_ENCRYPT | KeyProperties.PURPOSE_DECRYPT)
+                .setBlockModes(KeyProperties.BLOCK_MODE_GCM)
+                .setEncryptionPaddings(KeyProperties.ENCRYPTION_PADDING_NONE)
+                .build());
+        return keyGenerator.generateKey();
+    }
+
+
+    private static long now() {
+        return System.currentTimeMillis() / 1000;
+    }
+
+    /**
+     * Returns whether the token did not expire yet. The caller holds the lock.
+     */
+    private boolean isValid() {
+        return authenticationToken != null && authenticationTokenExpire > now();
+    }
+
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+    //                                    GETTERS AND SETTERS                                     //
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Returns whether the stored session was loaded. Until then, the methods that read the
+     * session act as if there is none.
+     *
+     * @return Whether the session was loaded.
+     */
+    public boolean isLoaded() {
+        return loaded.getCount() == 0;
+    }
+
+    /**
+     * Returns whether there is an authentication token that did not expire yet. Returns false
+     * while the stored session is not loaded yet (see isLoaded()).
+     *
+     * @return Whether the session is valid.
+     */
+    public synchronized boolean hasValidSession() {
+        return isValid();
+    }
+
+    /**
+     * Returns the authentication token if it did not expire yet (null while the stored session is
+     * not loaded yet).
+     *
+     * @return The authentication token or null.
+     */
+    public synchronized String getValidAuthenticationToken() {
+        return isValid() ? authenticationToken : null;
+    }
+
+    /**
+     * Returns the email of the logged in user.
+     *
+     * @return accountEmail.
+     */
+    public synchronized String getAccountEmail() {
+        return accountEmail;
+    }
+
+    /**
+     * Returns the expire time of the authentication token (unix time in seconds).
+     *
+     * @return authenticationTokenExpire.
+     */
+    public synchronized long getAuthenticationTokenExpire() {
+        return authenticationTokenExpire;
+    }
+
+}
@@ -0,0 +1,136 @@
+package com.andreasmenzel.adds.Manager;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the stocks of the warehouses the user follows up to date in the background. A periodic
+ * StockSyncWorker refreshes the catalog (stocks and product information) of the followed
+ * warehouses while the device is on an unmetered network and the battery is not low.
+ * Background and foreground refreshes are coalesced: both record when a warehouse was synced, the
+ * worker skips warehouses that are still fresh and a product list of a fresh warehouse is served
+ * from the catalog without a request (see ProductList.updateProductList()).
+ */
+public class StockSyncManager {
+
+    public static final String WORK_NAME = "stock_sync";
+    public static final long SYNC_INTERVAL_MINUTES = 60;
+    // Synced data younger than this is served without a request.
+    public static final long FRESH_MILLIS = TimeUnit.MINUTES.toMillis(15);
+
+    private static final String PREFERENCES_NAME = "stock_sync";
+    private static final String KEY_FOLLOWED_WAREHOUSES = "followed_warehouses";
+    private static final String KEY_SYNCED_AT_PREFIX = "synced_at_";
+
+    private final SharedPreferences preferences;
+
+
+    /**
+     * Sets up the manager with the stored followed warehouses and sync times.
+     *
+     * @param context The context of the application.
+     */
+    public StockSyncManager(Context context) {
+        preferences = context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+    }
+
+
+    /**
+     * Schedules the periodic sync (unless it is scheduled already). The request id can be passed to
+     * the TestDriver of WorkManager (work-testing) to meet the constraints and the period delay.
+     *
+     * @param workManager The WorkManager (WorkManager.getInstance(context)).
+     * @return The id of the periodic work request.
+     */
+    public static UUID schedulePeriodicSync(WorkManager workManager) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.UNMETERED)
+                .setRequiresBatteryNotLow(true)
+                .build();
+
+        PeriodicWorkRequest request = new PeriodicWorkRequest.Builder(StockSyncWorker.class, SYNC_INTERVAL_MINUTES, TimeUnit.MINUTES)
+                .setConstraints(constraints)
+                .build();
+
+        workManager.enqueueUniquePeriodicWork(WORK_NAME, ExistingPeriodicWorkPolicy.KEEP, request);
+        return request.getId();
+    }
+
+
+    /**
+     * Adds a warehouse to the warehouses whose stocks are synced in the background.
+     *
+     * @param warehouseID The id of the warehouse.
+     */
+    public synchronized void followWarehouse(String warehouseID) {
+        Set<String> followedWarehouses = getFollowedWarehouses();
+        if(followedWarehouses.add(warehouseID)) {
+            preferences.edit().putStringSet(KEY_FOLLOWED_WAREHOUSES, followedWarehouses).apply();
+        }
+    }
+
+    /**
+     * Removes a warehouse from the warehouses whose stocks are synced in the background.
+     *
+     * @param warehouseID The id of the warehouse.
+     */
+    public synchronized void unfollowWarehouse(String warehouseID) {
+        Set<String> followedWarehouses = getFollowedWarehouses();
+        if(followedWarehouses.remove(warehouseID)) {
+            preferences.edit()
+                    .putStringSet(KEY_FOLLOWED_WAREHOUSES, followedWarehouses)
+                    .remove(KEY_SYNCED_AT_PREFIX + warehouseID)
+                    .apply();
+        }
+    }
+
+
+    /**
+     * Records that the complete stocks of a warehouse were just stored in the catalog (by the
+     * worker or by a foreground refresh).
+     *
+     * @param warehouseID The id of the warehouse.
+     */
+    public void onWarehouseSynced(String warehouseID) {
+        preferences.edit().putLong(KEY_SYNCED_AT_PREFIX + warehouseID, System.currentTimeMillis()).apply();
+    }
+
+    /**
+     * Returns whether the stocks of a warehouse in the catalog are younger than FRESH_MILLIS.
+     *
+     * @param warehouseID The id of the warehouse.
+     * @return Whether the warehouse was synced recently.
+     */
+    public boolean isFresh(String warehouseID) {
+        long syncedAt = preferences.getLong(KEY_SYNCED_AT_PREFIX + warehouseID, 0);
+        long age = System.currentTimeMillis() - syncedAt;
+        return age >= 0 && age < FRESH_MILLIS;
+    }
+
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+    //                                    GETTERS AND SETTERS                                     //
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Returns the ids of the followed warehouses.
+     *
+     * @return A copy of the followed warehouses.
+     */
+    public synchronized Set<String> getFollowedWarehouses() {
+        // The set returned by SharedPreferences must not be modified.
+        return new HashSet<>(preferences.getStringSet(KEY_FOLLOWED_WAREHOUSES, new HashSet<>()));
+    }
+
+}
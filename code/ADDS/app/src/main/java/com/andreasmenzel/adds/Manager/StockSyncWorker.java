@@ -0,0 +1,161 @@
+package com.andreasmenzel.adds.Manager;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.andreasmenzel.adds.DataClasses.Product;
+import com.andreasmenzel.adds.MyApplication;
+import com.andreasmenzel.adds.ResponseAnalyzer;
+import com.andreasmenzel.adds.StocksResponseDecoder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Refreshes the catalog of the followed warehouses (see StockSyncManager): requests the stocks of
+ * every followed warehouse that is not fresh, stores them in the catalog and fetches the missing
+ * product information. Runs on a background thread of WorkManager, so the requests are sent
+ * synchronously. A failed stocks request is sent again with the retry policy of product list
+ * fetches, and no request is sent while the circuit breaker of the Booking System is open. Asks
+ * WorkManager to retry later if a warehouse could not be synced.
+ */
+public class StockSyncWorker extends Worker {
+
+    // How long to wait for the product information of a warehouse.
+    public static final long PRODUCT_INFO_TIMEOUT_SECONDS = 60;
+
+
+    public StockSyncWorker(@NonNull Context context, @NonNull WorkerParameters workerParameters) {
+        super(context, workerParameters);
+    }
+
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        StockSyncManager stockSyncManager = MyApplication.getStockSyncManager();
+        CatalogManager catalogManager = MyApplication.getCatalogManager();
+        if(stockSyncManager == null || catalogManager == null) return Result.retry();
+
+        boolean allSynced = true;
+        for(String warehouseID : stockSyncManager.getFollowedWarehouses()) {
+            if(isStopped()) return Result.retry();
+
+            // A foreground refresh may have synced the warehouse a moment ago.
+            if(stockSyncManager.isFresh(warehouseID)) continue;
+
+            if(syncWarehouse(warehouseID, catalogManager)) {
+                stockSyncManager.onWarehouseSynced(warehouseID);
+            } else {
+                allSynced = false;
+            }
+        }
+
+        return allSynced ? Result.success() : Result.retry();
+    }
+
+
+    /**
+     * Requests the stocks of a warehouse, stores them in the catalog and waits until the missing
+     * product information was fetched (or PRODUCT_INFO_TIMEOUT_SECONDS passed).
+     *
+     * @param warehouseID The id of the warehouse.
+     * @param catalogManager The catalog.
+     * @return Whether the stocks were stored.
+     */
+    private boolean syncWarehouse(String warehouseID, CatalogManager catalogManager) {
+        String bookingSystemUrl = CommunicationManager.getDefaultBackendUrl(CommunicationManager.RequestTypes.fetchProductList);
+        List<Product> stocks = requestStocks(bookingSystemUrl, warehouseID);
+        if(stocks == null) return false;
+
+        catalogManager.storeWarehouse(warehouseID, stocks);
+
+        // The catalog keeps the information of known products, so only new products are fetched.
+        List<Product> productsWithoutInfo = new ArrayList<>();
+        for(Product product : catalogManager.loadWarehouse(warehouseID)) {
+            if(product.getName() == null) {
+                productsWithoutInfo.add(product);
+            }
+        }
+        if(!productsWithoutInfo.isEmpty()) {
+            CountDownLatch infoFetched = new CountDownLatch(1);
+            new ProductInfoBatchFetcher(bookingSystemUrl).fetch(productsWithoutInfo, fetch -> infoFetched.countDown());
+            try {
+                infoFetched.await(PRODUCT_INFO_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Requests the stocks of a warehouse. Retries server errors and failed connections with the
+     * retry policy of product list fetches (waiting on this thread) and records the results in
+     * the circuit breaker of the Booking System.
+     *
+     * @param bookingSystemUrl The url of the Booking System.
+     * @param warehouseID The id of the warehouse.
+     * @return The stocks, or null if they could not be requested.
+     */
+    private List<Product> requestStocks(String bookingSystemUrl, String warehouseID) {
+        RetryPolicy retryPolicy = RetryPolicy.forRequestType(CommunicationManager.RequestTypes.fetchProductList);
+        CircuitBreaker circuitBreaker = CircuitBreaker.forSystem(CommunicationManager.getSystem(CommunicationManager.RequestTypes.fetchProductList));
+
+        for(int attempt = 1; ; ++attempt) {
+            // WorkManager retries later if the Booking System is down.
+            if(!circuitBreaker.allowRequest()) return null;
+
+            Request.Builder builder = new Request.Builder()
+                    .url(bookingSystemUrl + "api/stocks?warehouse_id=" + warehouseID)
+                    .tag(CommunicationManager.RequestTypes.class, CommunicationManager.RequestTypes.fetchProductList);
+            SessionManager sessionManager = MyApplication.getSessionManager();
+            if(sessionManager != null) {
+                // The worker runs in the background, so it may wait for the stored session.
+                sessionManager.awaitLoaded();
+                sessionManager.authorize(builder);
+            }
+
+            try(Response response = MyApplication.getHttpClient().newCall(builder.build()).execute()) {
+                if(RetryPolicy.isRetryableStatus(response.code())) {
+                    circuitBreaker.onFailure();
+                } else {
+                    circuitBreaker.onSuccess();
+                    if(!response.isSuccessful()) return null;
+
+                    List<Product> stocks = new ArrayList<>();
+                    ResponseAnalyzer responseAnalyzer = new ResponseAnalyzer();
+                    boolean hasStocks = StocksResponseDecoder.decode(response.body().charStream(), responseAnalyzer, (productId, stockWarehouseId, quantity) -> {
+                        Product product = new Product(productId, stockWarehouseId);
+                        product.setQuantity(quantity);
+                        stocks.add(product);
+                    });
+                    if(!hasStocks || !responseAnalyzer.wasExecuted()) return null;
+
+                    return stocks;
+                }
+            } catch (IOException e) {
+                circuitBreaker.onFailure();
+            }
+
+            if(!retryPolicy.shouldRetry(attempt) || isStopped()) return null;
+            try {
+                Thread.sleep(retryPolicy.getDelayMillis(attempt));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+    }
+
+}
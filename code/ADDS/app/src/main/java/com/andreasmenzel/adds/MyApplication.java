@@ -1,17 +1,68 @@
 package com.andreasmenzel.adds;
 
-import com.andreasmenzel.adds.DataClasses.Product;
-import com.andreasmenzel.adds.DataClasses.ProductList;
+import android.content.pm.PackageManager;
+import android.os.Bundle;
+
+import androidx.work.WorkManager;
+
+import com.andreasmenzel.adds.DataClasses.ProductInfoCache;
+import com.andreasmenzel.adds.Manager.CatalogManager;
 import com.andreasmenzel.adds.Manager.CommunicationManager;
+import com.andreasmenzel.adds.Manager.CommunicationManagerRegistry;
+import com.andreasmenzel.adds.Manager.HttpCacheStatistics;
+import com.andreasmenzel.adds.Manager.OutboxManager;
+import com.andreasmenzel.adds.Manager.PasswordHasher;
+import com.andreasmenzel.adds.Manager.RequestMetrics;
+import com.andreasmenzel.adds.Manager.RequestTimingListener;
+import com.andreasmenzel.adds.Manager.SessionManager;
+import com.andreasmenzel.adds.Manager.StockSyncManager;
+
+import org.greenrobot.eventbus.EventBus;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Cache;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Response;
 
 public class MyApplication extends android.app.Application {
 
-    private static CommunicationManager communicationManagerRegisterAccount = null;
-    private static CommunicationManager communicationManagerActivateAccount = null;
-    private static CommunicationManager communicationManagerAuthenticateAccount = null;
+    // Settings for the shared http client.
+    public static final int HTTP_MAX_IDLE_CONNECTIONS = 8;
+    public static final long HTTP_KEEP_ALIVE_DURATION_SECONDS = 300;
+    public static final int HTTP_MAX_REQUESTS = 64;
+    public static final int HTTP_MAX_REQUESTS_PER_HOST = 8;
+    public static final long HTTP_CONNECT_TIMEOUT_SECONDS = 10;
+    public static final long HTTP_READ_TIMEOUT_SECONDS = 30;
+    public static final long HTTP_CACHE_SIZE_BYTES = 10 * 1024 * 1024;
+
+    private static final String META_DATA_USER_MANAGEMENT_SYSTEM_URL = "com.andreasmenzel.adds.USER_MANAGEMENT_SYSTEM_URL";
+    private static final String META_DATA_BOOKING_SYSTEM_URL = "com.andreasmenzel.adds.BOOKING_SYSTEM_URL";
+
+    private static EventBus eventBus = null;
+
+    private static OkHttpClient httpClient = null;
+    private static Cache httpCache = null;
+    private static final HttpCacheStatistics httpCacheStatistics = new HttpCacheStatistics();
+    private static final RequestMetrics requestMetrics = new RequestMetrics();
 
-    private static CommunicationManager communicationManagerProduct = null;
-    private static CommunicationManager communicationManagerProductList = null;
+    private static final ProductInfoCache productInfoCache = new ProductInfoCache();
+
+    private static CatalogManager catalogManager = null;
+
+    private static SessionManager sessionManager = null;
+
+    private static OutboxManager outboxManager = null;
+
+    private static StockSyncManager stockSyncManager = null;
+
+    private static PasswordHasher passwordHasher = null;
+
+    // The managers are created lazily and shared (one per request type and backend).
+    private static final CommunicationManagerRegistry communicationManagerRegistry = new CommunicationManagerRegistry();
 
 
     public MyApplication() {
@@ -19,23 +70,255 @@ public class MyApplication extends android.app.Application {
     }
 
 
+    /**
+     * Sets up the event bus, opens the http cache, the on-device product catalog and the outbox,
+     * loads the stored authentication session and schedules the background sync of the stocks.
+     */
+    @Override
+    public void onCreate() {
+        super.onCreate();
+
+        getEventBus();
+
+        // Before anything can send a request (and create the shared http client without it).
+        synchronized(MyApplication.class) {
+            httpCache = new Cache(new File(getCacheDir(), "http"), HTTP_CACHE_SIZE_BYTES);
+        }
+
+        applyBackendUrls();
+
+        catalogManager = new CatalogManager(this);
+        sessionManager = new SessionManager(this);
+
+        // Send the account requests that were queued while the device was offline.
+        outboxManager = new OutboxManager(this);
+        outboxManager.drain();
+
+        // Keep the catalog of the followed warehouses fresh, so product lists open instantly.
+        stockSyncManager = new StockSyncManager(this);
+        StockSyncManager.schedulePeriodicSync(WorkManager.getInstance(this));
+
+        synchronized(MyApplication.class) {
+            passwordHasher = new PasswordHasher(getSharedPreferences("password_hasher", MODE_PRIVATE));
+        }
+    }
+
+
+    /**
+     * Sends the requests to the backend URLs of the manifest, if the build set them (e.g.
+     * ./gradlew installDebug -Padds.userManagementSystemUrl=http://10.0.2.2:8080/ for a local stub
+     * backend).
+     */
+    private void applyBackendUrls() {
+        Bundle metaData;
+        try {
+            metaData = getPackageManager().getApplicationInfo(getPackageName(), PackageManager.GET_META_DATA).metaData;
+        } catch (PackageManager.NameNotFoundException e) {
+            return;
+        }
+        if(metaData == null) return;
+
+        String userManagementSystemUrl = metaData.getString(META_DATA_USER_MANAGEMENT_SYSTEM_URL);
+        String bookingSystemUrl = metaData.getString(META_DATA_BOOKING_SYSTEM_URL);
+        CommunicationManager.setBackendUrls(userManagementSystemUrl == null || userManagementSystemUrl.isEmpty() ? null : userManagementSystemUrl,
+                bookingSystemUrl == null || bookingSystemUrl.isEmpty() ? null : bookingSystemUrl);
+    }
+
+
+    /**
+     * Returns the event bus of the app. It uses the subscriber index that is generated at compile
+     * time (AddsEventBusIndex, see eventBusIndex in build.gradle), so registering an activity does
+     * not look up its @Subscribe methods by reflection. The bus is also installed as
+     * EventBus.getDefault().
+     *
+     * @return eventBus.
+     */
+    public static synchronized EventBus getEventBus() {
+        if(eventBus == null) {
+            eventBus = EventBus.builder()
+                    .addIndex(new AddsEventBusIndex())
+                    // Many UI update events are posted while no activity is registered.
+                    .logNoSubscriberMessages(false)
+                    .sendNoSubscriberEvent(false)
+                    .installDefaultEventBus();
+        }
+
+        return eventBus;
+    }
+
+
+    /**
+     * Returns the http client that is shared by all CommunicationManagers. All requests use the
+     * same connection pool and dispatcher, so connections to the User Management System and
+     * Booking System are kept alive and reused.
+     * Responses are stored in the on-disk http cache (once the application was created) and
+     * revalidated with If-None-Match / If-Modified-Since, so unchanged resources are answered with
+     * a 304 instead of the full body.
+     *
+     * @return httpClient.
+     */
+    public static synchronized OkHttpClient getHttpClient() {
+        if(httpClient == null) {
+            Dispatcher dispatcher = new Dispatcher();
+            dispatcher.setMaxRequests(HTTP_MAX_REQUESTS);
+            dispatcher.setMaxRequestsPerHost(HTTP_MAX_REQUESTS_PER_HOST);
+
+            httpClient = new OkHttpClient.Builder()
+                    .dispatcher(dispatcher)
+                    .connectionPool(new ConnectionPool(HTTP_MAX_IDLE_CONNECTIONS, HTTP_KEEP_ALIVE_DURATION_SECONDS, TimeUnit.SECONDS))
+                    .connectTimeout(HTTP_CONNECT_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                    .readTimeout(HTTP_READ_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                    .cache(httpCache)
+                    .addInterceptor(httpCacheStatistics)
+                    .eventListenerFactory(new RequestTimingListener.Factory(requestMetrics))
+                    .addNetworkInterceptor(chain -> {
+                        // Store responses with a validator, but always revalidate them.
+                        Response response = chain.proceed(chain.request());
+                        if(response.header("Cache-Control") == null
+                                && (response.header("ETag") != null || response.header("Last-Modified") != null)) {
+                            return response.newBuilder()
+                                    .header("Cache-Control", "no-cache")
+                                    .build();
+                        }
+                        return response;
+                    })
+                    .build();
+        }
+
+        return httpClient;
+    }
+
+    /**
+     * Replaces the shared http client, e.g. with a client that has different pool settings.
+     * Clients derived via httpClient.newBuilder() still share the connection pool and dispatcher.
+     *
+     * @param httpClient The new shared http client.
+     */
+    public static synchronized void setHttpClient(OkHttpClient httpClient) {
+        MyApplication.httpClient = httpClient;
+    }
+
+
+    /**
+     * Returns the statistics of the http cache (hit ratio, bytes saved).
+     *
+     * @return httpCacheStatistics.
+     */
+    public static HttpCacheStatistics getHttpCacheStatistics() {
+        return httpCacheStatistics;
+    }
+
+    /**
+     * Returns the durations of the phases of the requests (DNS, connect, time to first byte,
+     * download, analyzing, payload processing, posting), by request type. Use dumpToLog() or
+     * dumpToFile() to inspect them.
+     *
+     * @return requestMetrics.
+     */
+    public static RequestMetrics getRequestMetrics() {
+        return requestMetrics;
+    }
+
+    /**
+     * Returns the cache that holds the information of recently fetched products.
+     *
+     * @return productInfoCache.
+     */
+    public static ProductInfoCache getProductInfoCache() {
+        return productInfoCache;
+    }
+
+
+    /**
+     * Returns the on-device product catalog. Returns null before the application was created.
+     *
+     * @return catalogManager.
+     */
+    public static CatalogManager getCatalogManager() {
+        return catalogManager;
+    }
+
+    /**
+     * Returns the manager of the authentication session. Returns null before the application was
+     * created.
+     *
+     * @return sessionManager.
+     */
+    public static SessionManager getSessionManager() {
+        return sessionManager;
+    }
+
+    /**
+     * Returns the outbox of the account requests that could not be sent. Returns null before the
+     * application was created.
+     *
+     * @return outboxManager.
+     */
+    public static OutboxManager getOutboxManager() {
+        return outboxManager;
+    }
+
+    /**
+     * Returns the manager of the background sync of the stocks. Returns null before the
+     * application was created.
+     *
+     * @return stockSyncManager.
+     */
+    public static StockSyncManager getStockSyncManager() {
+        return stockSyncManager;
+    }
+
+    /**
+     * Returns the hasher that derives the password hashes in the background. Before the
+     * application was created, the calibration is only kept in memory.
+     *
+     * @return passwordHasher.
+     */
+    public static synchronized PasswordHasher getPasswordHasher() {
+        if(passwordHasher == null) {
+            passwordHasher = new PasswordHasher(null);
+        }
+
+        return passwordHasher;
+    }
+
+
+    /**
+     * Returns the registry that holds the shared CommunicationManagers.
+     *
+     * @return communicationManagerRegistry.
+     */
+    public static CommunicationManagerRegistry getCommunicationManagerRegistry() {
+        return communicationManagerRegistry;
+    }
+
     public static CommunicationManager getCommunicationManagerRegisterAccountNotNull() {
-        return communicationManagerRegisterAccount != null ? communicationManagerRegisterAccount : new CommunicationManager(CommunicationManager.RequestTypes.registerAccount);
+        return communicationManagerRegistry.get(CommunicationManager.RequestTypes.registerAccount);
     }
 
     public static CommunicationManager getCommunicationManagerActivateAccountNotNull() {
-        return communicationManagerActivateAccount != null ? communicationManagerActivateAccount : new CommunicationManager(CommunicationManager.RequestTypes.activateAccount);
+        return communicationManagerRegistry.get(CommunicationManager.RequestTypes.activateAccount);
     }
 
     public static CommunicationManager getCommunicationManagerAuthenticateAccountNotNull() {
-        return communicationManagerAuthenticateAccount != null ? communicationManagerAuthenticateAccount : new CommunicationManager(CommunicationManager.RequestTypes.authenticateAccount);
+        return communicationManagerRegistry.get(CommunicationManager.RequestTypes.authenticateAccount);
     }
 
-    public static CommunicationManager getCommunicationManagerProductNotNull(Product product) {
-        return communicationManagerProduct != null ? communicationManagerProduct : new CommunicationManager(product);
+    /**
+     * Returns the manager that is shared by all products.
+     *
+     * @return The product manager.
+     */
+    public static CommunicationManager getCommunicationManagerProductNotNull() {
+        return communicationManagerRegistry.get(CommunicationManager.RequestTypes.fetchProduct);
     }
 
-    public static CommunicationManager getCommunicationManagerProductListNotNull(ProductList productList) {
-        return communicationManagerProductList != null ? communicationManagerProductList : new CommunicationManager(productList);
+    /**
+     * Returns the manager that is shared by all product lists.
+     *
+     * @return The product list manager.
+     */
+    public static CommunicationManager getCommunicationManagerProductListNotNull() {
+        return communicationManagerRegistry.get(CommunicationManager.RequestTypes.fetchProductList);
     }
 }
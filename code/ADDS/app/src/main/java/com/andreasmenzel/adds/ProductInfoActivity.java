@@ -31,7 +31,7 @@ public class ProductInfoActivity extends AppCompatActivity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_product_info);
 
-        bus = EventBus.getDefault();
+        bus = MyApplication.getEventBus();
     }
 
     @Override
@@ -1,34 +1,48 @@
 package com.andreasmenzel.adds;
 
 import android.os.Bundle;
-import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
 import com.andreasmenzel.adds.DataClasses.Product;
 import com.andreasmenzel.adds.DataClasses.ProductList;
-import com.andreasmenzel.adds.Events.FetchProductInfoFailed;
-import com.andreasmenzel.adds.Events.FetchProductInfoSucceeded;
-import com.andreasmenzel.adds.Events.FetchProductInfoSucceededPartially;
 import com.andreasmenzel.adds.Events.FetchProductListFailed;
 import com.andreasmenzel.adds.Events.FetchProductListSucceeded;
 import com.andreasmenzel.adds.Events.FetchProductListSucceededPartially;
+import com.andreasmenzel.adds.Events.ProductListChanged;
 import com.andreasmenzel.adds.Events.ToastMessage;
 import com.andreasmenzel.adds.Events.UpdateProductInfoUI;
+import com.andreasmenzel.adds.Manager.ProductInfoHydrator;
+import com.andreasmenzel.adds.Manager.StockSyncManager;
 
 import org.greenrobot.eventbus.EventBus;
 import org.greenrobot.eventbus.Subscribe;
 import org.greenrobot.eventbus.ThreadMode;
 
-import java.util.LinkedList;
+import java.util.Collections;
 import java.util.List;
 
 public class ProductListActivity extends AppCompatActivity {
 
+    // The number of products per page of the stocks (see ProductList).
+    private static final int PAGE_SIZE = 50;
+
     private EventBus bus;
 
-    private ProductList productList = new ProductList("demowarehouse");
+    private ProductList productList = new ProductList("demowarehouse", PAGE_SIZE);
+    // Fetches the product information only for the rows near the visible ones.
+    private ProductInfoHydrator productInfoHydrator;
+    // The products of the shown rows (the snapshot of the last list change). Only used on the UI
+    // thread.
+    private List<Product> shownProducts = Collections.emptyList();
+
+    private final ProductListAdapter productListAdapter = new ProductListAdapter();
+    private LinearLayoutManager layoutManager;
+    // Shows the changes of the product list at most once per frame.
+    private UpdateCoalescer uiUpdate;
 
 
     @Override
@@ -36,7 +50,28 @@ public class ProductListActivity extends AppCompatActivity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_product_list);
 
-        bus = EventBus.getDefault();
+        bus = MyApplication.getEventBus();
+
+        productList.setProductInfoOnDemand(true);
+        // Sync the stocks of this warehouse in the background, so the list opens instantly.
+        StockSyncManager stockSyncManager = MyApplication.getStockSyncManager();
+        if(stockSyncManager != null) {
+            stockSyncManager.followWarehouse(productList.getWarehouseID());
+        }
+
+        layoutManager = new LinearLayoutManager(this);
+
+        RecyclerView recyclerView_productList = findViewById(R.id.recyclerView_productList);
+        recyclerView_productList.setLayoutManager(layoutManager);
+        recyclerView_productList.setHasFixedSize(true);
+        recyclerView_productList.setAdapter(productListAdapter);
+        recyclerView_productList.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                onVisibleRowsChanged();
+            }
+        });
+        uiUpdate = new UpdateCoalescer(this::updateUI, recyclerView_productList::postOnAnimation);
     }
 
     @Override
@@ -50,6 +85,7 @@ public class ProductListActivity extends AppCompatActivity {
     protected void onResume() {
         super.onResume();
 
+        productInfoHydrator = new ProductInfoHydrator(MyApplication.getCommunicationManagerProductListNotNull().getProductInfoBatchFetcher());
         productList.updateProductList();
 
         bus.register(this);
@@ -61,6 +97,8 @@ public class ProductListActivity extends AppCompatActivity {
         super.onPause();
 
         bus.unregister(this);
+        productInfoHydrator.cancelAll();
+        productInfoHydrator = null;
     }
 
 
@@ -69,49 +107,66 @@ public class ProductListActivity extends AppCompatActivity {
     }
 
 
+    /**
+     * Shows the current products. Called on the UI thread, at most once per frame for the events
+     * (see uiUpdate). The snapshot is diffed in the background, so only the changed rows are bound
+     * again.
+     */
     private void updateUI() {
-        runOnUiThread(() -> {
-            TextView txtView_tmp_productList = findViewById(R.id.txtView_tmp_productList);
-
-            String text = "";
-
-            LinkedList<Product> products = productList.getProducts();
+        List<Product> products = productList.getProductsCopy();
+        List<ProductListAdapter.Row> rows = ProductListAdapter.toRows(products);
+
+        // The rows may have moved or may not fill the screen, so check the visible rows again once
+        // they are laid out.
+        productListAdapter.submitList(rows, () -> {
+            shownProducts = products;
+            findViewById(R.id.recyclerView_productList).post(this::onVisibleRowsChanged);
+        });
+    }
 
-            if(products != null) {
-                for(Product p : products) {
-                    text += ": " + p.getName() + " :";
-                }
-            }
 
-            if(txtView_tmp_productList == null) {
-                text = "?";
-            }
-
-            txtView_tmp_productList.setText(text);
-        });
+    /**
+     * Lets the product list request the next (or previous) page if the visible products are near
+     * the end (or start) of the loaded pages, and fetches the product information of the visible
+     * and nearby rows. Called for every scroll, so it only passes the visible positions and the
+     * snapshot of the last list change instead of copying the list.
+     */
+    private void onVisibleRowsChanged() {
+        int firstVisiblePosition = layoutManager.findFirstVisibleItemPosition();
+        int lastVisiblePosition = layoutManager.findLastVisibleItemPosition();
+
+        productList.onScrolled(firstVisiblePosition, lastVisiblePosition);
+        if(productInfoHydrator != null) {
+            productInfoHydrator.onViewportChanged(shownProducts, firstVisiblePosition, lastVisiblePosition);
+        }
     }
 
 
     @Subscribe
     public void fetchProductListSucceeded(FetchProductListSucceeded event) {
-        updateUI();
+        uiUpdate.request();
     }
 
     @Subscribe
     public void fetchProductListSucceededPartially(FetchProductListSucceededPartially event) {
-        updateUI();
+        uiUpdate.request();
         bus.post(new ToastMessage("Fetching product list succeeded with errors and / or warnings."));
     }
 
     @Subscribe
     public void fetchProductListFailed(FetchProductListFailed event) {
-        updateUI();
+        uiUpdate.request();
         bus.post(new ToastMessage("Fetching product list failed."));
     }
 
+    @Subscribe
+    public void productListChanged(ProductListChanged event) {
+        uiUpdate.request();
+    }
+
     @Subscribe
     public void updateProductInfoUI(UpdateProductInfoUI event) {
-        updateUI();
+        uiUpdate.request();
     }
 
 
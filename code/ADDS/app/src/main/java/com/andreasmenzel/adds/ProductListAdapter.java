@@ -0,0 +1,135 @@
+package com.andreasmenzel.adds;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.andreasmenzel.adds.DataClasses.Product;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Shows the products of a product list in a RecyclerView. The list is diffed on a background
+ * thread (ListAdapter / AsyncListDiffer), so only the rows whose product changed are bound again.
+ */
+public class ProductListAdapter extends ListAdapter<ProductListAdapter.Row, ProductListAdapter.ViewHolder> {
+
+    /**
+     * Immutable snapshot of a product as it is shown in a row. Products are changed in place
+     * when their information arrives, so the diff needs snapshots to notice the changes.
+     */
+    public static class Row {
+        final String warehouseID;
+        final String id;
+        final String name;
+        final int quantity;
+
+        Row(Product product) {
+            warehouseID = product.getWarehouseID();
+            id = product.getId();
+            name = product.getName();
+            quantity = product.getQuantity();
+        }
+
+        boolean isSameProduct(Row other) {
+            return Objects.equals(warehouseID, other.warehouseID) && Objects.equals(id, other.id);
+        }
+
+        boolean hasSameContent(Row other) {
+            return Objects.equals(name, other.name) && quantity == other.quantity;
+        }
+    }
+
+    private static final DiffUtil.ItemCallback<Row> DIFF_CALLBACK = new DiffUtil.ItemCallback<Row>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Row oldRow, @NonNull Row newRow) {
+            return oldRow.isSameProduct(newRow);
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Row oldRow, @NonNull Row newRow) {
+            return oldRow.hasSameContent(newRow);
+        }
+    };
+
+
+    // The alpha of the name of a row whose product information did not arrive yet.
+    private static final float PLACEHOLDER_ALPHA = 0.5f;
+
+
+    static class ViewHolder extends RecyclerView.ViewHolder {
+        final TextView txtView_productName;
+        final TextView txtView_productID;
+        final TextView txtView_productQuantity;
+
+        ViewHolder(View itemView) {
+            super(itemView);
+
+            txtView_productName = itemView.findViewById(R.id.txtView_productListItemName);
+            txtView_productID = itemView.findViewById(R.id.txtView_productListItemID);
+            txtView_productQuantity = itemView.findViewById(R.id.txtView_productListItemQuantity);
+        }
+    }
+
+
+    public ProductListAdapter() {
+        super(DIFF_CALLBACK);
+    }
+
+
+    /**
+     * Takes snapshots of the products. Can be called from any thread; the returned rows are passed
+     * to submitList() on the main thread, which diffs them against the shown rows in the
+     * background.
+     *
+     * @param products The products to show.
+     * @return The rows.
+     */
+    public static List<Row> toRows(List<Product> products) {
+        List<Row> rows = new ArrayList<>(products.size());
+        for(Product product : products) {
+            rows.add(new Row(product));
+        }
+
+        return rows;
+    }
+
+
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View itemView = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_product_list, parent, false);
+        return new ViewHolder(itemView);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        Row row = getItem(position);
+
+        if(row.name != null) {
+            holder.txtView_productName.setText(row.name);
+            holder.txtView_productName.setAlpha(1f);
+        } else {
+            // Placeholder until the product information arrives (see ProductInfoHydrator).
+            holder.txtView_productName.setText(R.string.product_list_item_loading_name);
+            holder.txtView_productName.setAlpha(PLACEHOLDER_ALPHA);
+        }
+        holder.txtView_productID.setText(row.id);
+
+        if(row.quantity >= 0) {
+            holder.txtView_productQuantity.setText(String.valueOf(row.quantity));
+            holder.txtView_productQuantity.setVisibility(View.VISIBLE);
+        } else {
+            holder.txtView_productQuantity.setVisibility(View.GONE);
+        }
+    }
+
+}
@@ -27,14 +27,15 @@ import org.greenrobot.eventbus.ThreadMode;
 // TODO: setupCallbacks also onResume?
 public class RegisterActivity extends Activity {
 
-    private final EventBus bus = EventBus.getDefault();
+    private final EventBus bus = MyApplication.getEventBus();
 
     private CommunicationManager communicationManager;
-    private ResponseAnalyzer responseAnalyzer;
+    // The response analyzer of the last finished request, whose errors and warnings are shown.
+    private ResponseAnalyzer shownResponseAnalyzer = new ResponseAnalyzer();
 
 
     /**
-     * Gets the communication manager and response analyzer.
+     * Gets the communication manager.
      *
      * @param savedInstanceState savedInstanceState
      */
@@ -44,7 +45,6 @@ public class RegisterActivity extends Activity {
         setContentView(R.layout.activity_register);
 
         communicationManager = MyApplication.getCommunicationManagerRegisterAccountNotNull();
-        responseAnalyzer = communicationManager.getResponseAnalyzer();
     }
 
     /**
@@ -72,7 +72,7 @@ public class RegisterActivity extends Activity {
         }*/
 
         bus.register(this);
-        updateUI();
+        updateUI(shownResponseAnalyzer);
     }
 
     /**
@@ -109,10 +109,14 @@ public class RegisterActivity extends Activity {
 
     /**
      * Updates the UI elements (with the new information).
+     *
+     * @param responseAnalyzer The response analyzer of the request whose errors and warnings are
+     *                         shown.
      */
-    @Subscribe
-    public void updateUI() {
+    public void updateUI(ResponseAnalyzer responseAnalyzer) {
         runOnUiThread(() -> {
+            shownResponseAnalyzer = responseAnalyzer;
+
             TextView txtView_registerErrors = findViewById(R.id.txtView_registerErrors);
             TextView txtView_registerWarnings = findViewById(R.id.txtView_registerWarnings);
 
@@ -149,14 +153,17 @@ public class RegisterActivity extends Activity {
 
     /**
      * Updates the UI and notifies the user. This function is executed when the account registration
-     * succeeded partially.
+     * succeeded partially or was queued in the outbox because the server could not be reached.
      *
      * @param event The AccountAuthenticationSucceededPartially event.
      */
     @Subscribe
     public void AccountRegistrationSucceededPartially(AccountRegistrationSucceededPartially event) {
-        bus.post(new ToastMessage("Account created!"));
-        updateUI();
+        // A queued request only shows its warning, it was not handled by the server yet.
+        if(!event.getResponseAnalyzer().hasWarning(CommunicationManager.WARNING_QUEUED)) {
+            bus.post(new ToastMessage("Account created!"));
+        }
+        updateUI(event.getResponseAnalyzer());
     }
 
     /**
@@ -166,7 +173,7 @@ public class RegisterActivity extends Activity {
      */
     @Subscribe
     public void AccountRegistrationFailed(AccountRegistrationFailed event) {
-        updateUI();
+        updateUI(event.getResponseAnalyzer());
     }
 
 
@@ -174,7 +181,7 @@ public class RegisterActivity extends Activity {
      * Starts the account registration process with the in the text fields provided information.
      */
     public void registerAccount() {
-        if(!communicationManager.inProgress().get()) {
+        if(!communicationManager.inProgress()) {
             EditText editText_accountEmailRegister = findViewById(R.id.editText_accountEmailRegister);
             EditText editText_accountFirstnameRegister = findViewById(R.id.editText_accountFirstnameRegister);
             EditText editText_accountLastnameRegister = findViewById(R.id.editText_accountLastnameRegister);
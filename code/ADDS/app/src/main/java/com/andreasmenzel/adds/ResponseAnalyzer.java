@@ -4,20 +4,77 @@ import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 public class ResponseAnalyzer {
 
+    /**
+     * An error or warning of a response: its id (-1 if the server sent none or it was created by
+     * the app) and its message. The text that is shown ("[id] message") is only built when it is
+     * needed.
+     */
+    public static class Message {
+        private final int id;
+        private final String message;
+
+        Message(int id, String message) {
+            this.id = id;
+            this.message = message;
+        }
+
+        /**
+         * Returns the id of the error or warning (-1 if unknown).
+         *
+         * @return id.
+         */
+        public int getId() {
+            return id;
+        }
+
+        /**
+         * Returns the message of the error or warning.
+         *
+         * @return message.
+         */
+        public String getMessage() {
+            return message;
+        }
+
+        void appendTo(StringBuilder builder) {
+            if(id >= 0) {
+                builder.append('[').append(id).append("] ");
+            }
+            builder.append(message);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder();
+            appendTo(builder);
+            return builder.toString();
+        }
+    }
+
+
     private boolean executed = false;
-    private final LinkedList<String> errors = new LinkedList<String>();
-    private final LinkedList<String> warnings = new LinkedList<String>();
+    private final ArrayList<Message> errors = new ArrayList<>();
+    private final ArrayList<Message> warnings = new ArrayList<>();
     private JSONObject payload = null;
 
-    public void reset() {
+    // The joined errors and warnings, built by getErrorsString() / getWarningsString() and kept
+    // until the next error or warning is added.
+    private String errorsString = null;
+    private String warningsString = null;
+
+    public synchronized void reset() {
         executed = false;
         errors.clear();
         warnings.clear();
         payload = null;
+        errorsString = null;
+        warningsString = null;
     }
 
     public void analyze(String response) {
@@ -52,70 +109,118 @@ public class ResponseAnalyzer {
         }
     }
 
-    public void addError(int err_id, String err_msg) {
-        StringBuilder error = new StringBuilder();
-
-        if(err_id >= 0) {
-            error.append("[");
-            error.append(err_id);
-            error.append("] ");
-        }
-        error.append(err_msg);
-
-        errors.add(error.toString());
+    public synchronized void addError(int err_id, String err_msg) {
+        errors.add(new Message(err_id, err_msg));
+        errorsString = null;
     }
 
-    public void addWarning(int warn_id, String warn_msg) {
-        StringBuilder warning = new StringBuilder();
-
-        if(warn_id >= 0) {
-            warning.append("[");
-            warning.append(warn_id);
-            warning.append("] ");
-        }
-        warning.append(warn_msg);
+    public synchronized void addWarning(int warn_id, String warn_msg) {
+        warnings.add(new Message(warn_id, warn_msg));
+        warningsString = null;
+    }
 
-        warnings.add(warning.toString());
+    void setExecuted(boolean executed) {
+        this.executed = executed;
     }
 
     public boolean wasExecuted() {
         return executed;
     }
 
-    public String getErrorsString() {
+    /**
+     * Returns the errors, separated by empty lines. The string is built once and reused until the
+     * next error is added.
+     *
+     * @return The errors or null if there are none.
+     */
+    public synchronized String getErrorsString() {
         if(errors.isEmpty()) return null;
 
-        StringBuilder errors_string = new StringBuilder();
-
-        for(int i = 0; i < errors.size(); ++i) {
-            if(i > 0) errors_string.append("\n\n");
-            errors_string.append(errors.get(i));
+        if(errorsString == null) {
+            errorsString = join(errors);
         }
-
-        return errors_string.toString();
+        return errorsString;
     }
 
-    public String getWarningsString() {
+    /**
+     * Returns the warnings, separated by empty lines. The string is built once and reused until
+     * the next warning is added.
+     *
+     * @return The warnings or null if there are none.
+     */
+    public synchronized String getWarningsString() {
         if(warnings.isEmpty()) return null;
 
-        StringBuilder warnings_string = new StringBuilder();
+        if(warningsString == null) {
+            warningsString = join(warnings);
+        }
+        return warningsString;
+    }
+
+    private static String join(List<Message> messages) {
+        StringBuilder builder = new StringBuilder();
 
-        for(int i = 0; i < warnings.size(); ++i) {
-            if(i > 0) warnings_string.append("\n\n");
-            warnings_string.append(warnings.get(i));
+        for(int i = 0; i < messages.size(); ++i) {
+            if(i > 0) builder.append("\n\n");
+            messages.get(i).appendTo(builder);
         }
 
-        return warnings_string.toString();
+        return builder.toString();
     }
 
-    public boolean hasErrors() {
+    public synchronized boolean hasErrors() {
         return !errors.isEmpty();
     }
 
-    public boolean hasWarnings() {
+    public synchronized boolean hasWarnings() {
         return !warnings.isEmpty();
     }
 
+    /**
+     * Returns whether the response contained an error with the given id.
+     *
+     * @param err_id The id of the error.
+     * @return Whether there is an error with this id.
+     */
+    public synchronized boolean hasError(int err_id) {
+        return containsId(errors, err_id);
+    }
+
+    /**
+     * Returns whether the response contained a warning with the given id.
+     *
+     * @param warn_id The id of the warning.
+     * @return Whether there is a warning with this id.
+     */
+    public synchronized boolean hasWarning(int warn_id) {
+        return containsId(warnings, warn_id);
+    }
+
+    private static boolean containsId(List<Message> messages, int id) {
+        for(int i = 0; i < messages.size(); ++i) {
+            if(messages.get(i).getId() == id) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns a copy of the errors in the order they were added.
+     *
+     * @return The errors.
+     */
+    public synchronized List<Message> getErrors() {
+        return Collections.unmodifiableList(new ArrayList<>(errors));
+    }
+
+    /**
+     * Returns a copy of the warnings in the order they were added.
+     *
+     * @return The warnings.
+     */
+    public synchronized List<Message> getWarnings() {
+        return Collections.unmodifiableList(new ArrayList<>(warnings));
+    }
+
     public JSONObject getPayload() {
         return payload;
     }
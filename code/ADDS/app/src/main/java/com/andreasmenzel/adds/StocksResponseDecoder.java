@@ -0,0 +1,210 @@
+package com.andreasmenzel.adds;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Decodes a response to api/stocks while it is read from the network. Unlike
+ * ResponseAnalyzer.analyze(), no string of the whole response and no JSON tree is built: the
+ * stock entries are passed to a listener one by one, so the memory needed does not grow with the
+ * size of the response (apart from what the listener keeps).
+ */
+public class StocksResponseDecoder {
+
+    /**
+     * Receives the stock entries of the response in the order they are read.
+     */
+    public interface StockListener {
+        /**
+         * @param productId The id of the product.
+         * @param warehouseId The id of the warehouse.
+         * @param quantity The quantity of the product in the warehouse (-1 if not sent).
+         */
+        void onStock(String productId, String warehouseId, int quantity);
+
+        /**
+         * Called if the payload is a page of the stocks (see ProductList).
+         *
+         * @param nextCursor The cursor of the next page or null if this is the last page.
+         */
+        default void onNextCursor(String nextCursor) {
+
+        }
+    }
+
+
+    /**
+     * Reads the response and stores executed, errors and warnings in the responseAnalyzer. The
+     * payload is not stored in the responseAnalyzer, its stock entries are passed to the listener.
+     *
+     * @param in The response body.
+     * @param responseAnalyzer The response analyzer of the request.
+     * @param listener Receives the stock entries.
+     * @return Whether the payload contained a list of stocks.
+     */
+    public static boolean decode(Reader in, ResponseAnalyzer responseAnalyzer, StockListener listener) {
+        boolean hasExecuted = false;
+        boolean hasErrors = false;
+        boolean hasWarnings = false;
+        boolean hasStocks = false;
+
+        try(JsonReader reader = new JsonReader(in)) {
+            reader.beginObject();
+            while(reader.hasNext()) {
+                switch(reader.nextName()) {
+                    case "executed":
+                        responseAnalyzer.setExecuted(reader.nextBoolean());
+                        hasExecuted = true;
+                        break;
+                    case "errors":
+                        readMessages(reader, responseAnalyzer, true);
+                        hasErrors = true;
+                        break;
+                    case "warnings":
+                        readMessages(reader, responseAnalyzer, false);
+                        hasWarnings = true;
+                        break;
+                    case "payload":
+                        hasStocks = readPayload(reader, responseAnalyzer, listener);
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            responseAnalyzer.setExecuted(false);
+            responseAnalyzer.addError(-1, "Invalid response from server.");
+            return false;
+        }
+
+        if(!hasExecuted || !hasErrors || !hasWarnings) {
+            responseAnalyzer.setExecuted(false);
+            responseAnalyzer.addError(-1, "Invalid response from server.");
+            return false;
+        }
+
+        return hasStocks;
+    }
+
+
+    /**
+     * Reads the errors or warnings array.
+     */
+    private static void readMessages(JsonReader reader, ResponseAnalyzer responseAnalyzer, boolean errors) throws IOException {
+        String idName = errors ? "err_id" : "warn_id";
+        String msgName = errors ? "err_msg" : "warn_msg";
+
+        reader.beginArray();
+        while(reader.hasNext()) {
+            int id = -1;
+            String msg = null;
+
+            reader.beginObject();
+            while(reader.hasNext()) {
+                String name = reader.nextName();
+                if(name.equals(idName)) {
+                    id = reader.nextInt();
+                } else if(name.equals(msgName)) {
+                    msg = reader.nextString();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+
+            if(msg == null) {
+                throw new IllegalStateException("Message without " + msgName);
+            }
+
+            if(errors) {
+                responseAnalyzer.addError(id, msg);
+            } else {
+                responseAnalyzer.addWarning(id, msg);
+            }
+        }
+        reader.endArray();
+    }
+
+
+    /**
+     * Reads the payload object and passes its stock entries (and the cursor of the next page, if
+     * the payload is a page) to the listener.
+     *
+     * @return Whether the payload contained a list of stocks.
+     */
+    private static boolean readPayload(JsonReader reader, ResponseAnalyzer responseAnalyzer, StockListener listener) throws IOException {
+        if(reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return false;
+        }
+
+        boolean hasStocks = false;
+
+        reader.beginObject();
+        while(reader.hasNext()) {
+            switch(reader.nextName()) {
+                case "stocks":
+                    hasStocks = true;
+                    reader.beginArray();
+                    while(reader.hasNext()) {
+                        readStock(reader, responseAnalyzer, listener);
+                    }
+                    reader.endArray();
+                    break;
+                case "next_cursor":
+                    if(reader.peek() == JsonToken.NULL) {
+                        reader.nextNull();
+                        listener.onNextCursor(null);
+                    } else {
+                        listener.onNextCursor(reader.nextString());
+                    }
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        return hasStocks;
+    }
+
+
+    /**
+     * Reads one stock entry. Entries without product_id or warehouse_id are skipped with a warning.
+     */
+    private static void readStock(JsonReader reader, ResponseAnalyzer responseAnalyzer, StockListener listener) throws IOException {
+        String productId = null;
+        String warehouseId = null;
+        int quantity = -1;
+
+        reader.beginObject();
+        while(reader.hasNext()) {
+            switch(reader.nextName()) {
+                case "product_id":
+                    productId = reader.nextString();
+                    break;
+                case "warehouse_id":
+                    warehouseId = reader.nextString();
+                    break;
+                case "quantity":
+                    quantity = reader.nextInt();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if(productId == null || warehouseId == null) {
+            responseAnalyzer.addWarning(-1, "Stock entry without product_id or warehouse_id skipped.");
+            return;
+        }
+
+        listener.onStock(productId, warehouseId, quantity);
+    }
+
+}
@@ -0,0 +1,45 @@
+package com.andreasmenzel.adds;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs an update at most once per frame, no matter how often it is requested. Requests that arrive
+ * while an update is waiting for the next frame are merged into it, so a burst of events (e.g. the
+ * product information of hundreds of rows) costs one update instead of one per event. Requests
+ * that arrive while the update runs schedule the next one, so no change is missed.
+ */
+public class UpdateCoalescer {
+
+    private final Runnable update;
+    private final Executor nextFrame;
+
+    private final AtomicBoolean pending = new AtomicBoolean(false);
+
+
+    /**
+     * Sets up the coalescer.
+     *
+     * @param update The update.
+     * @param nextFrame Runs a runnable on the next frame (e.g. View.postOnAnimation()).
+     */
+    public UpdateCoalescer(Runnable update, Executor nextFrame) {
+        this.update = update;
+        this.nextFrame = nextFrame;
+    }
+
+
+    /**
+     * Requests an update on the next frame. Can be called from any thread.
+     */
+    public void request() {
+        if(!pending.compareAndSet(false, true)) return;
+
+        nextFrame.execute(() -> {
+            // Cleared before the update, so changes during the update are shown by the next one.
+            pending.set(false);
+            update.run();
+        });
+    }
+
+}
@@ -0,0 +1,78 @@
+package com.andreasmenzel.adds.DataClasses;
+
+import com.andreasmenzel.adds.Events.ProductListChanged;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks how a product list reconciles received stocks and takes its window from the quantities
+ * of the catalog.
+ */
+public class ProductListTest {
+
+    @Test
+    public void refreshWindow_updatesAndRemovesOnlyLoadedProducts() {
+        ProductList productList = new ProductList("1", 2);
+        productList.addProduct(product("a", 1));
+        productList.addProduct(product("b", 2));
+        productList.addProduct(product("c", 3));
+
+        // The catalog holds the whole warehouse, but only the loaded products are taken.
+        Map<String, Integer> quantities = new HashMap<>();
+        quantities.put("a", 1);
+        quantities.put("c", 5);
+        quantities.put("d", 7);
+        ProductListChanged productListChanged = productList.refreshWindow(quantities);
+
+        assertEquals(Arrays.asList("a", "c"), productList.getProductIds());
+        assertEquals(5, productList.getProducts().get(1).getQuantity());
+        assertEquals(Collections.emptyList(), productListChanged.getAddedIds());
+        assertEquals(Collections.singletonList("b"), productListChanged.getRemovedIds());
+        assertEquals(Collections.singletonList("c"), productListChanged.getChangedIds());
+    }
+
+
+    @Test
+    public void reconcile_keepsKnownProductsAndFollowsTheReceivedOrder() {
+        ProductList productList = new ProductList("1");
+        Product a = product("a", 1);
+        a.setName("Product a");
+        productList.addProduct(a);
+        productList.addProduct(product("b", 2));
+        productList.addProduct(product("c", 3));
+
+        ProductListChanged productListChanged = productList.reconcile(Arrays.asList(product("c", 4), product("a", 1), product("d", 5)));
+
+        assertEquals(Arrays.asList("c", "a", "d"), productList.getProductIds());
+        // The known product keeps its information.
+        assertSame(a, productList.getProducts().get(1));
+        assertEquals("Product a", a.getName());
+        assertEquals(4, productList.getProducts().get(0).getQuantity());
+        assertEquals(Collections.singletonList("d"), productListChanged.getAddedIds());
+        assertEquals(Collections.singletonList("b"), productListChanged.getRemovedIds());
+        assertEquals(Collections.singletonList("c"), productListChanged.getChangedIds());
+    }
+
+    @Test
+    public void reconcile_withTheSameStocksChangesNothing() {
+        ProductList productList = new ProductList("1");
+        productList.reconcile(Arrays.asList(product("a", 1), product("b", 2)));
+
+        assertTrue(productList.reconcile(Arrays.asList(product("a", 1), product("b", 2))).isEmpty());
+    }
+
+
+    private static Product product(String id, int quantity) {
+        Product product = new Product(id, "1");
+        product.setQuantity(quantity);
+        return product;
+    }
+
+}
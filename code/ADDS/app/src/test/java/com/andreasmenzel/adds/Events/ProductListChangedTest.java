@@ -0,0 +1,52 @@
+package com.andreasmenzel.adds.Events;
+
+import org.greenrobot.eventbus.EventBus;
+import org.greenrobot.eventbus.Subscribe;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the changes of a product list do not reach the subscribers of the UI update events.
+ */
+public class ProductListChangedTest {
+
+    /**
+     * Counts the events it received by type.
+     */
+    public static class ProductListSubscriber {
+
+        int updateProductListUICount = 0;
+        int productListChangedCount = 0;
+
+        @Subscribe
+        public void updateProductListUI(UpdateProductListUI event) {
+            ++updateProductListUICount;
+        }
+
+        @Subscribe
+        public void productListChanged(ProductListChanged event) {
+            ++productListChangedCount;
+        }
+
+    }
+
+
+    @Test
+    public void productListChanged_isNotAnUpdateProductListUI() {
+        EventBus bus = EventBus.builder().build();
+        ProductListSubscriber subscriber = new ProductListSubscriber();
+        bus.register(subscriber);
+
+        bus.post(new ProductListChanged(Collections.singletonList("1"), Collections.emptyList(), Collections.emptyList()));
+        assertEquals(1, subscriber.productListChangedCount);
+        assertEquals(0, subscriber.updateProductListUICount);
+
+        bus.post(new FetchProductListSucceeded(null));
+        assertEquals(1, subscriber.productListChangedCount);
+        assertEquals(1, subscriber.updateProductListUICount);
+    }
+
+}
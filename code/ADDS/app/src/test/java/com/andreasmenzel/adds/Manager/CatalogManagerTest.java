@@ -0,0 +1,137 @@
+package com.andreasmenzel.adds.Manager;
+
+import android.app.Application;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.andreasmenzel.adds.DataClasses.Product;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks how the catalog stores, merges and loads the stocks of a warehouse. Runs with Robolectric,
+ * which provides SQLite. The plain Application keeps MyApplication from scheduling the stock sync.
+ * The time of reading a warehouse with 10k products is measured by CatalogManagerBenchmark.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(application = Application.class)
+public class CatalogManagerTest {
+
+    private CatalogManager catalogManager;
+
+
+    @Before
+    public void setUp() {
+        catalogManager = new CatalogManager(ApplicationProvider.getApplicationContext());
+    }
+
+    @After
+    public void tearDown() {
+        catalogManager.close();
+    }
+
+
+    @Test
+    public void storeWarehouse_replacesTheStocksAndKeepsTheProductInfo() {
+        catalogManager.storeWarehouse("1", Arrays.asList(product("a", 1), product("b", 2)));
+        catalogManager.storeProductInfo("b", "Product b", "Description b");
+        catalogManager.storeWarehouse("2", Collections.singletonList(product("a", 9)));
+
+        catalogManager.storeWarehouse("1", Arrays.asList(product("c", 3), product("b", 4)));
+
+        List<Product> products = catalogManager.loadWarehouse("1");
+        assertEquals(Arrays.asList("c", "b"), ids(products));
+        assertEquals(3, products.get(0).getQuantity());
+        assertNull(products.get(0).getName());
+        assertEquals(4, products.get(1).getQuantity());
+        assertEquals("Product b", products.get(1).getName());
+        assertEquals("Description b", products.get(1).getDescription());
+
+        // Other warehouses are not touched.
+        assertEquals(Collections.singletonList("a"), ids(catalogManager.loadWarehouse("2")));
+    }
+
+    @Test
+    public void mergeWarehouse_updatesAndAppendsAndKeepsTheOtherProducts() {
+        catalogManager.storeWarehouse("1", Arrays.asList(product("a", 1), product("b", 2), product("c", 3)));
+
+        catalogManager.mergeWarehouse("1", Arrays.asList(product("b", 5), product("d", 6)));
+
+        List<Product> products = catalogManager.loadWarehouse("1");
+        assertEquals(Arrays.asList("a", "b", "c", "d"), ids(products));
+        assertEquals(5, products.get(1).getQuantity());
+        assertEquals(6, products.get(3).getQuantity());
+    }
+
+    @Test
+    public void loadWarehouse_withLimitReturnsTheFirstProducts() {
+        catalogManager.storeWarehouse("1", Arrays.asList(product("a", 1), product("b", 2), product("c", 3)));
+
+        assertEquals(Arrays.asList("a", "b"), ids(catalogManager.loadWarehouse("1", 2)));
+        assertTrue(catalogManager.loadWarehouse("unknown").isEmpty());
+    }
+
+    @Test
+    public void loadQuantities_returnsOnlyStoredProducts() {
+        List<Product> stocks = new ArrayList<>();
+        List<String> ids = new ArrayList<>();
+        for(int i = 0; i < 1200; ++i) {
+            stocks.add(product("product-" + i, i));
+            ids.add("product-" + i);
+        }
+        catalogManager.storeWarehouse("1", stocks);
+        ids.add("unknown");
+
+        // More ids than fit into one query.
+        Map<String, Integer> quantities = catalogManager.loadQuantities("1", ids);
+
+        assertEquals(1200, quantities.size());
+        assertEquals(Integer.valueOf(1100), quantities.get("product-1100"));
+        assertFalse(quantities.containsKey("unknown"));
+    }
+
+    @Test
+    public void loadWarehouse_with10kProductsReturnsThemInOrder() {
+        List<Product> stocks = new ArrayList<>();
+        for(int i = 0; i < 10000; ++i) {
+            stocks.add(product("product-" + i, i % 100));
+        }
+        catalogManager.storeWarehouse("1", stocks);
+
+        List<Product> products = catalogManager.loadWarehouse("1");
+
+        assertEquals(10000, products.size());
+        assertEquals(ids(stocks), ids(products));
+        assertEquals(99, products.get(9999).getQuantity());
+    }
+
+
+    private static Product product(String id, int quantity) {
+        Product product = new Product(id, "1");
+        product.setQuantity(quantity);
+        return product;
+    }
+
+    private static List<String> ids(List<Product> products) {
+        List<String> ids = new ArrayList<>(products.size());
+        for(Product product : products) {
+            ids.add(product.getId());
+        }
+
+        return ids;
+    }
+
+}
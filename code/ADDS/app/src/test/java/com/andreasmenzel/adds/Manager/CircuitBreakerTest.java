@@ -0,0 +1,85 @@
+package com.andreasmenzel.adds.Manager;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks when a circuit breaker lets requests through.
+ */
+public class CircuitBreakerTest {
+
+    // The time of the circuit breakers under test, moved forward by the tests.
+    private long now = 0;
+
+
+    @Test
+    public void failuresInARow_openTheCircuit() {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(3, 60000);
+
+        circuitBreaker.onFailure();
+        circuitBreaker.onFailure();
+        circuitBreaker.onSuccess();
+        circuitBreaker.onFailure();
+        circuitBreaker.onFailure();
+        assertEquals(CircuitBreaker.State.closed, circuitBreaker.getState());
+        assertTrue(circuitBreaker.allowRequest());
+
+        circuitBreaker.onFailure();
+        assertEquals(CircuitBreaker.State.open, circuitBreaker.getState());
+        assertFalse(circuitBreaker.allowRequest());
+    }
+
+    @Test
+    public void openCircuit_letsOneProbeThrough() {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(1, 50, () -> now);
+        circuitBreaker.onFailure();
+        assertFalse(circuitBreaker.allowRequest());
+
+        now += 49;
+        assertFalse(circuitBreaker.allowRequest());
+        now += 1;
+        assertTrue(circuitBreaker.allowRequest());
+        assertEquals(CircuitBreaker.State.halfOpen, circuitBreaker.getState());
+        assertFalse(circuitBreaker.allowRequest());
+
+        // A failed probe opens the circuit again.
+        circuitBreaker.onFailure();
+        assertEquals(CircuitBreaker.State.open, circuitBreaker.getState());
+        assertFalse(circuitBreaker.allowRequest());
+
+        now += 49;
+        assertFalse(circuitBreaker.allowRequest());
+        now += 1;
+        assertTrue(circuitBreaker.allowRequest());
+        circuitBreaker.onSuccess();
+        assertEquals(CircuitBreaker.State.closed, circuitBreaker.getState());
+        assertTrue(circuitBreaker.allowRequest());
+        assertTrue(circuitBreaker.allowRequest());
+    }
+
+    @Test
+    public void cancelledProbe_letsTheNextProbeThrough() {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(1, 50, () -> now);
+        circuitBreaker.onFailure();
+        now += 50;
+
+        assertTrue(circuitBreaker.allowRequest());
+        assertFalse(circuitBreaker.allowRequest());
+        circuitBreaker.onCancelled();
+        assertTrue(circuitBreaker.allowRequest());
+    }
+
+    @Test
+    public void forSystem_separatesSystemsWithTheSameUrl() {
+        assertEquals(CommunicationManager.getDefaultBackendUrl(CommunicationManager.RequestTypes.authenticateAccount),
+                CommunicationManager.getDefaultBackendUrl(CommunicationManager.RequestTypes.fetchProductList));
+
+        CircuitBreaker userManagementSystem = CircuitBreaker.forSystem(CommunicationManager.Systems.userManagementSystem);
+        CircuitBreaker bookingSystem = CircuitBreaker.forSystem(CommunicationManager.Systems.bookingSystem);
+        assertNotSame(userManagementSystem, bookingSystem);
+        assertSame(bookingSystem, CircuitBreaker.forSystem(CommunicationManager.getSystem(CommunicationManager.RequestTypes.fetchProduct)));
+        assertSame(userManagementSystem, CircuitBreaker.forSystem(CommunicationManager.getSystem(CommunicationManager.RequestTypes.authenticateAccount)));
+    }
+
+}
@@ -0,0 +1,78 @@
+package com.andreasmenzel.adds.Manager;
+
+import com.andreasmenzel.adds.DataClasses.Product;
+import com.andreasmenzel.adds.MyApplication;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the registry creates one manager per request type and backend and shares it.
+ */
+public class CommunicationManagerRegistryTest {
+
+    @Test
+    public void get_sharesOneManagerPerRequestTypeAndBackend() {
+        CommunicationManagerRegistry communicationManagerRegistry = new CommunicationManagerRegistry();
+
+        CommunicationManager productManager = communicationManagerRegistry.get(CommunicationManager.RequestTypes.fetchProduct, "http://a/");
+        assertSame(productManager, communicationManagerRegistry.get(CommunicationManager.RequestTypes.fetchProduct, "http://a/"));
+        assertNotSame(productManager, communicationManagerRegistry.get(CommunicationManager.RequestTypes.fetchProduct, "http://b/"));
+        assertNotSame(productManager, communicationManagerRegistry.get(CommunicationManager.RequestTypes.fetchProductList, "http://a/"));
+        assertEquals(3, communicationManagerRegistry.size());
+
+        communicationManagerRegistry.clear();
+        assertEquals(0, communicationManagerRegistry.size());
+        assertNotSame(productManager, communicationManagerRegistry.get(CommunicationManager.RequestTypes.fetchProduct, "http://a/"));
+    }
+
+    @Test
+    public void get_createsOneManagerForConcurrentCallers() throws Exception {
+        CommunicationManagerRegistry communicationManagerRegistry = new CommunicationManagerRegistry();
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+
+        try {
+            List<Future<CommunicationManager>> managers = new ArrayList<>();
+            for(int i = 0; i < threads; ++i) {
+                managers.add(executor.submit((Callable<CommunicationManager>) () -> {
+                    start.await();
+                    return communicationManagerRegistry.get(CommunicationManager.RequestTypes.fetchProduct);
+                }));
+            }
+            start.countDown();
+
+            for(Future<CommunicationManager> manager : managers) {
+                assertSame(managers.get(0).get(), manager.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(1, communicationManagerRegistry.size());
+    }
+
+    @Test
+    public void products_doNotCreateManagers() {
+        int managers = MyApplication.getCommunicationManagerRegistry().size();
+
+        List<Product> products = new ArrayList<>();
+        for(int i = 0; i < 1000; ++i) {
+            products.add(new Product("product-" + i, "warehouse-1"));
+        }
+
+        assertEquals(1000, products.size());
+        assertEquals(managers, MyApplication.getCommunicationManagerRegistry().size());
+        assertSame(MyApplication.getCommunicationManagerProductNotNull(), MyApplication.getCommunicationManagerProductNotNull());
+    }
+
+}
@@ -0,0 +1,219 @@
+package com.andreasmenzel.adds.Manager;
+
+import com.andreasmenzel.adds.Events.Event;
+import com.andreasmenzel.adds.Events.FetchProductListFailed;
+import com.andreasmenzel.adds.Events.FetchProductListSucceeded;
+import com.andreasmenzel.adds.MyApplication;
+
+import org.greenrobot.eventbus.EventBus;
+import org.greenrobot.eventbus.Subscribe;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks how a CommunicationManager retries requests and records them in its circuit breaker when
+ * the server answers with a script of faults (server errors, disconnects).
+ */
+public class CommunicationManagerRetryTest {
+
+    private static final String STOCKS = "{\"executed\":true,\"errors\":[],\"warnings\":[],\"payload\":"
+            + "{\"stocks\":[{\"product_id\":\"a\",\"warehouse_id\":\"1\",\"quantity\":1}]}}";
+    private static final long OPEN_MILLIS = 60000;
+
+    private MockWebServer server;
+    // The responses to the first requests; the later ones succeed.
+    private final Queue<MockResponse> faults = new ConcurrentLinkedQueue<>();
+    private OkHttpClient sharedHttpClient;
+
+    private final EventBus bus = MyApplication.getEventBus();
+    private final ResultSubscriber resultSubscriber = new ResultSubscriber();
+
+    // The time of the circuit breaker, moved forward by the tests.
+    private volatile long now = 0;
+    private final CircuitBreaker circuitBreaker = new CircuitBreaker(3, OPEN_MILLIS, () -> now);
+
+
+    /**
+     * Collects the finished product list requests.
+     */
+    public static class ResultSubscriber {
+
+        final BlockingQueue<Event> results = new LinkedBlockingQueue<>();
+
+        @Subscribe
+        public void fetchProductListSucceeded(FetchProductListSucceeded event) {
+            results.add(event);
+        }
+
+        @Subscribe
+        public void fetchProductListFailed(FetchProductListFailed event) {
+            results.add(event);
+        }
+
+    }
+
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                MockResponse fault = faults.poll();
+                if(fault != null) return fault;
+                return new MockResponse().setBody(STOCKS);
+            }
+        });
+        server.start();
+
+        // Without the silent retry of OkHttp, so every disconnect reaches the manager.
+        sharedHttpClient = MyApplication.getHttpClient();
+        MyApplication.setHttpClient(sharedHttpClient.newBuilder().retryOnConnectionFailure(false).build());
+        bus.register(resultSubscriber);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        bus.unregister(resultSubscriber);
+        MyApplication.setHttpClient(sharedHttpClient);
+        server.shutdown();
+    }
+
+
+    private CommunicationManager communicationManager(int maxAttempts) {
+        CommunicationManager communicationManager = new CommunicationManager(CommunicationManager.RequestTypes.fetchProductList, server.url("/").toString(), 1);
+        communicationManager.setRetryPolicy(new RetryPolicy(maxAttempts, 1, 1));
+        communicationManager.setCircuitBreaker(circuitBreaker);
+        return communicationManager;
+    }
+
+    private Event send(CommunicationManager communicationManager) throws InterruptedException {
+        communicationManager.sendRequest(server.url("/api/stocks?warehouse_id=1").toString());
+
+        Event result = resultSubscriber.results.poll(5, TimeUnit.SECONDS);
+        assertNotNull(result);
+        return result;
+    }
+
+    private static MockResponse status(int code) {
+        return new MockResponse().setResponseCode(code);
+    }
+
+    private static MockResponse disconnect() {
+        return new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AFTER_REQUEST);
+    }
+
+
+    @Test
+    public void serverErrors_areRetriedUntilTheResponseArrives() throws Exception {
+        faults.add(status(503));
+        faults.add(status(502));
+
+        Event result = send(communicationManager(4));
+
+        assertTrue(result instanceof FetchProductListSucceeded);
+        assertEquals(3, server.getRequestCount());
+        // The answer closes the circuit again.
+        assertEquals(0, circuitBreaker.getConsecutiveFailures());
+        assertEquals(CircuitBreaker.State.closed, circuitBreaker.getState());
+    }
+
+    @Test
+    public void disconnects_areRetriedUntilTheResponseArrives() throws Exception {
+        faults.add(disconnect());
+        faults.add(disconnect());
+
+        Event result = send(communicationManager(4));
+
+        assertTrue(result instanceof FetchProductListSucceeded);
+        assertEquals(3, server.getRequestCount());
+        assertEquals(0, circuitBreaker.getConsecutiveFailures());
+    }
+
+    @Test
+    public void clientError_isNotRetried() throws Exception {
+        faults.add(status(404));
+
+        Event result = send(communicationManager(4));
+
+        assertTrue(result instanceof FetchProductListFailed);
+        assertEquals(1, server.getRequestCount());
+        // The server answered, so it is up.
+        assertEquals(0, circuitBreaker.getConsecutiveFailures());
+    }
+
+    @Test
+    public void usedUpRetries_failTheRequest() throws Exception {
+        faults.add(status(500));
+        faults.add(disconnect());
+
+        Event result = send(communicationManager(2));
+
+        assertTrue(result instanceof FetchProductListFailed);
+        assertEquals(2, server.getRequestCount());
+        assertEquals(2, circuitBreaker.getConsecutiveFailures());
+        assertEquals(CircuitBreaker.State.closed, circuitBreaker.getState());
+    }
+
+    @Test
+    public void failuresInARow_openTheCircuitUntilTheProbeSucceeds() throws Exception {
+        faults.add(status(503));
+        faults.add(disconnect());
+        faults.add(status(500));
+        CommunicationManager communicationManager = communicationManager(3);
+
+        // The third failure in a row opens the circuit.
+        assertTrue(send(communicationManager) instanceof FetchProductListFailed);
+        assertEquals(3, server.getRequestCount());
+        assertEquals(CircuitBreaker.State.open, circuitBreaker.getState());
+
+        // Fails fast while the circuit is open.
+        Event result = send(communicationManager);
+        assertTrue(result instanceof FetchProductListFailed);
+        assertTrue(result.getResponseAnalyzer().getErrors().get(0).getMessage().contains("Server temporarily unavailable"));
+        assertEquals(3, server.getRequestCount());
+
+        // The next request after the open time is the probe, which closes the circuit.
+        now += OPEN_MILLIS;
+        assertTrue(send(communicationManager) instanceof FetchProductListSucceeded);
+        assertEquals(4, server.getRequestCount());
+        assertEquals(CircuitBreaker.State.closed, circuitBreaker.getState());
+    }
+
+    @Test
+    public void failedProbe_opensTheCircuitAgain() throws Exception {
+        faults.add(status(503));
+        faults.add(status(503));
+        faults.add(status(503));
+        faults.add(disconnect());
+        CommunicationManager communicationManager = communicationManager(3);
+        assertTrue(send(communicationManager) instanceof FetchProductListFailed);
+
+        // The failed probe opens the circuit again, so its retry fails fast.
+        now += OPEN_MILLIS;
+        assertTrue(send(communicationManager) instanceof FetchProductListFailed);
+        assertEquals(4, server.getRequestCount());
+        assertEquals(CircuitBreaker.State.open, circuitBreaker.getState());
+
+        now += OPEN_MILLIS - 1;
+        assertTrue(send(communicationManager) instanceof FetchProductListFailed);
+        assertEquals(4, server.getRequestCount());
+    }
+
+}
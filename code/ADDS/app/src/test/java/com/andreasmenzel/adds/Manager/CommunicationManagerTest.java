@@ -0,0 +1,91 @@
+package com.andreasmenzel.adds.Manager;
+
+import com.andreasmenzel.adds.DataClasses.Product;
+import com.andreasmenzel.adds.Events.Event;
+import com.andreasmenzel.adds.Events.FetchProductInfoFailed;
+import com.andreasmenzel.adds.Events.FetchProductInfoSucceeded;
+import com.andreasmenzel.adds.MyApplication;
+import com.andreasmenzel.adds.ResponseAnalyzer;
+
+import org.greenrobot.eventbus.EventBus;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the events of a shared CommunicationManager carry the results of their own request.
+ */
+public class CommunicationManagerTest {
+
+    private MockWebServer server;
+    private final EventBus bus = MyApplication.getEventBus();
+
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                String id = request.getRequestUrl().queryParameter("id");
+                if(id.equals("ok")) {
+                    return new MockResponse().setBody("{\"executed\":true,\"errors\":[],\"warnings\":[],\"payload\":{\"name\":\"Product\",\"description\":\"Description\"}}");
+                }
+                // The error message is the id, so every failed request has its own error.
+                return new MockResponse().setBody("{\"executed\":false,\"errors\":[{\"err_id\":1,\"err_msg\":\"" + id + "\"}],\"warnings\":[]}");
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+
+    @Test
+    public void concurrentRequests_postTheirOwnResponseAnalyzer() throws Exception {
+        String[] productIds = {"ok", "unknown-1", "unknown-2", "unknown-3"};
+        ProductInfoSubscriber subscriber = new ProductInfoSubscriber(productIds.length);
+        bus.register(subscriber);
+
+        try {
+            CommunicationManager communicationManager = new CommunicationManager(CommunicationManager.RequestTypes.fetchProduct, server.url("/").toString(), productIds.length);
+            for(String productId : productIds) {
+                communicationManager.updateProductInfo(new Product(productId, "1"));
+            }
+
+            assertTrue(subscriber.await(5, TimeUnit.SECONDS));
+        } finally {
+            bus.unregister(subscriber);
+        }
+
+        // The error message of a failed request is the id of its product.
+        Map<String, Event> eventsByProductId = new HashMap<>();
+        for(Event event : subscriber.getEvents()) {
+            ResponseAnalyzer responseAnalyzer = event.getResponseAnalyzer();
+            eventsByProductId.put(responseAnalyzer.wasExecuted() ? "ok" : responseAnalyzer.getErrors().get(0).getMessage(), event);
+        }
+
+        assertEquals(productIds.length, eventsByProductId.size());
+        assertTrue(eventsByProductId.get("ok") instanceof FetchProductInfoSucceeded);
+        for(int i = 1; i < productIds.length; ++i) {
+            Event event = eventsByProductId.get(productIds[i]);
+            assertTrue(event instanceof FetchProductInfoFailed);
+            assertEquals(1, event.getResponseAnalyzer().getErrors().size());
+        }
+    }
+
+}
@@ -0,0 +1,99 @@
+package com.andreasmenzel.adds.Manager;
+
+import com.andreasmenzel.adds.MyApplication;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import okhttp3.Cache;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks which responses of the shared http client (with an http cache) count as unchanged since
+ * they were cached.
+ */
+public class HttpCacheStatisticsTest {
+
+    @Rule
+    public TemporaryFolder cacheDir = new TemporaryFolder();
+
+    private MockWebServer server;
+    private OkHttpClient httpClient;
+
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+
+        // The shared client with its interceptors, but with a cache of its own.
+        httpClient = MyApplication.getHttpClient().newBuilder()
+                .cache(new Cache(cacheDir.getRoot(), 1024 * 1024))
+                .build();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        httpClient.cache().close();
+        server.shutdown();
+    }
+
+
+    @Test
+    public void notModified_isFromCache() throws Exception {
+        server.enqueue(new MockResponse().setHeader("ETag", "\"v1\"").setBody("stocks v1"));
+        server.enqueue(new MockResponse().setResponseCode(304).setHeader("ETag", "\"v1\""));
+
+        try(Response response = get()) {
+            assertFalse(HttpCacheStatistics.isFromCache(response));
+            assertEquals("stocks v1", response.body().string());
+        }
+
+        try(Response response = get()) {
+            assertTrue(HttpCacheStatistics.isFromCache(response));
+            assertEquals("stocks v1", response.body().string());
+        }
+
+        server.takeRequest();
+        assertEquals("\"v1\"", server.takeRequest().getHeader("If-None-Match"));
+    }
+
+    @Test
+    public void changedAfterRevalidation_isNotFromCache() throws Exception {
+        server.enqueue(new MockResponse().setHeader("ETag", "\"v1\"").setBody("stocks v1"));
+        server.enqueue(new MockResponse().setHeader("ETag", "\"v2\"").setBody("stocks v2"));
+
+        try(Response response = get()) {
+            assertEquals("stocks v1", response.body().string());
+        }
+
+        long revalidatedCount = MyApplication.getHttpCacheStatistics().getRevalidatedCount();
+        try(Response response = get()) {
+            // The cached response was used for the conditional request, but the body changed.
+            assertNotNull(response.cacheResponse());
+            assertFalse(HttpCacheStatistics.isFromCache(response));
+            assertEquals("stocks v2", response.body().string());
+        }
+        assertEquals(revalidatedCount, MyApplication.getHttpCacheStatistics().getRevalidatedCount());
+
+        server.takeRequest();
+        RecordedRequest conditionalRequest = server.takeRequest();
+        assertEquals("\"v1\"", conditionalRequest.getHeader("If-None-Match"));
+    }
+
+
+    private Response get() throws Exception {
+        return httpClient.newCall(new Request.Builder().url(server.url("/api/stocks?warehouse_id=1")).build()).execute();
+    }
+
+}
@@ -0,0 +1,191 @@
+package com.andreasmenzel.adds.Manager;
+
+import android.database.Cursor;
+
+import com.andreasmenzel.adds.Events.AccountActivationSucceeded;
+import com.andreasmenzel.adds.Events.AccountActivationSucceededPartially;
+import com.andreasmenzel.adds.Events.Event;
+import com.andreasmenzel.adds.MyApplication;
+import com.andreasmenzel.adds.TestApplication;
+
+import org.greenrobot.eventbus.Subscribe;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks how account requests that cannot reach the User Management System are queued in the
+ * outbox, deduplicated and replayed. Runs with Robolectric (SQLite) and the managers of the app
+ * (see TestApplication).
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(application = TestApplication.class)
+public class OutboxManagerTest {
+
+    private MockWebServer server;
+    // The status of the responses of the stub User Management System.
+    private volatile int responseCode = 200;
+
+    private OutboxManager outboxManager;
+    private final ActivationSubscriber subscriber = new ActivationSubscriber();
+
+
+    /**
+     * Collects the finished account activations.
+     */
+    public static class ActivationSubscriber {
+
+        final BlockingQueue<Event> events = new LinkedBlockingQueue<>();
+
+        @Subscribe
+        public void accountActivationSucceeded(AccountActivationSucceeded event) {
+            events.add(event);
+        }
+
+        @Subscribe
+        public void accountActivationSucceededPartially(AccountActivationSucceededPartially event) {
+            events.add(event);
+        }
+
+    }
+
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                if(responseCode != 200) {
+                    return new MockResponse().setResponseCode(responseCode);
+                }
+                return new MockResponse().setBody("{\"executed\":true,\"errors\":[],\"warnings\":[]}");
+            }
+        });
+        server.start();
+
+        CircuitBreaker.forSystem(CommunicationManager.Systems.userManagementSystem).reset();
+        outboxManager = MyApplication.getOutboxManager();
+        MyApplication.getEventBus().register(subscriber);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        MyApplication.getEventBus().unregister(subscriber);
+        CircuitBreaker.forSystem(CommunicationManager.Systems.userManagementSystem).reset();
+        server.shutdown();
+    }
+
+
+    @Test
+    public void unreachableServer_queuesTheRequestWithAWarning() throws Exception {
+        responseCode = 503;
+
+        new CommunicationManager(CommunicationManager.RequestTypes.activateAccount, server.url("/").toString(), 1).activateAccount("ABC");
+
+        Event event = subscriber.events.poll(5, TimeUnit.SECONDS);
+        assertTrue(event instanceof AccountActivationSucceededPartially);
+        assertTrue(event.getResponseAnalyzer().hasWarning(CommunicationManager.WARNING_QUEUED));
+
+        outboxManager.awaitIdle();
+        List<String> requestUrls = loadRequestUrls();
+        assertEquals(1, requestUrls.size());
+        assertTrue(requestUrls.get(0).endsWith("account/activate?activation_code=ABC"));
+    }
+
+    @Test
+    public void sameDedupKey_updatesTheEntryInPlace() throws Exception {
+        outboxManager.add(CommunicationManager.RequestTypes.activateAccount, url("A"), "activateAccount:A", "key-1");
+        outboxManager.add(CommunicationManager.RequestTypes.activateAccount, url("B"), "activateAccount:B", "key-2");
+        outboxManager.awaitIdle();
+        long firstId = loadIds().get(0);
+
+        outboxManager.add(CommunicationManager.RequestTypes.activateAccount, url("A2"), "activateAccount:A", "key-3");
+        outboxManager.awaitIdle();
+
+        // Still two entries, and the updated one kept its id and therefore its position.
+        assertEquals(firstId, (long) loadIds().get(0));
+        assertEquals(2, loadIds().size());
+        assertEquals(url("A2"), loadRequestUrls().get(0));
+        assertEquals(url("B"), loadRequestUrls().get(1));
+    }
+
+    @Test
+    public void deliveredReplay_isRemoved() throws Exception {
+        outboxManager.add(CommunicationManager.RequestTypes.activateAccount, url("A"), "activateAccount:A", "key-1");
+
+        outboxManager.drain();
+
+        RecordedRequest request = server.takeRequest(5, TimeUnit.SECONDS);
+        assertNotNull(request);
+        // The replay carries the key of the first attempt.
+        assertEquals("key-1", request.getHeader("Idempotency-Key"));
+        assertTrue(subscriber.events.poll(5, TimeUnit.SECONDS) instanceof AccountActivationSucceeded);
+
+        outboxManager.awaitIdle();
+        assertTrue(loadIds().isEmpty());
+    }
+
+    @Test
+    public void failedReplay_staysQueued() throws Exception {
+        responseCode = 503;
+        outboxManager.add(CommunicationManager.RequestTypes.activateAccount, url("A"), "activateAccount:A", "key-1");
+        outboxManager.awaitIdle();
+        long id = loadIds().get(0);
+
+        outboxManager.drain();
+
+        Event event = subscriber.events.poll(5, TimeUnit.SECONDS);
+        assertTrue(event instanceof AccountActivationSucceededPartially);
+        assertTrue(event.getResponseAnalyzer().hasWarning(CommunicationManager.WARNING_QUEUED));
+
+        outboxManager.awaitIdle();
+        assertEquals(1, loadIds().size());
+        assertEquals(id, (long) loadIds().get(0));
+        assertEquals(1, server.getRequestCount());
+    }
+
+
+    private String url(String activationCode) {
+        return server.url("/account/activate?activation_code=" + activationCode).toString();
+    }
+
+    private List<Long> loadIds() {
+        List<Long> ids = new ArrayList<>();
+        try(Cursor cursor = outboxManager.getReadableDatabase().rawQuery("SELECT id FROM outbox ORDER BY id", null)) {
+            while(cursor.moveToNext()) {
+                ids.add(cursor.getLong(0));
+            }
+        }
+
+        return ids;
+    }
+
+    private List<String> loadRequestUrls() {
+        List<String> requestUrls = new ArrayList<>();
+        try(Cursor cursor = outboxManager.getReadableDatabase().rawQuery("SELECT request_url FROM outbox ORDER BY id", null)) {
+            while(cursor.moveToNext()) {
+                requestUrls.add(cursor.getString(0));
+            }
+        }
+
+        return requestUrls;
+    }
+
+}
@@ -0,0 +1,85 @@
+package com.andreasmenzel.adds.Manager;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the password hashes do not depend on the device or on the spelling of the email.
+ */
+public class PasswordHasherTest {
+
+    @Test
+    public void pbkdf2_matchesTheJdkImplementation() throws Exception {
+        byte[] salt = "v1:salt".getBytes("UTF-8");
+        byte[] expected = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256")
+                .generateSecret(new PBEKeySpec("password".toCharArray(), salt, 1000, PasswordHasher.KEY_LENGTH_BYTES * 8))
+                .getEncoded();
+
+        assertArrayEquals(expected, PasswordHasher.pbkdf2("password", salt, 1000, PasswordHasher.KEY_LENGTH_BYTES));
+    }
+
+    @Test
+    public void getIterations_ofCostParameters() {
+        assertTrue(PasswordHasher.getIterations("v" + PasswordHasher.CURRENT_COST_VERSION + ":ab12") > 0);
+        assertEquals(0, PasswordHasher.getIterations("v999:ab12"));
+        assertEquals(0, PasswordHasher.getIterations("v:ab12"));
+        // Only cost versions are accepted, not a number of iterations.
+        assertEquals(0, PasswordHasher.getIterations("250000:ab12"));
+        assertEquals(0, PasswordHasher.getIterations("ab12"));
+    }
+
+    @Test
+    public void registrationOnOneDevice_authenticatesOnAnother() throws Exception {
+        String[] registration = hash(new PasswordHasher(null), true, "User@Example.com", "secret");
+        // A new hasher without stored cost parameters, as on another device or after the data
+        // of the app was cleared.
+        String[] authentication = hash(new PasswordHasher(null), false, " user@example.com", "secret");
+
+        assertEquals("v" + PasswordHasher.CURRENT_COST_VERSION, registration[0].substring(0, registration[0].indexOf(':')));
+        assertEquals(registration[0], authentication[0]);
+        assertEquals(registration[1], authentication[1]);
+    }
+
+    @Test
+    public void unknownCost_isNotRemembered() throws Exception {
+        PasswordHasher passwordHasher = new PasswordHasher(null);
+        String pwd_salt = hash(passwordHasher, false, "user@example.com", "secret")[0];
+        passwordHasher.remember("User@Example.com ", "250000:" + pwd_salt.split(":")[1]);
+
+        assertEquals(pwd_salt, hash(passwordHasher, false, "user@example.com", "secret")[0]);
+    }
+
+
+    /**
+     * Derives a hash and waits for it.
+     *
+     * @return pwd_salt and pwd_hash.
+     */
+    private static String[] hash(PasswordHasher passwordHasher, boolean registration, String email, String password) throws InterruptedException {
+        String[] result = new String[2];
+        CountDownLatch hashed = new CountDownLatch(1);
+        PasswordHasher.Callback callback = (pwd_salt, pwd_hash) -> {
+            result[0] = pwd_salt;
+            result[1] = pwd_hash;
+            hashed.countDown();
+        };
+
+        if(registration) {
+            passwordHasher.hashForRegistration(email, password, callback);
+        } else {
+            passwordHasher.hashForAuthentication(email, password, callback);
+        }
+        assertTrue(hashed.await(30, TimeUnit.SECONDS));
+        assertNotNull(result[1]);
+
+        return result;
+    }
+
+}
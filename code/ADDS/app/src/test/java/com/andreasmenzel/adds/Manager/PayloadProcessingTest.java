@@ -0,0 +1,94 @@
+package com.andreasmenzel.adds.Manager;
+
+import com.andreasmenzel.adds.DataClasses.Product;
+import com.andreasmenzel.adds.DataClasses.ProductList;
+import com.andreasmenzel.adds.ResponseAnalyzer;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the payload processors of the CommunicationManager on analyzed responses. Nothing is
+ * sent: the backend URL is never called. Without the application, there is no session and no
+ * catalog to store the results in.
+ */
+public class PayloadProcessingTest {
+
+    private static final String BACKEND_URL = "http://localhost/";
+
+
+    @Test
+    public void productInfo_isStoredInTheProduct() {
+        CommunicationManager productManager = new CommunicationManager(CommunicationManager.RequestTypes.fetchProduct, BACKEND_URL, 1);
+        Product product = new Product("payload-test-1", "1");
+
+        assertTrue(productManager.processPayload(analyze("{\"name\":\"Product\",\"description\":\"Description\"}"), product, null, null));
+        assertEquals("Product", product.getName());
+        assertEquals("Description", product.getDescription());
+    }
+
+    @Test
+    public void incompleteProductInfo_isRejected() {
+        CommunicationManager productManager = new CommunicationManager(CommunicationManager.RequestTypes.fetchProduct, BACKEND_URL, 1);
+        Product product = new Product("payload-test-2", "1");
+        ResponseAnalyzer responseAnalyzer = analyze("{\"name\":\"Product\"}");
+
+        assertFalse(productManager.processPayload(responseAnalyzer, product, null, null));
+        assertNull(product.getName());
+        assertTrue(responseAnalyzer.hasErrors());
+    }
+
+    @Test
+    public void authentication_needsTokenAndExpireTime() {
+        CommunicationManager authenticationManager = new CommunicationManager(CommunicationManager.RequestTypes.authenticateAccount, BACKEND_URL, 1);
+
+        assertTrue(authenticationManager.processPayload(analyze("{\"auth_token\":\"0123456789abcdef\",\"exp\":" + (System.currentTimeMillis() / 1000 + 3600) + "}"), null, null, null));
+
+        ResponseAnalyzer responseAnalyzer = analyze("{\"auth_token\":\"0123456789abcdef\"}");
+        assertFalse(authenticationManager.processPayload(responseAnalyzer, null, null, null));
+        assertTrue(responseAnalyzer.hasErrors());
+    }
+
+    @Test
+    public void stocks_areReconciledIntoTheProductList() {
+        CommunicationManager productListManager = new CommunicationManager(CommunicationManager.RequestTypes.fetchProductList, BACKEND_URL, 1);
+        ProductList productList = new ProductList("1");
+        // The information is fetched for the shown rows only, so nothing is sent.
+        productList.setProductInfoOnDemand(true);
+
+        assertTrue(productListManager.processPayload(analyze("{}"), null, productList, Arrays.asList(product("a", 1), product("b", 2))));
+        Product a = productList.getProducts().get(0);
+
+        assertTrue(productListManager.processPayload(analyze("{}"), null, productList, Arrays.asList(product("b", 3), product("a", 1))));
+        assertEquals(Arrays.asList("b", "a"), productList.getProductIds());
+        assertSame(a, productList.getProducts().get(1));
+        assertEquals(3, productList.getProducts().get(0).getQuantity());
+    }
+
+    @Test
+    public void missingStocks_areRejected() {
+        CommunicationManager productListManager = new CommunicationManager(CommunicationManager.RequestTypes.fetchProductList, BACKEND_URL, 1);
+        ProductList productList = new ProductList("1");
+        List<Product> stocks = null;
+
+        assertFalse(productListManager.processPayload(analyze("{}"), null, productList, stocks));
+    }
+
+
+    private static ResponseAnalyzer analyze(String payload) {
+        ResponseAnalyzer responseAnalyzer = new ResponseAnalyzer();
+        responseAnalyzer.analyze("{\"executed\":true,\"errors\":[],\"warnings\":[],\"payload\":" + payload + "}");
+        return responseAnalyzer;
+    }
+
+    private static Product product(String id, int quantity) {
+        Product product = new Product(id, "1");
+        product.setQuantity(quantity);
+        return product;
+    }
+
+}
@@ -0,0 +1,84 @@
+package com.andreasmenzel.adds.Manager;
+
+import com.andreasmenzel.adds.DataClasses.Product;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the products a batch response does not deliver are fetched one by one.
+ */
+public class ProductInfoBatchFetcherTest {
+
+    private MockWebServer server;
+    // The single fetches by product id.
+    private final Map<String, AtomicInteger> singleFetches = new ConcurrentHashMap<>();
+
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                String id = request.getRequestUrl().queryParameter("id");
+                if(id != null) {
+                    singleFetches.computeIfAbsent(id, key -> new AtomicInteger()).incrementAndGet();
+                    return new MockResponse().setBody("{\"executed\":true,\"errors\":[],\"warnings\":[],\"payload\":"
+                            + "{\"name\":\"Single " + id + "\",\"description\":\"Description\"}}");
+                }
+
+                // Delivers the first product, sends the second one without a description, an entry
+                // that is no object and leaves out the third one.
+                return new MockResponse().setBody("{\"executed\":true,\"errors\":[],\"warnings\":[],\"payload\":{\"products\":["
+                        + "{\"id\":\"batch-delivered\",\"name\":\"Batch\",\"description\":\"Description\"},"
+                        + "{\"id\":\"batch-malformed\",\"name\":\"Batch\"},"
+                        + "42]}}");
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+
+    @Test
+    public void malformedAndOmittedProducts_areFetchedOneByOne() throws Exception {
+        ProductInfoBatchFetcher productInfoBatchFetcher = new ProductInfoBatchFetcher(server.url("/").toString());
+        Product delivered = new Product("batch-delivered", "1");
+        Product malformed = new Product("batch-malformed", "1");
+        Product omitted = new Product("batch-omitted", "1");
+        List<Product> products = Arrays.asList(delivered, malformed, omitted);
+
+        CountDownLatch finished = new CountDownLatch(1);
+        productInfoBatchFetcher.fetch(products, fetch -> finished.countDown());
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+
+        assertEquals("Batch", delivered.getName());
+        assertEquals("Single batch-malformed", malformed.getName());
+        assertEquals("Single batch-omitted", omitted.getName());
+        assertNull(singleFetches.get("batch-delivered"));
+        assertEquals(1, singleFetches.get("batch-malformed").get());
+        assertEquals(1, singleFetches.get("batch-omitted").get());
+    }
+
+}
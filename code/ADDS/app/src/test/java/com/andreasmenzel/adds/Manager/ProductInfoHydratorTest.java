@@ -0,0 +1,99 @@
+package com.andreasmenzel.adds.Manager;
+
+import com.andreasmenzel.adds.DataClasses.Product;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the hydrator retries products whose information cannot be fetched, but not over and
+ * over again.
+ */
+public class ProductInfoHydratorTest {
+
+    private MockWebServer server;
+    // The single fetches by product id.
+    private final Map<String, AtomicInteger> singleFetches = new ConcurrentHashMap<>();
+
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                String id = request.getRequestUrl().queryParameter("id");
+                if(id != null) {
+                    singleFetches.computeIfAbsent(id, key -> new AtomicInteger()).incrementAndGet();
+                }
+                // Neither the batch endpoint nor the products exist.
+                return new MockResponse().setResponseCode(404);
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+
+    @Test
+    public void failedProducts_areRetriedWithBackoffUpToTheLimit() throws Exception {
+        ProductInfoHydrator productInfoHydrator = new ProductInfoHydrator(new ProductInfoBatchFetcher(server.url("/").toString()));
+        List<Product> products = Arrays.asList(new Product("a", "1"), new Product("b", "1"));
+
+        // Scrolls for longer than all backoff delays of the retry policy together.
+        long end = System.currentTimeMillis() + 5000;
+        while(System.currentTimeMillis() < end) {
+            productInfoHydrator.onViewportChanged(products, 0, 1);
+            Thread.sleep(50);
+        }
+        while(productInfoHydrator.getFetchesInProgress() > 0) {
+            Thread.sleep(50);
+        }
+
+        int maxAttempts = RetryPolicy.forRequestType(CommunicationManager.RequestTypes.fetchProduct).getMaxAttempts();
+        for(Product product : products) {
+            assertNull(product.getName());
+            assertEquals(maxAttempts, singleFetches.get(product.getId()).get());
+        }
+    }
+
+    @Test
+    public void failedProducts_areRetriedWhileTheListIsIdle() throws Exception {
+        ProductInfoHydrator productInfoHydrator = new ProductInfoHydrator(new ProductInfoBatchFetcher(server.url("/").toString()));
+        List<Product> products = Arrays.asList(new Product("c", "1"), new Product("d", "1"));
+        int maxAttempts = RetryPolicy.forRequestType(CommunicationManager.RequestTypes.fetchProduct).getMaxAttempts();
+
+        // The list does not move after it was shown.
+        productInfoHydrator.onViewportChanged(products, 0, 1);
+
+        // Waits for longer than all backoff delays of the retry policy together.
+        Thread.sleep(5000);
+        while(productInfoHydrator.getFetchesInProgress() > 0) {
+            Thread.sleep(50);
+        }
+
+        for(Product product : products) {
+            assertNull(product.getName());
+            assertEquals(maxAttempts, singleFetches.get(product.getId()).get());
+        }
+    }
+
+}
@@ -0,0 +1,96 @@
+package com.andreasmenzel.adds.Manager;
+
+import com.andreasmenzel.adds.Events.Event;
+import com.andreasmenzel.adds.Events.FetchProductInfoFailed;
+import com.andreasmenzel.adds.Events.FetchProductInfoSucceeded;
+
+import org.greenrobot.eventbus.Subscribe;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Receives the result events of product info requests in the tests. Keeps the first expected
+ * events and counts all of them without allocating, so it can stay registered while the
+ * allocations of a dispatch are measured.
+ */
+public class ProductInfoSubscriber {
+
+    private final AtomicReferenceArray<Event> events;
+    private final AtomicInteger eventCount = new AtomicInteger();
+    private final CountDownLatch finished;
+
+
+    /**
+     * @param expectedEvents The number of events that are kept and waited for.
+     */
+    public ProductInfoSubscriber(int expectedEvents) {
+        events = new AtomicReferenceArray<>(expectedEvents);
+        finished = new CountDownLatch(expectedEvents);
+    }
+
+
+    @Subscribe
+    public void fetchProductInfoSucceeded(FetchProductInfoSucceeded event) {
+        onFinished(event);
+    }
+
+    @Subscribe
+    public void fetchProductInfoFailed(FetchProductInfoFailed event) {
+        onFinished(event);
+    }
+
+    private void onFinished(Event event) {
+        int index = eventCount.getAndIncrement();
+        if(index < events.length()) {
+            events.set(index, event);
+        }
+        finished.countDown();
+    }
+
+
+    /**
+     * Waits until the expected events arrived.
+     *
+     * @param timeout The maximum time to wait.
+     * @param unit The unit of the timeout.
+     * @return Whether the expected events arrived in time.
+     * @throws InterruptedException If the thread was interrupted while waiting.
+     */
+    public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+        return finished.await(timeout, unit);
+    }
+
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+    //                                    GETTERS AND SETTERS                                     //
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Returns the number of received events.
+     *
+     * @return eventCount.
+     */
+    public int getEventCount() {
+        return eventCount.get();
+    }
+
+    /**
+     * Returns the first expected events in the order they arrived.
+     *
+     * @return The events.
+     */
+    public List<Event> getEvents() {
+        List<Event> receivedEvents = new ArrayList<>();
+        for(int i = 0; i < Math.min(events.length(), eventCount.get()); ++i) {
+            receivedEvents.add(events.get(i));
+        }
+
+        return receivedEvents;
+    }
+
+}
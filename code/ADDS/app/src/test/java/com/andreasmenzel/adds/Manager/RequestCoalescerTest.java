@@ -0,0 +1,234 @@
+package com.andreasmenzel.adds.Manager;
+
+import androidx.annotation.NonNull;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.ResponseBody;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that identical requests in flight share one network call, that the shared call is
+ * retried and recorded in the circuit breaker once, and that every waiter gets the final result.
+ */
+public class RequestCoalescerTest {
+
+    // As many waiters as failures open the circuit breaker.
+    private static final int WAITERS = CircuitBreaker.DEFAULT_FAILURE_THRESHOLD;
+
+    private MockWebServer server;
+    // Holds the responses back until the test released them, so the requests stay in flight.
+    private final CountDownLatch release = new CountDownLatch(1);
+    // The responses to the first requests (server errors, disconnects); the later ones succeed.
+    private final Queue<MockResponse> faults = new ConcurrentLinkedQueue<>();
+    // Without the silent retry of OkHttp, so every failed call reaches the coalescer.
+    private final OkHttpClient client = new OkHttpClient.Builder().retryOnConnectionFailure(false).build();
+    private final ScheduledExecutorService retryScheduler = Executors.newSingleThreadScheduledExecutor();
+    private final CircuitBreaker circuitBreaker = new CircuitBreaker(CircuitBreaker.DEFAULT_FAILURE_THRESHOLD, 60000);
+
+
+    /**
+     * Collects the results of the requests it waits for.
+     */
+    private static class CollectingWaiter implements RequestCoalescer.Waiter {
+
+        final List<String> results;
+        final CountDownLatch finished;
+
+        CollectingWaiter(List<String> results, CountDownLatch finished) {
+            this.results = results;
+            this.finished = finished;
+        }
+
+        @Override
+        public void onFailure(@NonNull IOException e) {
+            results.add("failure");
+            finished.countDown();
+        }
+
+        @Override
+        public void onResponse(int code, boolean fromCache, @NonNull ResponseBody body) {
+            try {
+                results.add(code + " " + body.string());
+            } catch (IOException e) {
+                results.add("unreadable");
+            } finally {
+                body.close();
+            }
+            finished.countDown();
+        }
+
+    }
+
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                release.await(5, TimeUnit.SECONDS);
+                MockResponse fault = faults.poll();
+                if(fault != null) return fault;
+                return new MockResponse().setBody("info " + request.getRequestUrl().queryParameter("id"));
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        release.countDown();
+        server.shutdown();
+        retryScheduler.shutdownNow();
+    }
+
+
+    @Test
+    public void identicalRequests_shareOneCall() throws Exception {
+        RequestCoalescer requestCoalescer = new RequestCoalescer(retryScheduler);
+        List<String> results = new CopyOnWriteArrayList<>();
+        CountDownLatch finished = new CountDownLatch(4);
+
+        for(int i = 0; i < 3; ++i) {
+            requestCoalescer.execute(client, request("a"), RetryPolicy.NO_RETRY, circuitBreaker, new CollectingWaiter(results, finished));
+        }
+        requestCoalescer.execute(client, request("b"), RetryPolicy.NO_RETRY, circuitBreaker, new CollectingWaiter(results, finished));
+        release.countDown();
+
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        assertEquals(2, server.getRequestCount());
+        assertEquals(2, requestCoalescer.getCoalescedCount());
+        assertEquals(3, count(results, "200 info a"));
+        assertEquals(1, count(results, "200 info b"));
+    }
+
+    @Test
+    public void requestAfterCompletion_isSentAgain() throws Exception {
+        RequestCoalescer requestCoalescer = new RequestCoalescer(retryScheduler);
+        release.countDown();
+
+        for(int i = 0; i < 2; ++i) {
+            List<String> results = new CopyOnWriteArrayList<>();
+            CountDownLatch finished = new CountDownLatch(1);
+            requestCoalescer.execute(client, request("a"), RetryPolicy.NO_RETRY, circuitBreaker, new CollectingWaiter(results, finished));
+
+            assertTrue(finished.await(5, TimeUnit.SECONDS));
+            assertEquals("200 info a", results.get(0));
+        }
+
+        assertEquals(2, server.getRequestCount());
+        assertEquals(0, requestCoalescer.getCoalescedCount());
+    }
+
+    @Test
+    public void failure_reachesEveryWaiter() throws Exception {
+        RequestCoalescer requestCoalescer = new RequestCoalescer(retryScheduler);
+        List<String> results = new CopyOnWriteArrayList<>();
+        CountDownLatch finished = new CountDownLatch(2);
+        Request request = request("a");
+        // Nothing listens at the URL any more.
+        server.shutdown();
+
+        requestCoalescer.execute(client, request, RetryPolicy.NO_RETRY, circuitBreaker, new CollectingWaiter(results, finished));
+        requestCoalescer.execute(client, request, RetryPolicy.NO_RETRY, circuitBreaker, new CollectingWaiter(results, finished));
+
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        assertEquals(2, count(results, "failure"));
+        // One failed call, not one per waiter.
+        assertEquals(1, circuitBreaker.getConsecutiveFailures());
+    }
+
+    @Test
+    public void serverErrors_areRetriedOnceForAllWaiters() throws Exception {
+        RequestCoalescer requestCoalescer = new RequestCoalescer(retryScheduler);
+        List<String> results = new CopyOnWriteArrayList<>();
+        CountDownLatch finished = new CountDownLatch(WAITERS);
+        faults.add(new MockResponse().setResponseCode(503));
+        faults.add(new MockResponse().setResponseCode(502));
+
+        for(int i = 0; i < WAITERS; ++i) {
+            requestCoalescer.execute(client, request("a"), new RetryPolicy(3, 0, 0), circuitBreaker, new CollectingWaiter(results, finished));
+        }
+        release.countDown();
+
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        assertEquals(3, server.getRequestCount());
+        assertEquals(WAITERS, count(results, "200 info a"));
+        assertEquals(CircuitBreaker.State.closed, circuitBreaker.getState());
+        assertEquals(0, circuitBreaker.getConsecutiveFailures());
+    }
+
+    @Test
+    public void disconnect_isRetriedOnceForAllWaiters() throws Exception {
+        RequestCoalescer requestCoalescer = new RequestCoalescer(retryScheduler);
+        List<String> results = new CopyOnWriteArrayList<>();
+        CountDownLatch finished = new CountDownLatch(WAITERS);
+        faults.add(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AFTER_REQUEST));
+
+        for(int i = 0; i < WAITERS; ++i) {
+            requestCoalescer.execute(client, request("a"), new RetryPolicy(2, 0, 0), circuitBreaker, new CollectingWaiter(results, finished));
+        }
+        release.countDown();
+
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        assertEquals(2, server.getRequestCount());
+        assertEquals(WAITERS, count(results, "200 info a"));
+    }
+
+    @Test
+    public void lastServerError_reachesEveryWaiterWithoutOpeningTheCircuit() throws Exception {
+        RequestCoalescer requestCoalescer = new RequestCoalescer(retryScheduler);
+        List<String> results = new CopyOnWriteArrayList<>();
+        CountDownLatch finished = new CountDownLatch(WAITERS);
+        faults.add(new MockResponse().setResponseCode(503));
+        faults.add(new MockResponse().setResponseCode(503));
+
+        for(int i = 0; i < WAITERS; ++i) {
+            requestCoalescer.execute(client, request("a"), new RetryPolicy(2, 0, 0), circuitBreaker, new CollectingWaiter(results, finished));
+        }
+        release.countDown();
+
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        assertEquals(2, server.getRequestCount());
+        assertEquals(WAITERS, count(results, "503 "));
+        // Two failed calls for the five waiters, below the threshold of the circuit breaker.
+        assertEquals(2, circuitBreaker.getConsecutiveFailures());
+        assertEquals(CircuitBreaker.State.closed, circuitBreaker.getState());
+    }
+
+
+    private Request request(String id) {
+        return new Request.Builder().url(server.url("/api/product_info?id=" + id)).build();
+    }
+
+    private static int count(List<String> results, String result) {
+        int count = 0;
+        for(String r : results) {
+            if(r.equals(result)) ++count;
+        }
+
+        return count;
+    }
+
+}
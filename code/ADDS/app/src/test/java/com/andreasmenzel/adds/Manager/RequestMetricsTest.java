@@ -0,0 +1,158 @@
+package com.andreasmenzel.adds.Manager;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.Collections;
+
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks how the request metrics bucket durations and that the timing listener attributes the
+ * durations of the network phases to the phases and the request type of its call. The events of the
+ * calls are fired with synthetic timings.
+ */
+public class RequestMetricsTest {
+
+    private static final long MILLIS = 1000000;
+
+    private final OkHttpClient client = new OkHttpClient();
+    private final InetSocketAddress address = InetSocketAddress.createUnresolved("localhost", 80);
+
+    // The time of the timing listeners under test, set by the tests.
+    private long now = 0;
+
+
+    private Call call(CommunicationManager.RequestTypes requestType) {
+        Request.Builder request = new Request.Builder().url("http://localhost/");
+        if(requestType != null) {
+            request.tag(CommunicationManager.RequestTypes.class, requestType);
+        }
+
+        return client.newCall(request.build());
+    }
+
+
+    @Test
+    public void histogram_percentilesAreTheUpperBoundsOfTheirBuckets() {
+        RequestMetrics.LatencyHistogram histogram = new RequestMetrics.LatencyHistogram();
+        for(int i = 0; i < 90; ++i) {
+            histogram.record(1000);
+        }
+        for(int i = 0; i < 9; ++i) {
+            histogram.record(10000);
+        }
+        histogram.record(100000);
+
+        RequestMetrics.Snapshot snapshot = histogram.snapshot();
+        assertEquals(100, snapshot.getCount());
+        // 1000 us is in the bucket from 896 to 1024 us, 10000 us in the one from 8192 to 10240 us.
+        assertEquals(1024, snapshot.getP50Micros());
+        assertEquals(10240, snapshot.getP95Micros());
+        assertEquals(10240, snapshot.getP99Micros());
+        assertEquals(100000, snapshot.getMaxMicros());
+
+        histogram.reset();
+        assertEquals(0, histogram.snapshot().getCount());
+        assertEquals(0, histogram.snapshot().getP50Micros());
+    }
+
+    @Test
+    public void histogram_bucketsAreAtMostAQuarterTooHigh() {
+        for(long micros = 1; micros < 1L << 32; micros += micros / 7 + 1) {
+            RequestMetrics.LatencyHistogram histogram = new RequestMetrics.LatencyHistogram();
+            histogram.record(micros);
+            // Keeps the maximum from cutting off the upper bound of the bucket of micros.
+            histogram.record(Long.MAX_VALUE);
+
+            long p50 = histogram.snapshot().getP50Micros();
+            assertTrue(micros + " us reported as " + p50 + " us", p50 >= micros && p50 <= micros + micros / 4);
+        }
+    }
+
+    @Test
+    public void histogram_countsZeroAsOneMicrosecond() {
+        RequestMetrics.LatencyHistogram histogram = new RequestMetrics.LatencyHistogram();
+        histogram.record(0);
+
+        assertEquals(1, histogram.snapshot().getCount());
+        assertEquals(1, histogram.snapshot().getMaxMicros());
+    }
+
+
+    @Test
+    public void timingListener_attributesThePhasesToTheRequestType() {
+        RequestMetrics requestMetrics = new RequestMetrics();
+        Call call = call(CommunicationManager.RequestTypes.fetchProduct);
+        EventListener listener = new RequestTimingListener(requestMetrics, CommunicationManager.RequestTypes.fetchProduct, () -> now);
+
+        now = 0;
+        listener.callStart(call);
+        now = 1 * MILLIS;
+        listener.dnsStart(call, "localhost");
+        now = 3 * MILLIS;
+        listener.dnsEnd(call, "localhost", Collections.emptyList());
+        listener.connectStart(call, address, Proxy.NO_PROXY);
+        now = 8 * MILLIS;
+        listener.connectEnd(call, address, Proxy.NO_PROXY, Protocol.HTTP_1_1);
+        listener.requestHeadersStart(call);
+        now = 20 * MILLIS;
+        listener.responseHeadersStart(call);
+        now = 21 * MILLIS;
+        listener.responseHeadersEnd(call, null);
+        now = 25 * MILLIS;
+        listener.responseBodyEnd(call, 100);
+        now = 26 * MILLIS;
+        listener.callEnd(call);
+
+        assertPhase(requestMetrics, RequestMetrics.Phase.dns, 2000);
+        assertPhase(requestMetrics, RequestMetrics.Phase.connect, 5000);
+        assertPhase(requestMetrics, RequestMetrics.Phase.timeToFirstByte, 12000);
+        assertPhase(requestMetrics, RequestMetrics.Phase.download, 4000);
+        assertPhase(requestMetrics, RequestMetrics.Phase.call, 26000);
+        // The phases of the app are recorded by the CommunicationManager.
+        assertEquals(0, requestMetrics.getSnapshot(CommunicationManager.RequestTypes.fetchProduct, RequestMetrics.Phase.analyze).getCount());
+        assertEquals(0, requestMetrics.getSnapshot(CommunicationManager.RequestTypes.fetchProductList, RequestMetrics.Phase.call).getCount());
+    }
+
+    @Test
+    public void timingListener_recordsAFailedCall() {
+        RequestMetrics requestMetrics = new RequestMetrics();
+        Call call = call(CommunicationManager.RequestTypes.fetchProductList);
+        EventListener listener = new RequestTimingListener(requestMetrics, CommunicationManager.RequestTypes.fetchProductList, () -> now);
+
+        now = 5 * MILLIS;
+        listener.callStart(call);
+        now = 12 * MILLIS;
+        listener.callFailed(call, new IOException("Disconnected"));
+
+        RequestMetrics.Snapshot snapshot = requestMetrics.getSnapshot(CommunicationManager.RequestTypes.fetchProductList, RequestMetrics.Phase.call);
+        assertEquals(1, snapshot.getCount());
+        assertEquals(7000, snapshot.getMaxMicros());
+        assertEquals(0, requestMetrics.getSnapshot(CommunicationManager.RequestTypes.fetchProductList, RequestMetrics.Phase.timeToFirstByte).getCount());
+    }
+
+    @Test
+    public void factory_measuresOnlyTaggedCalls() {
+        RequestTimingListener.Factory factory = new RequestTimingListener.Factory(new RequestMetrics());
+
+        assertTrue(factory.create(call(CommunicationManager.RequestTypes.fetchProduct)) instanceof RequestTimingListener);
+        assertSame(EventListener.NONE, factory.create(call(null)));
+    }
+
+
+    private static void assertPhase(RequestMetrics requestMetrics, RequestMetrics.Phase phase, long micros) {
+        RequestMetrics.Snapshot snapshot = requestMetrics.getSnapshot(CommunicationManager.RequestTypes.fetchProduct, phase);
+        assertEquals(phase + " count", 1, snapshot.getCount());
+        assertEquals(phase + " duration", micros, snapshot.getMaxMicros());
+    }
+
+}
@@ -0,0 +1,119 @@
+package com.andreasmenzel.adds.Manager;
+
+import com.andreasmenzel.adds.DataClasses.Product;
+import com.andreasmenzel.adds.Events.Event;
+import com.andreasmenzel.adds.Events.FetchProductInfoFailed;
+import com.andreasmenzel.adds.Events.FetchProductInfoSucceeded;
+import com.andreasmenzel.adds.MyApplication;
+import com.andreasmenzel.adds.ResponseAnalyzer;
+import com.sun.management.ThreadMXBean;
+
+import org.greenrobot.eventbus.EventBus;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Checks what dispatching a response allocates on top of decoding and analyzing it and processing
+ * its payload: only the request and its result event, which carries the response analyzer of the
+ * request and therefore cannot be preallocated. The outcomes are resolved once per manager.
+ */
+public class ResponseDispatchTest {
+
+    private static final String SUCCEEDED = "{\"executed\":true,\"errors\":[],\"warnings\":[],\"payload\":{\"name\":\"Product\",\"description\":\"Description\"}}";
+    private static final String FAILED = "{\"executed\":false,\"errors\":[{\"err_id\":1,\"err_msg\":\"Unknown product.\"}],\"warnings\":[]}";
+    // The bytes a dispatch may allocate on top of decoding, analyzing and processing the response:
+    // the request, the result event, the wrapper of the body that is dispatched and the arguments
+    // of the reflective call of the subscriber (measured: 120 to 208 bytes).
+    private static final long MAX_DISPATCH_OVERHEAD_BYTES = 256;
+    private static final int RESPONSES = 2000;
+
+    private final EventBus bus = MyApplication.getEventBus();
+    // Receives the result events, so the bus does not post a NoSubscriberEvent for each.
+    private final ProductInfoSubscriber subscriber = new ProductInfoSubscriber(2);
+    private final ThreadMXBean threadMXBean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+
+    @Before
+    public void setUp() {
+        bus.register(subscriber);
+    }
+
+    @After
+    public void tearDown() {
+        bus.unregister(subscriber);
+    }
+
+
+    @Test
+    public void dispatch_postsTheOutcomeWithTheAnalyzerOfTheResponse() throws Exception {
+        CommunicationManager communicationManager = new CommunicationManager(CommunicationManager.RequestTypes.fetchProduct, "http://localhost/", 1);
+        Product product = new Product("1", "1");
+
+        Event succeeded = communicationManager.dispatchResponse(product, 200, SUCCEEDED.getBytes(StandardCharsets.UTF_8));
+        Event failed = communicationManager.dispatchResponse(product, 200, FAILED.getBytes(StandardCharsets.UTF_8));
+
+        assertTrue(succeeded instanceof FetchProductInfoSucceeded);
+        assertEquals("Product", product.getName());
+        assertTrue(failed instanceof FetchProductInfoFailed);
+        assertTrue(failed.getResponseAnalyzer().hasError(1));
+        assertEquals(2, subscriber.getEventCount());
+    }
+
+    @Test
+    public void dispatch_allocatesOnlyTheRequestAndTheEvent() throws Exception {
+        assumeAllocationCounting();
+        CommunicationManager communicationManager = new CommunicationManager(CommunicationManager.RequestTypes.fetchProduct, "http://localhost/", 1);
+
+        for(String response : new String[]{SUCCEEDED, FAILED}) {
+            byte[] body = response.getBytes(StandardCharsets.UTF_8);
+            Product product = new Product("1", "1");
+
+            // Warms up the code paths, so the measurement does not include class loading.
+            for(int i = 0; i < RESPONSES; ++i) {
+                analyzeAndProcess(communicationManager, product, body);
+                communicationManager.dispatchResponse(product, 200, body);
+            }
+
+            long start = allocatedBytes();
+            for(int i = 0; i < RESPONSES; ++i) {
+                analyzeAndProcess(communicationManager, product, body);
+            }
+            long baselineBytes = (allocatedBytes() - start) / RESPONSES;
+
+            start = allocatedBytes();
+            for(int i = 0; i < RESPONSES; ++i) {
+                communicationManager.dispatchResponse(product, 200, body);
+            }
+            long dispatchBytes = (allocatedBytes() - start) / RESPONSES;
+
+            assertTrue("Dispatch allocated " + (dispatchBytes - baselineBytes) + " bytes per response on top of analyzing and processing",
+                    dispatchBytes - baselineBytes <= MAX_DISPATCH_OVERHEAD_BYTES);
+        }
+    }
+
+
+    private static void analyzeAndProcess(CommunicationManager communicationManager, Product product, byte[] body) {
+        ResponseAnalyzer responseAnalyzer = new ResponseAnalyzer();
+        responseAnalyzer.analyze(new String(body, StandardCharsets.UTF_8));
+        if(responseAnalyzer.wasExecuted()) {
+            communicationManager.processPayload(responseAnalyzer, product, null, null);
+        }
+    }
+
+    private void assumeAllocationCounting() {
+        assumeTrue(threadMXBean.isThreadAllocatedMemorySupported());
+        threadMXBean.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    private long allocatedBytes() {
+        return threadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+}
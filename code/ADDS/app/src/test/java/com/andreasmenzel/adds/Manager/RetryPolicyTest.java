@@ -0,0 +1,53 @@
+package com.andreasmenzel.adds.Manager;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks which failed requests are sent again and how long a retry waits.
+ */
+public class RetryPolicyTest {
+
+    @Test
+    public void shouldRetry_untilMaxAttempts() {
+        RetryPolicy retryPolicy = new RetryPolicy(3, 100, 1000);
+
+        assertTrue(retryPolicy.shouldRetry(1));
+        assertTrue(retryPolicy.shouldRetry(2));
+        assertFalse(retryPolicy.shouldRetry(3));
+        assertFalse(RetryPolicy.NO_RETRY.shouldRetry(1));
+    }
+
+    @Test
+    public void getDelayMillis_growsUpToTheCap() {
+        RetryPolicy retryPolicy = new RetryPolicy(10, 100, 1000);
+
+        for(int i = 0; i < 1000; ++i) {
+            assertTrue(retryPolicy.getDelayMillis(1) < 100);
+            assertTrue(retryPolicy.getDelayMillis(3) < 400);
+            assertTrue(retryPolicy.getDelayMillis(60) < 1000);
+            assertTrue(retryPolicy.getDelayMillis(60) >= 0);
+        }
+    }
+
+    @Test
+    public void isRetryableStatus_onlyForTransientErrors() {
+        assertTrue(RetryPolicy.isRetryableStatus(500));
+        assertTrue(RetryPolicy.isRetryableStatus(503));
+        assertTrue(RetryPolicy.isRetryableStatus(408));
+        assertTrue(RetryPolicy.isRetryableStatus(429));
+        assertFalse(RetryPolicy.isRetryableStatus(200));
+        assertFalse(RetryPolicy.isRetryableStatus(400));
+        assertFalse(RetryPolicy.isRetryableStatus(404));
+    }
+
+    @Test
+    public void forRequestType_doesNotRepeatRequestsWithSideEffects() {
+        assertEquals(1, RetryPolicy.forRequestType(CommunicationManager.RequestTypes.registerAccount).getMaxAttempts());
+        assertEquals(1, RetryPolicy.forRequestType(CommunicationManager.RequestTypes.activateAccount).getMaxAttempts());
+        assertTrue(RetryPolicy.forRequestType(CommunicationManager.RequestTypes.fetchProduct).getMaxAttempts() > 1);
+        assertTrue(RetryPolicy.forRequestType(CommunicationManager.RequestTypes.fetchProductList).getMaxAttempts() > 1);
+    }
+
+}
@@ -0,0 +1,132 @@
+package com.andreasmenzel.adds.Manager;
+
+import android.app.Application;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.andreasmenzel.adds.Events.SessionLoaded;
+import com.andreasmenzel.adds.MyApplication;
+
+import org.greenrobot.eventbus.Subscribe;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Request;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that reading the session never waits for the stored session to be loaded, and that the
+ * deferred work runs once it was loaded. Runs with Robolectric (shared preferences); the plain
+ * Application keeps MyApplication from creating a session manager of its own.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(application = Application.class)
+public class SessionManagerTest {
+
+    private ScheduledExecutorService scheduler;
+    // Holds the thread of the manager back, so the stored session is not loaded yet.
+    private final CountDownLatch releaseLoading = new CountDownLatch(1);
+    private final SessionLoadedSubscriber subscriber = new SessionLoadedSubscriber();
+
+
+    /**
+     * Waits for the SessionLoaded event.
+     */
+    public static class SessionLoadedSubscriber {
+
+        final CountDownLatch sessionLoaded = new CountDownLatch(1);
+
+        @Subscribe
+        public void sessionLoaded(SessionLoaded event) {
+            sessionLoaded.countDown();
+        }
+
+    }
+
+
+    @Before
+    public void setUp() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        scheduler.execute(() -> {
+            try {
+                releaseLoading.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        MyApplication.getEventBus().register(subscriber);
+    }
+
+    @After
+    public void tearDown() {
+        releaseLoading.countDown();
+        MyApplication.getEventBus().unregister(subscriber);
+        scheduler.shutdownNow();
+    }
+
+
+    @Test
+    public void sessionBeingLoaded_isUnknownWithoutWaiting() throws Exception {
+        SessionManager sessionManager = new SessionManager(ApplicationProvider.getApplicationContext(), scheduler);
+
+        // Answered right away while the thread of the manager is busy.
+        assertFalse(sessionManager.isLoaded());
+        assertFalse(sessionManager.hasValidSession());
+        assertNull(sessionManager.getValidAuthenticationToken());
+        assertNull(sessionManager.authorize(new Request.Builder().url("http://localhost/")).build().header("Authorization"));
+
+        releaseLoading.countDown();
+        assertTrue(subscriber.sessionLoaded.await(5, TimeUnit.SECONDS));
+        assertTrue(sessionManager.isLoaded());
+    }
+
+    @Test
+    public void whenLoaded_runsAfterLoadingOrRightAway() throws Exception {
+        SessionManager sessionManager = new SessionManager(ApplicationProvider.getApplicationContext(), scheduler);
+        CountDownLatch deferred = new CountDownLatch(1);
+
+        sessionManager.whenLoaded(deferred::countDown);
+        assertEquals(1, deferred.getCount());
+
+        releaseLoading.countDown();
+        assertTrue(deferred.await(5, TimeUnit.SECONDS));
+
+        boolean[] ranRightAway = {false};
+        sessionManager.whenLoaded(() -> ranRightAway[0] = true);
+        assertTrue(ranRightAway[0]);
+    }
+
+    @Test
+    public void storedSession_authorizesRequests() throws Exception {
+        SessionManager sessionManager = new SessionManager(ApplicationProvider.getApplicationContext(), scheduler);
+        releaseLoading.countDown();
+
+        sessionManager.store("user@example.com", "hash", "token", System.currentTimeMillis() / 1000 + 3600);
+
+        assertTrue(sessionManager.hasValidSession());
+        assertEquals("user@example.com", sessionManager.getAccountEmail());
+        assertEquals("Bearer token", sessionManager.authorize(new Request.Builder().url("http://localhost/")).build().header("Authorization"));
+    }
+
+    @Test
+    public void expiredSession_isNotValid() {
+        SessionManager sessionManager = new SessionManager(ApplicationProvider.getApplicationContext(), scheduler);
+        releaseLoading.countDown();
+
+        sessionManager.store("user@example.com", "hash", "token", System.currentTimeMillis() / 1000 - 1);
+
+        assertFalse(sessionManager.hasValidSession());
+        assertNull(sessionManager.getValidAuthenticationToken());
+    }
+
+}
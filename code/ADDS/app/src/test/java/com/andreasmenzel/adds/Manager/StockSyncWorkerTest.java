@@ -0,0 +1,139 @@
+package com.andreasmenzel.adds.Manager;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.work.ListenableWorker;
+import androidx.work.testing.TestListenableWorkerBuilder;
+
+import com.andreasmenzel.adds.DataClasses.Product;
+import com.andreasmenzel.adds.MyApplication;
+import com.andreasmenzel.adds.TestApplication;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks how the background sync requests the stocks of the followed warehouses from a stub
+ * Booking System and stores them in the catalog. Runs with Robolectric (SQLite and the shared
+ * preferences) and the test WorkManager of work-testing (see TestApplication).
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(application = TestApplication.class)
+public class StockSyncWorkerTest {
+
+    private MockWebServer server;
+    private final AtomicInteger stocksRequests = new AtomicInteger();
+    // The status codes of the first stocks requests; the later ones succeed.
+    private int[] failedStocksResponseCodes = new int[0];
+
+    private Context context;
+    private StockSyncManager stockSyncManager;
+
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                if(request.getPath().startsWith("/api/stocks")) {
+                    int stocksRequest = stocksRequests.getAndIncrement();
+                    if(stocksRequest < failedStocksResponseCodes.length) {
+                        return new MockResponse().setResponseCode(failedStocksResponseCodes[stocksRequest]);
+                    }
+                    String warehouseID = request.getRequestUrl().queryParameter("warehouse_id");
+                    return envelope("{\"stocks\":["
+                            + "{\"product_id\":\"a\",\"warehouse_id\":\"" + warehouseID + "\",\"quantity\":1},"
+                            + "{\"product_id\":\"b\",\"warehouse_id\":\"" + warehouseID + "\",\"quantity\":2}]}");
+                }
+                return envelope("{\"products\":["
+                        + "{\"id\":\"a\",\"name\":\"Product a\",\"description\":\"Description a\"},"
+                        + "{\"id\":\"b\",\"name\":\"Product b\",\"description\":\"Description b\"}]}");
+            }
+        });
+        server.start();
+
+        CommunicationManager.setBackendUrls(null, server.url("/").toString());
+        CircuitBreaker.forSystem(CommunicationManager.Systems.bookingSystem).reset();
+
+        context = ApplicationProvider.getApplicationContext();
+        stockSyncManager = MyApplication.getStockSyncManager();
+        stockSyncManager.followWarehouse("1");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        CommunicationManager.setBackendUrls(null, null);
+        CircuitBreaker.forSystem(CommunicationManager.Systems.bookingSystem).reset();
+        server.shutdown();
+    }
+
+
+    @Test
+    public void followedWarehouse_isStoredInTheCatalog() {
+        assertEquals(ListenableWorker.Result.success(), doWork());
+
+        List<Product> products = MyApplication.getCatalogManager().loadWarehouse("1");
+        assertEquals(2, products.size());
+        assertEquals("a", products.get(0).getId());
+        assertEquals(1, products.get(0).getQuantity());
+        // The information of the new products was fetched with the stocks.
+        assertEquals("Product a", products.get(0).getName());
+        assertEquals("Product b", products.get(1).getName());
+        assertTrue(stockSyncManager.isFresh("1"));
+    }
+
+    @Test
+    public void serverError_isSentAgain() {
+        failedStocksResponseCodes = new int[]{503};
+
+        assertEquals(ListenableWorker.Result.success(), doWork());
+        assertEquals(2, stocksRequests.get());
+        assertEquals(2, MyApplication.getCatalogManager().loadWarehouse("1").size());
+    }
+
+    @Test
+    public void failedSync_isRetriedLater() {
+        failedStocksResponseCodes = new int[]{404};
+
+        assertEquals(ListenableWorker.Result.retry(), doWork());
+        // A client error is not sent again by the worker.
+        assertEquals(1, stocksRequests.get());
+        assertTrue(MyApplication.getCatalogManager().loadWarehouse("1").isEmpty());
+        assertFalse(stockSyncManager.isFresh("1"));
+    }
+
+    @Test
+    public void freshWarehouse_isNotRequested() {
+        stockSyncManager.onWarehouseSynced("1");
+
+        assertEquals(ListenableWorker.Result.success(), doWork());
+        assertEquals(0, stocksRequests.get());
+    }
+
+
+    private ListenableWorker.Result doWork() {
+        StockSyncWorker worker = TestListenableWorkerBuilder.from(context, StockSyncWorker.class).build();
+        return worker.doWork();
+    }
+
+    private static MockResponse envelope(String payload) {
+        return new MockResponse().setBody("{\"executed\":true,\"errors\":[],\"warnings\":[],\"payload\":" + payload + "}");
+    }
+
+}
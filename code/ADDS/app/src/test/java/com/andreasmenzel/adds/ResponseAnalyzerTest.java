@@ -0,0 +1,58 @@
+package com.andreasmenzel.adds;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks how responses of the User Management System and the Booking System are analyzed and how
+ * their errors are joined for the UI.
+ */
+public class ResponseAnalyzerTest {
+
+    @Test
+    public void analyze_readsTheEnvelope() {
+        ResponseAnalyzer responseAnalyzer = new ResponseAnalyzer();
+        responseAnalyzer.analyze("{\"executed\":true,\"errors\":[],"
+                + "\"warnings\":[{\"warn_id\":3,\"warn_msg\":\"Stocks may be outdated.\"}],"
+                + "\"payload\":{\"name\":\"Product\"}}");
+
+        assertTrue(responseAnalyzer.wasExecuted());
+        assertFalse(responseAnalyzer.hasErrors());
+        assertTrue(responseAnalyzer.hasWarning(3));
+        assertEquals("Product", responseAnalyzer.getPayload().getString("name"));
+    }
+
+    @Test
+    public void analyze_rejectsInvalidResponses() {
+        for(String response : new String[]{"", "<html></html>", "{\"executed\":true}"}) {
+            ResponseAnalyzer responseAnalyzer = new ResponseAnalyzer();
+            responseAnalyzer.analyze(response);
+
+            assertFalse(response, responseAnalyzer.wasExecuted());
+            assertTrue(response, responseAnalyzer.hasError(-1));
+        }
+    }
+
+    @Test
+    public void getErrorsString_joinsTheErrorsAndIsRebuiltAfterANewError() {
+        ResponseAnalyzer responseAnalyzer = new ResponseAnalyzer();
+        assertNull(responseAnalyzer.getErrorsString());
+
+        responseAnalyzer.analyze("{\"executed\":false,\"errors\":["
+                + "{\"err_id\":1,\"err_msg\":\"Unknown email.\"},"
+                + "{\"err_id\":2,\"err_msg\":\"Wrong password.\"}],\"warnings\":[]}");
+        String errors = responseAnalyzer.getErrorsString();
+
+        assertTrue(errors.contains("Unknown email."));
+        assertTrue(errors.indexOf("Unknown email.") < errors.indexOf("Wrong password."));
+        assertTrue(errors.contains("\n\n"));
+        // Reused until the errors change.
+        assertSame(errors, responseAnalyzer.getErrorsString());
+
+        responseAnalyzer.addError(3, "Account locked.");
+        assertTrue(responseAnalyzer.getErrorsString().contains("Account locked."));
+        assertEquals(3, responseAnalyzer.getErrors().size());
+    }
+
+}
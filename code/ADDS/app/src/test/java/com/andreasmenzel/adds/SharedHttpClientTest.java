@@ -0,0 +1,66 @@
+package com.andreasmenzel.adds;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the requests of the app share one http client and reuse its connections.
+ */
+public class SharedHttpClientTest {
+
+    private MockWebServer server;
+
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+
+    @Test
+    public void httpClient_isShared() {
+        assertSame(MyApplication.getHttpClient(), MyApplication.getHttpClient());
+    }
+
+    @Test
+    public void sequentialRequests_reuseOneConnection() throws Exception {
+        int requests = 10;
+        for(int i = 0; i < requests; ++i) {
+            server.enqueue(new MockResponse().setBody("ok " + i));
+        }
+
+        OkHttpClient httpClient = MyApplication.getHttpClient();
+        // Connections of other tests.
+        httpClient.connectionPool().evictAll();
+        for(int i = 0; i < requests; ++i) {
+            Request request = new Request.Builder().url(server.url("/api/product_info?id=" + i)).build();
+            try(Response response = httpClient.newCall(request).execute()) {
+                assertEquals("ok " + i, response.body().string());
+            }
+        }
+
+        // The sequence number is the index of the request on its connection.
+        for(int i = 0; i < requests; ++i) {
+            assertEquals(i, server.takeRequest(1, TimeUnit.SECONDS).getSequenceNumber());
+        }
+        assertEquals(1, httpClient.connectionPool().connectionCount());
+    }
+
+}
@@ -0,0 +1,96 @@
+package com.andreasmenzel.adds;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the stocks decoder reads what ResponseAnalyzer.analyze() reads. Runs with
+ * Robolectric, because android.util.JsonReader is only a stub in android.jar.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class StocksResponseDecoderTest {
+
+    /**
+     * Collects the decoded stock entries as "productId/warehouseId/quantity".
+     */
+    private static class CollectingListener implements StocksResponseDecoder.StockListener {
+
+        final List<String> stocks = new ArrayList<>();
+        final List<String> nextCursors = new ArrayList<>();
+
+        @Override
+        public void onStock(String productId, String warehouseId, int quantity) {
+            stocks.add(productId + "/" + warehouseId + "/" + quantity);
+        }
+
+        @Override
+        public void onNextCursor(String nextCursor) {
+            nextCursors.add(nextCursor);
+        }
+
+    }
+
+
+    @Test
+    public void decode_passesTheStocksInOrder() {
+        ResponseAnalyzer responseAnalyzer = new ResponseAnalyzer();
+        CollectingListener listener = new CollectingListener();
+
+        assertTrue(StocksResponseDecoder.decode(new StringReader("{\"executed\":true,\"errors\":[],\"warnings\":[],\"payload\":{\"stocks\":["
+                + "{\"product_id\":\"a\",\"warehouse_id\":\"1\",\"quantity\":3},"
+                + "{\"product_id\":\"b\",\"warehouse_id\":\"1\",\"unknown\":[1,2]}]}}"), responseAnalyzer, listener));
+
+        assertTrue(responseAnalyzer.wasExecuted());
+        assertFalse(responseAnalyzer.hasErrors());
+        assertEquals(Arrays.asList("a/1/3", "b/1/-1"), listener.stocks);
+        assertTrue(listener.nextCursors.isEmpty());
+    }
+
+    @Test
+    public void decode_passesTheCursorOfAPage() {
+        CollectingListener listener = new CollectingListener();
+        StocksResponseDecoder.decode(new StringReader("{\"executed\":true,\"errors\":[],\"warnings\":[],\"payload\":{\"stocks\":[],\"next_cursor\":\"50\"}}"), new ResponseAnalyzer(), listener);
+        StocksResponseDecoder.decode(new StringReader("{\"executed\":true,\"errors\":[],\"warnings\":[],\"payload\":{\"stocks\":[],\"next_cursor\":null}}"), new ResponseAnalyzer(), listener);
+
+        assertEquals(Arrays.asList("50", null), listener.nextCursors);
+    }
+
+    @Test
+    public void decode_storesErrorsAndWarnings() {
+        ResponseAnalyzer responseAnalyzer = new ResponseAnalyzer();
+
+        assertFalse(StocksResponseDecoder.decode(new StringReader("{\"executed\":false,"
+                + "\"errors\":[{\"err_id\":7,\"err_msg\":\"Unknown warehouse.\"}],"
+                + "\"warnings\":[{\"warn_id\":2,\"warn_msg\":\"Stocks may be outdated.\"}],\"payload\":null}"), responseAnalyzer, new CollectingListener()));
+
+        assertFalse(responseAnalyzer.wasExecuted());
+        assertTrue(responseAnalyzer.hasError(7));
+        assertTrue(responseAnalyzer.hasWarning(2));
+    }
+
+    @Test
+    public void decode_rejectsInvalidResponses() {
+        String[] responses = {
+                "",
+                "{\"executed\":true,\"errors\":[],\"warnings\":[],\"payload\":{\"stocks\":[",
+                "{\"executed\":true,\"payload\":{\"stocks\":[]}}",
+                "{\"executed\":true,\"errors\":[],\"warnings\":[],\"payload\":{\"stocks\":[{\"product_id\":\"a\",\"warehouse_id\":\"1\",\"quantity\":\"many\"}]}}"
+        };
+
+        for(String response : responses) {
+            ResponseAnalyzer responseAnalyzer = new ResponseAnalyzer();
+            assertFalse(response, StocksResponseDecoder.decode(new StringReader(response), responseAnalyzer, new CollectingListener()));
+            assertFalse(response, responseAnalyzer.wasExecuted());
+            assertTrue(response, responseAnalyzer.hasErrors());
+        }
+    }
+
+}
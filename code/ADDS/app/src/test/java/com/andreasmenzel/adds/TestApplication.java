@@ -0,0 +1,21 @@
+package com.andreasmenzel.adds;
+
+import androidx.work.Configuration;
+import androidx.work.testing.SynchronousExecutor;
+import androidx.work.testing.WorkManagerTestInitHelper;
+
+/**
+ * The app with the test WorkManager of work-testing, for Robolectric tests that need the managers
+ * of MyApplication. Scheduling the periodic stock sync does not need the WorkManager of a device.
+ */
+public class TestApplication extends MyApplication {
+
+    @Override
+    public void onCreate() {
+        WorkManagerTestInitHelper.initializeTestWorkManager(this, new Configuration.Builder()
+                .setExecutor(new SynchronousExecutor())
+                .build());
+        super.onCreate();
+    }
+
+}
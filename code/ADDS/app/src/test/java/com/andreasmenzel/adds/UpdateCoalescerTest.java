@@ -0,0 +1,67 @@
+package com.andreasmenzel.adds;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that a burst of update requests costs one update per frame.
+ */
+public class UpdateCoalescerTest {
+
+    // The runnables waiting for the next frame.
+    private final List<Runnable> nextFrame = new ArrayList<>();
+
+
+    /**
+     * Runs the runnables that wait for the next frame.
+     */
+    private void frame() {
+        List<Runnable> runnables = new ArrayList<>(nextFrame);
+        nextFrame.clear();
+        for(Runnable runnable : runnables) {
+            runnable.run();
+        }
+    }
+
+
+    @Test
+    public void burstOfRequests_isOneUpdatePerFrame() {
+        AtomicInteger updates = new AtomicInteger();
+        UpdateCoalescer uiUpdate = new UpdateCoalescer(updates::incrementAndGet, nextFrame::add);
+
+        // E.g. the product information of 500 rows arriving within one frame.
+        for(int i = 0; i < 500; ++i) {
+            uiUpdate.request();
+        }
+        assertEquals(0, updates.get());
+
+        frame();
+        assertEquals(1, updates.get());
+
+        frame();
+        assertEquals(1, updates.get());
+    }
+
+    @Test
+    public void requestDuringTheUpdate_isShownOnTheNextFrame() {
+        AtomicInteger updates = new AtomicInteger();
+        UpdateCoalescer[] uiUpdate = new UpdateCoalescer[1];
+        uiUpdate[0] = new UpdateCoalescer(() -> {
+            // Another event arrives while the snapshot is taken.
+            if(updates.incrementAndGet() == 1) uiUpdate[0].request();
+        }, nextFrame::add);
+
+        uiUpdate[0].request();
+        frame();
+        assertEquals(1, updates.get());
+
+        frame();
+        assertEquals(2, updates.get());
+    }
+
+}
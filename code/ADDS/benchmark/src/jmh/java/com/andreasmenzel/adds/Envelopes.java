@@ -0,0 +1,177 @@
+package com.andreasmenzel.adds;
+
+import com.andreasmenzel.adds.DataClasses.Product;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Generates responses in the format of the User Management System and the Booking System
+ * ({"executed": ..., "errors": [...], "warnings": [...], "payload": {...}}).
+ */
+public class Envelopes {
+
+    /**
+     * The sizes of the generated responses.
+     */
+    public enum Size {
+        small(10, 0, 100),
+        realistic(500, 3, 1000),
+        extreme(50000, 1000, 100000);
+
+        private final int stocks;
+        private final int messages;
+        private final int descriptionLength;
+
+        Size(int stocks, int messages, int descriptionLength) {
+            this.stocks = stocks;
+            this.messages = messages;
+            this.descriptionLength = descriptionLength;
+        }
+
+        /**
+         * Returns the number of stock entries of a product list response.
+         *
+         * @return stocks.
+         */
+        public int getStocks() {
+            return stocks;
+        }
+
+        /**
+         * Returns the number of errors and the number of warnings of a response.
+         *
+         * @return messages.
+         */
+        public int getMessages() {
+            return messages;
+        }
+
+        /**
+         * Returns the length of the description of a product info response.
+         *
+         * @return descriptionLength.
+         */
+        public int getDescriptionLength() {
+            return descriptionLength;
+        }
+    }
+
+
+    private Envelopes() {
+
+    }
+
+
+    /**
+     * Returns a response with the given number of errors and warnings and the payload.
+     *
+     * @param executed Whether the request was executed.
+     * @param messages The number of errors and the number of warnings.
+     * @param payload The payload (a JSON object).
+     * @return The response.
+     */
+    public static String envelope(boolean executed, int messages, String payload) {
+        StringBuilder response = new StringBuilder(payload.length() + messages * 80 + 64);
+        response.append("{\"executed\":").append(executed);
+
+        response.append(",\"errors\":[");
+        for(int i = 0; i < messages; ++i) {
+            if(i > 0) response.append(',');
+            response.append("{\"err_id\":").append(i).append(",\"err_msg\":\"Error number ").append(i).append(" of the request\"}");
+        }
+        response.append("],\"warnings\":[");
+        for(int i = 0; i < messages; ++i) {
+            if(i > 0) response.append(',');
+            response.append("{\"warn_id\":").append(i).append(",\"warn_msg\":\"Warning number ").append(i).append(" of the request\"}");
+        }
+        response.append("],\"payload\":").append(payload).append('}');
+
+        return response.toString();
+    }
+
+    /**
+     * Returns the payload of a response to api/stocks.
+     *
+     * @param size The size of the response.
+     * @param warehouseId The id of the warehouse.
+     * @return The payload.
+     */
+    public static String stocksPayload(Size size, String warehouseId) {
+        return stocksPayload(size.getStocks(), warehouseId);
+    }
+
+    /**
+     * Returns the payload of a response to api/stocks with the given number of stock entries.
+     *
+     * @param stocks The number of stock entries.
+     * @param warehouseId The id of the warehouse.
+     * @return The payload.
+     */
+    public static String stocksPayload(int stocks, String warehouseId) {
+        StringBuilder payload = new StringBuilder(stocks * 64 + 16);
+        payload.append("{\"stocks\":[");
+        for(int i = 0; i < stocks; ++i) {
+            if(i > 0) payload.append(',');
+            payload.append("{\"product_id\":\"").append(productId(i))
+                    .append("\",\"warehouse_id\":\"").append(warehouseId)
+                    .append("\",\"quantity\":").append(i % 100).append('}');
+        }
+        payload.append("]}");
+
+        return payload.toString();
+    }
+
+    /**
+     * Returns the payload of a response to api/product_info.
+     *
+     * @param size The size of the response.
+     * @param productId The id of the product.
+     * @return The payload.
+     */
+    public static String productInfoPayload(Size size, String productId) {
+        StringBuilder description = new StringBuilder(size.getDescriptionLength());
+        while(description.length() < size.getDescriptionLength()) {
+            description.append("Lorem ipsum dolor sit amet. ");
+        }
+        description.setLength(size.getDescriptionLength());
+
+        return "{\"name\":\"Product " + productId + "\",\"description\":\"" + description + "\"}";
+    }
+
+    /**
+     * Returns the payload of a response to authentication/authenticate.
+     *
+     * @return The payload.
+     */
+    public static String authenticationPayload() {
+        return "{\"auth_token\":\"0123456789abcdef0123456789abcdef\",\"exp\":" + (System.currentTimeMillis() / 1000 + 3600) + "}";
+    }
+
+    /**
+     * Returns the products of decoded stocks, with their information, as the stocks decoder would
+     * create them (without decoding a response).
+     *
+     * @param size The size of the response.
+     * @param warehouseId The id of the warehouse.
+     * @param quantityOffset Added to the quantities, so consecutive stocks differ.
+     * @return The products.
+     */
+    public static List<Product> stocks(Size size, String warehouseId, int quantityOffset) {
+        List<Product> products = new ArrayList<>(size.getStocks());
+        for(int i = 0; i < size.getStocks(); ++i) {
+            Product product = new Product(productId(i), warehouseId);
+            product.setName("Product " + productId(i));
+            product.setDescription("Description of product " + productId(i));
+            product.setQuantity(i % 100 + quantityOffset);
+            products.add(product);
+        }
+
+        return products;
+    }
+
+    private static String productId(int i) {
+        return "product-" + i;
+    }
+
+}
@@ -0,0 +1,117 @@
+package com.andreasmenzel.adds;
+
+import com.andreasmenzel.adds.Events.FetchProductListFailed;
+import com.andreasmenzel.adds.Events.FetchProductListSucceeded;
+import com.andreasmenzel.adds.Events.FetchProductListSucceededPartially;
+import com.andreasmenzel.adds.Events.ProductListChanged;
+import com.andreasmenzel.adds.Events.ToastMessage;
+import com.andreasmenzel.adds.Events.UpdateProductInfoUI;
+
+import org.greenrobot.eventbus.EventBus;
+import org.greenrobot.eventbus.EventBusBuilder;
+import org.greenrobot.eventbus.Subscribe;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures what an activity does with the event bus while it is shown: register in onResume(),
+ * receive an event and unregister in onPause(), with and without the subscriber index that is
+ * generated at compile time (BenchmarkEventBusIndex, see compileJmhJava in build.gradle).
+ * Without the index, the @Subscribe methods are looked up by reflection. EventBus caches the
+ * lookup per class, so firstRegisterPostUnregister clears the caches before every operation, as
+ * for the first activity of its class after the app was started.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EventBusBenchmark {
+
+    @Param({"true", "false"})
+    public boolean index;
+
+    private EventBus bus;
+
+    private final FetchProductListSucceeded event = new FetchProductListSucceeded(new ResponseAnalyzer());
+
+
+    @Setup
+    public void setUp() {
+        EventBusBuilder builder = EventBus.builder()
+                .logNoSubscriberMessages(false)
+                .sendNoSubscriberEvent(false);
+        if(index) {
+            builder.addIndex(new BenchmarkEventBusIndex());
+        } else {
+            builder.ignoreGeneratedIndex(true);
+        }
+        bus = builder.build();
+    }
+
+
+    @Benchmark
+    public int registerPostUnregister() {
+        return registerPostUnregister(new ProductListSubscriber());
+    }
+
+    @Benchmark
+    public int firstRegisterPostUnregister() {
+        EventBus.clearCaches();
+        return registerPostUnregister(new ProductListSubscriber());
+    }
+
+    private int registerPostUnregister(ProductListSubscriber subscriber) {
+        bus.register(subscriber);
+        bus.post(event);
+        bus.unregister(subscriber);
+        return subscriber.eventsReceived;
+    }
+
+
+    /**
+     * Subscribes to the same events as the ProductListActivity.
+     */
+    public static class ProductListSubscriber {
+
+        int eventsReceived = 0;
+
+        @Subscribe
+        public void fetchProductListSucceeded(FetchProductListSucceeded event) {
+            ++eventsReceived;
+        }
+
+        @Subscribe
+        public void fetchProductListSucceededPartially(FetchProductListSucceededPartially event) {
+            ++eventsReceived;
+        }
+
+        @Subscribe
+        public void fetchProductListFailed(FetchProductListFailed event) {
+            ++eventsReceived;
+        }
+
+        @Subscribe
+        public void productListChanged(ProductListChanged event) {
+            ++eventsReceived;
+        }
+
+        @Subscribe
+        public void updateProductInfoUI(UpdateProductInfoUI event) {
+            ++eventsReceived;
+        }
+
+        @Subscribe
+        public void showToast(ToastMessage toastMessage) {
+            ++eventsReceived;
+        }
+
+    }
+
+}
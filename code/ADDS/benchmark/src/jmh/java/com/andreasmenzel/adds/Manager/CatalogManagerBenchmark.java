@@ -0,0 +1,108 @@
+package com.andreasmenzel.adds.Manager;
+
+import com.andreasmenzel.adds.DataClasses.Product;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures reading the catalog of a warehouse with 1k and 10k products, as a warm start does
+ * (CatalogManager.loadWarehouse()). A warm start may spend READ_BUDGET_10K_MILLIS on 10k products.
+ * SQLiteDatabase needs the Android framework, so the schema and the query of the catalog run on
+ * SQLite through JDBC and the rows are turned into products the same way.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CatalogManagerBenchmark {
+
+    // The time a warm start may spend on reading the catalog of a warehouse with 10k products.
+    public static final long READ_BUDGET_10K_MILLIS = 500;
+
+    private static final String WAREHOUSE_ID = "1";
+
+    @Param({"1000", "10000"})
+    public int products;
+
+    private Connection connection;
+    private PreparedStatement queryWarehouseProducts;
+
+
+    @Setup
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        try(Statement statement = connection.createStatement()) {
+            for(String createStatement : CatalogManager.CREATE_SCHEMA) {
+                statement.execute(createStatement);
+            }
+        }
+
+        connection.setAutoCommit(false);
+        try(PreparedStatement insertStock = connection.prepareStatement("INSERT INTO stocks (warehouse_id, product_id, quantity, position) VALUES (?, ?, ?, ?)");
+            PreparedStatement insertProduct = connection.prepareStatement("INSERT INTO products (product_id, name, description) VALUES (?, ?, ?)")) {
+            for(int i = 0; i < products; ++i) {
+                insertStock.setString(1, WAREHOUSE_ID);
+                insertStock.setString(2, "product-" + i);
+                insertStock.setInt(3, i % 100);
+                insertStock.setInt(4, i);
+                insertStock.addBatch();
+
+                // Half of the products have their information stored already.
+                if(i % 2 == 0) {
+                    insertProduct.setString(1, "product-" + i);
+                    insertProduct.setString(2, "Product " + i);
+                    insertProduct.setString(3, "Description of product " + i);
+                    insertProduct.addBatch();
+                }
+            }
+            insertStock.executeBatch();
+            insertProduct.executeBatch();
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+
+        queryWarehouseProducts = connection.prepareStatement(CatalogManager.QUERY_WAREHOUSE_PRODUCTS + " LIMIT -1");
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        queryWarehouseProducts.close();
+        connection.close();
+    }
+
+
+    @Benchmark
+    public List<Product> loadWarehouse() throws SQLException {
+        queryWarehouseProducts.setString(1, WAREHOUSE_ID);
+        try(ResultSet resultSet = queryWarehouseProducts.executeQuery()) {
+            List<Product> loadedProducts = new ArrayList<>(products);
+            while(resultSet.next()) {
+                Product product = new Product(resultSet.getString(1), WAREHOUSE_ID);
+                product.setQuantity(resultSet.getInt(2));
+                product.setName(resultSet.getString(3));
+                product.setDescription(resultSet.getString(4));
+                loadedProducts.add(product);
+            }
+
+            return loadedProducts;
+        }
+    }
+
+}
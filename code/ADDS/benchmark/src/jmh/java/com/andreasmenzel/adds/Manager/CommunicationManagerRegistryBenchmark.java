@@ -0,0 +1,119 @@
+package com.andreasmenzel.adds.Manager;
+
+import com.andreasmenzel.adds.DataClasses.Product;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the managers a product list needs with one manager per product (as before the
+ * registry) and with the manager shared through the CommunicationManagerRegistry, for lists of
+ * 1k and 10k products. Reports the time per list and the allocated bytes per list (gc profiler).
+ * The number of managers and the heap retained by a list with its managers are measured once per
+ * trial and printed ("managers: ..., retained heap: ..." in the output of the fork).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CommunicationManagerRegistryBenchmark {
+
+    private static final String BACKEND_URL = "http://localhost/";
+
+    public enum Managers {
+        perProduct,
+        registry
+    }
+
+    @Param({"1000", "10000"})
+    public int products;
+
+    @Param({"perProduct", "registry"})
+    public Managers managers;
+
+    private CommunicationManagerRegistry communicationManagerRegistry;
+
+
+    @Setup
+    public void setUp() {
+        communicationManagerRegistry = new CommunicationManagerRegistry();
+        // Warms up the classes (and the shared manager of the registry) before measuring.
+        productsWithManagers();
+
+        long usedBefore = usedHeap();
+        ProductsWithManagers productsWithManagers = productsWithManagers();
+        long usedAfter = usedHeap();
+
+        Map<CommunicationManager, Boolean> distinctManagers = new IdentityHashMap<>();
+        for(CommunicationManager communicationManager : productsWithManagers.managers) {
+            distinctManagers.put(communicationManager, true);
+        }
+        System.out.println("managers: " + distinctManagers.size() + ", retained heap: " + (usedAfter - usedBefore) / 1024 + " KiB"
+                + " (" + productsWithManagers.products.size() + " products)");
+    }
+
+
+    @Benchmark
+    public ProductsWithManagers productsWithManagers() {
+        ProductsWithManagers productsWithManagers = new ProductsWithManagers(products);
+
+        for(int i = 0; i < products; ++i) {
+            Product product = new Product("product-" + i, "warehouse-1");
+            productsWithManagers.products.add(product);
+            productsWithManagers.managers.add(manager());
+        }
+
+        return productsWithManagers;
+    }
+
+
+    /**
+     * Returns the used heap after collecting the garbage.
+     */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for(int i = 0; i < 3; ++i) {
+            System.gc();
+        }
+
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Returns the manager of a product: a new one (before the registry) or the shared one.
+     */
+    private CommunicationManager manager() {
+        if(managers == Managers.perProduct) {
+            return new CommunicationManager(CommunicationManager.RequestTypes.fetchProduct, BACKEND_URL,
+                    CommunicationManager.getDefaultMaxRequestsInProgress(CommunicationManager.RequestTypes.fetchProduct));
+        }
+
+        return communicationManagerRegistry.get(CommunicationManager.RequestTypes.fetchProduct, BACKEND_URL);
+    }
+
+
+    /**
+     * A product list with the manager every product uses.
+     */
+    public static class ProductsWithManagers {
+        final List<Product> products;
+        final List<CommunicationManager> managers;
+
+        ProductsWithManagers(int size) {
+            products = new ArrayList<>(size);
+            managers = new ArrayList<>(size);
+        }
+    }
+
+}
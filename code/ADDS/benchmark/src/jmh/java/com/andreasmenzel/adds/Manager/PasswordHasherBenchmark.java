@@ -0,0 +1,48 @@
+package com.andreasmenzel.adds.Manager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the password hashes per second of PasswordHasher for different cost parameters: the
+ * number of iterations of the current cost version and higher ones a later version could use.
+ * The time per hash is the delay of a registration or login before the request is sent, and the
+ * hashes per second bound how fast an attacker can guess passwords with the same hardware.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PasswordHasherBenchmark {
+
+    @Param({"current", "200000", "400000", "600000"})
+    public String iterations;
+
+    private int iterationCount;
+    private byte[] salt;
+
+
+    @Setup
+    public void setUp() {
+        String pwd_salt = "v" + PasswordHasher.CURRENT_COST_VERSION + ":0123456789abcdef0123456789abcdef";
+
+        iterationCount = iterations.equals("current") ? PasswordHasher.getIterations(pwd_salt) : Integer.parseInt(iterations);
+        salt = pwd_salt.getBytes(StandardCharsets.UTF_8);
+    }
+
+
+    @Benchmark
+    public byte[] hash() throws GeneralSecurityException {
+        return PasswordHasher.pbkdf2("correct horse battery staple", salt, iterationCount, PasswordHasher.KEY_LENGTH_BYTES);
+    }
+
+}
@@ -0,0 +1,93 @@
+package com.andreasmenzel.adds.Manager;
+
+import com.andreasmenzel.adds.DataClasses.Product;
+import com.andreasmenzel.adds.DataClasses.ProductList;
+import com.andreasmenzel.adds.Envelopes;
+import com.andreasmenzel.adds.ResponseAnalyzer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the payload processors of the CommunicationManager (authentication, product info,
+ * product list) on analyzed responses. Nothing is sent: the backend URL is never called and the
+ * stocks contain the product information, so no product information is fetched.
+ * Without the application, there is no session and no catalog to store the results in.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PayloadProcessingBenchmark {
+
+    private static final String BACKEND_URL = "http://localhost/";
+    private static final String WAREHOUSE_ID = "warehouse-1";
+
+    @Param({"small", "realistic", "extreme"})
+    public Envelopes.Size size;
+
+    private CommunicationManager authenticationManager;
+    private CommunicationManager productManager;
+    private CommunicationManager productListManager;
+
+    private String authenticationResponse;
+    private String productInfoResponse;
+    private Product product;
+
+    private ProductList productList;
+    // Two stocks with the same products but different quantities, processed alternately, so
+    // every reconciliation changes all quantities.
+    private List<Product> stocks;
+    private List<Product> changedStocks;
+    private boolean processChangedStocks;
+
+
+    @Setup
+    public void setUp() {
+        authenticationManager = new CommunicationManager(CommunicationManager.RequestTypes.authenticateAccount, BACKEND_URL, 1);
+        productManager = new CommunicationManager(CommunicationManager.RequestTypes.fetchProduct, BACKEND_URL, 1);
+        productListManager = new CommunicationManager(CommunicationManager.RequestTypes.fetchProductList, BACKEND_URL, 1);
+
+        authenticationResponse = Envelopes.envelope(true, size.getMessages(), Envelopes.authenticationPayload());
+        productInfoResponse = Envelopes.envelope(true, size.getMessages(), Envelopes.productInfoPayload(size, "product-1"));
+        product = new Product("product-1", WAREHOUSE_ID);
+
+        productList = new ProductList(WAREHOUSE_ID);
+        stocks = Envelopes.stocks(size, WAREHOUSE_ID, 0);
+        changedStocks = Envelopes.stocks(size, WAREHOUSE_ID, 1);
+        productList.reconcile(stocks);
+    }
+
+
+    @Benchmark
+    public boolean authentication() {
+        ResponseAnalyzer responseAnalyzer = new ResponseAnalyzer();
+        responseAnalyzer.analyze(authenticationResponse);
+        return authenticationManager.processPayload(responseAnalyzer, null, null, null);
+    }
+
+    @Benchmark
+    public boolean productInfo() {
+        ResponseAnalyzer responseAnalyzer = new ResponseAnalyzer();
+        responseAnalyzer.analyze(productInfoResponse);
+        return productManager.processPayload(responseAnalyzer, product, null, null);
+    }
+
+    /**
+     * Reconciles the product list with the stocks (the stocks are already decoded).
+     */
+    @Benchmark
+    public boolean productList() {
+        processChangedStocks = !processChangedStocks;
+        return productListManager.processPayload(new ResponseAnalyzer(), null, productList, processChangedStocks ? changedStocks : stocks);
+    }
+
+}
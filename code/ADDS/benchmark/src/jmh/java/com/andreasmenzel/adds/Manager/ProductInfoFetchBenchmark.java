@@ -0,0 +1,100 @@
+package com.andreasmenzel.adds.Manager;
+
+import com.andreasmenzel.adds.DataClasses.Product;
+import com.andreasmenzel.adds.MyApplication;
+import com.andreasmenzel.adds.stubbackend.StubBackend;
+import com.andreasmenzel.adds.stubbackend.StubBackendSettings;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the wall-clock time to fetch the information of 10, 100 and 1000 products from the stub
+ * backend with the ProductInfoBatchFetcher: in chunks (batch endpoint) and, for a backend without
+ * the batch endpoint, one by one with bounded parallelism. Every product info request takes
+ * LATENCY_MEDIAN_MILLIS (median), so the difference shows the number of round trips.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+public class ProductInfoFetchBenchmark {
+
+    private static final long LATENCY_MEDIAN_MILLIS = 10;
+    private static final long LATENCY_P99_MILLIS = 40;
+    private static final String WAREHOUSE_ID = "1";
+
+    @Param({"10", "100", "1000"})
+    public int products;
+
+    @Param({"true", "false"})
+    public boolean batchEndpoint;
+
+    private StubBackend stubBackend;
+    private ProductInfoBatchFetcher productInfoBatchFetcher;
+
+    private List<Product> productsToFetch;
+
+
+    @Setup(Level.Trial)
+    public void startStubBackend() throws Exception {
+        stubBackend = new StubBackend(new StubBackendSettings()
+                .setPort(0)
+                .setProducts(products)
+                .setLatency(StubBackendSettings.ALL_ENDPOINTS, LATENCY_MEDIAN_MILLIS, LATENCY_P99_MILLIS)
+                .setBatchEndpoint(batchEndpoint));
+        stubBackend.start();
+
+        productInfoBatchFetcher = new ProductInfoBatchFetcher(stubBackend.getUrl());
+    }
+
+    @TearDown(Level.Trial)
+    public void stopStubBackend() {
+        stubBackend.stop();
+    }
+
+    @Setup(Level.Invocation)
+    public void setUpProducts() {
+        // Every invocation has to request all products.
+        MyApplication.getProductInfoCache().clear();
+
+        productsToFetch = new ArrayList<>(products);
+        for(int i = 1; i <= products; ++i) {
+            productsToFetch.add(new Product(String.valueOf(i), WAREHOUSE_ID));
+        }
+    }
+
+
+    @Benchmark
+    public int fetch() throws InterruptedException {
+        CountDownLatch finished = new CountDownLatch(1);
+        productInfoBatchFetcher.fetch(productsToFetch, fetch -> finished.countDown());
+        finished.await();
+
+        int fetched = 0;
+        for(Product product : productsToFetch) {
+            if(product.getName() != null) ++fetched;
+        }
+        if(fetched != products) {
+            throw new IllegalStateException("Fetched " + fetched + " of " + products + " products");
+        }
+        return fetched;
+    }
+
+}
@@ -0,0 +1,110 @@
+package com.andreasmenzel.adds.Manager;
+
+import com.andreasmenzel.adds.DataClasses.Product;
+import com.andreasmenzel.adds.Envelopes;
+import com.andreasmenzel.adds.Events.Event;
+import com.andreasmenzel.adds.Events.FetchProductInfoFailed;
+import com.andreasmenzel.adds.Events.FetchProductInfoSucceeded;
+import com.andreasmenzel.adds.MyApplication;
+import com.andreasmenzel.adds.ResponseAnalyzer;
+
+import org.greenrobot.eventbus.Subscribe;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the dispatch of product info responses by a shared CommunicationManager: decoding and
+ * analyzing the response, processing its payload and posting the result event. The allocated
+ * bytes per response (gc.alloc.rate.norm of the gc profiler) of dispatch minus those of
+ * analyzeAndProcess are what the dispatch itself allocates: the request and its result event.
+ * The result event carries the response analyzer of its request, so it cannot be preallocated;
+ * the outcomes are resolved once per manager and nothing else is allocated per response.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ResponseDispatchBenchmark {
+
+    private static final String BACKEND_URL = "http://localhost/";
+
+    public enum Outcome {
+        succeeded,
+        failed
+    }
+
+    /**
+     * Receives the result events, so the bus does not post a NoSubscriberEvent for each.
+     */
+    public static class ProductInfoSubscriber {
+
+        @Subscribe
+        public void fetchProductInfoSucceeded(FetchProductInfoSucceeded event) {
+
+        }
+
+        @Subscribe
+        public void fetchProductInfoFailed(FetchProductInfoFailed event) {
+
+        }
+
+    }
+
+    @Param({"succeeded", "failed"})
+    public Outcome outcome;
+
+    private final ProductInfoSubscriber subscriber = new ProductInfoSubscriber();
+    private CommunicationManager productManager;
+    private Product product;
+    private byte[] body;
+
+
+    @Setup
+    public void setUp() {
+        MyApplication.getEventBus().register(subscriber);
+
+        productManager = new CommunicationManager(CommunicationManager.RequestTypes.fetchProduct, BACKEND_URL, 1);
+        product = new Product("product-1", "warehouse-1");
+        String response = outcome == Outcome.succeeded
+                ? Envelopes.envelope(true, 0, Envelopes.productInfoPayload(Envelopes.Size.realistic, "product-1"))
+                : Envelopes.envelope(false, 1, "{}");
+        body = response.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @TearDown
+    public void tearDown() {
+        MyApplication.getEventBus().unregister(subscriber);
+    }
+
+
+    /**
+     * Only decodes and analyzes the response and processes its payload: the part of the dispatch
+     * that depends on the payload.
+     */
+    @Benchmark
+    public ResponseAnalyzer analyzeAndProcess() {
+        ResponseAnalyzer responseAnalyzer = new ResponseAnalyzer();
+        responseAnalyzer.analyze(new String(body, StandardCharsets.UTF_8));
+        if(responseAnalyzer.wasExecuted()) {
+            productManager.processPayload(responseAnalyzer, product, null, null);
+        }
+
+        return responseAnalyzer;
+    }
+
+    @Benchmark
+    public Event dispatch() throws IOException {
+        return productManager.dispatchResponse(product, 200, body);
+    }
+
+}
@@ -0,0 +1,77 @@
+package com.andreasmenzel.adds;
+
+import com.andreasmenzel.adds.DataClasses.Product;
+import com.andreasmenzel.adds.DataClasses.ProductList;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the UI thread work of the product list for a burst of 500 product information events
+ * arriving within one frame, for 1k and 5k rows: one snapshot of the list per frame (UpdateCoalescer,
+ * as ProductListActivity does) against one snapshot per event. The time per burst has to stay well
+ * below the frame budget (16 ms at 60 Hz). The rows of the adapter are not built, because
+ * ProductListAdapter needs the Android framework.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ProductListUpdateBenchmark {
+
+    private static final int EVENTS = 500;
+
+    @Param({"1000", "5000"})
+    public int rows;
+
+    private ProductList productList;
+    private List<Product> products;
+
+    // The runnables waiting for the next frame.
+    private final List<Runnable> nextFrame = new ArrayList<>();
+
+
+    @Setup
+    public void setUp() {
+        productList = new ProductList("warehouse-1");
+        for(int i = 0; i < rows; ++i) {
+            productList.addProduct(new Product("product-" + i, "warehouse-1"));
+        }
+        products = productList.getProductsCopy();
+    }
+
+
+    @Benchmark
+    public void coalescedPerFrame(Blackhole blackhole) {
+        UpdateCoalescer uiUpdate = new UpdateCoalescer(() -> blackhole.consume(productList.getProductsCopy()), nextFrame::add);
+
+        for(int i = 0; i < EVENTS; ++i) {
+            products.get(i).setName("Product " + i);
+            uiUpdate.request();
+        }
+
+        for(Runnable runnable : nextFrame) {
+            runnable.run();
+        }
+        nextFrame.clear();
+    }
+
+    @Benchmark
+    public void snapshotPerEvent(Blackhole blackhole) {
+        for(int i = 0; i < EVENTS; ++i) {
+            products.get(i).setName("Product " + i);
+            blackhole.consume(productList.getProductsCopy());
+        }
+    }
+
+}
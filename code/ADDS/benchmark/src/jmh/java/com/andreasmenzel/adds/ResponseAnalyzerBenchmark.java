@@ -0,0 +1,77 @@
+package com.andreasmenzel.adds;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures analyzing responses (parsing the envelope, collecting the errors and warnings) and
+ * joining the errors for the UI. Reports the throughput and, via the sample time mode, the
+ * percentiles (p99) of the latency.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ResponseAnalyzerBenchmark {
+
+    @Param({"small", "realistic", "extreme"})
+    public Envelopes.Size size;
+
+    private String stocksResponse;
+    private String productInfoResponse;
+    private String failedResponse;
+
+    private ResponseAnalyzer analyzedFailedResponse;
+
+
+    @Setup
+    public void setUp() {
+        stocksResponse = Envelopes.envelope(true, size.getMessages(), Envelopes.stocksPayload(size, "warehouse-1"));
+        productInfoResponse = Envelopes.envelope(true, size.getMessages(), Envelopes.productInfoPayload(size, "product-1"));
+        failedResponse = Envelopes.envelope(false, Math.max(1, size.getMessages()), "{}");
+
+        analyzedFailedResponse = new ResponseAnalyzer();
+        analyzedFailedResponse.analyze(failedResponse);
+    }
+
+
+    @Benchmark
+    public ResponseAnalyzer analyzeStocks() {
+        ResponseAnalyzer responseAnalyzer = new ResponseAnalyzer();
+        responseAnalyzer.analyze(stocksResponse);
+        return responseAnalyzer;
+    }
+
+    @Benchmark
+    public ResponseAnalyzer analyzeProductInfo() {
+        ResponseAnalyzer responseAnalyzer = new ResponseAnalyzer();
+        responseAnalyzer.analyze(productInfoResponse);
+        return responseAnalyzer;
+    }
+
+    /**
+     * Analyzes a failed response and joins its errors, as it happens before they are shown.
+     */
+    @Benchmark
+    public String analyzeAndGetErrorsString() {
+        ResponseAnalyzer responseAnalyzer = new ResponseAnalyzer();
+        responseAnalyzer.analyze(failedResponse);
+        return responseAnalyzer.getErrorsString();
+    }
+
+    /**
+     * Joins the errors of an analyzed response again (e.g. on every UI update).
+     */
+    @Benchmark
+    public String getErrorsString() {
+        return analyzedFailedResponse.getErrorsString();
+    }
+
+}
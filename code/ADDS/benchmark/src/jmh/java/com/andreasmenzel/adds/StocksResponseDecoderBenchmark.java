@@ -0,0 +1,133 @@
+package com.andreasmenzel.adds;
+
+import com.andreasmenzel.adds.DataClasses.Product;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares decoding a response to api/stocks while it is read (StocksResponseDecoder) with
+ * building a string of the whole response and a JSON tree of it (ResponseAnalyzer.analyze()), for
+ * 1k, 10k and 100k stock entries. Both build the products of the stocks, as the product list does.
+ *
+ * Reports the time per response, the allocated bytes per response (gc.alloc.rate.norm of the gc
+ * profiler) and the peak heap of every iteration ("peak heap: ..." in the output of the fork). The
+ * forks run with a small young generation, so the peak heap follows the memory that is live while
+ * a response is decoded instead of the size of the young generation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-XX:+UseSerialGC", "-Xmn4m", "-Xmx512m"})
+public class StocksResponseDecoderBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int stocks;
+
+    // The body of the response as it arrives from the network.
+    private byte[] response;
+
+
+    @Setup
+    public void setUp() {
+        response = Envelopes.envelope(true, 0, Envelopes.stocksPayload(stocks, "warehouse-1")).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Setup(Level.Iteration)
+    public void resetPeakHeap() {
+        System.gc();
+        for(MemoryPoolMXBean memoryPool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if(memoryPool.getType() == MemoryType.HEAP) {
+                memoryPool.resetPeakUsage();
+            }
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void printPeakHeap() {
+        long peakHeapBytes = 0;
+        for(MemoryPoolMXBean memoryPool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if(memoryPool.getType() == MemoryType.HEAP) {
+                peakHeapBytes += memoryPool.getPeakUsage().getUsed();
+            }
+        }
+
+        System.out.println("peak heap: " + peakHeapBytes / 1024 + " KiB");
+    }
+
+
+    /**
+     * Decodes the stocks while the body is read (as CommunicationManager.decodeStocks()).
+     */
+    @Benchmark
+    public List<Product> decodeWhileReading() {
+        List<Product> products = new ArrayList<>();
+        ResponseAnalyzer responseAnalyzer = new ResponseAnalyzer();
+
+        StocksResponseDecoder.decode(body(), responseAnalyzer, (productId, warehouseId, quantity) -> {
+            Product product = new Product(productId, warehouseId);
+            product.setQuantity(quantity);
+            products.add(product);
+        });
+
+        return products;
+    }
+
+    /**
+     * Reads the body into a string, analyzes it into a JSON tree and takes the stocks from the
+     * tree.
+     */
+    @Benchmark
+    public List<Product> analyzeTree() throws IOException {
+        StringBuilder body = new StringBuilder();
+        char[] buffer = new char[8192];
+        try(Reader in = body()) {
+            for(int read; (read = in.read(buffer)) != -1; ) {
+                body.append(buffer, 0, read);
+            }
+        }
+
+        ResponseAnalyzer responseAnalyzer = new ResponseAnalyzer();
+        responseAnalyzer.analyze(body.toString());
+
+        JSONArray stocksArray = responseAnalyzer.getPayload().getJSONArray("stocks");
+        List<Product> products = new ArrayList<>(stocksArray.length());
+        for(int i = 0; i < stocksArray.length(); ++i) {
+            JSONObject stock = stocksArray.getJSONObject(i);
+            Product product = new Product(stock.getString("product_id"), stock.getString("warehouse_id"));
+            product.setQuantity(stock.optInt("quantity", -1));
+            products.add(product);
+        }
+
+        return products;
+    }
+
+
+    private Reader body() {
+        return new InputStreamReader(new ByteArrayInputStream(response), StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,447 @@
+package com.andreasmenzel.adds;
+
+import com.andreasmenzel.adds.DataClasses.Product;
+import com.andreasmenzel.adds.DataClasses.ProductList;
+import com.andreasmenzel.adds.Events.FetchProductInfoFailed;
+import com.andreasmenzel.adds.Events.FetchProductListFailed;
+import com.andreasmenzel.adds.Events.ProductListChanged;
+import com.andreasmenzel.adds.Events.UpdateProductInfoUI;
+import com.andreasmenzel.adds.Manager.CommunicationManager;
+import com.andreasmenzel.adds.Manager.RequestMetrics;
+import com.andreasmenzel.adds.stubbackend.StubBackend;
+import com.andreasmenzel.adds.stubbackend.StubBackendSettings;
+
+import org.greenrobot.eventbus.EventBus;
+import org.greenrobot.eventbus.Subscribe;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drives the CommunicationManagers of the app on the host JVM: creates thousands of products and
+ * product lists and updates them concurrently from several threads against the stub backend.
+ * Reports the sustained requests per second, the latency from the call (updateProductInfo(),
+ * updateProductList()) to the bus event that shows the result, failed and dropped updates (no
+ * result before the timeout), the thread count and the heap growth as JSON.
+ *
+ * Run with ./gradlew :benchmark:loadTest --args='--products=5000 --lists=200 --threads=16'.
+ * Options: --products, --lists, --threads, --rounds, --timeout-seconds, --output and all options of
+ * the stub backend with the prefix "stub-" (e.g. --stub-latency=*:20:200).
+ */
+public class LoadTest {
+
+    /**
+     * The results of the updates of one kind (products or product lists) in all rounds.
+     */
+    private static class Results {
+        final AtomicLong issued = new AtomicLong();
+        final AtomicLong completed = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        final AtomicLong dropped = new AtomicLong();
+        // The latencies in nanoseconds.
+        final List<Long> latencies = new ArrayList<>();
+
+        synchronized void complete(long latencyNanos) {
+            completed.incrementAndGet();
+            latencies.add(latencyNanos);
+        }
+
+        synchronized JSONObject toJson() {
+            long[] sorted = new long[latencies.size()];
+            for(int i = 0; i < sorted.length; ++i) {
+                sorted[i] = latencies.get(i);
+            }
+            Arrays.sort(sorted);
+
+            JSONObject latency = new JSONObject();
+            latency.put("p50_ms", percentileMillis(sorted, 0.50));
+            latency.put("p95_ms", percentileMillis(sorted, 0.95));
+            latency.put("p99_ms", percentileMillis(sorted, 0.99));
+            latency.put("max_ms", sorted.length > 0 ? sorted[sorted.length - 1] / 1e6 : 0);
+
+            JSONObject json = new JSONObject();
+            json.put("issued", issued.get());
+            json.put("completed", completed.get());
+            json.put("failed", failed.get());
+            json.put("dropped", dropped.get());
+            json.put("latency", latency);
+            return json;
+        }
+
+        private static double percentileMillis(long[] sorted, double percentile) {
+            if(sorted.length == 0) return 0;
+            return sorted[(int) Math.min(sorted.length - 1, Math.ceil(sorted.length * percentile) - 1)] / 1e6;
+        }
+    }
+
+    // The products and product lists whose payload was stored by the current thread, but whose
+    // bus event was not posted yet (the event is posted on the same thread right after).
+    private static final ThreadLocal<List<Object>> storedTargets = ThreadLocal.withInitial(ArrayList::new);
+
+    /**
+     * A product that notices when its information is stored.
+     */
+    private static class TrackedProduct extends Product {
+        TrackedProduct(String id, String warehouseID) {
+            super(id, warehouseID);
+        }
+
+        @Override
+        public void setName(String name) {
+            super.setName(name);
+            storedTargets.get().add(this);
+        }
+    }
+
+    /**
+     * A product list that notices when received stocks are stored.
+     */
+    private static class TrackedProductList extends ProductList {
+        TrackedProductList(String warehouseID) {
+            super(warehouseID);
+        }
+
+        @Override
+        public synchronized ProductListChanged reconcile(List<Product> receivedProducts) {
+            ProductListChanged productListChanged = super.reconcile(receivedProducts);
+            storedTargets.get().add(this);
+            return productListChanged;
+        }
+    }
+
+
+    private int products = 5000;
+    private int lists = 100;
+    private int threads = 16;
+    private int rounds = 3;
+    private long timeoutSeconds = 60;
+    private String output = null;
+    private final List<String> stubArgs = new ArrayList<>();
+
+    private final Results productResults = new Results();
+    private final Results listResults = new Results();
+
+    // The start of the pending updates (System.nanoTime()) by product or product list.
+    private final Map<Object, Long> pendingProducts = new ConcurrentHashMap<>();
+    private final Map<Object, Long> pendingLists = new ConcurrentHashMap<>();
+    private volatile CountDownLatch pendingLatch;
+
+
+    public static void main(String[] args) throws Exception {
+        LoadTest loadTest = new LoadTest();
+        loadTest.parseArgs(args);
+
+        JSONObject report = loadTest.run();
+
+        File outputFile = new File(loadTest.output != null ? loadTest.output
+                : "build/reports/load-test/load-test-" + new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.US).format(new Date()) + ".json");
+        File outputDirectory = outputFile.getAbsoluteFile().getParentFile();
+        if(!outputDirectory.isDirectory() && !outputDirectory.mkdirs()) {
+            throw new IOException("Cannot create " + outputDirectory);
+        }
+        try(Writer writer = new FileWriter(outputFile)) {
+            writer.write(report.toString(2));
+        }
+
+        System.out.println(report.toString(2));
+        System.out.println("Written to " + outputFile.getPath());
+        System.exit(0);
+    }
+
+    private void parseArgs(String[] args) {
+        for(String arg : args) {
+            int separator = arg.indexOf('=');
+            if(!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException("Invalid option: " + arg);
+            }
+            String name = arg.substring(2, separator);
+            String value = arg.substring(separator + 1);
+
+            if(name.startsWith("stub-")) {
+                stubArgs.add("--" + name.substring("stub-".length()) + "=" + value);
+                continue;
+            }
+
+            switch(name) {
+                case "products":
+                    products = Integer.parseInt(value);
+                    break;
+                case "lists":
+                    lists = Integer.parseInt(value);
+                    break;
+                case "threads":
+                    threads = Math.max(1, Integer.parseInt(value));
+                    break;
+                case "rounds":
+                    rounds = Math.max(1, Integer.parseInt(value));
+                    break;
+                case "timeout-seconds":
+                    timeoutSeconds = Long.parseLong(value);
+                    break;
+                case "output":
+                    output = value;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + name);
+            }
+        }
+    }
+
+
+    /**
+     * Runs all rounds against a new stub backend.
+     *
+     * @return The report.
+     */
+    private JSONObject run() throws Exception {
+        StubBackendSettings stubSettings = StubBackendSettings.fromArgs(stubArgs.toArray(new String[0])).setPort(0);
+        StubBackend stubBackend = new StubBackend(stubSettings);
+        stubBackend.start();
+        CommunicationManager.setBackendUrls(stubBackend.getUrl(), stubBackend.getUrl());
+
+        EventBus bus = MyApplication.getEventBus();
+        bus.register(this);
+
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
+        int threadsBefore = threadBean.getThreadCount();
+        long heapBefore = usedHeapAfterGc(memoryBean);
+        threadBean.resetPeakThreadCount();
+        MyApplication.getRequestMetrics().reset();
+
+        ExecutorService callers = Executors.newFixedThreadPool(threads);
+        JSONArray roundReports = new JSONArray();
+
+        long start = System.nanoTime();
+        for(int round = 0; round < rounds; ++round) {
+            roundReports.put(runRound(callers, stubBackend, round));
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        callers.shutdown();
+        bus.unregister(this);
+
+        JSONObject report = new JSONObject();
+        report.put("commit", gitCommit());
+        report.put("timestamp", System.currentTimeMillis());
+
+        JSONObject settings = new JSONObject();
+        settings.put("products", products);
+        settings.put("lists", lists);
+        settings.put("threads", threads);
+        settings.put("rounds", rounds);
+        settings.put("timeout_seconds", timeoutSeconds);
+        settings.put("stub", new JSONArray(stubArgs));
+        report.put("settings", settings);
+
+        report.put("duration_seconds", seconds);
+        report.put("requests_per_second", stubBackend.getRequestsAnswered() / seconds);
+        report.put("updates_per_second", (productResults.completed.get() + listResults.completed.get()) / seconds);
+        report.put("products", productResults.toJson());
+        report.put("lists", listResults.toJson());
+        report.put("rounds", roundReports);
+
+        JSONObject threadReport = new JSONObject();
+        threadReport.put("before", threadsBefore);
+        threadReport.put("peak", threadBean.getPeakThreadCount());
+        threadReport.put("after", threadBean.getThreadCount());
+        report.put("threads", threadReport);
+
+        JSONObject heapReport = new JSONObject();
+        heapReport.put("before_bytes", heapBefore);
+        long heapAfter = usedHeapAfterGc(memoryBean);
+        heapReport.put("after_bytes", heapAfter);
+        heapReport.put("growth_bytes", heapAfter - heapBefore);
+        report.put("heap", heapReport);
+
+        report.put("request_phases", requestPhases(MyApplication.getRequestMetrics()));
+
+        stubBackend.stop();
+        return report;
+    }
+
+    /**
+     * Updates new products and product lists from all caller threads and waits until all of them
+     * are finished or the timeout passed.
+     */
+    private JSONObject runRound(ExecutorService callers, StubBackend stubBackend, int round) throws InterruptedException {
+        // Every round fetches the product information again.
+        MyApplication.getProductInfoCache().clear();
+        pendingProducts.clear();
+        pendingLists.clear();
+        long failedProductsBefore = productResults.failed.get();
+        long failedListsBefore = listResults.failed.get();
+        long requestsBefore = stubBackend.getRequestsAnswered();
+
+        int datasetProducts = stubBackend.getDataset().getProducts();
+        List<String> warehouseIds = stubBackend.getDataset().getWarehouseIds();
+
+        List<Product> roundProducts = new ArrayList<>(products);
+        for(int i = 0; i < products; ++i) {
+            roundProducts.add(new TrackedProduct(String.valueOf(i % datasetProducts + 1), warehouseIds.get(0)));
+        }
+        List<ProductList> roundLists = new ArrayList<>(lists);
+        for(int i = 0; i < lists; ++i) {
+            roundLists.add(new TrackedProductList(warehouseIds.get(i % warehouseIds.size())));
+        }
+
+        pendingLatch = new CountDownLatch(products + lists);
+        long start = System.nanoTime();
+
+        // Interleave the updates of the products and product lists over all caller threads.
+        int updates = Math.max(products, lists);
+        for(int thread = 0; thread < threads; ++thread) {
+            int firstUpdate = thread;
+            callers.execute(() -> {
+                for(int i = firstUpdate; i < updates; i += threads) {
+                    if(i < products) {
+                        Product product = roundProducts.get(i);
+                        productResults.issued.incrementAndGet();
+                        pendingProducts.put(product, System.nanoTime());
+                        product.updateProductInfo();
+                        if(product.getName() != null) {
+                            // Served from the product info cache without a request.
+                            complete(pendingProducts, product, productResults);
+                        }
+                    }
+                    if(i < lists) {
+                        ProductList productList = roundLists.get(i);
+                        listResults.issued.incrementAndGet();
+                        pendingLists.put(productList, System.nanoTime());
+                        productList.updateProductList();
+                    }
+                }
+            });
+        }
+
+        boolean finished = pendingLatch.await(timeoutSeconds, TimeUnit.SECONDS);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        // Updates without a result (neither stored nor failed) were dropped.
+        long droppedProducts = Math.max(0, pendingProducts.size() - (productResults.failed.get() - failedProductsBefore));
+        long droppedLists = Math.max(0, pendingLists.size() - (listResults.failed.get() - failedListsBefore));
+        productResults.dropped.addAndGet(droppedProducts);
+        listResults.dropped.addAndGet(droppedLists);
+
+        JSONObject roundReport = new JSONObject();
+        roundReport.put("round", round);
+        roundReport.put("finished_before_timeout", finished);
+        roundReport.put("duration_seconds", seconds);
+        roundReport.put("requests_per_second", (stubBackend.getRequestsAnswered() - requestsBefore) / seconds);
+        roundReport.put("dropped_products", droppedProducts);
+        roundReport.put("dropped_lists", droppedLists);
+        return roundReport;
+    }
+
+
+    @Subscribe
+    public void onProductInfoUpdated(UpdateProductInfoUI event) {
+        completeStoredTargets();
+
+        if(event instanceof FetchProductInfoFailed) {
+            productResults.failed.incrementAndGet();
+            pendingLatch.countDown();
+        }
+    }
+
+    @Subscribe
+    public void onProductListChanged(ProductListChanged event) {
+        completeStoredTargets();
+    }
+
+    @Subscribe
+    public void onProductListFailed(FetchProductListFailed event) {
+        listResults.failed.incrementAndGet();
+        pendingLatch.countDown();
+    }
+
+    /**
+     * Completes the products and product lists whose payload was stored by this thread right
+     * before the event was posted.
+     */
+    private void completeStoredTargets() {
+        List<Object> targets = storedTargets.get();
+        for(Object target : targets) {
+            if(target instanceof ProductList) {
+                complete(pendingLists, target, listResults);
+            } else {
+                complete(pendingProducts, target, productResults);
+            }
+        }
+        targets.clear();
+    }
+
+    private void complete(Map<Object, Long> pending, Object target, Results results) {
+        Long start = pending.remove(target);
+        if(start == null) return;
+
+        results.complete(System.nanoTime() - start);
+        pendingLatch.countDown();
+    }
+
+
+    private static JSONObject requestPhases(RequestMetrics requestMetrics) {
+        JSONObject phases = new JSONObject();
+        for(CommunicationManager.RequestTypes requestType : CommunicationManager.RequestTypes.values()) {
+            JSONObject phasesOfType = new JSONObject();
+            for(RequestMetrics.Phase phase : RequestMetrics.Phase.values()) {
+                RequestMetrics.Snapshot snapshot = requestMetrics.getSnapshot(requestType, phase);
+                if(snapshot.getCount() == 0) continue;
+
+                JSONObject phaseJson = new JSONObject();
+                phaseJson.put("count", snapshot.getCount());
+                phaseJson.put("p50_ms", snapshot.getP50Micros() / 1000.0);
+                phaseJson.put("p95_ms", snapshot.getP95Micros() / 1000.0);
+                phaseJson.put("p99_ms", snapshot.getP99Micros() / 1000.0);
+                phasesOfType.put(phase.name(), phaseJson);
+            }
+            if(phasesOfType.length() > 0) {
+                phases.put(requestType.name(), phasesOfType);
+            }
+        }
+        return phases;
+    }
+
+    private static long usedHeapAfterGc(MemoryMXBean memoryBean) throws InterruptedException {
+        for(int i = 0; i < 3; ++i) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return memoryBean.getHeapMemoryUsage().getUsed();
+    }
+
+    private static String gitCommit() {
+        try {
+            Process process = new ProcessBuilder("git", "rev-parse", "HEAD").redirectErrorStream(true).start();
+            try(BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+                String commit = reader.readLine();
+                return process.waitFor() == 0 && commit != null ? commit : "unknown";
+            }
+        } catch (IOException | InterruptedException e) {
+            return "unknown";
+        }
+    }
+
+}
@@ -0,0 +1,17 @@
+package android.util;
+
+/**
+ * Host JVM replacement of the Android class (android.jar only contains a stub), see JsonReader.
+ */
+public enum JsonToken {
+    BEGIN_ARRAY,
+    END_ARRAY,
+    BEGIN_OBJECT,
+    END_OBJECT,
+    NAME,
+    STRING,
+    NUMBER,
+    BOOLEAN,
+    NULL,
+    END_DOCUMENT
+}
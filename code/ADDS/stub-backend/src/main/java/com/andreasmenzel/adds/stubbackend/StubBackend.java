@@ -0,0 +1,490 @@
+package com.andreasmenzel.adds.stubbackend;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A stand-in for the User Management System and the Booking System. Serves account/create,
+ * account/activate, authentication/authenticate, api/product_info (?id= and ?ids=) and api/stocks
+ * (optionally paged with ?page_size= and ?cursor=, see ProductList) with the envelope the app expects ({"executed", "errors", "warnings", "payload"}), from a
+ * generated dataset (see StubDataset). Both systems have the same base URL (getUrl()).
+ *
+ * Every endpoint answers after a random latency and fails (503) at a given rate (see
+ * StubBackendSettings). The latency does not block a thread, so many slow requests can be in
+ * progress at the same time.
+ *
+ * The accounts user1@example.com to userN@example.com (N = settings.getAccounts()) exist and are
+ * activated, their pwd_hash is "stub-pwd-hash-1" to "stub-pwd-hash-N". Registered accounts are
+ * activated with the code returned by stub/activation_code?email=. Account requests with an
+ * Idempotency-Key that was already answered get the same answer again.
+ */
+public class StubBackend {
+
+    public static final String PRESET_ACCOUNT_EMAIL_FORMAT = "user%d@example.com";
+    public static final String PRESET_ACCOUNT_PWD_HASH_FORMAT = "stub-pwd-hash-%d";
+    public static final long AUTHENTICATION_TOKEN_LIFETIME_SECONDS = 3600;
+
+    // The error ids of the envelopes.
+    public static final int ERROR_MISSING_PARAMETER = 1;
+    public static final int ERROR_EMAIL_TAKEN = 2;
+    public static final int ERROR_INVALID_ACTIVATION_CODE = 3;
+    public static final int ERROR_INVALID_CREDENTIALS = 4;
+    public static final int ERROR_NOT_ACTIVATED = 5;
+    public static final int ERROR_UNKNOWN_PRODUCT = 6;
+    public static final int ERROR_UNKNOWN_WAREHOUSE = 7;
+    public static final int ERROR_INVALID_CURSOR = 8;
+    public static final int ERROR_UNKNOWN_ENDPOINT = 404;
+    public static final int ERROR_INJECTED = 503;
+
+    /**
+     * An answer: the http status, the body and its ETag (only for cacheable answers).
+     */
+    private static class Answer {
+        final int code;
+        final byte[] body;
+        final String eTag;
+
+        Answer(int code, byte[] body, String eTag) {
+            this.code = code;
+            this.body = body;
+            this.eTag = eTag;
+        }
+    }
+
+    private static class Account {
+        final String pwdHash;
+        final String activationCode;
+        volatile boolean activated;
+
+        Account(String pwdHash, String activationCode, boolean activated) {
+            this.pwdHash = pwdHash;
+            this.activationCode = activationCode;
+            this.activated = activated;
+        }
+    }
+
+
+    private final StubBackendSettings settings;
+    private final StubDataset dataset;
+
+    private final Random random;
+
+    private final Map<String, Account> accountsByEmail = new ConcurrentHashMap<>();
+    private final Map<String, String> emailsByActivationCode = new ConcurrentHashMap<>();
+    private final Map<String, Answer> answersByIdempotencyKey = new ConcurrentHashMap<>();
+    // The answers to api/stocks by warehouse id, page size and cursor (the stocks do not change).
+    private final Map<String, Answer> stocksAnswers = new ConcurrentHashMap<>();
+
+    private final AtomicLong requestsAnswered = new AtomicLong();
+
+    private HttpServer server = null;
+    private ExecutorService handlerExecutor = null;
+    private ScheduledExecutorService answerScheduler = null;
+
+
+    public StubBackend(StubBackendSettings settings) {
+        this.settings = settings;
+        dataset = new StubDataset(settings);
+        random = new Random(settings.getSeed());
+
+        for(int i = 1; i <= settings.getAccounts(); ++i) {
+            accountsByEmail.put(String.format(PRESET_ACCOUNT_EMAIL_FORMAT, i),
+                    new Account(String.format(PRESET_ACCOUNT_PWD_HASH_FORMAT, i), null, true));
+        }
+    }
+
+
+    /**
+     * Starts the stub backend with the settings of the command line (see StubBackendSettings) and
+     * runs until the process is stopped.
+     *
+     * @param args The options.
+     * @throws IOException If the server cannot be started.
+     */
+    public static void main(String[] args) throws IOException {
+        StubBackendSettings settings = StubBackendSettings.fromArgs(args);
+
+        StubBackend stubBackend = new StubBackend(settings);
+        stubBackend.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(stubBackend::stop));
+
+        System.out.println("Stub backend listening on " + stubBackend.getUrl() + " ("
+                + settings.getProducts() + " products, " + settings.getWarehouses() + " warehouses, "
+                + settings.getAccounts() + " accounts)");
+    }
+
+
+    /**
+     * Starts the server.
+     *
+     * @throws IOException If the port cannot be bound.
+     */
+    public synchronized void start() throws IOException {
+        if(server != null) return;
+
+        handlerExecutor = Executors.newFixedThreadPool(settings.getThreads());
+        answerScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "StubBackend answers");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // Without TCP_NODELAY, the body (written after the headers) waits for the delayed ACK of
+        // the client, which adds about 40 ms to every answer. Read once, when the first server is
+        // created.
+        if(System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+
+        server = HttpServer.create(new InetSocketAddress(settings.getPort()), 0);
+        server.setExecutor(handlerExecutor);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    /**
+     * Stops the server. Requests in progress are not answered.
+     */
+    public synchronized void stop() {
+        if(server == null) return;
+
+        server.stop(0);
+        handlerExecutor.shutdownNow();
+        answerScheduler.shutdownNow();
+        server = null;
+    }
+
+
+    /**
+     * Answers a request after the latency of its endpoint.
+     *
+     * @param exchange The request.
+     */
+    private void handle(HttpExchange exchange) {
+        String endpoint = exchange.getRequestURI().getPath().replaceFirst("^/+", "");
+        Map<String, String> parameters = parseQuery(exchange.getRequestURI().getRawQuery());
+
+        double chance;
+        double gaussian;
+        synchronized(random) {
+            chance = random.nextDouble();
+            gaussian = random.nextGaussian();
+        }
+
+        Answer answer;
+        if(chance < settings.getErrorRate(endpoint)) {
+            answer = new Answer(503, failed(ERROR_INJECTED, "Service unavailable (injected error)"), null);
+        } else {
+            answer = answer(endpoint, parameters, exchange.getRequestHeaders().getFirst("Idempotency-Key"));
+        }
+
+        if(answer.eTag != null && answer.eTag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            answer = new Answer(304, null, answer.eTag);
+        }
+
+        long latencyMillis = settings.getLatency(endpoint).sample(gaussian);
+        Answer finalAnswer = answer;
+        if(latencyMillis <= 0) {
+            send(exchange, finalAnswer);
+        } else {
+            // The scheduler only waits; large answers are written by the handler threads.
+            answerScheduler.schedule(() -> handlerExecutor.execute(() -> send(exchange, finalAnswer)), latencyMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private Answer answer(String endpoint, Map<String, String> parameters, String idempotencyKey) {
+        switch(endpoint) {
+            case "account/create":
+            case "account/activate": {
+                if(idempotencyKey == null) {
+                    return "account/create".equals(endpoint) ? createAccount(parameters) : activateAccount(parameters);
+                }
+
+                // The first answer to a key is kept, so a replay does not register twice.
+                return answersByIdempotencyKey.computeIfAbsent(idempotencyKey,
+                        key -> "account/create".equals(endpoint) ? createAccount(parameters) : activateAccount(parameters));
+            }
+            case "authentication/authenticate":
+                return authenticate(parameters);
+            case "api/product_info":
+                return productInfo(parameters);
+            case "api/stocks":
+                return stocks(parameters);
+            case "stub/activation_code":
+                return activationCode(parameters);
+            default:
+                return new Answer(404, failed(ERROR_UNKNOWN_ENDPOINT, "Unknown endpoint: " + endpoint), null);
+        }
+    }
+
+    private Answer createAccount(Map<String, String> parameters) {
+        String email = parameters.get("email");
+        String pwdHash = parameters.get("pwd_hash");
+        if(email == null || email.isEmpty() || pwdHash == null || pwdHash.isEmpty() || !parameters.containsKey("pwd_salt")) {
+            return ok(failed(ERROR_MISSING_PARAMETER, "Missing email, pwd_salt or pwd_hash"));
+        }
+
+        String activationCode = UUID.randomUUID().toString().substring(0, 8);
+        if(accountsByEmail.putIfAbsent(email, new Account(pwdHash, activationCode, false)) != null) {
+            return ok(failed(ERROR_EMAIL_TAKEN, "An account with this email already exists"));
+        }
+        emailsByActivationCode.put(activationCode, email);
+
+        return ok(executed(new JSONObject()));
+    }
+
+    private Answer activateAccount(Map<String, String> parameters) {
+        String email = emailsByActivationCode.remove(String.valueOf(parameters.get("activation_code")));
+        Account account = email != null ? accountsByEmail.get(email) : null;
+        if(account == null) {
+            return ok(failed(ERROR_INVALID_ACTIVATION_CODE, "Invalid activation code"));
+        }
+
+        account.activated = true;
+        return ok(executed(new JSONObject()));
+    }
+
+    private Answer authenticate(Map<String, String> parameters) {
+        Account account = accountsByEmail.get(String.valueOf(parameters.get("email")));
+        if(account == null || !account.pwdHash.equals(parameters.get("pwd_hash"))) {
+            return ok(failed(ERROR_INVALID_CREDENTIALS, "Invalid email or password"));
+        }
+        if(!account.activated) {
+            return ok(failed(ERROR_NOT_ACTIVATED, "The account is not activated"));
+        }
+
+        JSONObject payload = new JSONObject();
+        payload.put("auth_token", UUID.randomUUID().toString());
+        payload.put("exp", System.currentTimeMillis() / 1000 + AUTHENTICATION_TOKEN_LIFETIME_SECONDS);
+        return ok(executed(payload));
+    }
+
+    private Answer productInfo(Map<String, String> parameters) {
+        String ids = parameters.get("ids");
+        if(ids != null && !settings.isBatchEndpoint()) {
+            // Like a Booking System without the batch endpoint.
+            return new Answer(404, failed(ERROR_UNKNOWN_ENDPOINT, "Unknown endpoint: api/product_info?ids="), null);
+        }
+        if(ids != null) {
+            // Batch request: unknown ids are left out.
+            JSONArray products = new JSONArray();
+            for(String id : ids.split(",")) {
+                JSONObject productInfo = dataset.getProductInfo(id);
+                if(productInfo != null) {
+                    products.put(productInfo);
+                }
+            }
+
+            JSONObject payload = new JSONObject();
+            payload.put("products", products);
+            return cacheable(executed(payload));
+        }
+
+        JSONObject productInfo = dataset.getProductInfo(parameters.get("id"));
+        if(productInfo == null) {
+            return ok(failed(ERROR_UNKNOWN_PRODUCT, "Unknown product: " + parameters.get("id")));
+        }
+
+        productInfo.remove("id");
+        return cacheable(executed(productInfo));
+    }
+
+    private Answer stocks(Map<String, String> parameters) {
+        String warehouseId = String.valueOf(parameters.get("warehouse_id"));
+        String pageSize = parameters.get("page_size");
+        String cursor = parameters.get("cursor");
+
+        String key = warehouseId + "/" + pageSize + "/" + cursor;
+        Answer answer = stocksAnswers.get(key);
+        if(answer == null) {
+            JSONArray stocks = dataset.getStocks(warehouseId);
+            if(stocks == null) {
+                return ok(failed(ERROR_UNKNOWN_WAREHOUSE, "Unknown warehouse: " + warehouseId));
+            }
+
+            JSONObject payload = new JSONObject();
+            if(pageSize == null) {
+                payload.put("stocks", stocks);
+            } else {
+                // The cursor is the offset of the page.
+                int offset;
+                int limit;
+                try {
+                    offset = cursor != null ? Integer.parseInt(cursor) : 0;
+                    limit = Math.max(1, Integer.parseInt(pageSize));
+                } catch (NumberFormatException e) {
+                    return ok(failed(ERROR_INVALID_CURSOR, "Invalid cursor or page size: " + cursor + ", " + pageSize));
+                }
+                if(offset < 0 || offset > stocks.length()) {
+                    return ok(failed(ERROR_INVALID_CURSOR, "Invalid cursor: " + cursor));
+                }
+
+                int end = Math.min(stocks.length(), offset + limit);
+                JSONArray page = new JSONArray();
+                for(int i = offset; i < end; ++i) {
+                    page.put(stocks.get(i));
+                }
+                payload.put("stocks", page);
+                payload.put("next_cursor", end < stocks.length() ? String.valueOf(end) : JSONObject.NULL);
+            }
+
+            answer = cacheable(executed(payload));
+            stocksAnswers.put(key, answer);
+        }
+
+        return answer;
+    }
+
+    private Answer activationCode(Map<String, String> parameters) {
+        Account account = accountsByEmail.get(String.valueOf(parameters.get("email")));
+        if(account == null || account.activationCode == null) {
+            return ok(failed(ERROR_INVALID_CREDENTIALS, "No account to activate with this email"));
+        }
+
+        JSONObject payload = new JSONObject();
+        payload.put("activation_code", account.activationCode);
+        return ok(executed(payload));
+    }
+
+
+    private void send(HttpExchange exchange, Answer answer) {
+        try {
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            if(answer.eTag != null) {
+                exchange.getResponseHeaders().set("ETag", answer.eTag);
+            }
+
+            if(answer.body == null) {
+                exchange.sendResponseHeaders(answer.code, -1);
+            } else {
+                exchange.sendResponseHeaders(answer.code, answer.body.length);
+                try(OutputStream body = exchange.getResponseBody()) {
+                    body.write(answer.body);
+                }
+            }
+            requestsAnswered.incrementAndGet();
+        } catch (IOException e) {
+            // The client went away.
+        } finally {
+            exchange.close();
+        }
+    }
+
+
+    private static Answer ok(byte[] body) {
+        return new Answer(200, body, null);
+    }
+
+    private static Answer cacheable(byte[] body) {
+        return new Answer(200, body, eTag(body));
+    }
+
+    private static byte[] executed(JSONObject payload) {
+        JSONObject envelope = new JSONObject();
+        envelope.put("executed", true);
+        envelope.put("errors", new JSONArray());
+        envelope.put("warnings", new JSONArray());
+        envelope.put("payload", payload);
+        return envelope.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] failed(int errorId, String errorMessage) {
+        JSONObject error = new JSONObject();
+        error.put("err_id", errorId);
+        error.put("err_msg", errorMessage);
+
+        JSONObject envelope = new JSONObject();
+        envelope.put("executed", false);
+        envelope.put("errors", new JSONArray().put(error));
+        envelope.put("warnings", new JSONArray());
+        envelope.put("payload", new JSONObject());
+        return envelope.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String eTag(byte[] body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+            StringBuilder eTag = new StringBuilder("\"");
+            for(int i = 0; i < 8; ++i) {
+                eTag.append(String.format("%02x", digest[i]));
+            }
+            return eTag.append('"').toString();
+        } catch (NoSuchAlgorithmException e) {
+            return null;
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> parameters = new HashMap<>();
+        if(rawQuery == null) return parameters;
+
+        for(String parameter : rawQuery.split("&")) {
+            int separator = parameter.indexOf('=');
+            String name = separator >= 0 ? parameter.substring(0, separator) : parameter;
+            String value = separator >= 0 ? parameter.substring(separator + 1) : "";
+            try {
+                parameters.put(URLDecoder.decode(name, "UTF-8"), URLDecoder.decode(value, "UTF-8"));
+            } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+                // Skip the malformed parameter.
+            }
+        }
+
+        return parameters;
+    }
+
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+    //                                    GETTERS AND SETTERS                                     //
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Returns the base URL of the stub backend (ending with "/"), to be used as the URL of the
+     * User Management System and of the Booking System. Only valid while it is started.
+     *
+     * @return The base URL.
+     */
+    public synchronized String getUrl() {
+        return "http://localhost:" + server.getAddress().getPort() + "/";
+    }
+
+    /**
+     * Returns the generated dataset.
+     *
+     * @return dataset.
+     */
+    public StubDataset getDataset() {
+        return dataset;
+    }
+
+    /**
+     * Returns the number of requests that were answered.
+     *
+     * @return The number of requests.
+     */
+    public long getRequestsAnswered() {
+        return requestsAnswered.get();
+    }
+
+}
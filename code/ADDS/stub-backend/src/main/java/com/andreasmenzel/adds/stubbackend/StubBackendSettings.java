@@ -0,0 +1,391 @@
+package com.andreasmenzel.adds.stubbackend;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The settings of the stub backend: the port, the size of the generated dataset and the latency
+ * and error rate of every endpoint. Endpoints are given by their path (e.g. "api/stocks"); "*"
+ * sets the default of all endpoints.
+ *
+ * Command line options (see fromArgs()):
+ * --port=8080 --threads=8 --seed=1 --products=1000 --warehouses=10 --stocks-per-warehouse=100
+ * --description-length=200 --accounts=100 --batch-endpoint=true --latency=api/stocks:50:400
+ * --error-rate=*:0.01
+ * A latency is given by its median and p99 in milliseconds.
+ */
+public class StubBackendSettings {
+
+    public static final String ALL_ENDPOINTS = "*";
+
+    /**
+     * The latency distribution of an endpoint: log-normal with the given median and p99.
+     */
+    public static class Latency {
+        // The z-score of the 99th percentile of the standard normal distribution.
+        private static final double Z_99 = 2.326;
+
+        private final long medianMillis;
+        private final long p99Millis;
+
+        public Latency(long medianMillis, long p99Millis) {
+            this.medianMillis = Math.max(0, medianMillis);
+            this.p99Millis = Math.max(this.medianMillis, p99Millis);
+        }
+
+        /**
+         * Returns a random latency of this distribution.
+         *
+         * @param gaussian A sample of the standard normal distribution.
+         * @return The latency in milliseconds.
+         */
+        public long sample(double gaussian) {
+            if(medianMillis == 0) return 0;
+
+            double sigma = (Math.log(p99Millis) - Math.log(medianMillis)) / Z_99;
+            return Math.round(Math.exp(Math.log(medianMillis) + sigma * gaussian));
+        }
+
+        /**
+         * Returns the median latency.
+         *
+         * @return medianMillis.
+         */
+        public long getMedianMillis() {
+            return medianMillis;
+        }
+
+        /**
+         * Returns the 99th percentile of the latency.
+         *
+         * @return p99Millis.
+         */
+        public long getP99Millis() {
+            return p99Millis;
+        }
+    }
+
+
+    private int port = 8080;
+    private int threads = 8;
+    private long seed = 1;
+
+    private int products = 1000;
+    private int warehouses = 10;
+    private int stocksPerWarehouse = 100;
+    private int descriptionLength = 200;
+    private int accounts = 100;
+    private boolean batchEndpoint = true;
+
+    private final Map<String, Latency> latencies = new HashMap<>();
+    private final Map<String, Double> errorRates = new HashMap<>();
+
+
+    public StubBackendSettings() {
+        latencies.put(ALL_ENDPOINTS, new Latency(0, 0));
+        errorRates.put(ALL_ENDPOINTS, 0.0);
+    }
+
+
+    /**
+     * Reads the settings from command line options (see the description of the class).
+     *
+     * @param args The options.
+     * @return The settings.
+     * @throws IllegalArgumentException If an option is unknown or invalid.
+     */
+    public static StubBackendSettings fromArgs(String[] args) {
+        StubBackendSettings settings = new StubBackendSettings();
+
+        for(String arg : args) {
+            int separator = arg.indexOf('=');
+            if(!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException("Invalid option: " + arg);
+            }
+            String name = arg.substring(2, separator);
+            String value = arg.substring(separator + 1);
+
+            switch(name) {
+                case "port":
+                    settings.setPort(Integer.parseInt(value));
+                    break;
+                case "threads":
+                    settings.setThreads(Integer.parseInt(value));
+                    break;
+                case "seed":
+                    settings.setSeed(Long.parseLong(value));
+                    break;
+                case "products":
+                    settings.setProducts(Integer.parseInt(value));
+                    break;
+                case "warehouses":
+                    settings.setWarehouses(Integer.parseInt(value));
+                    break;
+                case "stocks-per-warehouse":
+                    settings.setStocksPerWarehouse(Integer.parseInt(value));
+                    break;
+                case "description-length":
+                    settings.setDescriptionLength(Integer.parseInt(value));
+                    break;
+                case "accounts":
+                    settings.setAccounts(Integer.parseInt(value));
+                    break;
+                case "batch-endpoint":
+                    settings.setBatchEndpoint(Boolean.parseBoolean(value));
+                    break;
+                case "latency": {
+                    String[] parts = value.split(":");
+                    if(parts.length != 3) throw new IllegalArgumentException("Invalid latency: " + value);
+                    settings.setLatency(parts[0], Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+                    break;
+                }
+                case "error-rate": {
+                    String[] parts = value.split(":");
+                    if(parts.length != 2) throw new IllegalArgumentException("Invalid error rate: " + value);
+                    settings.setErrorRate(parts[0], Double.parseDouble(parts[1]));
+                    break;
+                }
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + name);
+            }
+        }
+
+        return settings;
+    }
+
+
+    /**
+     * Sets the latency distribution of an endpoint.
+     *
+     * @param endpoint The path of the endpoint (e.g. "api/stocks") or "*" for all endpoints.
+     * @param medianMillis The median latency.
+     * @param p99Millis The 99th percentile of the latency.
+     * @return The settings.
+     */
+    public StubBackendSettings setLatency(String endpoint, long medianMillis, long p99Millis) {
+        latencies.put(endpoint, new Latency(medianMillis, p99Millis));
+        return this;
+    }
+
+    /**
+     * Sets the rate of requests to an endpoint that are answered with 503 Service Unavailable.
+     *
+     * @param endpoint The path of the endpoint (e.g. "api/stocks") or "*" for all endpoints.
+     * @param errorRate The rate (0 to 1).
+     * @return The settings.
+     */
+    public StubBackendSettings setErrorRate(String endpoint, double errorRate) {
+        errorRates.put(endpoint, Math.min(1, Math.max(0, errorRate)));
+        return this;
+    }
+
+    /**
+     * Returns the latency distribution of an endpoint.
+     *
+     * @param endpoint The path of the endpoint.
+     * @return The latency distribution.
+     */
+    public Latency getLatency(String endpoint) {
+        Latency latency = latencies.get(endpoint);
+        return latency != null ? latency : latencies.get(ALL_ENDPOINTS);
+    }
+
+    /**
+     * Returns the rate of requests to an endpoint that are answered with an error.
+     *
+     * @param endpoint The path of the endpoint.
+     * @return The error rate.
+     */
+    public double getErrorRate(String endpoint) {
+        Double errorRate = errorRates.get(endpoint);
+        return errorRate != null ? errorRate : errorRates.get(ALL_ENDPOINTS);
+    }
+
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+    //                                    GETTERS AND SETTERS                                     //
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Returns the port the server listens on (0 = any free port).
+     *
+     * @return port.
+     */
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * Sets the port the server listens on (0 = any free port).
+     *
+     * @param port port.
+     * @return The settings.
+     */
+    public StubBackendSettings setPort(int port) {
+        this.port = port;
+        return this;
+    }
+
+    /**
+     * Returns the number of threads that handle the requests.
+     *
+     * @return threads.
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Sets the number of threads that handle the requests. The latency does not block them.
+     *
+     * @param threads threads.
+     * @return The settings.
+     */
+    public StubBackendSettings setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+        return this;
+    }
+
+    /**
+     * Returns the seed of the generated dataset, latencies and errors.
+     *
+     * @return seed.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Sets the seed of the generated dataset, latencies and errors.
+     *
+     * @param seed seed.
+     * @return The settings.
+     */
+    public StubBackendSettings setSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * Returns the number of products.
+     *
+     * @return products.
+     */
+    public int getProducts() {
+        return products;
+    }
+
+    /**
+     * Sets the number of products.
+     *
+     * @param products products.
+     * @return The settings.
+     */
+    public StubBackendSettings setProducts(int products) {
+        this.products = Math.max(1, products);
+        return this;
+    }
+
+    /**
+     * Returns the number of warehouses.
+     *
+     * @return warehouses.
+     */
+    public int getWarehouses() {
+        return warehouses;
+    }
+
+    /**
+     * Sets the number of warehouses.
+     *
+     * @param warehouses warehouses.
+     * @return The settings.
+     */
+    public StubBackendSettings setWarehouses(int warehouses) {
+        this.warehouses = Math.max(1, warehouses);
+        return this;
+    }
+
+    /**
+     * Returns the number of stock entries (distinct products) per warehouse.
+     *
+     * @return stocksPerWarehouse.
+     */
+    public int getStocksPerWarehouse() {
+        return stocksPerWarehouse;
+    }
+
+    /**
+     * Sets the number of stock entries (distinct products) per warehouse. At most the number of
+     * products.
+     *
+     * @param stocksPerWarehouse stocksPerWarehouse.
+     * @return The settings.
+     */
+    public StubBackendSettings setStocksPerWarehouse(int stocksPerWarehouse) {
+        this.stocksPerWarehouse = Math.max(0, stocksPerWarehouse);
+        return this;
+    }
+
+    /**
+     * Returns the length of the product descriptions.
+     *
+     * @return descriptionLength.
+     */
+    public int getDescriptionLength() {
+        return descriptionLength;
+    }
+
+    /**
+     * Sets the length of the product descriptions.
+     *
+     * @param descriptionLength descriptionLength.
+     * @return The settings.
+     */
+    public StubBackendSettings setDescriptionLength(int descriptionLength) {
+        this.descriptionLength = Math.max(0, descriptionLength);
+        return this;
+    }
+
+    /**
+     * Returns the number of activated accounts that exist from the start (see StubBackend).
+     *
+     * @return accounts.
+     */
+    public int getAccounts() {
+        return accounts;
+    }
+
+    /**
+     * Sets the number of activated accounts that exist from the start (see StubBackend).
+     *
+     * @param accounts accounts.
+     * @return The settings.
+     */
+    public StubBackendSettings setAccounts(int accounts) {
+        this.accounts = Math.max(0, accounts);
+        return this;
+    }
+
+    /**
+     * Returns whether api/product_info answers batch requests (?ids=).
+     *
+     * @return batchEndpoint.
+     */
+    public boolean isBatchEndpoint() {
+        return batchEndpoint;
+    }
+
+    /**
+     * Sets whether api/product_info answers batch requests (?ids=). Without, they are answered with
+     * 404 Not Found like by a Booking System that does not have the batch endpoint.
+     *
+     * @param batchEndpoint batchEndpoint.
+     * @return The settings.
+     */
+    public StubBackendSettings setBatchEndpoint(boolean batchEndpoint) {
+        this.batchEndpoint = batchEndpoint;
+        return this;
+    }
+
+}
@@ -0,0 +1,150 @@
+package com.andreasmenzel.adds.stubbackend;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The products and the stocks of the warehouses of the stub backend. The dataset is generated
+ * from the seed of the settings, so every run with the same settings serves the same data.
+ * Product ids are "1" to products, warehouse ids "1" to warehouses.
+ */
+public class StubDataset {
+
+    private static final String LOREM_IPSUM = "Lorem ipsum dolor sit amet, consectetur adipiscing elit. ";
+
+    private final int products;
+    private final int descriptionLength;
+    // The product indices and quantities of the stocks, by warehouse index.
+    private final int[][] stockProducts;
+    private final int[][] stockQuantities;
+
+
+    public StubDataset(StubBackendSettings settings) {
+        products = settings.getProducts();
+        descriptionLength = settings.getDescriptionLength();
+
+        Random random = new Random(settings.getSeed());
+        int stocksPerWarehouse = Math.min(settings.getStocksPerWarehouse(), products);
+
+        stockProducts = new int[settings.getWarehouses()][];
+        stockQuantities = new int[settings.getWarehouses()][];
+
+        int[] productIndices = new int[products];
+        for(int i = 0; i < products; ++i) {
+            productIndices[i] = i;
+        }
+        for(int warehouse = 0; warehouse < stockProducts.length; ++warehouse) {
+            // Choose distinct products (partial Fisher-Yates shuffle).
+            for(int i = 0; i < stocksPerWarehouse; ++i) {
+                int j = i + random.nextInt(products - i);
+                int swap = productIndices[i];
+                productIndices[i] = productIndices[j];
+                productIndices[j] = swap;
+            }
+
+            stockProducts[warehouse] = new int[stocksPerWarehouse];
+            stockQuantities[warehouse] = new int[stocksPerWarehouse];
+            for(int i = 0; i < stocksPerWarehouse; ++i) {
+                stockProducts[warehouse][i] = productIndices[i];
+                stockQuantities[warehouse][i] = random.nextInt(100);
+            }
+        }
+    }
+
+
+    /**
+     * Returns the information of a product ({"id", "name", "description"}).
+     *
+     * @param productId The id of the product.
+     * @return The information or null if the product does not exist.
+     */
+    public JSONObject getProductInfo(String productId) {
+        int index = parseIndex(productId, products);
+        if(index < 0) return null;
+
+        StringBuilder description = new StringBuilder(descriptionLength);
+        description.append("Product ").append(productId).append(". ");
+        while(description.length() < descriptionLength) {
+            description.append(LOREM_IPSUM);
+        }
+        description.setLength(descriptionLength);
+
+        JSONObject productInfo = new JSONObject();
+        productInfo.put("id", productId);
+        productInfo.put("name", "Product " + productId);
+        productInfo.put("description", description.toString());
+        return productInfo;
+    }
+
+    /**
+     * Returns the stocks of a warehouse ([{"product_id", "warehouse_id", "quantity"}, ...]).
+     *
+     * @param warehouseId The id of the warehouse.
+     * @return The stocks or null if the warehouse does not exist.
+     */
+    public JSONArray getStocks(String warehouseId) {
+        int index = parseIndex(warehouseId, stockProducts.length);
+        if(index < 0) return null;
+
+        JSONArray stocks = new JSONArray();
+        for(int i = 0; i < stockProducts[index].length; ++i) {
+            JSONObject stock = new JSONObject();
+            stock.put("product_id", String.valueOf(stockProducts[index][i] + 1));
+            stock.put("warehouse_id", warehouseId);
+            stock.put("quantity", stockQuantities[index][i]);
+            stocks.put(stock);
+        }
+        return stocks;
+    }
+
+    /**
+     * Returns the ids of all warehouses.
+     *
+     * @return The ids.
+     */
+    public List<String> getWarehouseIds() {
+        List<String> warehouseIds = new ArrayList<>(stockProducts.length);
+        for(int i = 0; i < stockProducts.length; ++i) {
+            warehouseIds.add(String.valueOf(i + 1));
+        }
+        return warehouseIds;
+    }
+
+
+    /**
+     * Returns the index of an id ("1" to count).
+     *
+     * @param id The id.
+     * @param count The number of ids.
+     * @return The index (0 to count - 1) or -1 if the id is invalid.
+     */
+    private static int parseIndex(String id, int count) {
+        if(id == null) return -1;
+
+        try {
+            int index = Integer.parseInt(id) - 1;
+            return index >= 0 && index < count ? index : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+    //                                    GETTERS AND SETTERS                                     //
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Returns the number of products.
+     *
+     * @return products.
+     */
+    public int getProducts() {
+        return products;
+    }
+
+}